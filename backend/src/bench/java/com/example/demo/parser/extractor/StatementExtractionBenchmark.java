@@ -0,0 +1,108 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.StatementToken.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Field extraction from statement text: the per-field regex path against one lexer pass.
+ * Both sides pull the same fields (card digits, statement and due dates, total due, credit limit)
+ * plus every currency amount and date in the text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatementExtractionBenchmark {
+
+    private static final String CARD_NUMBER_PATTERN = "(?:Card\\s+Number|Card\\s+No)\\s*:?\\s*(?:X+\\s*)*?(\\d{4})";
+    private static final String STATEMENT_DATE_PATTERN = "(?:Statement\\s+Date|Date\\s+of\\s+Statement)\\s*:?\\s*([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{4})";
+    private static final String DUE_DATE_PATTERN = "(?:Payment\\s+Due\\s+Date|Due\\s+Date)\\s*:?\\s*([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{4})";
+    private static final String TOTAL_DUE_PATTERN = "(?:Total\\s+Amount\\s+Due|Amount\\s+Due)\\s*:?\\s*(?:Rs\\.?|₹)?\\s*([\\d,]+\\.?\\d*)";
+    private static final String CREDIT_LIMIT_PATTERN = "(?:Credit\\s+Limit)\\s*:?\\s*(?:Rs\\.?|₹)?\\s*([\\d,]+\\.?\\d*)";
+
+    private static final Pattern AMOUNT = Pattern.compile("(?:Rs\\.?|₹|INR)\\s*([\\d,]+\\.?\\d*)");
+    private static final Pattern[] DATES = {
+            Pattern.compile("\\d{2}[-/]\\d{2}[-/]\\d{4}"),
+            Pattern.compile("\\d{2}[-/][A-Za-z]{3}[-/]\\d{4}"),
+            Pattern.compile("\\d{2}\\s+[A-Za-z]{3}\\s+\\d{4}")
+    };
+
+    /** Approximate statement size in KB; the sample statements are repeated to reach it */
+    @Param({"4", "200"})
+    public int sizeKb;
+
+    private String text;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder samples = new StringBuilder();
+        File[] files = new File(System.getProperty("samples.dir", "../Sample pdfs"))
+                .listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+        if (files != null) {
+            for (File file : files) {
+                samples.append(PDFTextExtractor.extractText(file)).append('\n');
+            }
+        }
+        if (samples.length() == 0) {
+            samples.append("Card Number: XXXX XXXX XXXX 1234\nStatement Date: 01-Oct-2024\n")
+                    .append("Payment Due Date: 20-Oct-2024\nTotal Amount Due: Rs. 43,230.00\n")
+                    .append("Credit Limit: Rs. 3,00,000\n03-Sep-24 AMAZON INDIA 1,499.00\n");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < sizeKb * 1024) {
+            builder.append(samples);
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public void regexPath(Blackhole bh) {
+        bh.consume(PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1));
+        bh.consume(PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1));
+        bh.consume(PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1));
+        bh.consume(PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1));
+        bh.consume(PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1));
+
+        Matcher amounts = AMOUNT.matcher(text);
+        while (amounts.find()) {
+            bh.consume(amounts.group(1));
+        }
+        for (Pattern date : DATES) {
+            Matcher dates = date.matcher(text);
+            while (dates.find()) {
+                bh.consume(dates.group());
+            }
+        }
+    }
+
+    @Benchmark
+    public void lexerPath(Blackhole bh) {
+        StatementTokens tokens = StatementTokens.of(text);
+
+        bh.consume(tokens.cardDigitsAfter("Card Number", "Card No"));
+        bh.consume(tokens.valueAfter(Type.DATE, "Statement Date", "Date of Statement"));
+        bh.consume(tokens.valueAfter(Type.DATE, "Payment Due Date", "Due Date"));
+        bh.consume(tokens.valueAfter(Type.AMOUNT, "Total Amount Due", "Amount Due"));
+        bh.consume(tokens.valueAfter(Type.AMOUNT, "Credit Limit"));
+
+        for (StatementToken token : tokens) {
+            if (token.is(Type.DATE) || (token.is(Type.AMOUNT) && token.getValue() != null)) {
+                bh.consume(token.getText());
+            }
+        }
+    }
+}
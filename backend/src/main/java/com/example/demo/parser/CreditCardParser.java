@@ -1,5 +1,6 @@
 package com.example.demo.parser;
 
+import com.example.demo.parser.extractor.NormalizedText;
 import com.example.demo.parser.model.StatementData;
 
 import java.io.File;
@@ -19,12 +20,30 @@ public interface CreditCardParser {
      */
     StatementData parse(File pdfFile) throws IOException;
 
+    /**
+     * Check if this parser can handle the given statement
+     * @param text Normalized view of the extracted text, shared by all parsers
+     * @return true if this parser supports the statement format
+     */
+    boolean supports(NormalizedText text);
+
     /**
      * Check if this parser can handle the given statement
      * @param text The extracted text from PDF
      * @return true if this parser supports the statement format
      */
-    boolean supports(String text);
+    default boolean supports(String text) {
+        return text != null && supports(NormalizedText.of(text));
+    }
+
+    /**
+     * Whether the parser reads transactions. Layout templates only hold page 1 summary fields,
+     * so statements of such issuers are never read from a template alone.
+     * @return true if {@link #parse(File)} may return transactions
+     */
+    default boolean readsTransactions() {
+        return false;
+    }
 
     /**
      * Get the issuer name
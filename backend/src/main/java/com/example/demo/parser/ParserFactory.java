@@ -1,5 +1,6 @@
 package com.example.demo.parser;
 
+import com.example.demo.parser.extractor.NormalizedText;
 import com.example.demo.parser.issuer.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,15 @@ public class ParserFactory {
             return null;
         }
 
+        return getParser(NormalizedText.of(statementText));
+    }
+
+    /**
+     * Get the appropriate parser for an already normalized statement text
+     * @param statementText Normalized view of the extracted text
+     * @return Appropriate parser or null if no parser supports the format
+     */
+    public static CreditCardParser getParser(NormalizedText statementText) {
         for (CreditCardParser parser : parsers) {
             if (parser.supports(statementText)) {
                 logger.info("Found matching parser: {}", parser.getIssuerName());
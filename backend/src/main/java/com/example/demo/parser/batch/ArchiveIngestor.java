@@ -0,0 +1,212 @@
+package com.example.demo.parser.batch;
+
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.service.DirectBufferPool;
+import com.example.demo.parser.service.ParsePriority;
+import com.example.demo.parser.service.ParserService;
+import com.example.demo.parser.service.StageTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Parses the PDFs inside a zip or tar archive while the archive is still being read.
+ * The calling thread reads entries in order into pooled buffers and hands each to the executor;
+ * at most {@code lookahead} entries are buffered or parsing at once, so memory stays bounded by
+ * lookahead times the maximum entry size whatever the size of the archive. Results are written
+ * in archive order as soon as the entries before them are done.
+ */
+public class ArchiveIngestor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveIngestor.class);
+
+    private final ParserService parserService;
+    private final DirectBufferPool bufferPool;
+    private final Executor executor;
+    private final int lookahead;
+    private final Duration timeout;
+    private final String password;
+    private final Set<UUID> seenContent;
+    private final AtomicLong duplicates = new AtomicLong();
+
+    /**
+     * Destination of the per-entry results
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(BatchRecord record) throws IOException;
+
+        /**
+         * Called instead of {@link #accept} for an entry skipped because its content was seen before
+         * @param name The entry name
+         */
+        default void duplicate(String name) throws IOException {
+        }
+    }
+
+    /**
+     * @param parserService Parses each entry
+     * @param bufferPool Holds entry content while it waits and parses
+     * @param executor Runs the parses
+     * @param lookahead Entries read ahead of the oldest unfinished one
+     * @param timeout Deadline for each entry, or null for none
+     * @param password Password for protected entries, or null
+     */
+    public ArchiveIngestor(ParserService parserService, DirectBufferPool bufferPool, Executor executor,
+                           int lookahead, Duration timeout, String password) {
+        this(parserService, bufferPool, executor, lookahead, timeout, password, null);
+    }
+
+    /**
+     * @param seenContent Content keys of statements already parsed, shared between ingestors that
+     *                    should skip each other's duplicates, or null to parse everything
+     */
+    public ArchiveIngestor(ParserService parserService, DirectBufferPool bufferPool, Executor executor,
+                           int lookahead, Duration timeout, String password, Set<UUID> seenContent) {
+        this.parserService = parserService;
+        this.bufferPool = bufferPool;
+        this.executor = executor;
+        this.lookahead = Math.max(1, lookahead);
+        this.timeout = timeout;
+        this.password = password;
+        this.seenContent = seenContent;
+    }
+
+    /**
+     * Parse every PDF entry of an archive
+     * @param archive The archive stream; read to the end but not closed
+     * @param sink Receives one record per PDF entry, in archive order
+     * @param skip Entry names to pass over, e.g. those completed by an earlier run
+     * @return Number of entries that failed to parse
+     * @throws IOException if the archive cannot be read or a result cannot be written
+     */
+    public int ingest(InputStream archive, RecordSink sink, Predicate<String> skip) throws IOException {
+        try (ArchiveReader reader = ArchiveReader.open(ArchiveReader.shielded(archive))) {
+            return ingest(reader, sink, skip);
+        }
+    }
+
+    /**
+     * Parse every PDF entry of an open reader, such as a {@link MailReader}
+     * @param reader The entries; read to the end but not closed
+     * @param sink Receives one record per PDF entry, in reader order
+     * @param skip Entry names to pass over
+     * @return Number of entries that failed to parse
+     * @throws IOException if the input cannot be read or a result cannot be written
+     */
+    public int ingest(ArchiveReader reader, RecordSink sink, Predicate<String> skip) throws IOException {
+        ArrayDeque<CompletableFuture<BatchRecord>> pending = new ArrayDeque<>();
+        int failures = 0;
+        int entries = 0;
+
+        try {
+            ArchiveReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                String name = entry.getName();
+                if (!name.toLowerCase(Locale.ROOT).endsWith(".pdf") || skip.test(name)) {
+                    continue;
+                }
+                CompletableFuture<BatchRecord> result = submit(name, entry);
+                if (result == null) {
+                    sink.duplicate(name);
+                    continue;
+                }
+                entries++;
+                pending.add(result);
+
+                // Bounded look-ahead: wait for the oldest entry once the window is full
+                while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() >= lookahead)) {
+                    failures += write(sink, pending.poll().join());
+                }
+            }
+        } finally {
+            // Whatever is already submitted still gets its result line, even if the archive broke off
+            while (!pending.isEmpty()) {
+                failures += write(sink, pending.poll().join());
+            }
+        }
+
+        logger.info("Archive done: {} statements, {} failed, {} duplicates", entries, failures, duplicates.get());
+        return failures;
+    }
+
+    /**
+     * @return The pending result, or null if the content was a duplicate
+     */
+    private CompletableFuture<BatchRecord> submit(String name, ArchiveReader.Entry entry) {
+        ByteBuffer content;
+        try {
+            content = bufferPool.read(entry.getContent(), entry.getSize());
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(BatchRecord.of(name, null, new StageTimer(), e));
+        }
+        if (seenContent != null && !seenContent.add(contentKey(content))) {
+            logger.debug("Skipping {}: same content as an earlier statement", name);
+            bufferPool.release(content);
+            duplicates.incrementAndGet();
+            return null;
+        }
+        // Entries parse in the priority class of whoever is reading the archive
+        ParsePriority priority = ParsePriority.current();
+        return CompletableFuture.supplyAsync(() -> parse(name, content, priority), executor);
+    }
+
+    private BatchRecord parse(String name, ByteBuffer content, ParsePriority priority) {
+        StageTimer timer = new StageTimer();
+        StatementData data = null;
+        Throwable error = null;
+
+        try (ParsePriority.Scope scope = priority.open();
+             ParseDeadline deadline = timeout != null ? ParseDeadline.start(timeout) : null) {
+            data = parserService.parseStatement(content, password, timer);
+        } catch (Exception e) {
+            error = e;
+        } finally {
+            bufferPool.release(content);
+        }
+        return BatchRecord.of(name, data, timer, error);
+    }
+
+    /**
+     * @return Entries skipped because their content had been seen before
+     */
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * First 128 bits of the SHA-256 of the content; two longs per entry keeps the seen set small
+     * across millions of statements
+     */
+    private static UUID contentKey(ByteBuffer content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        digest.update(content.duplicate());
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new UUID(hash.getLong(), hash.getLong());
+    }
+
+    private static int write(RecordSink sink, BatchRecord record) throws IOException {
+        sink.accept(record);
+        return record.getError() != null ? 1 : 0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.parser.batch;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the entries of a zip, tar or gzipped tar archive one after another from a stream,
+ * without extracting anything to disk. The format is detected from the first bytes.
+ */
+public abstract class ArchiveReader implements Closeable {
+
+    private static final int SNIFF_BYTES = 512;
+
+    /**
+     * One archive entry; its content is readable until the next call to {@link #next()}
+     */
+    public static final class Entry {
+        private final String name;
+        private final long size;
+        private final InputStream content;
+
+        Entry(String name, long size, InputStream content) {
+            this.name = name;
+            this.size = size;
+            this.content = content;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Size in bytes, or -1 if the archive does not say up front
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public InputStream getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * @param in The archive; closed with the reader
+     * @return A reader for the detected format
+     * @throws IOException if the stream is neither zip nor (gzipped) tar
+     */
+    public static ArchiveReader open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        byte[] head = peek(buffered);
+        if (head.length >= 2 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b) {
+            buffered = new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024), 64 * 1024);
+            head = peek(buffered);
+        }
+        if (head.length >= 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4) {
+            return new ZipReader(buffered);
+        }
+        if (head.length >= 262 && new String(head, 257, 5, StandardCharsets.US_ASCII).equals("ustar")) {
+            return new TarReader(buffered);
+        }
+        buffered.close();
+        throw new IOException("Unsupported archive format: expected zip, tar or tar.gz");
+    }
+
+    /**
+     * @return The next file entry, skipping directories, or null at the end of the archive
+     * @throws IOException if the archive is corrupt or cannot be read
+     */
+    public abstract Entry next() throws IOException;
+
+    private static byte[] peek(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        byte[] head = in.readNBytes(SNIFF_BYTES);
+        in.reset();
+        return head;
+    }
+
+    /**
+     * Entry content that leaves the underlying archive stream open when closed
+     */
+    static InputStream shielded(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static final class ZipReader extends ArchiveReader {
+
+        private final ZipInputStream zip;
+
+        ZipReader(InputStream in) {
+            this.zip = new ZipInputStream(in);
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    return new Entry(entry.getName(), entry.getSize(), shielded(zip));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+}
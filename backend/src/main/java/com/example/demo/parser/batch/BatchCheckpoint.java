@@ -0,0 +1,74 @@
+package com.example.demo.parser.batch;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only list of files a batch run has finished, so an interrupted run can resume.
+ * A file is only marked done after its result line has been written.
+ */
+public class BatchCheckpoint implements Closeable {
+
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+    private final BufferedWriter writer;
+
+    /**
+     * Open a checkpoint file, loading entries from a previous run when resuming
+     * @param file The checkpoint file
+     * @param resume Whether to keep entries from a previous run
+     * @throws IOException if the file cannot be read or opened
+     */
+    public BatchCheckpoint(Path file, boolean resume) throws IOException {
+        if (resume && Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    completed.add(line.trim());
+                }
+            }
+        }
+
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * @param key File key relative to the batch root
+     * @return true if a previous run already finished this file
+     */
+    public boolean isCompleted(String key) {
+        return completed.contains(key);
+    }
+
+    /**
+     * Mark a file as finished and flush the checkpoint
+     * @param key File key relative to the batch root
+     * @throws IOException if writing fails
+     */
+    public synchronized void markCompleted(String key) throws IOException {
+        if (completed.add(key)) {
+            writer.write(key);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    /**
+     * @return Number of files finished so far, including previous runs
+     */
+    public int size() {
+        return completed.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.demo.parser.batch;
+
+import com.example.demo.parser.extractor.PDFDocumentLoader;
+import com.example.demo.parser.extractor.PDFInputMode;
+import com.example.demo.parser.extractor.PDFLoadLimits;
+import com.example.demo.parser.service.DirectBufferPool;
+import com.example.demo.parser.service.ParserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Headless bulk re-parse of a directory tree of statement PDFs, or of the PDFs in a zip, tar or
+ * tar.gz archive, streamed without extracting it. PDF attachments in mbox files and .eml
+ * messages, given directly or found in the tree, are parsed too; a statement mailed more than
+ * once is parsed once.
+ * Runs without the Spring context so it starts quickly; results are written one line per
+ * statement and progress is checkpointed so an interrupted run picks up where it stopped.
+ *
+ * Usage: java -cp statement-parser.jar -Dloader.main=com.example.demo.parser.batch.BatchParserCli
+ *        org.springframework.boot.loader.PropertiesLauncher &lt;input-dir|archive|mailbox&gt; [options]
+ */
+public class BatchParserCli {
+
+    private final Path root;
+    private final Path output;
+    private final Path checkpointFile;
+    private final BatchResultWriter.Format format;
+    private final int parallelism;
+    private final boolean fresh;
+    private final Duration timeout;
+    private final String password;
+    private final PipelineSettings stages;
+
+    /** Largest archive entry, or file in a directory walk, read into memory */
+    private static final DataSize ARCHIVE_ENTRY_LIMIT = DataSize.ofMegabytes(64);
+
+    /** Attachments each mail source may read ahead of its oldest unfinished one */
+    private static final int MAIL_LOOKAHEAD = 2;
+
+    private final ParserService parserService = new ParserService();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private Logger logger;
+
+    public BatchParserCli(Path root, Path output, Path checkpointFile,
+                          BatchResultWriter.Format format, int parallelism, boolean fresh, Duration timeout,
+                          String password, PipelineSettings stages) {
+        this.root = root;
+        this.output = output;
+        this.checkpointFile = checkpointFile;
+        this.format = format;
+        this.parallelism = parallelism;
+        this.fresh = fresh;
+        this.timeout = timeout;
+        this.password = password;
+        this.stages = stages;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            printUsage();
+            System.exit(2);
+        }
+
+        // Keep the console quiet unless the caller brings their own logging config
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "logback-cli.xml");
+        }
+
+        Path root = Paths.get(args[0]);
+        Path output = Paths.get("batch-results.ndjson");
+        Path checkpoint = null;
+        BatchResultWriter.Format format = BatchResultWriter.Format.NDJSON;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean fresh = false;
+        Duration timeout = null;
+        String password = null;
+        String stageThreads = null;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--output" -> output = Paths.get(args[++i]);
+                case "--checkpoint" -> checkpoint = Paths.get(args[++i]);
+                case "--format" -> format = BatchResultWriter.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+                case "--fresh" -> fresh = true;
+                case "--timeout" -> timeout = DurationStyle.detectAndParse(args[++i]);
+                case "--password-env" -> password = System.getenv(args[++i]);
+                case "--stage-threads" -> stageThreads = args[++i];
+                case "--mmap" -> PDFDocumentLoader.configure(PDFLoadLimits.builder()
+                        .inputMode(PDFInputMode.MAPPED)
+                        .build());
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    printUsage();
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (!Files.isDirectory(root) && !Files.isRegularFile(root)) {
+            System.err.println("Not a directory, archive or mailbox: " + root);
+            System.exit(2);
+        }
+
+        if (checkpoint == null) {
+            checkpoint = Paths.get(output + ".checkpoint");
+        }
+
+        PipelineSettings stages = PipelineSettings.forParallelism(parallelism);
+        if (stageThreads != null) {
+            stages = stages.withThreads(stageThreads);
+        }
+
+        try {
+            int failures = new BatchParserCli(root, output, checkpoint, format, parallelism, fresh, timeout,
+                    password, stages).run();
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Batch run failed: " + e.getMessage());
+            System.exit(3);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: BatchParserCli <input-dir|archive|mbox|eml> [--output file] [--format ndjson|csv]");
+        System.out.println("                      [--checkpoint file] [--parallelism n] [--timeout 30s] [--fresh] [--mmap]");
+        System.out.println("                      [--password-env VAR]  (password for protected statements, read from VAR)");
+        System.out.println("                      [--stage-threads read=2,extract=8,parse=4,write=1]  (directory runs)");
+    }
+
+    /**
+     * Walk the input tree and parse every PDF not already recorded in the checkpoint, through the
+     * {@link StagedPipeline} sized by the stage settings
+     * @return Number of statements that failed to parse
+     * @throws IOException if the tree, output or checkpoint cannot be accessed
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public int run() throws IOException, InterruptedException {
+        logger = LoggerFactory.getLogger(BatchParserCli.class);
+        long started = System.nanoTime();
+
+        boolean resume = !fresh && Files.exists(checkpointFile);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try (BatchCheckpoint checkpoint = new BatchCheckpoint(checkpointFile, resume);
+             BatchResultWriter writer = new BatchResultWriter(output, format, resume)) {
+
+            if (resume) {
+                System.err.printf("Resuming: %d statements already done%n", checkpoint.size());
+            }
+
+            if (Files.isRegularFile(root) && isMailbox(root)) {
+                ingestMail(List.of(root), pool, writer, checkpoint);
+            } else if (Files.isRegularFile(root)) {
+                ingestArchive(pool, writer, checkpoint);
+            } else {
+                List<Path> mail = new ArrayList<>();
+                StagedPipeline pipeline = new StagedPipeline(parserService,
+                        new DirectBufferPool(ARCHIVE_ENTRY_LIMIT, ARCHIVE_ENTRY_LIMIT), stages, timeout, password,
+                        new CheckpointSink(writer, checkpoint));
+                try (Stream<Path> paths = Files.walk(root)) {
+                    Iterator<Path> files = paths.filter(Files::isRegularFile).iterator();
+                    while (files.hasNext()) {
+                        Path path = files.next();
+                        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+                        if (name.endsWith(".eml") || name.endsWith(".mbox")) {
+                            mail.add(path);
+                        } else if (name.endsWith(".pdf") && !isCompleted(checkpoint, keyOf(path))) {
+                            pipeline.submit(path, keyOf(path));
+                        }
+                    }
+                } finally {
+                    pipeline.close();
+                }
+                pipeline.stats().forEach(stage -> System.err.println("  " + stage));
+                if (!mail.isEmpty()) {
+                    ingestMail(mail, pool, writer, checkpoint);
+                }
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.err.printf("Processed %d, failed %d, skipped %d in %d ms%n",
+                processed.get(), failed.get(), skipped.get(), (System.nanoTime() - started) / 1_000_000);
+        return failed.get();
+    }
+
+    /**
+     * Stream the PDFs of an archive through the parser; the checkpoint key of an entry is its path in the archive
+     */
+    private void ingestArchive(ForkJoinPool pool, BatchResultWriter writer, BatchCheckpoint checkpoint)
+            throws IOException {
+        DirectBufferPool buffers = new DirectBufferPool(ARCHIVE_ENTRY_LIMIT, ARCHIVE_ENTRY_LIMIT);
+        ArchiveIngestor ingestor = new ArchiveIngestor(parserService, buffers, pool, parallelism * 2, timeout, password);
+
+        try (InputStream in = Files.newInputStream(root)) {
+            ingestor.ingest(in, new CheckpointSink(writer, checkpoint), name -> isCompleted(checkpoint, name));
+        }
+    }
+
+    /**
+     * Stream the PDF attachments of mbox files and .eml messages through the parser. Sources are
+     * read and decoded in parallel, one per reader thread, while their attachments parse on the
+     * pool; attachments whose content was already seen in this run are skipped. The checkpoint
+     * key of an attachment is "&lt;source&gt;#&lt;message&gt;/&lt;file name&gt;".
+     */
+    private void ingestMail(List<Path> sources, ForkJoinPool pool, BatchResultWriter writer,
+                            BatchCheckpoint checkpoint) throws InterruptedException {
+        DirectBufferPool buffers = new DirectBufferPool(ARCHIVE_ENTRY_LIMIT, ARCHIVE_ENTRY_LIMIT);
+        Set<UUID> seenContent = ConcurrentHashMap.newKeySet();
+        ArchiveIngestor ingestor = new ArchiveIngestor(parserService, buffers, pool,
+                sources.size() == 1 ? parallelism * 2 : MAIL_LOOKAHEAD, timeout, password, seenContent);
+        ExecutorService readers = Executors.newFixedThreadPool(Math.min(parallelism, sources.size()));
+
+        try {
+            for (Path source : sources) {
+                readers.execute(() -> readMail(source, ingestor, writer, checkpoint));
+            }
+            readers.shutdown();
+            readers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            readers.shutdownNow();
+        }
+        System.err.printf("Mail: %d duplicate attachments skipped%n", ingestor.getDuplicates());
+    }
+
+    private void readMail(Path source, ArchiveIngestor ingestor, BatchResultWriter writer, BatchCheckpoint checkpoint) {
+        String name = source.equals(root) ? source.getFileName().toString() : keyOf(source);
+        boolean mbox = !name.toLowerCase(Locale.ROOT).endsWith(".eml");
+
+        try (MailReader reader = new MailReader(Files.newInputStream(source), name, mbox)) {
+            ingestor.ingest(reader, new CheckpointSink(writer, checkpoint), key -> isCompleted(checkpoint, key));
+        } catch (IOException e) {
+            logger.error("Could not read {}: {}", name, e.getMessage());
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * A mailbox by extension, or an mbox file without one (such as a Thunderbird folder) by its "From " first line
+     */
+    private static boolean isMailbox(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".eml") || name.endsWith(".mbox")) {
+            return true;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return "From ".equals(new String(in.readNBytes(5), StandardCharsets.US_ASCII));
+        }
+    }
+
+    private String keyOf(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private boolean isCompleted(BatchCheckpoint checkpoint, String key) {
+        if (checkpoint.isCompleted(key)) {
+            skipped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes streamed results and checkpoints them; duplicates are checkpointed without a result
+     * line so a resumed run does not parse them after all
+     */
+    private final class CheckpointSink implements ArchiveIngestor.RecordSink {
+
+        private final BatchResultWriter writer;
+        private final BatchCheckpoint checkpoint;
+
+        CheckpointSink(BatchResultWriter writer, BatchCheckpoint checkpoint) {
+            this.writer = writer;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public void accept(BatchRecord record) throws IOException {
+            if (record.getError() != null) {
+                failed.incrementAndGet();
+            }
+            writer.write(record);
+            checkpoint.markCompleted(record.getFile());
+            processed.incrementAndGet();
+        }
+
+        @Override
+        public void duplicate(String name) throws IOException {
+            checkpoint.markCompleted(name);
+        }
+    }
+}
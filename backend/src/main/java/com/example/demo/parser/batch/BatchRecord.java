@@ -0,0 +1,84 @@
+package com.example.demo.parser.batch;
+
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.service.StageTimer;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One output line of a batch run: the five key fields of a statement plus timings and errors
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchRecord {
+
+    private String file;
+    private String issuer;
+    private String cardLastFourDigits;
+    private String cardVariant;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate statementDate;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate paymentDueDate;
+
+    private BigDecimal totalAmountDue;
+    private int transactionCount;
+    private boolean valid;
+
+    /**
+     * Stage name to elapsed milliseconds, plus a "total" entry
+     */
+    private Map<String, Long> timingsMs;
+
+    private String error;
+
+    /**
+     * Build a record from a parse attempt
+     * @param file File name relative to the batch root
+     * @param data Parsed data, or null if no parser matched or parsing failed
+     * @param timer Timer that was passed to the parse
+     * @param error Failure, or null on success
+     * @return The record to write
+     */
+    public static BatchRecord of(String file, StatementData data, StageTimer timer, Throwable error) {
+        Map<String, Long> timings = new LinkedHashMap<>(timer.getDurations());
+        timings.put("total", timer.getTotalMillis());
+
+        BatchRecordBuilder builder = BatchRecord.builder()
+                .file(file)
+                .timingsMs(timings);
+
+        if (data != null) {
+            builder.issuer(data.getIssuerName())
+                    .cardLastFourDigits(data.getCardLastFourDigits())
+                    .cardVariant(data.getCardVariant())
+                    .statementDate(data.getStatementDate())
+                    .paymentDueDate(data.getPaymentDueDate())
+                    .totalAmountDue(data.getTotalAmountDue())
+                    .transactionCount(data.getTransactions() != null ? data.getTransactions().size() : 0)
+                    .valid(data.isValid());
+        }
+
+        if (error != null) {
+            builder.error(error.getClass().getSimpleName() + ": " + error.getMessage());
+        } else if (data == null) {
+            builder.error("No suitable parser found for the statement");
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.parser.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Writes batch records as NDJSON or CSV, one line per statement.
+ * Lines are flushed as they are written so a resumed run never sees a half-written record.
+ */
+public class BatchResultWriter implements Closeable {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String[] CSV_STAGES = {"validate", "extract", "detect", "parse", "total"};
+
+    private final Format format;
+    private final BufferedWriter writer;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * Open the output file, appending when resuming so earlier results are kept
+     * @param output The output file
+     * @param format Line format
+     * @param append Whether to append to an existing file
+     * @throws IOException if the file cannot be opened
+     */
+    public BatchResultWriter(Path output, Format format, boolean append) throws IOException {
+        this(Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING),
+                format,
+                format == Format.CSV && (!append || Files.size(output) == 0));
+    }
+
+    /**
+     * Write records to an already open writer, such as standard output
+     * @param writer Destination
+     * @param format Line format
+     * @param writeHeader Whether to start with the CSV header line
+     * @throws IOException if writing the header fails
+     */
+    public BatchResultWriter(Writer writer, Format format, boolean writeHeader) throws IOException {
+        this.format = format;
+        this.writer = writer instanceof BufferedWriter buffered ? buffered : new BufferedWriter(writer);
+
+        if (writeHeader && format == Format.CSV) {
+            this.writer.write("file,issuer,cardLastFourDigits,cardVariant,statementDate,paymentDueDate,"
+                    + "totalAmountDue,transactionCount,valid,validateMs,extractMs,detectMs,parseMs,totalMs,error");
+            this.writer.newLine();
+            this.writer.flush();
+        }
+    }
+
+    /**
+     * Write one record and flush it
+     * @param record The record to write
+     * @throws IOException if writing fails
+     */
+    public synchronized void write(BatchRecord record) throws IOException {
+        writer.write(format == Format.NDJSON ? mapper.writeValueAsString(record) : toCsv(record));
+        writer.newLine();
+        writer.flush();
+    }
+
+    private String toCsv(BatchRecord record) {
+        StringBuilder line = new StringBuilder();
+        line.append(csv(record.getFile())).append(',')
+                .append(csv(record.getIssuer())).append(',')
+                .append(csv(record.getCardLastFourDigits())).append(',')
+                .append(csv(record.getCardVariant())).append(',')
+                .append(csv(record.getStatementDate())).append(',')
+                .append(csv(record.getPaymentDueDate())).append(',')
+                .append(csv(record.getTotalAmountDue())).append(',')
+                .append(record.getTransactionCount()).append(',')
+                .append(record.isValid());
+
+        Map<String, Long> timings = record.getTimingsMs();
+        for (String stage : CSV_STAGES) {
+            line.append(',').append(csv(timings != null ? timings.get(stage) : null));
+        }
+
+        line.append(',').append(csv(record.getError()));
+        return line.toString();
+    }
+
+    /**
+     * Quote a CSV value when it contains a separator, quote or line break
+     */
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,531 @@
+package com.example.demo.parser.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams the PDF attachments out of an mbox file or a single .eml message.
+ * Messages are read line by line and never held in memory as a whole: headers are parsed as
+ * they go by, parts that are not PDFs are skipped, and base64 attachment bodies are decoded
+ * in large chunks straight from the read buffer as the consumer reads the entry. Each entry is
+ * named "&lt;source&gt;#&lt;message&gt;/&lt;file name&gt;". Only base64 attachments are returned,
+ * which is how mail clients send PDFs.
+ */
+public class MailReader extends ArchiveReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailReader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Base64 characters decoded per chunk; a multiple of 4 */
+    private static final int DECODE_CHUNK = 48 * 1024;
+
+    private final String source;
+    private final boolean mbox;
+    private final LineInput in;
+
+    /** Open multipart boundaries of the current message, innermost first */
+    private final Deque<String> boundaries = new ArrayDeque<>();
+
+    private int message;
+    private boolean inMessage;
+    private boolean messageMultipart;
+    private Base64Stream current;
+
+    /**
+     * @param in The mbox or .eml content; closed with the reader
+     * @param source Name of the file, used in entry names
+     * @param mbox true for an mbox file of many messages, false for a single message
+     */
+    public MailReader(InputStream in, String source, boolean mbox) {
+        this.in = new LineInput(in);
+        this.source = source;
+        this.mbox = mbox;
+    }
+
+    @Override
+    public Entry next() throws IOException {
+        if (current != null) {
+            current.drain();
+            current = null;
+        }
+
+        while (true) {
+            if (!inMessage && !startMessage()) {
+                return null;
+            }
+
+            if (!messageMultipart) {
+                // A single-part message is its own body; anything returned was found by startMessage
+                inMessage = false;
+                if (current != null) {
+                    return entry(current.fileName);
+                }
+                continue;
+            }
+
+            Entry entry = nextPart();
+            if (entry != null) {
+                return entry;
+            }
+            inMessage = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Skip to the next message and read its headers
+     * @return false at the end of the input
+     */
+    private boolean startMessage() throws IOException {
+        boundaries.clear();
+        if (mbox) {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return false;
+                }
+            } while (!line.startsWith("From "));
+        } else if (message > 0 || in.peekLine() == null) {
+            return false;
+        }
+        message++;
+        inMessage = true;
+
+        Map<String, String> headers = readHeaders();
+        String contentType = headers.getOrDefault("content-type", "text/plain");
+        String boundary = parameter(contentType, "boundary");
+        messageMultipart = contentType.toLowerCase(Locale.ROOT).startsWith("multipart/") && boundary != null;
+        if (messageMultipart) {
+            boundaries.push(boundary);
+            skipToBoundary();
+        } else {
+            String fileName = pdfFileName(headers);
+            current = fileName != null && isBase64(headers) ? new Base64Stream(fileName) : null;
+            if (current == null) {
+                skipBody();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read parts of the current multipart message until a PDF attachment or the end of the message
+     */
+    private Entry nextPart() throws IOException {
+        while (!boundaries.isEmpty()) {
+            String line = in.readLine();
+            if (line == null || (mbox && in.isSeparator(line))) {
+                if (line != null) {
+                    in.unread(line);
+                }
+                boundaries.clear();
+                return null;
+            }
+            String boundary = boundaries.peek();
+            if (line.startsWith("--" + boundary + "--")) {
+                boundaries.pop();
+                skipToBoundary();
+                continue;
+            }
+            if (!line.startsWith("--" + boundary)) {
+                continue;
+            }
+
+            Map<String, String> headers = readHeaders();
+            String contentType = headers.getOrDefault("content-type", "text/plain");
+            String nested = parameter(contentType, "boundary");
+            if (contentType.toLowerCase(Locale.ROOT).startsWith("multipart/") && nested != null) {
+                boundaries.push(nested);
+                skipToBoundary();
+                continue;
+            }
+
+            String fileName = pdfFileName(headers);
+            if (fileName != null && isBase64(headers)) {
+                current = new Base64Stream(fileName);
+                return entry(fileName);
+            }
+            if (fileName != null) {
+                logger.debug("{}#{}: skipping {} (not base64)", source, message, fileName);
+            }
+            skipToBoundary();
+        }
+        skipBody();
+        return null;
+    }
+
+    private Entry entry(String fileName) {
+        return new Entry(source + "#" + message + "/" + fileName, -1, current);
+    }
+
+    /**
+     * Header fields by lower-case name, unfolded; stops after the blank line
+     */
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String name = null;
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && name != null) {
+                headers.put(name, headers.get(name) + " " + line.trim());
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                headers.putIfAbsent(name, line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Skip lines up to, not including, the next line that starts with the innermost boundary
+     * delimiter (or the next message)
+     */
+    private void skipToBoundary() throws IOException {
+        String boundary = boundaries.peek();
+        String line;
+        while ((line = in.peekLine()) != null) {
+            if ((boundary != null && line.startsWith("--" + boundary)) || (mbox && in.isSeparator(line))) {
+                return;
+            }
+            in.readLine();
+        }
+    }
+
+    /**
+     * Skip the rest of the message
+     */
+    private void skipBody() throws IOException {
+        String line;
+        while ((line = in.peekLine()) != null) {
+            if (mbox && in.isSeparator(line)) {
+                return;
+            }
+            in.readLine();
+        }
+    }
+
+    private static boolean isBase64(Map<String, String> headers) {
+        return "base64".equalsIgnoreCase(headers.getOrDefault("content-transfer-encoding", "").trim());
+    }
+
+    /**
+     * The attachment's file name if the part is a PDF, by content type or by file name
+     */
+    private static String pdfFileName(Map<String, String> headers) {
+        String contentType = headers.getOrDefault("content-type", "");
+        String fileName = parameter(headers.getOrDefault("content-disposition", ""), "filename");
+        if (fileName == null) {
+            fileName = parameter(contentType, "name");
+        }
+        boolean pdfType = contentType.toLowerCase(Locale.ROOT).startsWith("application/pdf");
+        boolean pdfName = fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".pdf");
+        if (!pdfType && !pdfName) {
+            return null;
+        }
+        String name = fileName != null ? fileName.replace('/', '_').replace('\\', '_') : "attachment";
+        return name.toLowerCase(Locale.ROOT).endsWith(".pdf") ? name : name + ".pdf";
+    }
+
+    /**
+     * A parameter of a structured header such as Content-Type, unquoted
+     */
+    static String parameter(String header, String name) {
+        String lower = header.toLowerCase(Locale.ROOT);
+        int index = 0;
+        while ((index = lower.indexOf(name, index)) >= 0) {
+            int before = index - 1;
+            while (before >= 0 && lower.charAt(before) == ' ') {
+                before--;
+            }
+            int equals = index + name.length();
+            while (equals < lower.length() && lower.charAt(equals) == ' ') {
+                equals++;
+            }
+            if ((before < 0 || lower.charAt(before) == ';') && equals < lower.length() && lower.charAt(equals) == '=') {
+                String value = header.substring(equals + 1).trim();
+                if (value.startsWith("\"")) {
+                    int end = value.indexOf('"', 1);
+                    return end > 0 ? value.substring(1, end) : value.substring(1);
+                }
+                int end = value.indexOf(';');
+                return (end >= 0 ? value.substring(0, end) : value).trim();
+            }
+            index += name.length();
+        }
+        return null;
+    }
+
+    /**
+     * Decoded content of a base64 part, ending at the next boundary or message
+     */
+    private final class Base64Stream extends InputStream {
+
+        private final String fileName;
+        private final String delimiter;
+        private final byte[] encoded = new byte[DECODE_CHUNK + 4];
+        private final byte[] decoded = new byte[DECODE_CHUNK / 4 * 3];
+        private int carry;
+        private int decodedLength;
+        private int decodedPosition;
+        private boolean ended;
+
+        Base64Stream(String fileName) {
+            this.fileName = fileName;
+            String boundary = boundaries.peek();
+            this.delimiter = boundary != null ? "--" + boundary : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (decodedPosition == decodedLength && !fill()) {
+                return -1;
+            }
+            return decoded[decodedPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (decodedPosition == decodedLength && !fill()) {
+                return -1;
+            }
+            int count = Math.min(len, decodedLength - decodedPosition);
+            System.arraycopy(decoded, decodedPosition, b, off, count);
+            decodedPosition += count;
+            return count;
+        }
+
+        /**
+         * Skip whatever the consumer did not read
+         */
+        void drain() throws IOException {
+            while (fill()) {
+                decodedPosition = decodedLength;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Gather base64 characters until a chunk is full or the part ends, then decode it
+         */
+        private boolean fill() throws IOException {
+            while (!ended) {
+                int length = carry;
+                while (length < DECODE_CHUNK) {
+                    int appended = in.appendBase64(encoded, length, DECODE_CHUNK - length, delimiter, mbox);
+                    if (appended < 0) {
+                        ended = true;
+                        break;
+                    }
+                    length += appended;
+                }
+
+                int usable = ended ? length : length - length % 4;
+                carry = length - usable;
+                decodedLength = usable > 0 ? decode(usable) : 0;
+                decodedPosition = 0;
+                System.arraycopy(encoded, usable, encoded, 0, carry);
+                if (decodedLength > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int decode(int length) throws IOException {
+            int padded = length;
+            while (padded % 4 != 0) {
+                encoded[padded++] = '=';
+            }
+            try {
+                return Base64.getDecoder().decode(Arrays.copyOf(encoded, padded), decoded);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid base64 in " + fileName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Line reader over raw bytes with its own buffer and one line of look-ahead. Base64 bodies
+     * are copied out of the buffer directly, a line or part of a line at a time, so neither long
+     * lines nor large attachments are turned into strings.
+     */
+    private static final class LineInput {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean lineStart = true;
+        private boolean lineHasContent;
+        private boolean lastBlank = true;
+        private boolean blankBefore;
+        private String pending;
+
+        LineInput(InputStream in) {
+            this.in = in;
+        }
+
+        String peekLine() throws IOException {
+            if (pending == null) {
+                pending = read();
+            }
+            return pending;
+        }
+
+        String readLine() throws IOException {
+            String line = peekLine();
+            pending = null;
+            return line;
+        }
+
+        void unread(String line) {
+            pending = line;
+        }
+
+        /**
+         * Whether a line just read starts a new mbox message: "From " after a blank line, so that
+         * a stray unescaped "From " in a body does not split the message
+         */
+        boolean isSeparator(String line) {
+            return blankBefore && line.startsWith("From ");
+        }
+
+        /**
+         * Copy base64 characters of the body into {@code target}, stopping at the end of the
+         * current line or when {@code room} characters are copied
+         * @return Characters copied, or -1 if the part has ended, in which case the line that ends
+         *         it is left to be read next
+         */
+        int appendBase64(byte[] target, int offset, int room, String delimiter, boolean mbox) throws IOException {
+            if (pending == null && lineStart) {
+                if (position == limit && !refill()) {
+                    return -1;
+                }
+                // Boundary lines start with '-' and mbox separators with "From "; read those whole
+                if (buffer[position] == '-' || buffer[position] == 'F') {
+                    pending = read();
+                }
+            }
+            if (pending != null) {
+                if ((delimiter != null && pending.startsWith(delimiter)) || (mbox && isSeparator(pending))) {
+                    return -1;
+                }
+                int count = 0;
+                int i = 0;
+                for (; i < pending.length() && count < room; i++) {
+                    char c = pending.charAt(i);
+                    if (isBase64(c)) {
+                        target[offset + count++] = (byte) c;
+                    }
+                }
+                pending = i < pending.length() ? pending.substring(i) : null;
+                return count;
+            }
+
+            if (position == limit && !refill()) {
+                return -1;
+            }
+            if (lineStart) {
+                lineHasContent = false;
+            }
+            int count = 0;
+            int i = position;
+            while (i < limit && count < room) {
+                byte b = buffer[i++];
+                if (b == '\n') {
+                    lineStart = true;
+                    lastBlank = !lineHasContent;
+                    position = i;
+                    return count;
+                }
+                if (b != '\r') {
+                    lineHasContent = true;
+                }
+                if (isBase64((char) b)) {
+                    target[offset + count++] = b;
+                }
+            }
+            lineStart = false;
+            position = i;
+            return count;
+        }
+
+        private static boolean isBase64(char c) {
+            return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/';
+        }
+
+        /**
+         * Rest of the current line without its terminator, or null at the end of the input
+         */
+        private String read() throws IOException {
+            StringBuilder line = null;
+            lineStart = true;
+            while (true) {
+                if (position == limit && !refill()) {
+                    return line != null ? finish(line.toString()) : null;
+                }
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                String part = new String(buffer, position, end - position, StandardCharsets.ISO_8859_1);
+                if (end < limit) {
+                    position = end + 1;
+                    return finish(line != null ? line.append(part).toString() : part);
+                }
+                if (line == null) {
+                    line = new StringBuilder();
+                }
+                line.append(part);
+                position = limit;
+            }
+        }
+
+        private String finish(String line) {
+            String stripped = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            blankBefore = lastBlank;
+            lastBlank = stripped.isEmpty();
+            return stripped;
+        }
+
+        private boolean refill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.parser.batch;
+
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.service.ParserService;
+import com.example.demo.parser.service.StageTimer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Slim command-line front end to {@link ParserService}: parses the given PDF files and prints
+ * one NDJSON record per file to stdout. This is also the entry point of the native CLI image.
+ *
+ * Usage: statement-parser-cli &lt;statement.pdf&gt; [more.pdf ...]
+ */
+public class ParserCli {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ParserCli <statement.pdf> [more.pdf ...]");
+            System.exit(2);
+        }
+
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "logback-cli.xml");
+        }
+
+        ParserService parserService = new ParserService();
+        BatchResultWriter writer = new BatchResultWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BatchResultWriter.Format.NDJSON, false);
+
+        int failures = 0;
+        for (String arg : args) {
+            File pdfFile = new File(arg);
+            StageTimer timer = new StageTimer();
+            StatementData data = null;
+            Throwable error = null;
+
+            try {
+                data = parserService.parseStatement(pdfFile, timer);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            BatchRecord record = BatchRecord.of(pdfFile.getName(), data, timer, error);
+            if (record.getError() != null) {
+                failures++;
+            }
+            writer.write(record);
+        }
+
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
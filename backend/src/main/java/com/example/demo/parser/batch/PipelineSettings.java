@@ -0,0 +1,80 @@
+package com.example.demo.parser.batch;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Thread counts and queue depths of the {@link StagedPipeline} stages
+ */
+@Getter
+@Builder(toBuilder = true)
+public class PipelineSettings {
+
+    /** Reading files into memory and decrypting them; mostly waiting on the disk */
+    @Builder.Default
+    private int readThreads = 1;
+
+    /** Loading the PDF and extracting its text; the CPU-heavy glyph decoding */
+    @Builder.Default
+    private int extractThreads = 1;
+
+    /** Issuer detection, layout templates and field extraction; regex work */
+    @Builder.Default
+    private int parseThreads = 1;
+
+    /** Writing results and checkpoints */
+    @Builder.Default
+    private int writeThreads = 1;
+
+    /**
+     * Queue capacity of each stage as a multiple of its thread count; with the threads this
+     * bounds how many statements are held in memory at once
+     */
+    @Builder.Default
+    private int queueFactor = 2;
+
+    /**
+     * Defaults for a machine with the given number of cores: every core extracting, half as many
+     * parsing since that stage is lighter, and a few readers to keep the queues full
+     * @param parallelism Number of cores to use
+     * @return The settings
+     */
+    public static PipelineSettings forParallelism(int parallelism) {
+        int cores = Math.max(1, parallelism);
+        return PipelineSettings.builder()
+                .readThreads(Math.max(1, cores / 4))
+                .extractThreads(cores)
+                .parseThreads(Math.max(1, cores / 2))
+                .build();
+    }
+
+    /**
+     * Override thread counts from a spec such as "read=2,extract=8,parse=4,write=1"
+     * @param spec Comma-separated stage=threads pairs; stages left out keep their count
+     * @return The adjusted settings
+     * @throws IllegalArgumentException if a stage name or count is invalid
+     */
+    public PipelineSettings withThreads(String spec) {
+        PipelineSettingsBuilder builder = toBuilder();
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected stage=threads, got: " + pair);
+            }
+            int threads = Integer.parseInt(parts[1].trim());
+            if (threads < 1) {
+                throw new IllegalArgumentException("Stage needs at least one thread: " + pair);
+            }
+            switch (parts[0].trim().toLowerCase(Locale.ROOT)) {
+                case "read" -> builder.readThreads(threads);
+                case "extract" -> builder.extractThreads(threads);
+                case "parse" -> builder.parseThreads(threads);
+                case "write" -> builder.writeThreads(threads);
+                default -> throw new IllegalArgumentException("Unknown stage: " + parts[0]);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.demo.parser.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of a {@link StagedPipeline}: a bounded queue drained by its own fixed set of threads.
+ * Submitting to a full queue blocks, so a stage that falls behind holds back the stage feeding
+ * it, and so on up to whoever submits the work; nothing piles up in memory in between.
+ * @param <T> The work item
+ */
+public final class PipelineStage<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+    private static final long POLL_MILLIS = 50;
+
+    /**
+     * The work of a stage
+     */
+    @FunctionalInterface
+    interface Handler<T> {
+        /**
+         * @param item The work item
+         * @return The stage the item goes to next, or null if it is finished
+         */
+        PipelineStage<T> handle(T item);
+    }
+
+    private final String name;
+    private final int capacity;
+    private final BlockingQueue<T> queue;
+    private final Handler<T> handler;
+    private final Thread[] workers;
+    private final AtomicInteger peakDepth = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param name Stage name, used for thread names and statistics
+     * @param threads Threads working the stage
+     * @param capacity Items that may wait in the queue
+     * @param handler The work
+     */
+    PipelineStage(String name, int threads, int capacity, Handler<T> handler) {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.handler = handler;
+        this.workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::work, "pipeline-" + name + "-" + (i + 1));
+            workers[i].setDaemon(true);
+        }
+    }
+
+    void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Queue an item, waiting while the queue is full
+     * @param item The work item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void submit(T item) throws InterruptedException {
+        queue.put(item);
+        peakDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    /**
+     * Let the workers finish once the queue is empty; nothing may be submitted after this
+     */
+    void close() {
+        closed = true;
+    }
+
+    void awaitTermination() throws InterruptedException {
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    void interrupt() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            T item;
+            try {
+                item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (item == null) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            active.incrementAndGet();
+            long started = System.nanoTime();
+            PipelineStage<T> next = null;
+            try {
+                next = handler.handle(item);
+            } catch (RuntimeException e) {
+                logger.error("Stage {} failed on an item: {}", name, e.getMessage(), e);
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - started);
+                processed.incrementAndGet();
+                active.decrementAndGet();
+            }
+
+            if (next != null) {
+                // Time spent waiting for room downstream is back-pressure, not work
+                long handoff = System.nanoTime();
+                try {
+                    next.submit(item);
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    blockedNanos.addAndGet(System.nanoTime() - handoff);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Current figures for the stage
+     */
+    public Stats stats() {
+        return new Stats(name, workers.length, capacity, queue.size(), peakDepth.get(), active.get(),
+                processed.get(), busyNanos.get() / 1_000_000, blockedNanos.get() / 1_000_000);
+    }
+
+    /**
+     * Snapshot of a stage's queue and workers
+     */
+    public static final class Stats {
+        private final String name;
+        private final int threads;
+        private final int capacity;
+        private final int depth;
+        private final int peakDepth;
+        private final int active;
+        private final long processed;
+        private final long busyMillis;
+        private final long blockedMillis;
+
+        Stats(String name, int threads, int capacity, int depth, int peakDepth, int active,
+              long processed, long busyMillis, long blockedMillis) {
+            this.name = name;
+            this.threads = threads;
+            this.capacity = capacity;
+            this.depth = depth;
+            this.peakDepth = peakDepth;
+            this.active = active;
+            this.processed = processed;
+            this.busyMillis = busyMillis;
+            this.blockedMillis = blockedMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * @return Items waiting in the queue
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return Most items seen waiting at once; at capacity means the stage was the bottleneck
+         */
+        public int getPeakDepth() {
+            return peakDepth;
+        }
+
+        /**
+         * @return Threads working on an item right now
+         */
+        public int getActive() {
+            return active;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        /**
+         * @return Time spent on items, summed over the stage's threads
+         */
+        public long getBusyMillis() {
+            return busyMillis;
+        }
+
+        /**
+         * @return Time spent waiting for room in the next stage's queue, summed over the stage's
+         *         threads; high when a later stage is the bottleneck
+         */
+        public long getBlockedMillis() {
+            return blockedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d threads (%d busy), queue %d/%d (peak %d), %d done, %d ms busy, %d ms blocked",
+                    name, threads, active, depth, capacity, peakDepth, processed, busyMillis, blockedMillis);
+        }
+    }
+}
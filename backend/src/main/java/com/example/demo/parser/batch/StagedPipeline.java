@@ -0,0 +1,260 @@
+package com.example.demo.parser.batch;
+
+import com.example.demo.parser.extractor.DecryptedDocument;
+import com.example.demo.parser.extractor.InMemoryDocument;
+import com.example.demo.parser.extractor.PDFDocumentLoader;
+import com.example.demo.parser.extractor.PDFInputMode;
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.service.DirectBufferPool;
+import com.example.demo.parser.service.ParserService;
+import com.example.demo.parser.service.StageTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Batch parsing split into stages, each with its own bounded queue and thread pool:
+ * read (load the file into a pooled buffer and decrypt it), extract (load the PDF and decode its
+ * text), parse (detect the issuer and extract the fields) and write (hand the result to the sink).
+ * Disk reads overlap with glyph decoding and regex work instead of each parse doing all of them
+ * in turn, and every stage can be sized to its share of the work. Submitting blocks while the
+ * read queue is full, and each stage blocks on the next, so the number of statements in memory
+ * stays bounded by the queue and pool sizes however large the batch.
+ *
+ * A statement's content moves from stage to stage with it; each stage serves it to the
+ * extractors through an {@link InMemoryDocument} scope on its own thread, and the extracted
+ * text is reused by the issuer parsers. Files over the buffer pool's limit, and all files when
+ * PDFs are memory-mapped, are read from disk by each stage instead.
+ */
+public class StagedPipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedPipeline.class);
+
+    private final ParserService parserService;
+    private final DirectBufferPool bufferPool;
+    private final Duration timeout;
+    private final String password;
+    private final ArchiveIngestor.RecordSink sink;
+
+    private final PipelineStage<Job> read;
+    private final PipelineStage<Job> extract;
+    private final PipelineStage<Job> parse;
+    private final PipelineStage<Job> write;
+    private final List<PipelineStage<Job>> stages;
+
+    /**
+     * @param parserService Runs the extract and parse halves of each statement
+     * @param bufferPool Holds file content between the read and parse stages
+     * @param settings Thread counts and queue depths
+     * @param timeout Time each statement may spend being worked on, queueing aside, or null for none
+     * @param password Password for protected statements, or null
+     * @param sink Receives one record per statement, from the write stage's threads
+     */
+    public StagedPipeline(ParserService parserService, DirectBufferPool bufferPool, PipelineSettings settings,
+                          Duration timeout, String password, ArchiveIngestor.RecordSink sink) {
+        this.parserService = parserService;
+        this.bufferPool = bufferPool;
+        this.timeout = timeout;
+        this.password = password;
+        this.sink = sink;
+
+        int factor = settings.getQueueFactor();
+        this.read = new PipelineStage<>("read", settings.getReadThreads(),
+                settings.getReadThreads() * factor, this::read);
+        this.extract = new PipelineStage<>("extract", settings.getExtractThreads(),
+                settings.getExtractThreads() * factor, this::extract);
+        this.parse = new PipelineStage<>("parse", settings.getParseThreads(),
+                settings.getParseThreads() * factor, this::parse);
+        this.write = new PipelineStage<>("write", settings.getWriteThreads(),
+                settings.getWriteThreads() * factor, this::write);
+        this.stages = List.of(read, extract, parse, write);
+        stages.forEach(PipelineStage::start);
+    }
+
+    /**
+     * Queue a statement, waiting while the pipeline is full
+     * @param path The PDF
+     * @param key Name recorded for it in the results
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void submit(Path path, String key) throws InterruptedException {
+        read.submit(new Job(path, key));
+    }
+
+    /**
+     * @return Current figures for each stage, in pipeline order
+     */
+    public List<PipelineStage.Stats> stats() {
+        return stages.stream().map(PipelineStage::stats).toList();
+    }
+
+    /**
+     * Finish every submitted statement, then stop the stage threads
+     * @throws InterruptedException if interrupted while waiting; the stages are stopped regardless
+     */
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            for (PipelineStage<Job> stage : stages) {
+                stage.close();
+                stage.awaitTermination();
+            }
+        } finally {
+            stages.forEach(PipelineStage::interrupt);
+        }
+        logger.info("Pipeline done: {}", stats());
+    }
+
+    private PipelineStage<Job> read(Job job) {
+        job.begin();
+        try {
+            long size = Files.size(job.path);
+            if (PDFDocumentLoader.getLimits().getInputMode() == PDFInputMode.BUFFERED
+                    && size <= bufferPool.getMaxCapacity()) {
+                try (InputStream in = Files.newInputStream(job.path)) {
+                    ByteBuffer content = bufferPool.read(in, size);
+                    job.hold(content, () -> bufferPool.release(content));
+                }
+            }
+            job.timer.stop("read");
+
+            if (password != null) {
+                job.timer.start();
+                try (InMemoryDocument scope = job.scope()) {
+                    ByteBuffer decrypted = DecryptedDocument.decrypt(job.file, password);
+                    if (decrypted != null) {
+                        job.release();
+                        job.hold(decrypted, () -> DecryptedDocument.wipe(decrypted));
+                    }
+                }
+                job.timer.stop("decrypt");
+            }
+        } catch (IOException | RuntimeException e) {
+            job.error = e;
+        }
+        job.end();
+        return job.error == null ? extract : write;
+    }
+
+    private PipelineStage<Job> extract(Job job) {
+        job.begin();
+        try (InMemoryDocument scope = job.scope();
+             ParseDeadline deadline = job.deadline()) {
+            ParseDeadline.check();
+            job.text = parserService.extractText(job.file, job.timer);
+        } catch (IOException | RuntimeException e) {
+            job.fail(e);
+        }
+        job.end();
+        return job.error == null ? parse : write;
+    }
+
+    private PipelineStage<Job> parse(Job job) {
+        job.begin();
+        try (InMemoryDocument scope = job.scope();
+             ParseDeadline deadline = job.deadline()) {
+            ParseDeadline.check();
+            job.data = parserService.interpret(job.file, job.text, job.timer);
+        } catch (IOException | RuntimeException e) {
+            job.fail(e);
+        } finally {
+            job.release();
+            job.text = null;
+        }
+        job.end();
+        return write;
+    }
+
+    private PipelineStage<Job> write(Job job) {
+        job.release();
+        try {
+            sink.accept(BatchRecord.of(job.key, job.data, job.timer, job.error));
+        } catch (IOException e) {
+            logger.error("Could not record result for {}: {}", job.key, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * One statement on its way through the stages. Only one stage works on it at a time, and
+     * the queues between them publish its fields to the next stage's thread.
+     */
+    private final class Job {
+        private final Path path;
+        private final File file;
+        private final String key;
+        private final StageTimer timer = new StageTimer();
+        private ByteBuffer content;
+        private Runnable release;
+        private long workedNanos;
+        private long stageStart;
+        private String text;
+        private StatementData data;
+        private Throwable error;
+
+        Job(Path path, String key) {
+            this.path = path;
+            this.file = path.toFile();
+            this.key = key;
+        }
+
+        void begin() {
+            stageStart = System.nanoTime();
+            timer.start();
+        }
+
+        void end() {
+            workedNanos += System.nanoTime() - stageStart;
+        }
+
+        void hold(ByteBuffer content, Runnable release) {
+            this.content = content;
+            this.release = release;
+        }
+
+        void release() {
+            if (release != null) {
+                release.run();
+            }
+            content = null;
+            release = null;
+        }
+
+        /**
+         * Serve the content to loads of the file on this thread, or read the disk if none is held
+         */
+        InMemoryDocument scope() {
+            return content != null ? InMemoryDocument.open(file, content, null) : null;
+        }
+
+        /**
+         * Record a failure; timeouts are reported against the statement's whole budget rather
+         * than the part of it left for the stage that ran out
+         */
+        void fail(Exception e) {
+            error = e instanceof ParseTimeoutException
+                    ? new ParseTimeoutException(String.format("Parse exceeded its %d ms deadline", timeout.toMillis()))
+                    : e;
+        }
+
+        /**
+         * The statement's remaining time, for this stage
+         */
+        ParseDeadline deadline() {
+            if (timeout == null) {
+                return null;
+            }
+            return ParseDeadline.start(Duration.ofNanos(Math.max(0, timeout.toNanos() - workedNanos)));
+        }
+    }
+}
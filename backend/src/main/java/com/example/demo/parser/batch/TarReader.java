@@ -0,0 +1,210 @@
+package com.example.demo.parser.batch;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader for POSIX ustar archives, including GNU long names and pax path records.
+ * Only regular files are returned; links, devices and directories are skipped.
+ */
+class TarReader extends ArchiveReader {
+
+    private static final int BLOCK = 512;
+
+    private final InputStream in;
+    private long remaining;
+    private long padding;
+
+    TarReader(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public Entry next() throws IOException {
+        skipRest();
+        String longName = null;
+        byte[] header = new byte[BLOCK];
+
+        while (true) {
+            int read = in.readNBytes(header, 0, BLOCK);
+            if (read == BLOCK && isZero(header) || read == 0 && longName == null) {
+                // End-of-archive blocks, or a writer that left them out
+                return null;
+            }
+            if (read < BLOCK) {
+                throw new EOFException("Truncated tar archive");
+            }
+            if (!checksumMatches(header)) {
+                throw new IOException("Corrupt tar header");
+            }
+
+            long size = number(header, 124, 12);
+            byte type = header[156];
+            String name = longName != null ? longName : name(header);
+            longName = null;
+
+            if (type == 'L' || type == 'x') {
+                byte[] data = readData(size);
+                longName = type == 'L' ? cString(data, 0, data.length) : paxPath(data);
+                continue;
+            }
+
+            remaining = size;
+            padding = (BLOCK - size % BLOCK) % BLOCK;
+            if (type == '0' || type == 0 || type == '7') {
+                return new Entry(name, size, new EntryStream());
+            }
+            skipRest();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void skipRest() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    private byte[] readData(long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK) {
+            throw new IOException("Tar extended header too large");
+        }
+        byte[] data = in.readNBytes((int) size);
+        if (data.length < size) {
+            throw new EOFException("Truncated tar archive");
+        }
+        skipFully((BLOCK - size % BLOCK) % BLOCK);
+        return data;
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("Truncated tar archive");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static String name(byte[] header) {
+        String name = cString(header, 0, 100);
+        if ("ustar".equals(cString(header, 257, 6).trim())) {
+            String prefix = cString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * The "path" record of a pax extended header ("length path=value\n" records)
+     */
+    private static String paxPath(byte[] data) {
+        String records = new String(data, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < records.length()) {
+            int space = records.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            int length = Integer.parseInt(records.substring(start, space));
+            String record = records.substring(space + 1, start + length - 1);
+            if (record.startsWith("path=")) {
+                return record.substring(5);
+            }
+            start += length;
+        }
+        return null;
+    }
+
+    /**
+     * Octal field, or base-256 when the high bit of the first byte is set (GNU, for sizes over 8 GB)
+     */
+    private static long number(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xff);
+            }
+            return value;
+        }
+        String octal = cString(header, offset, length).trim();
+        try {
+            return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt tar header");
+        }
+    }
+
+    private static boolean checksumMatches(byte[] header) throws IOException {
+        long sum = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            sum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+        }
+        return sum == number(header, 148, 8);
+    }
+
+    private static String cString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Content of the current entry, ending at its size
+     */
+    private final class EntryStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Truncated tar archive");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = in.read(b, off, (int) Math.min(len, remaining));
+            if (count == -1) {
+                throw new EOFException("Truncated tar archive");
+            }
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
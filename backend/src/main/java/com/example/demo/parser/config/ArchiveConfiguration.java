@@ -0,0 +1,33 @@
+package com.example.demo.parser.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool shared by all archive uploads, so concurrent archives queue for the same
+ * parse threads instead of each starting its own
+ */
+@Configuration
+public class ArchiveConfiguration {
+
+    @Value("${parser.archive.parallelism:0}")
+    private int parallelism;
+
+    @Bean(name = "archiveExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService archiveExecutor() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "archive-parse-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+}
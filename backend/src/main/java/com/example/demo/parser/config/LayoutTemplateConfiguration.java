@@ -0,0 +1,65 @@
+package com.example.demo.parser.config;
+
+import com.example.demo.parser.extractor.LayoutTemplates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Applies the parser.layout.* properties to {@link LayoutTemplates}, loading learned
+ * templates at startup and saving them at shutdown when a templates file is configured
+ */
+@Configuration
+public class LayoutTemplateConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LayoutTemplateConfiguration.class);
+
+    @Value("${parser.layout.enabled:true}")
+    private boolean enabled;
+
+    @Value("${parser.layout.templates-file:}")
+    private String templatesFile;
+
+    @PostConstruct
+    public void loadTemplates() {
+        LayoutTemplates.setEnabled(enabled);
+        if (!enabled || !StringUtils.hasText(templatesFile) || !Files.exists(Paths.get(templatesFile))) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(templatesFile))) {
+            logger.info("Loaded {} layout templates from {}", LayoutTemplates.getInstance().load(in), templatesFile);
+        } catch (IOException e) {
+            logger.warn("Could not load layout templates from {}: {}", templatesFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveTemplates() {
+        if (!enabled || !StringUtils.hasText(templatesFile) || LayoutTemplates.getInstance().size() == 0) {
+            return;
+        }
+        Path target = Paths.get(templatesFile);
+        try {
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "layouts", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                LayoutTemplates.getInstance().save(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved {} layout templates to {}", LayoutTemplates.getInstance().size(), templatesFile);
+        } catch (IOException e) {
+            logger.warn("Could not save layout templates to {}: {}", templatesFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.parser.config;
+
+import com.example.demo.parser.extractor.PDFDocumentLoader;
+import com.example.demo.parser.extractor.PDFInputMode;
+import com.example.demo.parser.extractor.PDFLoadLimits;
+import com.example.demo.parser.extractor.SharedFontCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * Applies the parser.pdf.* properties to {@link PDFDocumentLoader} and {@link SharedFontCache}
+ */
+@Configuration
+public class PDFLoadConfiguration {
+
+    @Value("${parser.pdf.max-main-memory:16MB}")
+    private DataSize maxMainMemory;
+
+    @Value("${parser.pdf.temp-dir:}")
+    private String tempDir;
+
+    @Value("${parser.pdf.max-pages:200}")
+    private int maxPages;
+
+    @Value("${parser.pdf.max-objects:250000}")
+    private int maxObjects;
+
+    @Value("${parser.pdf.max-extraction-time:30s}")
+    private Duration maxExtractionTime;
+
+    @Value("${parser.pdf.input-mode:buffered}")
+    private PDFInputMode inputMode;
+
+    @Value("${parser.pdf.font-cache-size:32MB}")
+    private DataSize fontCacheSize;
+
+    @PostConstruct
+    public void applyLimits() {
+        PDFDocumentLoader.configure(PDFLoadLimits.builder()
+                .maxMainMemoryBytes(maxMainMemory.toBytes())
+                .tempDir(StringUtils.hasText(tempDir) ? new File(tempDir) : null)
+                .maxPages(maxPages)
+                .maxObjects(maxObjects)
+                .maxExtractionMillis(maxExtractionTime.toMillis())
+                .inputMode(inputMode)
+                .build());
+        SharedFontCache.configure(fontCacheSize.toBytes());
+    }
+}
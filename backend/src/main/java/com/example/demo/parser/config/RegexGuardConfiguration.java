@@ -0,0 +1,46 @@
+package com.example.demo.parser.config;
+
+import com.example.demo.parser.CreditCardParser;
+import com.example.demo.parser.ParserFactory;
+import com.example.demo.parser.extractor.RegexGuard;
+import com.example.demo.parser.extractor.RegexLint;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies the parser.regex.* properties to {@link RegexGuard} and lints the issuer
+ * parsers' patterns for super-linear backtracking at startup
+ */
+@Configuration
+public class RegexGuardConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegexGuardConfiguration.class);
+
+    @Value("${parser.regex.timeout:250ms}")
+    private Duration timeout;
+
+    @Value("${parser.regex.engine:jdk}")
+    private String engine;
+
+    @PostConstruct
+    public void applyGuard() {
+        RegexGuard.configure(timeout.toMillis(), RegexGuard.Engine.valueOf(engine.toUpperCase(Locale.ROOT)));
+
+        for (CreditCardParser parser : ParserFactory.getAllParsers()) {
+            for (Map.Entry<String, List<String>> entry : RegexLint.checkConstants(parser.getClass()).entrySet()) {
+                for (String finding : entry.getValue()) {
+                    logger.warn("{}.{} may backtrack super-linearly: {}",
+                            parser.getClass().getSimpleName(), entry.getKey(), finding);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.parser.config;
+
+import com.example.demo.parser.controller.StatementProtobufConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds the protobuf writer for parse results and error bodies. It goes after the converters Spring MVC sets up
+ * (JSON, then CBOR and Smile with their Jackson modules present), so JSON stays the answer for
+ * clients that do not ask for a binary format.
+ */
+@Configuration
+public class ResponseFormatConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new StatementProtobufConverter());
+    }
+}
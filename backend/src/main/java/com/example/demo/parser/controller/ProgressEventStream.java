@@ -0,0 +1,103 @@
+package com.example.demo.parser.controller;
+
+import com.example.demo.parser.extractor.ParseProgress;
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a parse's progress as server-sent events, one JSON object per event:
+ * page ({"page":N,"pages":M}), issuer ({"issuer":...}), summary (the statement fields without
+ * transactions), transaction (one transaction), then either result (the same body /parse
+ * answers with) or error (the error body with its HTTP status). Every event is flushed as it is
+ * written. Once the client has gone away the remaining events are dropped; the parse itself
+ * runs to the end.
+ */
+final class ProgressEventStream implements ParseProgress.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgressEventStream.class);
+
+    private final OutputStream out;
+    private final ObjectMapper objectMapper;
+    private boolean disconnected;
+
+    /**
+     * @param out The response body
+     * @param objectMapper Writes the event data
+     */
+    ProgressEventStream(OutputStream out, ObjectMapper objectMapper) {
+        this.out = out;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void pageExtracted(int page, int pages) {
+        Map<String, Integer> data = new LinkedHashMap<>();
+        data.put("page", page);
+        data.put("pages", pages);
+        send("page", data);
+    }
+
+    @Override
+    public void issuerDetected(String issuer) {
+        send("issuer", Map.of("issuer", issuer));
+    }
+
+    @Override
+    public void summaryReady(StatementData data) {
+        try {
+            // Through bytes, so amounts are written as in the result rather than as BigDecimal nodes
+            ObjectNode summary = (ObjectNode) objectMapper.readTree(objectMapper.writeValueAsBytes(data));
+            summary.remove("transactions");
+            send("summary", summary);
+        } catch (IOException e) {
+            logger.debug("Could not write summary event: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void transactionRead(Transaction transaction) {
+        send("transaction", transaction);
+    }
+
+    /**
+     * @param body The parsed statement
+     */
+    void result(Object body) {
+        send("result", body);
+    }
+
+    /**
+     * @param status HTTP status /parse would have answered with
+     * @param body The error body
+     */
+    void error(int status, Object body) {
+        ObjectNode error = objectMapper.valueToTree(body);
+        error.put("status", status);
+        send("error", error);
+    }
+
+    private synchronized void send(String event, Object data) {
+        if (disconnected) {
+            return;
+        }
+        try {
+            out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+            out.write(objectMapper.writeValueAsBytes(data));
+            out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            disconnected = true;
+            logger.debug("Progress stream closed by the client: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.parser.controller;
+
+import com.example.demo.parser.service.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies the {@link RateLimiter} to uploads to the statement endpoints. It runs in front of the
+ * dispatcher servlet, so a client over its limit is answered 429 from the headers alone, before
+ * the multipart body is read or spooled to disk. Every limited response carries the RateLimit-Limit,
+ * RateLimit-Remaining and RateLimit-Reset headers; refusals also carry Retry-After.
+ *
+ * The cost of a body with a Content-Length is taken up front. A body without one (a chunked
+ * archive upload) is let in for the cost of the request, and its bytes are charged as they are read.
+ * Multipart bodies are parsed by the container from its own stream, out of reach of that metering,
+ * so a chunked multipart upload is refused with 411 before any tokens are taken.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    private static final String RATE_LIMITED = "RATE_LIMITED";
+
+    private static final String LENGTH_REQUIRED = "LENGTH_REQUIRED";
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param rateLimiter The per-client buckets
+     * @param objectMapper Writes the error body
+     */
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimiter.isEnabled() || !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = rateLimiter.clientOf(request.getHeader(StatementParserController.API_KEY_HEADER),
+                request.getRemoteAddr());
+        long length = request.getContentLengthLong();
+        if (length < 0 && isMultipart(request)) {
+            logger.warn("Refused chunked multipart upload from {} on {}", client, request.getRequestURI());
+            writeError(response, HttpStatus.LENGTH_REQUIRED, "Multipart uploads need a Content-Length", LENGTH_REQUIRED);
+            return;
+        }
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(client, rateLimiter.costOf(length));
+
+        response.setHeader(LIMIT_HEADER, String.valueOf(decision.getLimit()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(decision.getRemaining()));
+        response.setHeader(RESET_HEADER, String.valueOf(decision.getResetSeconds()));
+        if (!decision.isAllowed()) {
+            logger.warn("Rate limited {} on {}: retry in {} s", client, request.getRequestURI(),
+                    decision.getRetryAfterSeconds());
+            reject(response, decision);
+            return;
+        }
+
+        chain.doFilter(length < 0 ? new MeteredRequest(request, client) : request, response);
+    }
+
+    private void reject(HttpServletResponse response, RateLimiter.Decision decision) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+        writeError(response, HttpStatus.TOO_MANY_REQUESTS,
+                "Rate limit exceeded, retry in " + decision.getRetryAfterSeconds() + " s", RATE_LIMITED);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message, String code)
+            throws IOException {
+        Map<String, String> error = new LinkedHashMap<>();
+        error.put("error", message);
+        error.put("code", code);
+        error.put("timestamp", Instant.now().toString());
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    /**
+     * A request whose body is charged to the client as it is read
+     */
+    private final class MeteredRequest extends HttpServletRequestWrapper {
+        private final String client;
+        private ServletInputStream stream;
+
+        MeteredRequest(HttpServletRequest request, String client) {
+            super(request);
+            this.client = client;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = new MeteredInputStream(super.getInputStream(), client);
+            }
+            return stream;
+        }
+    }
+
+    /**
+     * Charges a token for every parser.rate-limit.bytes-per-token read through it
+     */
+    private final class MeteredInputStream extends ServletInputStream {
+        private final ServletInputStream in;
+        private final String client;
+        private long uncharged;
+
+        MeteredInputStream(ServletInputStream in, String client) {
+            this.in = in;
+            this.client = client;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int bytes) {
+            uncharged += bytes;
+            long tokens = rateLimiter.costOfBytes(uncharged);
+            if (tokens > 0) {
+                rateLimiter.charge(client, tokens);
+                uncharged -= tokens * rateLimiter.getBytesPerToken();
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return in.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return in.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            in.setReadListener(listener);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
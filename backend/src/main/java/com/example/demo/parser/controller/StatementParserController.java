@@ -1,94 +1,734 @@
 package com.example.demo.parser.controller;
 
-
+import com.example.demo.parser.batch.ArchiveIngestor;
+import com.example.demo.parser.batch.BatchRecord;
+import com.example.demo.parser.batch.BatchResultWriter;
+
+import com.example.demo.parser.extractor.DocumentLimitExceededException;
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseProgress;
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import com.example.demo.parser.model.ErrorResponse;
 import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.model.Transaction;
+import com.example.demo.parser.service.DirectBufferPool;
+import com.example.demo.parser.service.IdempotencyKeyReusedException;
+import com.example.demo.parser.service.IdempotencyStore;
+import com.example.demo.parser.service.ParsePriority;
+import com.example.demo.parser.service.ParseRejectedException;
+import com.example.demo.parser.service.ParseScheduler;
 import com.example.demo.parser.service.ParserService;
+import com.example.demo.parser.service.ParserWarmupService;
+import com.example.demo.parser.service.StageTimer;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 
 @CrossOrigin(origins = "http://localhost:5174")
 @RestController
 @RequestMapping("/api/statements")
+@RegisterReflectionForBinding({StatementData.class, Transaction.class})
 @Tag(name = "Statement Parser", description = "APIs for parsing credit card statements")
 public class StatementParserController {
 
     private static final Logger logger = LoggerFactory.getLogger(StatementParserController.class);
 
+    /** Request header overriding the endpoint's parse deadline, e.g. "5s" or "1500ms" */
+    static final String TIMEOUT_HEADER = "X-Parse-Timeout";
+
+    private static final String PARSE_TIMEOUT = "PARSE_TIMEOUT";
+
+    private static final String PASSWORD_REQUIRED = "PASSWORD_REQUIRED";
+
+    private static final String INVALID_PASSWORD = "INVALID_PASSWORD";
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    /** Request header carrying the statement password on the raw-body /parse and /parse-archive */
+    static final String PASSWORD_HEADER = "X-Statement-Password";
+
+    /** Request header asking for a lower priority class: interactive, batch or background */
+    static final String PRIORITY_HEADER = "X-Parse-Priority";
+
+    /** Request header identifying a caller whose priority class is configured in parser.scheduler.api-keys */
+    static final String API_KEY_HEADER = "X-API-Key";
+
+    private static final String OVERLOADED = "OVERLOADED";
+
+    /** Request header naming a submission, so a retry of it is answered from the first attempt */
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** Response header set on responses recorded for an earlier request with the same idempotency key */
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private static final String IDEMPOTENCY_KEY_REUSED = "IDEMPOTENCY_KEY_REUSED";
+
+    /** Request header asking for the transactions by row (rows, the default) or by column (columnar) */
+    static final String TRANSACTION_LAYOUT_HEADER = "X-Transaction-Layout";
+
+    private static final String COLUMNAR_LAYOUT = "columnar";
+
+    private static final String ROWS_LAYOUT = "rows";
+
+    /** Salts the password hashes in idempotency fingerprints; the records live only as long as the process */
+    private final byte[] passwordSalt = newSalt();
+
     @Autowired
     private ParserService parserService;
 
+    @Autowired
+    private ObjectProvider<ParserWarmupService> warmupService;
+
+    @Autowired
+    private DirectBufferPool bufferPool;
+
+    @Autowired
+    private ParseScheduler parseScheduler;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    @Qualifier("archiveExecutor")
+    private ExecutorService archiveExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${parser.archive.lookahead:16}")
+    private int archiveLookahead;
+
+    @Value("${parser.deadline.parse:20s}")
+    private Duration parseDeadline;
+
+    @Value("${parser.deadline.debug:10s}")
+    private Duration debugDeadline;
+
+    @Value("${parser.deadline.max:60s}")
+    private Duration maxDeadline;
+
 
     @GetMapping("/health")
-    @Operation(summary = "Health check", description = "Check if API is running")
+    @Operation(summary = "Health check", description = "Check if API is running and warmed up")
     public ResponseEntity<Map<String, String>> health() {
+        ParserWarmupService warmup = warmupService.getIfAvailable();
+        boolean ready = warmup == null || warmup.isComplete();
+
         Map<String, String> response = new HashMap<>();
-        response.put("status", "UP");
+        response.put("status", ready ? "UP" : "WARMING_UP");
         response.put("service", "Credit Card Statement Parser");
         response.put("version", "1.0");
-        return ResponseEntity.ok(response);
+        return ready ? ResponseEntity.ok(response) : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
     }
 
 
     @PostMapping(value = "/parse", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Parse Statement", description = "Upload and parse a credit card statement PDF")
-    public ResponseEntity<?> parseStatement(@RequestParam("file") MultipartFile file) {
+    @Operation(summary = "Parse Statement", description = "Upload and parse a credit card statement PDF, "
+            + "with its password if the issuer protects it")
+    public ResponseEntity<?> parseStatement(HttpServletRequest request,
+                                            @RequestParam("file") MultipartFile file,
+                                            @RequestParam(value = "password", required = false) String password,
+                                            @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout,
+                                            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+                                            @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey,
+                                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                            @RequestHeader(value = TRANSACTION_LAYOUT_HEADER, required = false) String layout) {
 
         logger.info("Received file upload request: {}", file.getOriginalFilename());
 
+        String uploadError = checkUpload(file);
+        if (uploadError != null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(uploadError));
+        }
 
-        if (file.isEmpty()) {
+        Duration budget = resolveDeadline(timeout, parseDeadline);
+        if (budget == null) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("No file uploaded"));
+                    .body(createErrorResponse("Invalid " + TIMEOUT_HEADER + " header: " + timeout));
         }
 
-        if (!file.getOriginalFilename().toLowerCase().endsWith(".pdf")) {
+        ParsePriority parsePriority = resolvePriority(apiKey, priority, ParsePriority.INTERACTIVE);
+        if (parsePriority == null) {
             return ResponseEntity.badRequest()
-                    .body(createErrorResponse("Only PDF files are supported"));
+                    .body(createErrorResponse("Invalid " + PRIORITY_HEADER + " header: " + priority));
+        }
+        if (!isValidIdempotencyKey(idempotencyKey)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + IDEMPOTENCY_KEY_HEADER + " header"));
+        }
+        if (!isValidTransactionLayout(layout)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + TRANSACTION_LAYOUT_HEADER + " header: " + layout));
         }
 
+        try (ParseDeadline deadline = ParseDeadline.start(budget);
+             ParsePriority.Scope scope = parsePriority.open()) {
+            String fingerprint = idempotencyKey != null
+                    ? fingerprint("parse", contentHash(file), password, layout)
+                    : null;
+            return idempotent(request, idempotencyKey, fingerprint, () -> {
+                File tempFile = null;
+                try {
+                    tempFile = saveTemporaryFile(file);
+                    return toResponse(parserService.parseStatement(tempFile, passwordOrNull(password), new StageTimer()),
+                            layout);
+                } catch (Exception e) {
+                    return parseFailure(file.getOriginalFilename(), password, e);
+                } finally {
+                    if (tempFile != null) {
+                        tempFile.delete();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            return parseFailure(file.getOriginalFilename(), password, e);
+        }
+    }
+
+    /**
+     * Variant of /parse for clients accepting text/event-stream: the parse reports its progress as
+     * server-sent events while it runs (pages extracted, issuer, summary fields, transactions),
+     * ending with a result or error event carrying what /parse would have answered
+     */
+    @PostMapping(value = "/parse", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Parse Statement with progress", description = "Upload and parse a credit card "
+            + "statement PDF, streaming page, issuer, summary, transaction and result events")
+    public ResponseEntity<StreamingResponseBody> parseStatementWithProgress(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "password", required = false) String password,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout,
+            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey) {
+        logger.info("Received file upload request with progress: {}", file.getOriginalFilename());
+
+        Duration budget = resolveDeadline(timeout, parseDeadline);
+        ParsePriority parsePriority = resolvePriority(apiKey, priority, ParsePriority.INTERACTIVE);
+        String uploadError = checkUpload(file);
+        if (uploadError == null && budget == null) {
+            uploadError = "Invalid " + TIMEOUT_HEADER + " header: " + timeout;
+        }
+        if (uploadError == null && parsePriority == null) {
+            uploadError = "Invalid " + PRIORITY_HEADER + " header: " + priority;
+        }
+        File tempFile = null;
+        if (uploadError == null) {
+            try {
+                // Saved now, since the multipart upload is cleaned up once the request is
+                tempFile = saveTemporaryFile(file);
+            } catch (IOException e) {
+                uploadError = "Error processing file: " + e.getMessage();
+            }
+        }
+        if (uploadError != null) {
+            Map<String, String> error = createErrorResponse(uploadError);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(out -> new ProgressEventStream(out, objectMapper).error(HttpStatus.BAD_REQUEST.value(), error));
+        }
+
+        File upload = tempFile;
+        StreamingResponseBody body = out -> {
+            ProgressEventStream events = new ProgressEventStream(out, objectMapper);
+            ResponseEntity<?> response;
+            try (ParseDeadline deadline = ParseDeadline.start(budget);
+                 ParsePriority.Scope scope = parsePriority.open();
+                 ParseProgress progress = ParseProgress.open(events)) {
+                response = toResponse(parserService.parseStatement(upload, passwordOrNull(password), new StageTimer()));
+            } catch (Exception e) {
+                response = parseFailure(file.getOriginalFilename(), password, e);
+            } finally {
+                upload.delete();
+            }
+            if (response.getStatusCode().is2xxSuccessful()) {
+                events.result(response.getBody());
+            } else {
+                events.error(response.getStatusCode().value(), response.getBody());
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                // Keeps reverse proxies from holding events back until the parse ends
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    /**
+     * Raw-body variant of /parse for service-to-service callers: the PDF is the request body,
+     * read straight into a pooled direct buffer and parsed in place, without multipart
+     * parsing or a temporary file
+     */
+    @PostMapping(value = "/parse", consumes = MediaType.APPLICATION_PDF_VALUE)
+    @Operation(summary = "Parse Statement (raw body)", description = "Parse a credit card statement PDF sent "
+            + "as the application/pdf request body, with its password in " + PASSWORD_HEADER + " if protected")
+    public ResponseEntity<?> parseRawStatement(HttpServletRequest request,
+                                               @RequestHeader(value = PASSWORD_HEADER, required = false) String password,
+                                               @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout,
+                                               @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+                                               @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey,
+                                               @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                               @RequestHeader(value = TRANSACTION_LAYOUT_HEADER, required = false) String layout) {
+        Duration budget = resolveDeadline(timeout, parseDeadline);
+        if (budget == null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + TIMEOUT_HEADER + " header: " + timeout));
+        }
+        ParsePriority parsePriority = resolvePriority(apiKey, priority, ParsePriority.INTERACTIVE);
+        if (parsePriority == null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + PRIORITY_HEADER + " header: " + priority));
+        }
+        if (!isValidIdempotencyKey(idempotencyKey)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + IDEMPOTENCY_KEY_HEADER + " header"));
+        }
+        if (!isValidTransactionLayout(layout)) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + TRANSACTION_LAYOUT_HEADER + " header: " + layout));
+        }
+
+        try (ParseDeadline deadline = ParseDeadline.start(budget);
+             ParsePriority.Scope scope = parsePriority.open()) {
+            ByteBuffer body = null;
+            try {
+                body = bufferPool.read(request.getInputStream(), request.getContentLengthLong());
+                if (!body.hasRemaining()) {
+                    return ResponseEntity.badRequest()
+                            .body(createErrorResponse("Empty request body"));
+                }
+                logger.info("Received raw statement of {} bytes", body.remaining());
+
+                // The body is read before the key is looked up, so a key reused for other content is caught
+                ByteBuffer content = body;
+                String fingerprint = idempotencyKey != null
+                        ? fingerprint("parse-raw", contentHash(content), password, layout)
+                        : null;
+                return idempotent(request, idempotencyKey, fingerprint, () -> {
+                    try {
+                        return toResponse(parserService.parseStatement(content, passwordOrNull(password),
+                                new StageTimer()), layout);
+                    } catch (Exception e) {
+                        return parseFailure("request body", password, e);
+                    }
+                });
+            } finally {
+                if (body != null) {
+                    bufferPool.release(body);
+                }
+            }
+        } catch (Exception e) {
+            return parseFailure("request body", password, e);
+        }
+    }
+
+    /**
+     * Parse every PDF in a zip, tar or tar.gz request body, streaming one NDJSON result line per
+     * statement while the archive is still being uploaded. The deadline applies to each statement.
+     */
+    @PostMapping(value = "/parse-archive",
+            consumes = {"application/zip", "application/x-tar", "application/gzip", MediaType.APPLICATION_OCTET_STREAM_VALUE},
+            produces = NDJSON)
+    @Operation(summary = "Parse Archive", description = "Parse all statement PDFs in a zip or tar archive, "
+            + "streaming one NDJSON result per statement")
+    public ResponseEntity<StreamingResponseBody> parseArchive(
+            HttpServletRequest request,
+            @RequestHeader(value = PASSWORD_HEADER, required = false) String password,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout,
+            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        Duration budget = resolveDeadline(timeout, parseDeadline);
+        ParsePriority parsePriority = resolvePriority(apiKey, priority, ParsePriority.BATCH);
+        if (budget == null || parsePriority == null || !isValidIdempotencyKey(idempotencyKey)) {
+            Map<String, String> error = createErrorResponse(budget == null
+                    ? "Invalid " + TIMEOUT_HEADER + " header: " + timeout
+                    : parsePriority == null
+                    ? "Invalid " + PRIORITY_HEADER + " header: " + priority
+                    : "Invalid " + IDEMPOTENCY_KEY_HEADER + " header");
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+
+        ArchiveIngestor ingestor = new ArchiveIngestor(parserService, bufferPool, archiveExecutor,
+                archiveLookahead, budget, passwordOrNull(password));
+
+        StreamingResponseBody body = out -> {
+            try (ParsePriority.Scope scope = parsePriority.open()) {
+                if (idempotencyKey == null) {
+                    ingestArchive(ingestor, request.getInputStream(), out);
+                    return;
+                }
+                replayArchive(request, idempotencyKey, password, ingestor, out);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     * Stream an archive's results
+     * @return false if the archive could not be read to the end
+     */
+    private boolean ingestArchive(ArchiveIngestor ingestor, InputStream in, OutputStream out)
+            throws IOException {
+        BatchResultWriter writer = new BatchResultWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), BatchResultWriter.Format.NDJSON, false);
         try {
+            ingestor.ingest(in, writer::write, name -> false);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Archive ingestion stopped: {}", e.getMessage());
+            writer.write(BatchRecord.builder()
+                    .error("Archive not readable: " + e.getMessage())
+                    .build());
+            return false;
+        }
+    }
 
-            File tempFile = saveTemporaryFile(file);
+    /**
+     * Stream an archive's results while recording them under the idempotency key, or replay the
+     * results recorded for it. The archive is hashed as it streams through, and a retry hashes
+     * its own body before it is given the recorded results. An archive that could not be read to
+     * the end, such as an upload cut off by the client, is not recorded, so its retry is parsed again.
+     */
+    private void replayArchive(HttpServletRequest request, String idempotencyKey, String password,
+                               ArchiveIngestor ingestor, OutputStream out) throws IOException {
+        MessageDigest digest = sha256();
+        InputStream body = new DigestInputStream(request.getInputStream(), digest);
+        IdempotencyStore.StoredResponse stored;
+        try {
+            stored = idempotencyStore.executeStreamed(idempotencyClient(request), idempotencyKey, () -> {
+                body.transferTo(OutputStream.nullOutputStream());
+                return fingerprint("parse-archive", HexFormat.of().formatHex(digest.digest()), password, null);
+            }, () -> {
+                CapturingOutputStream capture = new CapturingOutputStream(out, idempotencyStore.getMaxResponseBytes());
+                // Entries end before the end of a zip body; the rest is read for the hash
+                boolean complete = ingestArchive(ingestor, body, capture) && drain(body);
+                return new IdempotencyStore.StoredResponse(complete ? HttpStatus.OK.value()
+                        : HttpStatus.INTERNAL_SERVER_ERROR.value(), NDJSON, capture.captured(),
+                        complete ? fingerprint("parse-archive", HexFormat.of().formatHex(digest.digest()), password, null)
+                                : null);
+            });
+        } catch (IdempotencyKeyReusedException e) {
+            writeArchiveError(out, e.getMessage());
+            return;
+        }
+        if (!stored.isReplayed()) {
+            return;
+        }
+        if (stored.getStatus() != HttpStatus.OK.value() || stored.getBody() == null) {
+            writeArchiveError(out, "The archive sent earlier with this " + IDEMPOTENCY_KEY_HEADER
+                    + " could not be replayed; send it again with a new key");
+            return;
+        }
+        out.write(stored.getBody());
+        out.flush();
+    }
+
+    /**
+     * @return false if the rest of the body could not be read
+     */
+    private static boolean drain(InputStream in) {
+        try {
+            in.transferTo(OutputStream.nullOutputStream());
+            return true;
+        } catch (IOException e) {
+            logger.warn("Archive upload cut off: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Identify a submission by everything that changes its response: the content, the password
+     * it was sent with (as a salted hash, never in the clear) and the transaction layout asked for.
+     * A retry with another password, say after a wrong one, is thus not answered with the first failure.
+     * @param kind The endpoint, e.g. "parse"
+     * @param contentHash Hash of the statement or archive
+     * @param password The password sent, or null
+     * @param layout Value of the transaction layout header, or null where the endpoint has none
+     * @return The fingerprint
+     */
+    private String fingerprint(String kind, String contentHash, String password, String layout) {
+        StringBuilder fingerprint = new StringBuilder(kind).append(':').append(contentHash);
+        String supplied = passwordOrNull(password);
+        if (supplied != null) {
+            MessageDigest digest = sha256();
+            digest.update(passwordSalt);
+            digest.update(supplied.getBytes(StandardCharsets.UTF_8));
+            fingerprint.append(";password=").append(HexFormat.of().formatHex(digest.digest()));
+        }
+        if (layout != null || !"parse-archive".equals(kind)) {
+            fingerprint.append(";layout=").append(COLUMNAR_LAYOUT.equalsIgnoreCase(layout) ? COLUMNAR_LAYOUT : ROWS_LAYOUT);
+        }
+        return fingerprint.toString();
+    }
 
+    private static byte[] newSalt() {
+        byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
 
-            StatementData parsedData = parserService.parseStatement(tempFile);
+    /**
+     * @return Lower-case hex SHA-256 of the upload's content
+     */
+    private static String contentHash(MultipartFile file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
+    /**
+     * @return Lower-case hex SHA-256 of the bytes between position and limit, which are left unchanged
+     */
+    private static String contentHash(ByteBuffer content) {
+        MessageDigest digest = sha256();
+        digest.update(content.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-            tempFile.delete();
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void writeArchiveError(OutputStream out, String message) throws IOException {
+        BatchResultWriter writer = new BatchResultWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), BatchResultWriter.Format.NDJSON, false);
+        writer.write(BatchRecord.builder().error(message).build());
+    }
+
+    private ResponseEntity<?> toResponse(StatementData parsedData) {
+        if (parsedData == null || !parsedData.isValid()) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(createErrorResponse("Failed to parse statement. Unsupported format."));
+        }
 
-            if (parsedData == null || !parsedData.isValid()) {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                        .body(createErrorResponse("Failed to parse statement. Unsupported format."));
+        logger.info("Successfully parsed statement from {}", parsedData.getIssuerName());
+        return ResponseEntity.ok(parsedData);
+    }
+
+    /**
+     * @param parsedData The parsed statement, or null
+     * @param layout Value of the transaction layout header, or null for rows
+     */
+    private ResponseEntity<?> toResponse(StatementData parsedData, String layout) {
+        if (parsedData != null && parsedData.isValid() && COLUMNAR_LAYOUT.equalsIgnoreCase(layout)) {
+            parsedData = parsedData.withColumnarTransactions();
+        }
+        return toResponse(parsedData);
+    }
+
+    private static boolean isValidTransactionLayout(String layout) {
+        return layout == null || COLUMNAR_LAYOUT.equalsIgnoreCase(layout) || ROWS_LAYOUT.equalsIgnoreCase(layout);
+    }
+
+    /**
+     * Map a parse failure to its response
+     * @param name File name or description of the input, for the log
+     * @param password The password sent with the statement, or null
+     * @param e The failure
+     */
+    private ResponseEntity<?> parseFailure(String name, String password, Exception e) {
+        if (e instanceof ParseTimeoutException) {
+            logger.warn("Gave up on {}: {}", name, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse(PARSE_TIMEOUT, "Statement not parsed in time: " + e.getMessage()));
+        }
+        if (e instanceof InvalidPasswordException) {
+            boolean supplied = StringUtils.hasLength(password);
+            logger.warn("Could not open {}: {}", name, supplied ? "wrong password" : "password required");
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(supplied
+                            ? createErrorResponse(INVALID_PASSWORD, "The statement password is incorrect")
+                            : createErrorResponse(PASSWORD_REQUIRED, "The statement is password-protected"));
+        }
+        if (e instanceof IdempotencyKeyReusedException) {
+            logger.warn("Refused {}: {}", name, e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(createErrorResponse(IDEMPOTENCY_KEY_REUSED, e.getMessage()));
+        }
+        if (e instanceof ParseRejectedException) {
+            logger.warn("Turned away {}: {}", name, e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(OVERLOADED, "Too many statements waiting, retry later: " + e.getMessage()));
+        }
+        if (e instanceof DocumentLimitExceededException) {
+            logger.warn("Rejected statement over limits: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(createErrorResponse("Statement rejected: " + e.getMessage()));
+        }
+        logger.error("Error parsing statement: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(createErrorResponse("Error processing file: " + e.getMessage()));
+    }
+
+    /**
+     * Run a submission, or answer it with the response recorded for its idempotency key. Final
+     * responses are recorded as JSON; the first request gets its own response unchanged, and a
+     * replay to a client preferring another format is read back so it is written in that format.
+     * @param request The request, for the client it comes from
+     * @param idempotencyKey The Idempotency-Key header, or null to just run the submission
+     * @param fingerprint Identifies the submission, so a key reused for another one is refused
+     * @param handler Runs the submission, mapping its failures to responses
+     * @return The response
+     * @throws IOException if the key is reused, or the deadline passes while waiting for the first attempt
+     */
+    private ResponseEntity<?> idempotent(HttpServletRequest request, String idempotencyKey, String fingerprint,
+                                         Supplier<ResponseEntity<?>> handler) throws IOException {
+        if (idempotencyKey == null) {
+            return handler.get();
+        }
+        List<ResponseEntity<?>> original = new ArrayList<>(1);
+        IdempotencyStore.StoredResponse stored = idempotencyStore.execute(
+                idempotencyClient(request), idempotencyKey, fingerprint, () -> {
+                    ResponseEntity<?> response = handler.get();
+                    original.add(response);
+                    return new IdempotencyStore.StoredResponse(response.getStatusCode().value(),
+                            MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsBytes(response.getBody()));
+                });
+        if (!stored.isReplayed()) {
+            return original.get(0);
+        }
+        if (stored.getBody() != null && !prefersJson(request)) {
+            Class<?> type = HttpStatus.valueOf(stored.getStatus()).is2xxSuccessful() ? StatementData.class : ErrorResponse.class;
+            return ResponseEntity.status(stored.getStatus())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(objectMapper.readValue(stored.getBody(), type));
+        }
+        return ResponseEntity.status(stored.getStatus())
+                .contentType(MediaType.parseMediaType(stored.getContentType()))
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+
+    /**
+     * Idempotency keys are scoped to the API key sending them, or the address without one
+     */
+    private static String idempotencyClient(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        return StringUtils.hasText(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * @return Whether the request's most preferred response type is JSON, or it names none
+     */
+    private static boolean prefersJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (!StringUtils.hasText(accept)) {
+            return true;
+        }
+        MediaType preferred = null;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (preferred == null || type.getQualityValue() > preferred.getQualityValue()) {
+                    preferred = type;
+                }
             }
+        } catch (InvalidMediaTypeException e) {
+            return true;
+        }
+        return preferred == null || preferred.isCompatibleWith(MediaType.APPLICATION_JSON);
+    }
 
-            logger.info("Successfully parsed statement from {}", parsedData.getIssuerName());
-            return ResponseEntity.ok(parsedData);
+    private static boolean isValidIdempotencyKey(String key) {
+        return key == null || (StringUtils.hasText(key) && key.length() <= MAX_IDEMPOTENCY_KEY_LENGTH);
+    }
 
-        } catch (Exception e) {
-            logger.error("Error parsing statement: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("Error processing file: " + e.getMessage()));
+    private static String passwordOrNull(String password) {
+        return StringUtils.hasLength(password) ? password : null;
+    }
+
+    /**
+     * Priority class of a request: the one asked for in the header, but never above the class the
+     * caller's API key is limited to, or the endpoint's class for callers without a known key
+     * @param apiKey Value of the API key header, or null
+     * @param requested Value of the priority header, or null
+     * @param endpointDefault Class of the endpoint's traffic
+     * @return The class, or null if the header names no class
+     */
+    private ParsePriority resolvePriority(String apiKey, String requested, ParsePriority endpointDefault) {
+        ParsePriority keyPriority = parseScheduler.priorityForApiKey(apiKey);
+        ParsePriority ceiling = keyPriority != null ? keyPriority : endpointDefault;
+        if (!StringUtils.hasText(requested)) {
+            return ceiling;
         }
+        ParsePriority parsed = ParsePriority.parse(requested);
+        return parsed != null ? parsed.atMost(ceiling) : null;
+    }
+
+
+    @GetMapping("/scheduler")
+    @Operation(summary = "Scheduler Stats", description = "Parse slots in use, callers waiting and queue times per priority class")
+    public ResponseEntity<Map<String, ParseScheduler.ClassStats>> schedulerStats() {
+        return ResponseEntity.ok(parseScheduler.stats());
     }
 
 
+    @GetMapping(value = "/schema/statement.proto", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Protobuf Schema", description = "The statement.proto schema of parse results sent "
+            + "as application/x-protobuf")
+    public ResponseEntity<Resource> protobufSchema() {
+        return ResponseEntity.ok(new ClassPathResource("schema/statement.proto"));
+    }
+
     @GetMapping("/supported-issuers")
     @Operation(summary = "Supported Issuers", description = "Get list of supported credit card issuers")
     public ResponseEntity<?> getSupportedIssuers() {
@@ -109,10 +749,18 @@ public class StatementParserController {
      */
     @PostMapping(value = "/debug", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Debug PDF", description = "Extract and return raw text from PDF for debugging")
-    public ResponseEntity<?> debugPDF(@RequestParam("file") MultipartFile file) {
-        try {
+    public ResponseEntity<?> debugPDF(@RequestParam("file") MultipartFile file,
+                                      @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout) {
+        Duration budget = resolveDeadline(timeout, debugDeadline);
+        if (budget == null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + TIMEOUT_HEADER + " header: " + timeout));
+        }
+
+        try (ParseDeadline deadline = ParseDeadline.start(budget)) {
             File tempFile = saveTemporaryFile(file);
             String rawText = com.example.demo.parser.extractor.PDFTextExtractor.extractText(tempFile);
+            ParseDeadline.check();
             String layoutText = com.example.demo.parser.extractor.AdvancedPDFExtractor.extractTextWithLayout(tempFile);
 
             Map<String, Object> debug = new HashMap<>();
@@ -125,12 +773,29 @@ public class StatementParserController {
             tempFile.delete();
             return ResponseEntity.ok(debug);
 
+        } catch (ParseTimeoutException e) {
+            logger.warn("Gave up debugging {}: {}", file.getOriginalFilename(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse(PARSE_TIMEOUT, "Error: " + e.getMessage()));
         } catch (Exception e) {
             logger.error("Error debugging PDF: {}", e.getMessage());
             return ResponseEntity.status(500).body(createErrorResponse("Error: " + e.getMessage()));
         }
     }
 
+    /**
+     * @return Why the upload cannot be parsed, or null if it can
+     */
+    private static String checkUpload(MultipartFile file) {
+        if (file.isEmpty()) {
+            return "No file uploaded";
+        }
+        if (!file.getOriginalFilename().toLowerCase().endsWith(".pdf")) {
+            return "Only PDF files are supported";
+        }
+        return null;
+    }
+
     /**
      * Save uploaded file temporarily
      */
@@ -141,13 +806,80 @@ public class StatementParserController {
         return tempFile.toFile();
     }
 
+    /**
+     * Deadline for a request: the header value if present, capped at parser.deadline.max
+     * @param header The X-Parse-Timeout header, or null
+     * @param endpointDefault The endpoint's configured deadline
+     * @return The deadline, or null if the header cannot be read as a positive duration
+     */
+    private Duration resolveDeadline(String header, Duration endpointDefault) {
+        if (header == null || header.isBlank()) {
+            return endpointDefault;
+        }
+        try {
+            Duration requested = DurationStyle.detectAndParse(header.trim());
+            if (requested.isNegative() || requested.isZero()) {
+                return null;
+            }
+            return requested.compareTo(maxDeadline) > 0 ? maxDeadline : requested;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Passes bytes through while keeping a copy of them, up to a limit
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private final long limit;
+        private boolean overflowed;
+
+        CapturingOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            keep(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            keep(b, off, len);
+        }
+
+        private void keep(byte[] b, int off, int len) {
+            if (overflowed || copy.size() + (long) len > limit) {
+                overflowed = true;
+                copy.reset();
+                return;
+            }
+            copy.write(b, off, len);
+        }
+
+        /**
+         * @return Everything written, or null if it was over the limit
+         */
+        byte[] captured() {
+            return overflowed ? null : copy.toByteArray();
+        }
+    }
+
     /**
      * Create error response
      */
-    private Map<String, String> createErrorResponse(String message) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", message);
-        error.put("timestamp", java.time.Instant.now().toString());
-        return error;
+    private ErrorResponse createErrorResponse(String message) {
+        return new ErrorResponse(message);
+    }
+
+    /**
+     * Create error response with a machine-readable code
+     */
+    private ErrorResponse createErrorResponse(String code, String message) {
+        return createErrorResponse(message).withCode(code);
     }
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+package com.example.demo.parser.controller;
+
+import com.example.demo.parser.model.ErrorResponse;
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.model.Transaction;
+import com.example.demo.parser.model.TransactionColumns;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+/**
+ * Writes parse results as the Statement message of the published schema/statement.proto, for
+ * clients accepting application/x-protobuf. The message is encoded field by field with the
+ * protobuf runtime's wire-format writer rather than through generated classes, so nothing is
+ * built in between: nested message sizes are computed from the data and each field is written
+ * straight to the response. Fields at their proto3 default (empty, zero, false) are left out.
+ * Error bodies are written as the Error message, so a client accepting only protobuf still gets
+ * the status and headers of a failed request rather than a 406.
+ */
+public class StatementProtobufConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final MediaType PROTOBUF_STANDARD = new MediaType("application", "protobuf");
+
+    public StatementProtobufConverter() {
+        super(PROTOBUF, PROTOBUF_STANDARD);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StatementData.class.isAssignableFrom(clazz) || ErrorResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Statements are not accepted as protobuf", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        if (body instanceof ErrorResponse error) {
+            write(error, outputMessage.getBody());
+        } else {
+            write((StatementData) body, outputMessage.getBody());
+        }
+    }
+
+    /**
+     * @param error The error body
+     * @param stream Receives the encoded Error message
+     * @throws IOException if the stream fails
+     */
+    static void write(ErrorResponse error, OutputStream stream) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(stream);
+        writeString(out, 1, error.get(ErrorResponse.ERROR));
+        writeString(out, 2, error.get(ErrorResponse.CODE));
+        writeString(out, 3, error.get(ErrorResponse.TIMESTAMP));
+        out.flush();
+    }
+
+    /**
+     * @param data The statement
+     * @param stream Receives the encoded Statement message
+     * @throws IOException if the stream fails
+     */
+    static void write(StatementData data, OutputStream stream) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(stream);
+        writeString(out, 1, data.getCardLastFourDigits());
+        writeString(out, 2, data.getCardVariant());
+        writeInt32(out, 3, TransactionColumns.toNumber(data.getStatementDate()));
+        writeInt32(out, 4, TransactionColumns.toNumber(data.getPaymentDueDate()));
+        writeDecimal(out, 5, data.getTotalAmountDue());
+        writeString(out, 6, data.getIssuerName());
+        writeString(out, 7, data.getCardHolderName());
+        writeDecimal(out, 8, data.getCreditLimit());
+        writeDecimal(out, 9, data.getAvailableCredit());
+        writeDecimal(out, 10, data.getMinimumAmountDue());
+        if (data.getTransactions() != null) {
+            for (Transaction transaction : data.getTransactions()) {
+                out.writeTag(11, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(transactionSize(transaction));
+                writeTransaction(out, transaction);
+            }
+        }
+        TransactionColumns columns = data.getTransactionColumns();
+        if (columns != null) {
+            out.writeTag(12, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(columnsSize(columns));
+            writeColumns(out, columns);
+        }
+        if (data.isValid()) {
+            out.writeBool(13, true);
+        }
+        out.flush();
+    }
+
+    private static void writeTransaction(CodedOutputStream out, Transaction transaction) throws IOException {
+        writeInt32(out, 1, TransactionColumns.toNumber(transaction.getTransactionDate()));
+        writeInt32(out, 2, TransactionColumns.toNumber(transaction.getPostingDate()));
+        writeString(out, 3, transaction.getDescription());
+        writeString(out, 4, transaction.getMerchantName());
+        writeDecimal(out, 5, transaction.getAmount());
+        writeString(out, 6, transaction.getType());
+    }
+
+    private static int transactionSize(Transaction transaction) {
+        return int32Size(1, TransactionColumns.toNumber(transaction.getTransactionDate()))
+                + int32Size(2, TransactionColumns.toNumber(transaction.getPostingDate()))
+                + stringSize(3, transaction.getDescription())
+                + stringSize(4, transaction.getMerchantName())
+                + decimalFieldSize(5, transaction.getAmount())
+                + stringSize(6, transaction.getType());
+    }
+
+    private static void writeColumns(CodedOutputStream out, TransactionColumns columns) throws IOException {
+        writePackedInt32(out, 1, columns.getTransactionDates());
+        writePackedInt32(out, 2, columns.getPostingDates());
+        writeStrings(out, 3, columns.getDescriptions());
+        writeStrings(out, 4, columns.getMerchantNames());
+        long[] amounts = columns.getAmounts();
+        if (amounts != null && amounts.length > 0) {
+            out.writeTag(5, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(packedSInt64Size(amounts));
+            for (long amount : amounts) {
+                out.writeSInt64NoTag(amount);
+            }
+        }
+        writeInt32(out, 6, columns.getAmountScale());
+        writeStrings(out, 7, columns.getTypes());
+        int[] typeIndexes = columns.getTypeIndexes();
+        if (typeIndexes != null && typeIndexes.length > 0) {
+            out.writeTag(8, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(packedSInt32Size(typeIndexes));
+            for (int index : typeIndexes) {
+                out.writeSInt32NoTag(index);
+            }
+        }
+    }
+
+    private static int columnsSize(TransactionColumns columns) {
+        return packedFieldSize(1, packedInt32Size(columns.getTransactionDates()))
+                + packedFieldSize(2, packedInt32Size(columns.getPostingDates()))
+                + stringsSize(3, columns.getDescriptions())
+                + stringsSize(4, columns.getMerchantNames())
+                + packedFieldSize(5, packedSInt64Size(columns.getAmounts()))
+                + int32Size(6, columns.getAmountScale())
+                + stringsSize(7, columns.getTypes())
+                + packedFieldSize(8, packedSInt32Size(columns.getTypeIndexes()));
+    }
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static int stringSize(int field, String value) {
+        return value != null && !value.isEmpty() ? CodedOutputStream.computeStringSize(field, value) : 0;
+    }
+
+    /**
+     * Repeated strings keep every entry, empty ones included, so positions line up across columns
+     */
+    private static void writeStrings(CodedOutputStream out, int field, String[] values) throws IOException {
+        if (values != null) {
+            for (String value : values) {
+                out.writeString(field, value != null ? value : "");
+            }
+        }
+    }
+
+    private static int stringsSize(int field, String[] values) {
+        int size = 0;
+        if (values != null) {
+            for (String value : values) {
+                size += CodedOutputStream.computeStringSize(field, value != null ? value : "");
+            }
+        }
+        return size;
+    }
+
+    private static void writeInt32(CodedOutputStream out, int field, int value) throws IOException {
+        if (value != 0) {
+            out.writeInt32(field, value);
+        }
+    }
+
+    private static int int32Size(int field, int value) {
+        return value != 0 ? CodedOutputStream.computeInt32Size(field, value) : 0;
+    }
+
+    private static void writePackedInt32(CodedOutputStream out, int field, int[] values) throws IOException {
+        if (values != null && values.length > 0) {
+            out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(packedInt32Size(values));
+            for (int value : values) {
+                out.writeInt32NoTag(value);
+            }
+        }
+    }
+
+    private static int packedInt32Size(int[] values) {
+        int size = 0;
+        if (values != null) {
+            for (int value : values) {
+                size += CodedOutputStream.computeInt32SizeNoTag(value);
+            }
+        }
+        return size;
+    }
+
+    private static int packedSInt32Size(int[] values) {
+        int size = 0;
+        if (values != null) {
+            for (int value : values) {
+                size += CodedOutputStream.computeSInt32SizeNoTag(value);
+            }
+        }
+        return size;
+    }
+
+    private static int packedSInt64Size(long[] values) {
+        int size = 0;
+        if (values != null) {
+            for (long value : values) {
+                size += CodedOutputStream.computeSInt64SizeNoTag(value);
+            }
+        }
+        return size;
+    }
+
+    private static int packedFieldSize(int field, int dataSize) {
+        return dataSize > 0
+                ? CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(dataSize) + dataSize
+                : 0;
+    }
+
+    private static void writeDecimal(CodedOutputStream out, int field, BigDecimal value) throws IOException {
+        if (value != null) {
+            out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(decimalSize(value));
+            long unscaled = value.unscaledValue().longValueExact();
+            if (unscaled != 0) {
+                out.writeSInt64(1, unscaled);
+            }
+            writeInt32(out, 2, value.scale());
+        }
+    }
+
+    private static int decimalFieldSize(int field, BigDecimal value) {
+        if (value == null) {
+            return 0;
+        }
+        int size = decimalSize(value);
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private static int decimalSize(BigDecimal value) {
+        long unscaled = value.unscaledValue().longValueExact();
+        return (unscaled != 0 ? CodedOutputStream.computeSInt64Size(1, unscaled) : 0) + int32Size(2, value.scale());
+    }
+}
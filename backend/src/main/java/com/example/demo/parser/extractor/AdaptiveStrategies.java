@@ -0,0 +1,298 @@
+package com.example.demo.parser.extractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the extraction strategies for one issuer and field, in their declared order, and records
+ * which strategy produced the value in lock-free counters. Only strategies declared
+ * {@link Strategy#equivalent equivalent}, which cannot give different answers, are reordered:
+ * every {@value #REORDER_INTERVAL} runs each run of adjacent equivalent strategies is sorted by
+ * win count (ties keep the declared order). Fallback strategies, such as "largest amount on the
+ * page", always run last because they produce a guess whenever they run. Expensive strategies
+ * that almost never win for the issuer are skipped, apart from an occasional probe run that keeps
+ * their counts current, but never the last strategy before the fallbacks: it is the last one that
+ * can find the value rather than guess it. The {@link ParseDeadline} is checked before each strategy.
+ */
+public class AdaptiveStrategies {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveStrategies.class);
+
+    static final int REORDER_INTERVAL = 64;
+
+    /** Runs observed before the order or skipping changes anything */
+    private static final int MIN_SAMPLES = 100;
+
+    /** An expensive strategy winning less often than this, when tried, is skipped */
+    private static final double SKIP_BELOW_WIN_RATE = 0.01;
+
+    /** Every this many runs an expensive strategy runs even if it would be skipped */
+    private static final int PROBE_INTERVAL = 32;
+
+    private static final Map<String, AdaptiveStrategies> registry = new ConcurrentHashMap<>();
+
+    /**
+     * A named way of finding a field value
+     */
+    public static final class Strategy {
+
+        /**
+         * The attempt itself
+         */
+        @FunctionalInterface
+        public interface Attempt {
+            String run() throws IOException;
+        }
+
+        private final String name;
+        private final Attempt attempt;
+        private final boolean expensive;
+        private final boolean fallback;
+        private final boolean equivalent;
+
+        private Strategy(String name, Attempt attempt, boolean expensive, boolean fallback, boolean equivalent) {
+            this.name = name;
+            this.attempt = attempt;
+            this.expensive = expensive;
+            this.fallback = fallback;
+            this.equivalent = equivalent;
+        }
+
+        /**
+         * @param name Stable name, used to match counters across runs
+         * @param attempt Returns the value or null
+         */
+        public static Strategy of(String name, Attempt attempt) {
+            return new Strategy(name, attempt, false, false, false);
+        }
+
+        /**
+         * A strategy that builds or scans a costly source and may be skipped for issuers where it never wins
+         */
+        public static Strategy expensive(String name, Attempt attempt) {
+            return new Strategy(name, attempt, true, false, false);
+        }
+
+        /**
+         * A last-resort guess, always run after every other strategy
+         */
+        public static Strategy fallback(String name, Attempt attempt) {
+            return new Strategy(name, attempt, false, true, false);
+        }
+
+        /**
+         * A strategy that returns either null or the same value as the equivalent strategies
+         * declared next to it, e.g. several patterns for the one card number, so those may run
+         * in any order
+         */
+        public static Strategy equivalent(String name, Attempt attempt) {
+            return new Strategy(name, attempt, false, false, true);
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final String key;
+    private final AtomicLong runs = new AtomicLong();
+    private volatile String[] names;
+    private volatile LongAdder[] tried;
+    private volatile LongAdder[] won;
+    private volatile int[] order;
+
+    private AdaptiveStrategies(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @param issuer The issuer name
+     * @param field The field, or field and source, e.g. "statementDate"
+     * @return The shared counters for the pair
+     */
+    public static AdaptiveStrategies forField(String issuer, String field) {
+        return registry.computeIfAbsent(issuer + "/" + field, AdaptiveStrategies::new);
+    }
+
+    /**
+     * Run strategies until one returns a value
+     * @param strategies The strategies in their default order; pass the same names on every call
+     * @return The first value found, or null
+     * @throws IOException if a strategy fails to build its source
+     */
+    public String run(Strategy... strategies) throws IOException {
+        if (!matches(strategies)) {
+            return runInOrder(strategies);
+        }
+
+        long run = runs.incrementAndGet();
+        boolean warm = run > MIN_SAMPLES;
+        int lastToFind = lastBeforeFallbacks(strategies);
+        String result = null;
+
+        int[] current = order;
+        for (int position = 0; position < current.length; position++) {
+            int index = current[position];
+            Strategy strategy = strategies[index];
+            if (warm && strategy.expensive && position < lastToFind && run % PROBE_INTERVAL != 0
+                    && rarelyWins(index)) {
+                continue;
+            }
+            ParseDeadline.check();
+            tried[index].increment();
+            result = strategy.attempt.run();
+            if (result != null) {
+                won[index].increment();
+                break;
+            }
+        }
+
+        if (run % REORDER_INTERVAL == 0 && warm) {
+            reorder(strategies);
+        }
+        return result;
+    }
+
+    /**
+     * @return Strategy name to wins, in the current order
+     */
+    public Map<String, Long> getWins() {
+        Map<String, Long> wins = new LinkedHashMap<>();
+        String[] currentNames = names;
+        if (currentNames != null) {
+            for (int index : order) {
+                wins.put(currentNames[index], won[index].sum());
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Bind the counters to the strategy names on first use; false if this call passes different ones
+     */
+    private boolean matches(Strategy[] strategies) {
+        if (names == null) {
+            synchronized (this) {
+                if (names == null) {
+                    int count = strategies.length;
+                    LongAdder[] newTried = new LongAdder[count];
+                    LongAdder[] newWon = new LongAdder[count];
+                    String[] newNames = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        newTried[i] = new LongAdder();
+                        newWon[i] = new LongAdder();
+                        newNames[i] = strategies[i].name;
+                    }
+                    tried = newTried;
+                    won = newWon;
+                    order = declaredOrder(strategies);
+                    names = newNames;
+                }
+            }
+        }
+
+        String[] current = names;
+        if (current.length != strategies.length) {
+            logger.debug("Strategy set changed for {}, running in declared order", key);
+            return false;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (!current[i].equals(strategies[i].name)) {
+                logger.debug("Strategy set changed for {}, running in declared order", key);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean rarelyWins(int index) {
+        long attempts = tried[index].sum();
+        return attempts >= MIN_SAMPLES && won[index].sum() < attempts * SKIP_BELOW_WIN_RATE;
+    }
+
+    /**
+     * Sort each run of adjacent equivalent strategies by wins; every other strategy keeps its place
+     */
+    private void reorder(Strategy[] strategies) {
+        int[] current = order;
+        long[] wins = new long[strategies.length];
+        for (int i = 0; i < wins.length; i++) {
+            wins[i] = won[i].sum();
+        }
+
+        int[] newOrder = declaredOrder(strategies);
+        int start = 0;
+        while (start < newOrder.length) {
+            int end = start + 1;
+            if (strategies[newOrder[start]].equivalent) {
+                while (end < newOrder.length && strategies[newOrder[end]].equivalent) {
+                    end++;
+                }
+                // By wins, ties in declared order (the sort is stable)
+                Integer[] run = new Integer[end - start];
+                for (int i = 0; i < run.length; i++) {
+                    run[i] = newOrder[start + i];
+                }
+                Arrays.sort(run, Comparator.comparingLong(i -> -wins[i]));
+                for (int i = 0; i < run.length; i++) {
+                    newOrder[start + i] = run[i];
+                }
+            }
+            start = end;
+        }
+
+        if (!Arrays.equals(newOrder, current)) {
+            order = newOrder;
+            logger.debug("Reordered strategies for {}: {}", key, getWins().keySet());
+        }
+    }
+
+    /**
+     * @return Position in the run order of the last strategy that is not a fallback, or -1
+     */
+    private static int lastBeforeFallbacks(Strategy[] strategies) {
+        int count = 0;
+        for (Strategy strategy : strategies) {
+            if (!strategy.fallback) {
+                count++;
+            }
+        }
+        return count - 1;
+    }
+
+    private static int[] declaredOrder(Strategy[] strategies) {
+        int[] result = new int[strategies.length];
+        int next = 0;
+        for (int i = 0; i < strategies.length; i++) {
+            if (!strategies[i].fallback) {
+                result[next++] = i;
+            }
+        }
+        for (int i = 0; i < strategies.length; i++) {
+            if (strategies[i].fallback) {
+                result[next++] = i;
+            }
+        }
+        return result;
+    }
+
+    private static String runInOrder(Strategy[] strategies) throws IOException {
+        for (int index : declaredOrder(strategies)) {
+            ParseDeadline.check();
+            String result = strategies[index].attempt.run();
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+}
@@ -2,7 +2,6 @@ package com.example.demo.parser.extractor;
 
 
 
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
@@ -24,11 +23,17 @@ public class AdvancedPDFExtractor {
 
     private static final Logger logger = LoggerFactory.getLogger(AdvancedPDFExtractor.class);
 
+    private static final String[] DATE_PATTERNS = {
+            "\\d{2}[-/]\\d{2}[-/]\\d{4}",
+            "\\d{2}[-/][A-Za-z]{3}[-/]\\d{4}",
+            "\\d{2}\\s+[A-Za-z]{3}\\s+\\d{4}"
+    };
+
     /**
      * Extract text with better handling of layout
      */
     public static String extractTextWithLayout(File pdfFile) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
             PDFTextStripper stripper = new LayoutPreservingPDFTextStripper();
             stripper.setSortByPosition(true);
             return stripper.getText(document);
@@ -41,13 +46,13 @@ public class AdvancedPDFExtractor {
     public static Map<String, String> extractByRegions(File pdfFile) throws IOException {
         Map<String, String> regions = new HashMap<>();
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
             if (document.getNumberOfPages() == 0) {
                 return regions;
             }
 
             PDPage firstPage = document.getPage(0);
-            PDFTextStripperByArea stripper = new PDFTextStripperByArea();
+            PDFTextStripperByArea stripper = new StatementRegionStripper();
             stripper.setSortByPosition(true);
 
             // Define regions (adjust based on typical statement layouts)
@@ -59,7 +64,11 @@ public class AdvancedPDFExtractor {
             stripper.addRegion("account", accountRegion);
             stripper.addRegion("transactions", transactionRegion);
 
-            stripper.extractRegions(firstPage);
+            try {
+                stripper.extractRegions(firstPage);
+            } finally {
+                PDFDocumentLoader.releaseFonts(document);
+            }
 
             regions.put("header", stripper.getTextForRegion("header"));
             regions.put("account", stripper.getTextForRegion("account"));
@@ -73,8 +82,26 @@ public class AdvancedPDFExtractor {
      * Extract structured data as lines with position info
      */
     public static List<TextLine> extractTextLines(File pdfFile) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
+            LineExtractingPDFTextStripper stripper = new LineExtractingPDFTextStripper();
+            stripper.getText(document);
+            return stripper.getTextLines();
+        }
+    }
+
+    /**
+     * Extract lines with position info from a page range
+     * @param pdfFile The PDF file
+     * @param startPage Starting page number (1-indexed)
+     * @param endPage Ending page number (1-indexed)
+     * @return Lines in reading order
+     * @throws IOException if file reading fails
+     */
+    public static List<TextLine> extractTextLines(File pdfFile, int startPage, int endPage) throws IOException {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
             LineExtractingPDFTextStripper stripper = new LineExtractingPDFTextStripper();
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
             stripper.getText(document);
             return stripper.getTextLines();
         }
@@ -83,7 +110,7 @@ public class AdvancedPDFExtractor {
     /**
      * Custom stripper that preserves layout better
      */
-    private static class LayoutPreservingPDFTextStripper extends PDFTextStripper {
+    private static class LayoutPreservingPDFTextStripper extends StatementTextStripper {
 
         public LayoutPreservingPDFTextStripper() throws IOException {
             super();
@@ -127,19 +154,32 @@ public class AdvancedPDFExtractor {
         private String text;
         private float x;
         private float y;
+        private float width;
         private float fontSize;
+        private String fontName;
+        private int page;
 
         public TextLine(String text, float x, float y, float fontSize) {
+            this(text, x, y, 0, fontSize, null, 0);
+        }
+
+        public TextLine(String text, float x, float y, float width, float fontSize, String fontName, int page) {
             this.text = text;
             this.x = x;
             this.y = y;
+            this.width = width;
             this.fontSize = fontSize;
+            this.fontName = fontName;
+            this.page = page;
         }
 
         public String getText() { return text; }
         public float getX() { return x; }
         public float getY() { return y; }
+        public float getWidth() { return width; }
         public float getFontSize() { return fontSize; }
+        public String getFontName() { return fontName; }
+        public int getPage() { return page; }
 
         @Override
         public String toString() {
@@ -150,13 +190,15 @@ public class AdvancedPDFExtractor {
     /**
      * Stripper that extracts lines with position info
      */
-    private static class LineExtractingPDFTextStripper extends PDFTextStripper {
+    private static class LineExtractingPDFTextStripper extends StatementTextStripper {
 
         private List<TextLine> textLines = new ArrayList<>();
         private StringBuilder currentLine = new StringBuilder();
         private float currentX = 0;
         private float currentY = 0;
+        private float currentEndX = 0;
         private float currentFontSize = 0;
+        private String currentFontName;
 
         public LineExtractingPDFTextStripper() throws IOException {
             super();
@@ -178,37 +220,51 @@ public class AdvancedPDFExtractor {
 
             // New line detected
             if (currentLine.length() > 0 && Math.abs(newY - currentY) > 5) {
-                textLines.add(new TextLine(
-                        currentLine.toString().trim(),
-                        currentX,
-                        currentY,
-                        currentFontSize
-                ));
-                currentLine = new StringBuilder();
+                endLine();
             }
 
             if (currentLine.length() == 0) {
                 currentX = first.getXDirAdj();
                 currentY = newY;
                 currentFontSize = first.getFontSizeInPt();
+                currentFontName = first.getFont() != null ? first.getFont().getName() : null;
             }
 
+            TextPosition last = textPositions.get(textPositions.size() - 1);
+            currentEndX = Math.max(currentEndX, last.getXDirAdj() + last.getWidthDirAdj());
             currentLine.append(text);
         }
 
         @Override
         protected void writeLineSeparator() throws IOException {
             if (currentLine.length() > 0) {
-                textLines.add(new TextLine(
-                        currentLine.toString().trim(),
-                        currentX,
-                        currentY,
-                        currentFontSize
-                ));
-                currentLine = new StringBuilder();
+                endLine();
             }
             super.writeLineSeparator();
         }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            // The last line of a page is not followed by a line separator
+            if (currentLine.length() > 0) {
+                endLine();
+            }
+            super.endPage(page);
+        }
+
+        private void endLine() {
+            textLines.add(new TextLine(
+                    currentLine.toString().trim(),
+                    currentX,
+                    currentY,
+                    Math.max(0, currentEndX - currentX),
+                    currentFontSize,
+                    currentFontName,
+                    getCurrentPageNo()
+            ));
+            currentLine = new StringBuilder();
+            currentEndX = 0;
+        }
     }
 
     /**
@@ -250,23 +306,19 @@ public class AdvancedPDFExtractor {
      * Smart keyword search with fuzzy matching
      */
     public static String findValueAfterKeyword(String text, String... keywords) {
-        for (String keyword : keywords) {
+        for (String keyword : bySpecificity(keywords)) {
             // Try exact match first
-            String pattern = "(?i)" + keyword + "\\s*:?\\s*([^\n]+)";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(text);
+            String value = PatternExtractor.extractFirst(text, labelPattern(keyword, false), 1);
 
-            if (m.find()) {
-                return m.group(1).trim();
+            if (value != null) {
+                return value;
             }
 
             // Try fuzzy match (allow small variations)
-            String fuzzyPattern = "(?i)" + keyword.replaceAll("\\s+", "\\\\s*") + "\\s*:?\\s*([^\n]+)";
-            p = java.util.regex.Pattern.compile(fuzzyPattern);
-            m = p.matcher(text);
+            value = PatternExtractor.extractFirst(text, labelPattern(keyword, true), 1);
 
-            if (m.find()) {
-                return m.group(1).trim();
+            if (value != null) {
+                return value;
             }
         }
 
@@ -274,41 +326,88 @@ public class AdvancedPDFExtractor {
     }
 
     /**
-     * Extract all amounts from text
+     * Keyword search with the counters of the issuer and field. The aliases are tried in their
+     * given order, except that an alias contained in a longer one (Amount Due in Total Amount Due)
+     * goes after it, and an alias never matches as the tail of a longer label (Amount Due in
+     * Minimum Amount Due), so the answer does not depend on how often each alias has won.
+     * @param strategies Counters for the issuer, field and source text
+     * @param text The text to search
+     * @param keywords Aliases in their default order
+     * @return The rest of the line after the first alias found, or null
+     * @throws ParseTimeoutException if the parse deadline passes between attempts
+     */
+    public static String findValueAfterKeyword(AdaptiveStrategies strategies, String text, String... keywords)
+            throws IOException {
+        List<String> ordered = bySpecificity(keywords);
+        AdaptiveStrategies.Strategy[] attempts = new AdaptiveStrategies.Strategy[ordered.size() * 2];
+        for (int i = 0; i < ordered.size(); i++) {
+            String exact = labelPattern(ordered.get(i), false);
+            String fuzzy = labelPattern(ordered.get(i), true);
+            attempts[2 * i] = AdaptiveStrategies.Strategy.of("exact:" + ordered.get(i), () ->
+                    PatternExtractor.extractFirst(text, exact, 1));
+            // A one-word alias has no spaces to relax; its fuzzy pattern would repeat the exact one
+            attempts[2 * i + 1] = AdaptiveStrategies.Strategy.of("fuzzy:" + ordered.get(i), () ->
+                    fuzzy.equals(exact) ? null : PatternExtractor.extractFirst(text, fuzzy, 1));
+        }
+        return strategies.run(attempts);
+    }
+
+    /**
+     * @param keywords Aliases in their default order
+     * @return The aliases, each moved ahead of the first earlier alias it contains
+     */
+    static List<String> bySpecificity(String... keywords) {
+        List<String> ordered = new ArrayList<>();
+        for (String keyword : keywords) {
+            String lower = keyword.toLowerCase(Locale.ROOT);
+            int at = ordered.size();
+            for (int i = 0; i < ordered.size(); i++) {
+                if (lower.contains(ordered.get(i).toLowerCase(Locale.ROOT))) {
+                    at = i;
+                    break;
+                }
+            }
+            ordered.add(at, keyword);
+        }
+        return ordered;
+    }
+
+    /**
+     * @param keyword The label
+     * @param fuzzy true to let the label's spaces match any whitespace or none
+     * @return Pattern capturing the rest of the line after the label, which must not be the
+     *         last words of a longer label: no letter and at most one space before it
+     */
+    static String labelPattern(String keyword, boolean fuzzy) {
+        String label = fuzzy ? keyword.replaceAll("\\s+", "\\\\s*") : keyword;
+        return "(?i)(?<![A-Za-z][ \\t]?)" + label + "\\s*:?\\s*([^\n]+)";
+    }
+
+    /**
+     * Extract all rupee amounts (Rs, ₹ or INR before the number) from text, in document order
+     * @return The numbers without their currency
      */
     public static List<String> extractAllAmounts(String text) {
         List<String> amounts = new ArrayList<>();
-        String pattern = "(?:Rs\\.?|₹|INR)\\s*([\\d,]+\\.?\\d*)";
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-        java.util.regex.Matcher m = p.matcher(text);
 
-        while (m.find()) {
-            amounts.add(m.group(1));
+        for (StatementToken token : StatementLexer.tokenize(text)) {
+            if (token.is(StatementToken.Type.AMOUNT) && "INR".equals(token.getValue())) {
+                amounts.add(token.getText());
+            }
         }
 
         return amounts;
     }
 
     /**
-     * Extract all dates from text
+     * Extract all dates written dd-mm-yyyy, dd-Mon-yyyy or dd Mon yyyy from text, grouped in
+     * that order of forms and in document order within each; callers taking the first date rely on it
      */
     public static List<String> extractAllDates(String text) {
         List<String> dates = new ArrayList<>();
-        String[] patterns = {
-                "\\d{2}[-/]\\d{2}[-/]\\d{4}",
-                "\\d{2}[-/][A-Za-z]{3}[-/]\\d{4}",
-                "\\d{2}\\s+[A-Za-z]{3}\\s+\\d{4}"
-        };
-
-        for (String pattern : patterns) {
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(text);
-
-            while (m.find()) {
-                dates.add(m.group());
-            }
+        for (String pattern : DATE_PATTERNS) {
+            dates.addAll(RegexGuard.findAll(pattern, 0, text, 0));
         }
-
         return dates;
     }
 }
\ No newline at end of file
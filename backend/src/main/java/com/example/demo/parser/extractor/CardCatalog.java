@@ -0,0 +1,328 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.model.CardProduct;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Catalog of card products per issuer, compiled into a single Aho-Corasick automaton over all
+ * product names and aliases. One pass over the statement header finds the leftmost match,
+ * taking the longest name where several start at the same place ("Regalia First" over "Regalia"),
+ * so lookup cost does not grow with the number of products in the catalog.
+ *
+ * A product name printed after a card or product label is the better evidence, so parsers look
+ * up that labelled value with {@link #findLabelledProduct} first and scan the header only for
+ * statements without one. In the header scan, names that are everyday words ("Reserve" in
+ * "Reserve Bank of India") only count next to such a label or before "Card".
+ */
+public class CardCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardCatalog.class);
+
+    private static final String CATALOG_RESOURCE = "card-catalog.json";
+
+    /** Number of normalized characters treated as the statement header */
+    public static final int HEADER_WINDOW = 4096;
+
+    /** Folded labels that may directly precede a product name, longest first where one ends another */
+    private static final String[] LABELS = {
+            "CARD PRODUCT", "PRODUCT NAME", "PRODUCT", "CARD VARIANT", "VARIANT", "CARD TYPE", "CARD NAME", "MEMBERSHIP"
+    };
+
+    private static volatile CardCatalog instance;
+
+    // Automaton: per state, sorted transition chars and their target states
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // Per state, the terms ending here (including those reached through failure links)
+    private final int[][] outputs;
+    private final List<Term> terms;
+    private final int longestTerm;
+    private final int productCount;
+
+    private CardCatalog(List<CardProduct> products) {
+        List<Term> collected = new ArrayList<>();
+        for (CardProduct product : products) {
+            addTerm(collected, product.getName(), product, product.isGeneric());
+            for (String alias : product.getAliases()) {
+                addTerm(collected, alias, product, false);
+            }
+        }
+        this.terms = collected;
+        this.longestTerm = collected.stream().mapToInt(term -> term.folded.length()).max().orElse(0);
+        this.productCount = products.size();
+
+        // Build the trie with ordered maps, then freeze it into arrays
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+
+        for (int t = 0; t < collected.size(); t++) {
+            int state = 0;
+            for (char c : collected.get(t).folded.toCharArray()) {
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ends.get(state).add(t);
+        }
+
+        int size = trie.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        for (int s = 0; s < size; s++) {
+            TreeMap<Character, Integer> edges = trie.get(s);
+            keys[s] = new char[edges.size()];
+            targets[s] = new int[edges.size()];
+            int i = 0;
+            for (var edge : edges.entrySet()) {
+                keys[s][i] = edge.getKey();
+                targets[s][i++] = edge.getValue();
+            }
+        }
+
+        // Breadth-first failure links; outputs inherit the failure state's outputs
+        fail = new int[size];
+        outputs = new int[size][];
+        outputs[0] = toArray(ends.get(0));
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            List<Integer> out = new ArrayList<>(ends.get(s));
+            for (int t : outputs[fail[s]]) {
+                out.add(t);
+            }
+            outputs[s] = toArray(out);
+
+            for (int i = 0; i < keys[s].length; i++) {
+                int child = targets[s][i];
+                int f = fail[s];
+                while (f != 0 && step(f, keys[s][i]) < 0) {
+                    f = fail[f];
+                }
+                int next = step(f, keys[s][i]);
+                fail[child] = next >= 0 && next != child ? next : 0;
+                queue.add(child);
+            }
+        }
+
+        logger.info("Card catalog compiled: {} products, {} names, {} states",
+                productCount, collected.size(), size);
+    }
+
+    /**
+     * Get the catalog bundled with the application, loading it on first use
+     * @return The shared catalog (empty if the resource is missing or invalid)
+     */
+    public static CardCatalog getInstance() {
+        CardCatalog catalog = instance;
+        if (catalog == null) {
+            synchronized (CardCatalog.class) {
+                catalog = instance;
+                if (catalog == null) {
+                    catalog = loadBundled();
+                    instance = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Load a catalog from JSON of the form {"issuers": [{"issuer", "products": [{"name", "network", "aliases"}]}]}
+     * @param in The JSON stream
+     * @return The compiled catalog
+     * @throws IOException if the JSON cannot be read
+     */
+    public static CardCatalog load(InputStream in) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode root = mapper.readTree(in);
+        List<CardProduct> products = new ArrayList<>();
+
+        for (JsonNode issuerNode : root.path("issuers")) {
+            String issuer = issuerNode.path("issuer").asText();
+            for (JsonNode productNode : issuerNode.path("products")) {
+                CardProduct product = mapper.treeToValue(productNode, CardProduct.class);
+                product.setIssuer(issuer);
+                products.add(product);
+            }
+        }
+
+        return new CardCatalog(products);
+    }
+
+    private static CardCatalog loadBundled() {
+        try (InputStream in = CardCatalog.class.getClassLoader().getResourceAsStream(CATALOG_RESOURCE)) {
+            if (in == null) {
+                logger.warn("Card catalog {} not found on the classpath", CATALOG_RESOURCE);
+                return new CardCatalog(List.of());
+            }
+            return load(in);
+        } catch (IOException e) {
+            logger.error("Could not load card catalog: {}", e.getMessage());
+            return new CardCatalog(List.of());
+        }
+    }
+
+    /**
+     * Find the card product named in the statement header
+     * @param text Normalized statement text
+     * @param issuer Issuer name to restrict matches to, or null for any issuer
+     * @return The matched product or null
+     */
+    public CardProduct findProduct(NormalizedText text, String issuer) {
+        return findProduct(text, issuer, HEADER_WINDOW);
+    }
+
+    /**
+     * Find the leftmost, longest catalog name within the first characters of a text.
+     * Names only match on word boundaries so "Ace" does not fire inside "Place", and generic
+     * names only next to a card or product label.
+     * @param text Normalized statement text
+     * @param issuer Issuer name to restrict matches to, or null for any issuer
+     * @param window Number of normalized characters to scan
+     * @return The matched product or null
+     */
+    public CardProduct findProduct(NormalizedText text, String issuer, int window) {
+        return find(text.getFolded(), issuer, window, false);
+    }
+
+    /**
+     * Find the card product named in the value printed after a card type or product label,
+     * such as "ICICI Platinum Card"; generic names count here
+     * @param value The labelled value
+     * @param issuer Issuer name to restrict matches to, or null for any issuer
+     * @return The matched product or null
+     */
+    public CardProduct findLabelledProduct(String value, String issuer) {
+        String folded = NormalizedText.fold(value);
+        return find(folded, issuer, folded.length(), true);
+    }
+
+    private CardProduct find(String folded, String issuer, int window, boolean labelled) {
+        int limit = Math.min(folded.length(), window);
+
+        Term best = null;
+        int bestStart = Integer.MAX_VALUE;
+        int state = 0;
+
+        for (int i = 0; i < limit; i++) {
+            // Nothing ending from here on can start at or before the current best match
+            if (best != null && i - bestStart >= longestTerm) {
+                break;
+            }
+
+            char c = folded.charAt(i);
+            int next;
+            while ((next = step(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+
+            for (int t : outputs[state]) {
+                Term term = terms.get(t);
+                int start = i - term.folded.length() + 1;
+                if (!isBoundary(folded, start - 1) || !isBoundary(folded, i + 1)) {
+                    continue;
+                }
+                if (issuer != null && !issuer.equalsIgnoreCase(term.product.getIssuer())) {
+                    continue;
+                }
+                if (term.generic && !labelled && !isNextToLabel(folded, start, i + 1)) {
+                    continue;
+                }
+                if (start < bestStart || (start == bestStart && term.folded.length() > best.folded.length())) {
+                    best = term;
+                    bestStart = start;
+                }
+            }
+        }
+
+        return best != null ? best.product : null;
+    }
+
+    /**
+     * @return Number of products in the catalog
+     */
+    public int size() {
+        return productCount;
+    }
+
+    private int step(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i >= 0 ? targets[state][i] : -1;
+    }
+
+    private static boolean isBoundary(String folded, int index) {
+        return index < 0 || index >= folded.length() || !Character.isLetterOrDigit(folded.charAt(index));
+    }
+
+    /**
+     * @return Whether the name at [start, end) follows a label, as in "CARD TYPE: RESERVE", or
+     *         comes before "CARD", as in "FREEDOM CREDIT CARD"
+     */
+    private static boolean isNextToLabel(String folded, int start, int end) {
+        int before = start;
+        while (before > 0 && (folded.charAt(before - 1) == ' ' || folded.charAt(before - 1) == ':'
+                || folded.charAt(before - 1) == '-')) {
+            before--;
+        }
+        for (String label : LABELS) {
+            int labelStart = before - label.length();
+            if (labelStart >= 0 && folded.startsWith(label, labelStart) && isBoundary(folded, labelStart - 1)) {
+                return true;
+            }
+        }
+        for (String suffix : new String[]{" CARD", " CREDIT CARD"}) {
+            if (folded.startsWith(suffix, end) && isBoundary(folded, end + suffix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addTerm(List<Term> terms, String name, CardProduct product, boolean generic) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        terms.add(new Term(NormalizedText.fold(name.trim()), product, generic));
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static final class Term {
+        private final String folded;
+        private final CardProduct product;
+        private final boolean generic;
+
+        private Term(String folded, CardProduct product, boolean generic) {
+            this.folded = folded;
+            this.product = product;
+            this.generic = generic;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.parser.extractor;
+
+/**
+ * CharSequence that fails once a deadline has passed. The JDK regex engine reads its input
+ * only through charAt(), so wrapping the input bounds how long any single match can run.
+ */
+class DeadlineCharSequence implements CharSequence {
+
+    // Checking the clock on every read would cost more than the match itself
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final CharSequence text;
+    private final long deadlineNanos;
+    private final String pattern;
+    private int reads;
+
+    DeadlineCharSequence(CharSequence text, long timeoutMillis, String pattern) {
+        this.text = text;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000;
+        this.pattern = pattern;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++reads % CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos > 0) {
+            throw new RegexTimeoutException("Regex exceeded its time budget after " + reads
+                    + " reads: " + pattern);
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
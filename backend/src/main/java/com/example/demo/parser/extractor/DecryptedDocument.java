@@ -0,0 +1,116 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decrypts password-protected statements once per parse.
+ * Key derivation and AES decryption run when the scope is opened; every
+ * {@link PDFDocumentLoader#load(File)} of the same file inside the scope then reads the
+ * unencrypted copy from memory through {@link InMemoryDocument}. Closing the scope zeroes the
+ * copy. Documents that are not encrypted get an empty scope and are read as usual.
+ */
+public final class DecryptedDocument {
+
+    private static final Logger logger = LoggerFactory.getLogger(DecryptedDocument.class);
+
+    private DecryptedDocument() {
+    }
+
+    /**
+     * Decrypt a statement and serve it to loads on the current thread until closed
+     * @param pdfFile The encrypted PDF
+     * @param password The owner-supplied password
+     * @return The scope, to be closed when the parse ends
+     * @throws org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException if the password is wrong
+     * @throws IOException if the file cannot be read or is over the load limits
+     */
+    public static InMemoryDocument open(File pdfFile, String password) throws IOException {
+        ByteBuffer content = decrypt(pdfFile, password);
+        return content != null
+                ? InMemoryDocument.open(pdfFile, content, () -> wipe(content))
+                : InMemoryDocument.empty(null);
+    }
+
+    /**
+     * Decrypt a statement into memory, for a caller that hands the plaintext to another thread
+     * @param pdfFile The encrypted PDF
+     * @param password The owner-supplied password
+     * @return The decrypted PDF, to be zeroed with {@link #wipe(ByteBuffer)} when done,
+     *         or null if the document is not encrypted
+     * @throws org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException if the password is wrong
+     * @throws IOException if the file cannot be read or is over the load limits
+     */
+    public static ByteBuffer decrypt(File pdfFile, String password) throws IOException {
+        WipeableBuffer content = null;
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile, password)) {
+            if (document.isEncrypted()) {
+                document.setAllSecurityToBeRemoved(true);
+                long length = InMemoryDocument.contains(pdfFile) ? InMemoryDocument.length(pdfFile) : pdfFile.length();
+                content = new WipeableBuffer((int) Math.min(Integer.MAX_VALUE - 8, length + 1024));
+                document.save(content, CompressParameters.NO_COMPRESSION);
+                logger.debug("Decrypted {} into {} bytes", pdfFile.getName(), content.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (content != null) {
+                content.wipe();
+            }
+            throw e;
+        }
+        return content != null ? content.contents() : null;
+    }
+
+    /**
+     * Zero a buffer returned by {@link #decrypt(File, String)}
+     * @param content The decrypted PDF
+     */
+    public static void wipe(ByteBuffer content) {
+        Arrays.fill(content.array(), (byte) 0);
+    }
+
+    /**
+     * In-memory output whose backing array is read in place and can be zeroed,
+     * so the plaintext never exists in a copy that outlives the scope
+     */
+    private static final class WipeableBuffer extends ByteArrayOutputStream {
+
+        WipeableBuffer(int initialSize) {
+            super(initialSize);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            byte[] old = buf;
+            super.write(b, off, len);
+            if (buf != old) {
+                Arrays.fill(old, (byte) 0);
+            }
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            byte[] old = buf;
+            super.write(b);
+            if (buf != old) {
+                Arrays.fill(old, (byte) 0);
+            }
+        }
+
+        synchronized ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        synchronized void wipe() {
+            Arrays.fill(buf, (byte) 0);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.parser.extractor;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a PDF goes over one of the configured {@link PDFLoadLimits}
+ */
+public class DocumentLimitExceededException extends IOException {
+
+    public DocumentLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.parser.extractor;
+
+import java.io.File;
+
+/**
+ * Full text of a statement already extracted on this parse, bound to the parsing thread.
+ * While the scope is open, {@link PDFTextExtractor#extractText(File)} of that file returns the
+ * text instead of decoding every page again, so issuer parsers that start from the whole text
+ * reuse the extraction done before detection, even when it ran on another thread. The
+ * normalized view built for issuer detection is held with it, so parsers looking up keywords
+ * and card products in that text share it rather than folding the text again.
+ */
+public final class ExtractedText implements AutoCloseable {
+
+    private static final ThreadLocal<ExtractedText> CURRENT = new ThreadLocal<>();
+
+    private final File file;
+    private final NormalizedText text;
+    private final ExtractedText previous;
+
+    private ExtractedText(File file, NormalizedText text, ExtractedText previous) {
+        this.file = file;
+        this.text = text;
+        this.previous = previous;
+    }
+
+    /**
+     * Serve the text to full-text extractions of the given file on the current thread until closed
+     * @param file The statement the text was extracted from
+     * @param text Normalized view of the output of {@link PDFTextExtractor#extractText(File)} for it
+     * @return The scope, to be closed when the parse ends
+     */
+    public static ExtractedText open(File file, NormalizedText text) {
+        ExtractedText scope = new ExtractedText(file.getAbsoluteFile(), text, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * @param pdfFile A file about to be extracted
+     * @return The text held for it, or null if no open scope holds it
+     */
+    static String find(File pdfFile) {
+        File absolute = pdfFile.getAbsoluteFile();
+        for (ExtractedText scope = CURRENT.get(); scope != null; scope = scope.previous) {
+            if (scope.file.equals(absolute)) {
+                return scope.text.getOriginal();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Normalized view of a text, reusing the one held by an open scope when the text is the one
+     * it was built from
+     * @param text Text returned by {@link PDFTextExtractor#extractText(File)}
+     * @return The normalized view
+     */
+    public static NormalizedText normalized(String text) {
+        for (ExtractedText scope = CURRENT.get(); scope != null; scope = scope.previous) {
+            if (scope.text.getOriginal() == text) {
+                return scope.text;
+            }
+        }
+        return NormalizedText.of(text);
+    }
+
+    /**
+     * Restore the enclosing scope, if any
+     */
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * PDF content held in memory and bound to the parsing thread under a file name.
+ * While the scope is open, {@link PDFDocumentLoader#load(File)} of that name on the same thread
+ * reads the buffer in place instead of the disk, so the File-based extractors work unchanged on
+ * request bodies and decrypted copies. Scopes nest; the innermost one holding a name wins.
+ */
+public final class InMemoryDocument implements AutoCloseable {
+
+    private static final ThreadLocal<InMemoryDocument> CURRENT = new ThreadLocal<>();
+
+    private final File file;
+    private final ByteBuffer content;
+    private final Runnable release;
+    private final InMemoryDocument previous;
+
+    private InMemoryDocument(File file, ByteBuffer content, Runnable release, InMemoryDocument previous) {
+        this.file = file;
+        this.content = content;
+        this.release = release;
+        this.previous = previous;
+    }
+
+    /**
+     * Serve a buffer to loads of the given file name on the current thread until closed
+     * @param file Name the extractors will be given; it need not exist on disk
+     * @param content The PDF bytes between position and limit; not copied, so leave it unchanged while open
+     * @param release Run on close, e.g. to wipe or pool the buffer; may be null
+     * @return The scope, to be closed when the parse ends
+     */
+    public static InMemoryDocument open(File file, ByteBuffer content, Runnable release) {
+        InMemoryDocument scope = new InMemoryDocument(file.getAbsoluteFile(), content.slice(), release, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * An open scope that serves nothing, for callers that only sometimes have content
+     */
+    static InMemoryDocument empty(Runnable release) {
+        InMemoryDocument scope = new InMemoryDocument(null, null, release, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * @param pdfFile A file about to be loaded
+     * @return A reader over the content held for it, or null if no open scope holds it
+     */
+    static RandomAccessRead find(File pdfFile) {
+        InMemoryDocument scope = lookup(pdfFile);
+        return scope != null ? new RandomAccessReadBuffer(scope.content.duplicate()) : null;
+    }
+
+    /**
+     * @param pdfFile A file name
+     * @return true if an open scope on this thread holds content for it
+     */
+    public static boolean contains(File pdfFile) {
+        return lookup(pdfFile) != null;
+    }
+
+    /**
+     * @param pdfFile A file name
+     * @return Size of the content held for it, or -1 if none
+     */
+    public static long length(File pdfFile) {
+        InMemoryDocument scope = lookup(pdfFile);
+        return scope != null ? scope.content.remaining() : -1;
+    }
+
+    private static InMemoryDocument lookup(File pdfFile) {
+        File absolute = pdfFile.getAbsoluteFile();
+        for (InMemoryDocument scope = CURRENT.get(); scope != null; scope = scope.previous) {
+            if (scope.content != null && scope.file.equals(absolute)) {
+                return scope;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Release the content and restore the enclosing scope, if any
+     */
+    @Override
+    public void close() {
+        if (release != null) {
+            release.run();
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.AdvancedPDFExtractor.TextLine;
+import com.example.demo.parser.model.CardProduct;
+import com.example.demo.parser.model.FieldBox;
+import com.example.demo.parser.model.LayoutTemplate;
+import com.example.demo.parser.model.StatementData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordinate-based field extraction for known layouts. A template maps each field to the box of
+ * the line holding its value on page 1; extraction reads the value straight from the line found
+ * at that position instead of searching the whole text for labels. Templates are learned from
+ * statements the keyword search has already parsed, keeping only boxes that give back the same values.
+ */
+public class LayoutExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LayoutExtractor.class);
+
+    /** How far, in points, a line may sit from the learned box and still count as the same line */
+    private static final float TOLERANCE = 3f;
+
+    /**
+     * Read the fields of a known layout by position
+     * @param template The learned template
+     * @param lines Positioned lines of page 1
+     * @param text Normalized statement text, for the card variant lookup
+     * @return The statement, or null if any learned field is missing from its box
+     */
+    public static StatementData extract(LayoutTemplate template, List<TextLine> lines, NormalizedText text) {
+        StatementData data = StatementData.builder()
+                .issuerName(template.getIssuer())
+                .build();
+
+        for (Map.Entry<String, FieldBox> entry : template.getFields().entrySet()) {
+            LayoutField field = LayoutField.valueOf(entry.getKey());
+            TextLine line = lineAt(lines, entry.getValue());
+            Object value = line != null ? valueOn(line, field, entry.getValue().getOccurrence()) : null;
+            if (value == null) {
+                logger.debug("Layout {}: no {} in its box, falling back to keyword search",
+                        template.getFingerprint(), field);
+                return null;
+            }
+            field.set(data, value);
+        }
+
+        CardProduct product = CardCatalog.getInstance().findProduct(text, template.getIssuer());
+        if (product != null) {
+            data.setCardVariant(product.getName());
+        }
+        return data;
+    }
+
+    /**
+     * Learn field boxes from a statement parsed by keyword search
+     * @param fingerprint Layout fingerprint of the statement
+     * @param lines Positioned lines of page 1
+     * @param text Normalized statement text
+     * @param parsed The keyword search result
+     * @return The template, or null if some parsed value cannot be located on page 1 or is not
+     *         a positional field (transactions, card holder name), since a template would lose it
+     */
+    public static LayoutTemplate learn(String fingerprint, List<TextLine> lines, NormalizedText text,
+                                       StatementData parsed) {
+        if (parsed.getCardHolderName() != null
+                || (parsed.getTransactions() != null && !parsed.getTransactions().isEmpty())) {
+            return null;
+        }
+        CardProduct product = CardCatalog.getInstance().findProduct(text, parsed.getIssuerName());
+        String variant = product != null ? product.getName() : null;
+        if (parsed.getCardVariant() != null && !parsed.getCardVariant().equals(variant)) {
+            return null;
+        }
+
+        Map<String, FieldBox> boxes = new LinkedHashMap<>();
+        for (LayoutField field : LayoutField.values()) {
+            Object expected = field.get(parsed);
+            if (expected == null) {
+                continue;
+            }
+            FieldBox box = locate(lines, field, expected, true);
+            if (box == null) {
+                box = locate(lines, field, expected, false);
+            }
+            if (box == null) {
+                return null;
+            }
+            boxes.put(field.name(), box);
+        }
+
+        return LayoutTemplate.builder()
+                .fingerprint(fingerprint)
+                .issuer(parsed.getIssuerName())
+                .fields(boxes)
+                .build();
+    }
+
+    /**
+     * First line holding the expected value, optionally only on lines carrying one of the field's labels
+     */
+    private static FieldBox locate(List<TextLine> lines, LayoutField field, Object expected, boolean labelled) {
+        for (TextLine line : lines) {
+            List<StatementToken> tokens = StatementLexer.tokenize(line.getText());
+            if (labelled && !hasLabel(tokens, field)) {
+                continue;
+            }
+            int occurrence = 0;
+            for (StatementToken token : tokens) {
+                if (!token.is(field.getType())) {
+                    continue;
+                }
+                if (LayoutField.sameValue(field.read(token), expected)) {
+                    return FieldBox.builder()
+                            .page(line.getPage())
+                            .x(line.getX())
+                            .y(line.getY())
+                            .width(line.getWidth())
+                            .height(line.getFontSize())
+                            .occurrence(occurrence)
+                            .build();
+                }
+                occurrence++;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasLabel(List<StatementToken> tokens, LayoutField field) {
+        for (StatementToken token : tokens) {
+            if (token.is(StatementToken.Type.KEYWORD)) {
+                for (String label : field.getLabels()) {
+                    if (label.equals(token.getValue())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The line closest to the box's baseline that overlaps it horizontally
+     */
+    private static TextLine lineAt(List<TextLine> lines, FieldBox box) {
+        TextLine best = null;
+        float bestDistance = TOLERANCE;
+        for (TextLine line : lines) {
+            if (line.getPage() != box.getPage()
+                    || line.getX() > box.getX() + box.getWidth() + TOLERANCE
+                    || line.getX() + line.getWidth() < box.getX() - TOLERANCE) {
+                continue;
+            }
+            float distance = Math.abs(line.getY() - box.getY());
+            if (distance <= bestDistance) {
+                best = line;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static Object valueOn(TextLine line, LayoutField field, int occurrence) {
+        int seen = 0;
+        for (StatementToken token : StatementLexer.tokenize(line.getText())) {
+            if (token.is(field.getType()) && seen++ == occurrence) {
+                return field.read(token);
+            }
+        }
+        return null;
+    }
+}
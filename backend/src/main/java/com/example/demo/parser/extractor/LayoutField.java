@@ -0,0 +1,105 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.StatementToken.Type;
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.util.AmountParser;
+import com.example.demo.parser.util.DateParser;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Statement fields a learned layout can locate by position: the token type holding the value,
+ * the labels that usually precede it, and how the value is read into {@link StatementData}
+ */
+public enum LayoutField {
+
+    CARD_LAST_FOUR(Type.MASKED_CARD, new String[]{"Card Number", "Card No", "Card ending in", "Card ending with"},
+            StatementToken::getValue, StatementData::getCardLastFourDigits,
+            (data, value) -> data.setCardLastFourDigits((String) value)),
+
+    STATEMENT_DATE(Type.DATE, new String[]{"Statement Date", "Date of Statement", "Bill Date", "Closing Date"},
+            token -> DateParser.parseDate(token.getText()), StatementData::getStatementDate,
+            (data, value) -> data.setStatementDate((LocalDate) value)),
+
+    PAYMENT_DUE_DATE(Type.DATE, new String[]{"Payment Due Date", "Due Date", "Pay By", "Payment Due By"},
+            token -> DateParser.parseDate(token.getText()), StatementData::getPaymentDueDate,
+            (data, value) -> data.setPaymentDueDate((LocalDate) value)),
+
+    TOTAL_AMOUNT_DUE(Type.AMOUNT, new String[]{"Total Amount Due", "Amount Due", "Amount Payable",
+            "New Balance", "Total Outstanding"},
+            token -> AmountParser.parseAmount(token.getText()), StatementData::getTotalAmountDue,
+            (data, value) -> data.setTotalAmountDue((BigDecimal) value)),
+
+    MINIMUM_AMOUNT_DUE(Type.AMOUNT, new String[]{"Minimum Amount Due", "Minimum Payment", "Minimum Due"},
+            token -> AmountParser.parseAmount(token.getText()), StatementData::getMinimumAmountDue,
+            (data, value) -> data.setMinimumAmountDue((BigDecimal) value)),
+
+    CREDIT_LIMIT(Type.AMOUNT, new String[]{"Credit Limit", "Total Limit", "Card Limit"},
+            token -> AmountParser.parseAmount(token.getText()), StatementData::getCreditLimit,
+            (data, value) -> data.setCreditLimit((BigDecimal) value)),
+
+    AVAILABLE_CREDIT(Type.AMOUNT, new String[]{"Available Credit Limit", "Available Credit", "Available Limit",
+            "Credit Available"},
+            token -> AmountParser.parseAmount(token.getText()), StatementData::getAvailableCredit,
+            (data, value) -> data.setAvailableCredit((BigDecimal) value));
+
+    private final Type type;
+    private final String[] labels;
+    private final Function<StatementToken, Object> reader;
+    private final Function<StatementData, Object> getter;
+    private final BiConsumer<StatementData, Object> setter;
+
+    LayoutField(Type type, String[] labels, Function<StatementToken, Object> reader,
+                Function<StatementData, Object> getter, BiConsumer<StatementData, Object> setter) {
+        this.type = type;
+        this.labels = labels;
+        this.reader = reader;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String[] getLabels() {
+        return labels;
+    }
+
+    /**
+     * @param token A token of this field's type
+     * @return The field value it holds, or null if it cannot be read
+     */
+    public Object read(StatementToken token) {
+        return reader.apply(token);
+    }
+
+    /**
+     * @param data Parsed statement
+     * @return This field's value in it, or null
+     */
+    public Object get(StatementData data) {
+        return getter.apply(data);
+    }
+
+    /**
+     * @param data Statement being filled
+     * @param value Value previously returned by {@link #read(StatementToken)}
+     */
+    public void set(StatementData data, Object value) {
+        setter.accept(data, value);
+    }
+
+    /**
+     * @return true if both values are the same, comparing amounts numerically
+     */
+    public static boolean sameValue(Object a, Object b) {
+        if (a instanceof BigDecimal x && b instanceof BigDecimal y) {
+            return x.compareTo(y) == 0;
+        }
+        return a != null && a.equals(b);
+    }
+}
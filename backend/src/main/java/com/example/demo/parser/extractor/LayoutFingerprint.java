@@ -0,0 +1,69 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.AdvancedPDFExtractor.TextLine;
+import com.example.demo.parser.extractor.StatementToken.Type;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Compact signature of a statement layout, computed from the issuer and page 1: the fonts
+ * in use (name and rounded size) and the positions of the anchor labels the lexer recognises,
+ * such as "Payment Due Date". Statements printed from the same template version share a
+ * fingerprint whatever the amounts and dates on them.
+ */
+public class LayoutFingerprint {
+
+    /** Positions are snapped to this grid, in points, to absorb rounding in the content stream */
+    private static final float GRID = 4f;
+
+    /** Fewer anchors than this is not enough to tell layouts apart */
+    private static final int MIN_ANCHORS = 3;
+
+    private static final int FINGERPRINT_BYTES = 8;
+
+    /**
+     * @param issuer Detected issuer, so look-alike layouts of different banks never share a template
+     * @param lines Positioned lines of page 1
+     * @return Hex fingerprint, or null if the page has too few anchor labels to identify its layout
+     */
+    public static String of(String issuer, List<TextLine> lines) {
+        TreeSet<String> fonts = new TreeSet<>();
+        StringBuilder anchors = new StringBuilder();
+        int anchorCount = 0;
+
+        for (TextLine line : lines) {
+            fonts.add(line.getFontName() + "@" + Math.round(line.getFontSize()));
+            for (StatementToken token : StatementLexer.tokenize(line.getText())) {
+                if (token.is(Type.KEYWORD)) {
+                    anchors.append(token.getValue()).append('@')
+                            .append(snap(line.getX())).append(',').append(snap(line.getY())).append(';');
+                    anchorCount++;
+                }
+            }
+        }
+
+        if (anchorCount < MIN_ANCHORS) {
+            return null;
+        }
+
+        String signature = issuer + "|" + String.join(";", fonts) + "|" + anchors;
+        return HexFormat.of().formatHex(sha256(signature), 0, FINGERPRINT_BYTES);
+    }
+
+    private static int snap(float value) {
+        return Math.round(value / GRID);
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.model.LayoutTemplate;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of learned {@link LayoutTemplate}s keyed by {@link LayoutFingerprint}.
+ * Templates are learned at runtime and can be saved to and loaded from JSON so they survive restarts.
+ */
+public class LayoutTemplates {
+
+    private static final Logger logger = LoggerFactory.getLogger(LayoutTemplates.class);
+
+    /** Upper bound on learned layouts, in case fingerprints turn out less stable than expected */
+    private static final int MAX_TEMPLATES = 1000;
+
+    private static final LayoutTemplates instance = new LayoutTemplates();
+
+    private static volatile boolean enabled = true;
+
+    private final Map<String, LayoutTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * @return The shared registry
+     */
+    public static LayoutTemplates getInstance() {
+        return instance;
+    }
+
+    /**
+     * Turn layout lookup and learning on or off
+     * @param value true to use templates
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param fingerprint Layout fingerprint
+     * @return The template learned for it, or null
+     */
+    public LayoutTemplate find(String fingerprint) {
+        return templates.get(fingerprint);
+    }
+
+    /**
+     * Add a template unless one is already registered for its fingerprint
+     * @param template The learned template
+     * @return true if it was added
+     */
+    public boolean register(LayoutTemplate template) {
+        if (templates.size() >= MAX_TEMPLATES) {
+            logger.debug("Template registry full, not learning layout {}", template.getFingerprint());
+            return false;
+        }
+        boolean added = templates.putIfAbsent(template.getFingerprint(), template) == null;
+        if (added) {
+            logger.info("Learned {} layout {} ({} fields)", template.getIssuer(), template.getFingerprint(),
+                    template.getFields().size());
+        }
+        return added;
+    }
+
+    /**
+     * Add templates from a JSON array
+     * @param in Stream of a file written by {@link #save(OutputStream)}
+     * @return Number of templates read
+     * @throws IOException if the stream cannot be read or parsed
+     */
+    public int load(InputStream in) throws IOException {
+        List<LayoutTemplate> loaded = new ObjectMapper().readValue(in, new TypeReference<List<LayoutTemplate>>() { });
+        for (LayoutTemplate template : loaded) {
+            templates.putIfAbsent(template.getFingerprint(), template);
+        }
+        return loaded.size();
+    }
+
+    /**
+     * Write all templates as a JSON array
+     * @param out Destination stream
+     * @throws IOException if writing fails
+     */
+    public void save(OutputStream out) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(out, new ArrayList<>(templates.values()));
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+}
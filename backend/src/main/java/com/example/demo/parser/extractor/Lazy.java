@@ -0,0 +1,52 @@
+package com.example.demo.parser.extractor;
+
+import java.io.IOException;
+
+/**
+ * Extraction source built on first use and kept for the rest of the parse, so an expensive
+ * source (layout text, page regions) costs nothing when no strategy ends up needing it.
+ * Not thread-safe; a parse runs on one thread.
+ * @param <T> The source type
+ */
+public final class Lazy<T> {
+
+    /**
+     * Builds the source
+     * @param <T> The source type
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        T build() throws IOException;
+    }
+
+    private final Source<T> source;
+    private T value;
+    private boolean built;
+
+    private Lazy(Source<T> source) {
+        this.source = source;
+    }
+
+    public static <T> Lazy<T> of(Source<T> source) {
+        return new Lazy<>(source);
+    }
+
+    /**
+     * @return The source, built now if this is the first call
+     * @throws IOException if building it fails
+     */
+    public T get() throws IOException {
+        if (!built) {
+            value = source.build();
+            built = true;
+        }
+        return value;
+    }
+
+    /**
+     * @return true if the source has been built
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a PDF through memory mappings of the file, so bytes come straight from the page cache
+ * instead of through read calls into PDFBox's buffers. Files are mapped in chunks of at most
+ * {@value #CHUNK_SIZE} bytes, each on first access, which lifts the 2 GB limit of a single
+ * mapping. {@link #close()} unmaps the chunks right away rather than leaving them to the garbage
+ * collector, which matters when a bulk run maps thousands of files; where the JDK does not allow
+ * that the mappings are released by the collector as usual. Not thread-safe, like the other
+ * PDFBox readers.
+ */
+public class MappedRandomAccessRead implements RandomAccessRead {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedRandomAccessRead.class);
+
+    static final long CHUNK_SIZE = 1L << 30;
+
+    private static final Unmapper UNMAPPER = Unmapper.find();
+
+    private final FileChannel channel;
+    private final long length;
+    private final long chunkSize;
+    private final MappedByteBuffer[] chunks;
+    private long position;
+    private boolean closed;
+
+    /**
+     * @param file The file to map
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedRandomAccessRead(File file) throws IOException {
+        this(file, CHUNK_SIZE);
+    }
+
+    MappedRandomAccessRead(File file, long chunkSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.length = channel.size();
+        this.chunkSize = chunkSize;
+        this.chunks = new MappedByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        if (position >= length) {
+            return -1;
+        }
+        int value = chunk(position).get((int) (position % chunkSize)) & 0xff;
+        position++;
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int total = 0;
+        while (total < len && position < length) {
+            int offset = (int) (position % chunkSize);
+            MappedByteBuffer chunk = chunk(position);
+            int count = (int) Math.min(len - total, chunk.limit() - offset);
+            chunk.get(offset, b, off + total, count);
+            position += count;
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException {
+        checkClosed();
+        if (newPosition < 0) {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        position = Math.min(newPosition, length);
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkClosed();
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkClosed();
+        return position >= length;
+    }
+
+    @Override
+    public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException {
+        checkClosed();
+        return new RandomAccessReadView(this, startPosition, streamLength);
+    }
+
+    /**
+     * Unmap every chunk and close the file. Reads after this fail instead of touching unmapped memory.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null) {
+                UNMAPPER.unmap(chunks[i]);
+                chunks[i] = null;
+            }
+        }
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(long offset) throws IOException {
+        int index = (int) (offset / chunkSize);
+        MappedByteBuffer chunk = chunks[index];
+        if (chunk == null) {
+            long start = index * chunkSize;
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, length - start));
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new EOFException("MappedRandomAccessRead already closed");
+        }
+    }
+
+    /**
+     * Releases a mapping immediately through sun.misc.Unsafe#invokeCleaner, if available
+     */
+    private static final class Unmapper {
+
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        static Unmapper find() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.debug("Mappings will be released by the garbage collector: {}", e.getMessage());
+                return new Unmapper(null, null);
+            }
+        }
+
+        void unmap(MappedByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.debug("Could not unmap buffer: {}", e.getMessage());
+            }
+        }
+    }
+}
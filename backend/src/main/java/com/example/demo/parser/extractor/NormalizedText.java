@@ -0,0 +1,141 @@
+package com.example.demo.parser.extractor;
+
+/**
+ * Case-folded, whitespace-collapsed view of a statement's text, built once per document.
+ * Every run of whitespace becomes a single space and letters are upper-cased one char at a time,
+ * so keyword and variant lookups need no per-call toUpperCase() copies of the whole text.
+ * An offset map leads from each position in the folded text back to the original.
+ */
+public class NormalizedText {
+
+    private final String original;
+    private final String folded;
+    private final int[] offsets;
+
+    private NormalizedText(String original, String folded, int[] offsets) {
+        this.original = original;
+        this.folded = folded;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Build the normalized view of a text
+     * @param text The original text
+     * @return The normalized view (empty for null)
+     */
+    public static NormalizedText of(String text) {
+        String original = text != null ? text : "";
+        char[] out = new char[original.length()];
+        int[] offsets = new int[original.length()];
+        int length = 0;
+        boolean lastWasSpace = false;
+
+        for (int i = 0; i < original.length(); i++) {
+            char c = original.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                if (!lastWasSpace) {
+                    out[length] = ' ';
+                    offsets[length++] = i;
+                    lastWasSpace = true;
+                }
+            } else {
+                out[length] = Character.toUpperCase(c);
+                offsets[length++] = i;
+                lastWasSpace = false;
+            }
+        }
+
+        int[] trimmed = new int[length];
+        System.arraycopy(offsets, 0, trimmed, 0, length);
+        return new NormalizedText(original, new String(out, 0, length), trimmed);
+    }
+
+    /**
+     * Fold a search term the same way the text is folded
+     * @param term The search term
+     * @return Upper-cased term with whitespace runs collapsed
+     */
+    public static String fold(String term) {
+        return of(term).folded;
+    }
+
+    /**
+     * @param term Search term in any case or spacing
+     * @return true if the text contains the term
+     */
+    public boolean contains(String term) {
+        return indexOf(term, 0) >= 0;
+    }
+
+    /**
+     * @param terms Search terms in any case or spacing
+     * @return true if the text contains at least one of the terms
+     */
+    public boolean containsAny(String... terms) {
+        for (String term : terms) {
+            if (contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param term Search term in any case or spacing
+     * @return Position of the term in the folded text, or -1
+     */
+    public int indexOf(String term) {
+        return indexOf(term, 0);
+    }
+
+    /**
+     * @param term Search term in any case or spacing
+     * @param fromIndex Folded position to start searching from
+     * @return Position of the term in the folded text, or -1
+     */
+    public int indexOf(String term, int fromIndex) {
+        return folded.indexOf(fold(term), fromIndex);
+    }
+
+    /**
+     * Map a folded position back to the original text
+     * @param foldedIndex Position in the folded text
+     * @return Matching position in the original text
+     */
+    public int originalOffset(int foldedIndex) {
+        if (foldedIndex >= offsets.length) {
+            return original.length();
+        }
+        return offsets[foldedIndex];
+    }
+
+    /**
+     * Original text for a folded range
+     * @param foldedStart Start position in the folded text (inclusive)
+     * @param foldedEnd End position in the folded text (exclusive)
+     * @return The corresponding slice of the original text
+     */
+    public String originalSubstring(int foldedStart, int foldedEnd) {
+        if (foldedEnd <= foldedStart) {
+            return "";
+        }
+        return original.substring(originalOffset(foldedStart), originalOffset(foldedEnd - 1) + 1);
+    }
+
+    public String getOriginal() {
+        return original;
+    }
+
+    public String getFolded() {
+        return folded;
+    }
+
+    public int length() {
+        return folded.length();
+    }
+
+    @Override
+    public String toString() {
+        return folded;
+    }
+}
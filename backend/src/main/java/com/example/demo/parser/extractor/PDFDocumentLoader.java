@@ -0,0 +1,175 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads PDFs with bounded memory: stream data beyond the heap budget spills to temp files,
+ * image XObjects are never kept in the resource cache, and documents over the page or
+ * object limits are rejected before any text is extracted. Fonts come from the
+ * {@link SharedFontCache} where possible and are given back by {@link #releaseFonts(PDDocument)}.
+ */
+public class PDFDocumentLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PDFDocumentLoader.class);
+
+    private static volatile PDFLoadLimits limits = PDFLoadLimits.defaults();
+
+    /**
+     * Replace the limits used for all subsequent loads
+     * @param newLimits The limits to apply
+     */
+    public static void configure(PDFLoadLimits newLimits) {
+        limits = newLimits;
+        logger.info("PDF load limits: {} bytes heap, {} pages, {} objects, {} ms extraction, {} input",
+                newLimits.getMaxMainMemoryBytes(), newLimits.getMaxPages(),
+                newLimits.getMaxObjects(), newLimits.getMaxExtractionMillis(), newLimits.getInputMode());
+    }
+
+    /**
+     * @return The limits currently in effect
+     */
+    public static PDFLoadLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Load a PDF file within the configured limits
+     * @param pdfFile The PDF file
+     * @return The loaded document; the caller must close it
+     * @throws DocumentLimitExceededException if the document is over a limit
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static PDDocument load(File pdfFile) throws IOException {
+        return load(pdfFile, null);
+    }
+
+    /**
+     * Load a PDF file within the configured limits, reading the in-memory content instead
+     * if an open {@link InMemoryDocument} scope holds some for the file
+     * @param pdfFile The PDF file
+     * @param password Password for an encrypted file, or null
+     * @return The loaded document; the caller must close it
+     * @throws org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException if the file is
+     *         encrypted and the password is missing or wrong
+     * @throws DocumentLimitExceededException if the document is over a limit
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static PDDocument load(File pdfFile, String password) throws IOException {
+        PDFLoadLimits current = limits;
+
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(current.getMaxMainMemoryBytes());
+        if (current.getTempDir() != null) {
+            memory.setTempDir(current.getTempDir());
+        }
+
+        RandomAccessRead inMemory = InMemoryDocument.find(pdfFile);
+        PDDocument document;
+        if (inMemory != null) {
+            document = Loader.loadPDF(inMemory, password, null, null, memory.streamCache);
+        } else if (current.getInputMode() == PDFInputMode.MAPPED) {
+            document = loadMapped(pdfFile, password, memory);
+        } else {
+            document = Loader.loadPDF(pdfFile, password, null, null, memory.streamCache);
+        }
+        try {
+            checkLimits(document, current, pdfFile.getName());
+        } catch (IOException e) {
+            document.close();
+            throw e;
+        }
+
+        document.setResourceCache(new TextOnlyResourceCache());
+        return document;
+    }
+
+    /**
+     * Give the document's shared fonts back to the {@link SharedFontCache}. Call once text
+     * extraction from the document is finished; the document may still be used afterwards.
+     * @param document A document loaded by {@link #load(File)}
+     */
+    public static void releaseFonts(PDDocument document) {
+        if (document.getResourceCache() instanceof TextOnlyResourceCache cache) {
+            cache.releaseFonts();
+        }
+    }
+
+    /**
+     * The document closes the mapped reader when it is closed; until it is loaded, the reader is ours to close
+     */
+    private static PDDocument loadMapped(File pdfFile, String password, MemoryUsageSetting memory) throws IOException {
+        MappedRandomAccessRead source = new MappedRandomAccessRead(pdfFile);
+        try {
+            return Loader.loadPDF(source, password, null, null, memory.streamCache);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    private static void checkLimits(PDDocument document, PDFLoadLimits current, String name)
+            throws DocumentLimitExceededException {
+        int objects = document.getDocument().getXrefTable().size();
+        if (objects > current.getMaxObjects()) {
+            throw new DocumentLimitExceededException(String.format(
+                    "PDF has %d objects, more than the limit of %d", objects, current.getMaxObjects()));
+        }
+
+        int pages = document.getNumberOfPages();
+        if (pages > current.getMaxPages()) {
+            throw new DocumentLimitExceededException(String.format(
+                    "PDF has %d pages, more than the limit of %d", pages, current.getMaxPages()));
+        }
+
+        logger.debug("Loaded {}: {} pages, {} objects", name, pages, objects);
+    }
+
+    /**
+     * Resource cache that keeps fonts and forms but never holds on to images,
+     * which are the bulk of a statement's bytes and irrelevant to text extraction.
+     * Fonts are leased from the shared cache and kept for the document until released.
+     */
+    private static class TextOnlyResourceCache extends DefaultResourceCache {
+
+        private final Map<COSObject, SharedFontCache.Lease> leases = new HashMap<>();
+
+        @Override
+        public PDFont getFont(COSObject indirect) {
+            SharedFontCache.Lease lease = leases.get(indirect);
+            if (lease == null) {
+                lease = SharedFontCache.getInstance().lease(indirect);
+                if (lease == null) {
+                    return super.getFont(indirect);
+                }
+                leases.put(indirect, lease);
+            }
+            return lease.getFont();
+        }
+
+        void releaseFonts() {
+            SharedFontCache.getInstance().release(leases.values());
+            leases.clear();
+        }
+
+        @Override
+        public void put(COSObject indirect, PDXObject xobject) {
+            if (!(xobject instanceof PDImageXObject)) {
+                super.put(indirect, xobject);
+            }
+        }
+    }
+}
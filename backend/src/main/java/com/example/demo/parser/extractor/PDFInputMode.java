@@ -0,0 +1,13 @@
+package com.example.demo.parser.extractor;
+
+/**
+ * How {@link PDFDocumentLoader} reads PDF files from disk
+ */
+public enum PDFInputMode {
+
+    /** PDFBox's buffered file reader */
+    BUFFERED,
+
+    /** Memory mappings of the file, see {@link MappedRandomAccessRead}; suited to bulk runs over local disks */
+    MAPPED
+}
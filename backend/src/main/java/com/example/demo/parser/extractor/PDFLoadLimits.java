@@ -0,0 +1,50 @@
+package com.example.demo.parser.extractor;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * Per-document resource limits applied when loading and extracting a PDF, and how files are read
+ */
+@Getter
+@Builder
+public class PDFLoadLimits {
+
+    /**
+     * Heap PDFBox may use for decoded stream data before spilling to temp files
+     */
+    @Builder.Default
+    private long maxMainMemoryBytes = 16L * 1024 * 1024;
+
+    /**
+     * Directory for spilled stream data, or null for java.io.tmpdir
+     */
+    private File tempDir;
+
+    @Builder.Default
+    private int maxPages = 200;
+
+    /**
+     * Upper bound on entries in the cross-reference table
+     */
+    @Builder.Default
+    private int maxObjects = 250_000;
+
+    /**
+     * Wall-clock budget for one text extraction pass over a document
+     */
+    @Builder.Default
+    private long maxExtractionMillis = 30_000;
+
+    /**
+     * How files are read from disk
+     */
+    @Builder.Default
+    private PDFInputMode inputMode = PDFInputMode.BUFFERED;
+
+    public static PDFLoadLimits defaults() {
+        return PDFLoadLimits.builder().build();
+    }
+}
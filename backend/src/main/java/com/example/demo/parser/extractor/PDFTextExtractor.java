@@ -1,7 +1,7 @@
 package com.example.demo.parser.extractor;
 
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,10 +28,14 @@ public class PDFTextExtractor {
      * @throws IOException if file reading fails
      */
     public static String extractText(File pdfFile) throws IOException {
+        String extracted = ExtractedText.find(pdfFile);
+        if (extracted != null) {
+            return extracted;
+        }
         logger.info("Extracting text from PDF: {}", pdfFile.getName());
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            PDFTextStripper stripper = new PDFTextStripper();
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
+            PDFTextStripper stripper = new StatementTextStripper();
             String text = stripper.getText(document);
 
             logger.info("Successfully extracted {} characters from PDF", text.length());
@@ -53,8 +57,8 @@ public class PDFTextExtractor {
     public static String extractText(File pdfFile, int startPage, int endPage) throws IOException {
         logger.info("Extracting text from pages {}-{} of PDF: {}", startPage, endPage, pdfFile.getName());
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            PDFTextStripper stripper = new PDFTextStripper();
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
+            PDFTextStripper stripper = new StatementTextStripper();
             stripper.setStartPage(startPage);
             stripper.setEndPage(endPage);
 
@@ -75,7 +79,7 @@ public class PDFTextExtractor {
      * @throws IOException if file reading fails
      */
     public static int getPageCount(File pdfFile) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
             return document.getNumberOfPages();
         }
     }
@@ -86,13 +90,36 @@ public class PDFTextExtractor {
      * @return true if valid, false otherwise
      */
     public static boolean isValidPDF(File pdfFile) {
-        if (!pdfFile.exists() || !pdfFile.isFile()) {
+        try {
+            return checkPDF(pdfFile);
+        } catch (DocumentLimitExceededException e) {
+            logger.warn("PDF over limits: {} ({})", pdfFile.getName(), e.getMessage());
+            return false;
+        } catch (InvalidPasswordException e) {
+            logger.warn("PDF is password-protected: {}", pdfFile.getName());
+            return false;
+        }
+    }
+
+    /**
+     * Checks if a PDF file is valid and readable, reporting limit violations and missing
+     * passwords separately
+     * @param pdfFile The PDF file to check
+     * @return true if valid, false if missing, unreadable or empty
+     * @throws DocumentLimitExceededException if the document is over a configured limit
+     * @throws InvalidPasswordException if the document is encrypted and not opened by an
+     *         enclosing {@link DecryptedDocument} scope
+     */
+    public static boolean checkPDF(File pdfFile) throws DocumentLimitExceededException, InvalidPasswordException {
+        if (!InMemoryDocument.contains(pdfFile) && (!pdfFile.exists() || !pdfFile.isFile())) {
             logger.warn("File does not exist or is not a file: {}", pdfFile.getAbsolutePath());
             return false;
         }
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
             return document.getNumberOfPages() > 0;
+        } catch (DocumentLimitExceededException | InvalidPasswordException e) {
+            throw e;
         } catch (IOException e) {
             logger.warn("Invalid PDF file: {}", pdfFile.getName());
             return false;
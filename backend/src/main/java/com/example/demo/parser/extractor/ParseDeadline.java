@@ -0,0 +1,88 @@
+package com.example.demo.parser.extractor;
+
+import java.time.Duration;
+
+/**
+ * Time budget for one parse, bound to the parsing thread.
+ * The caller opens a scope with {@link #start(Duration)}; the strippers, extractors and the regex
+ * guard then call {@link #check()} at their safe points (page and operator boundaries, between
+ * extraction strategies) and give up with {@link ParseTimeoutException} once the budget is spent
+ * or the thread has been interrupted. Without an open scope every check passes.
+ */
+public final class ParseDeadline implements AutoCloseable {
+
+    private static final ThreadLocal<ParseDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long budgetMillis;
+    private final long deadlineNanos;
+    private final ParseDeadline previous;
+
+    private ParseDeadline(long budgetMillis, ParseDeadline previous) {
+        this.budgetMillis = budgetMillis;
+        this.deadlineNanos = System.nanoTime() + budgetMillis * 1_000_000;
+        this.previous = previous;
+    }
+
+    /**
+     * Open a deadline scope on the current thread. A nested scope never extends the enclosing one.
+     * @param budget Time allowed for the parse
+     * @return The scope, to be closed when the parse ends
+     */
+    public static ParseDeadline start(Duration budget) {
+        ParseDeadline enclosing = CURRENT.get();
+        ParseDeadline deadline = new ParseDeadline(budget.toMillis(), enclosing);
+        if (enclosing != null && enclosing.deadlineNanos - deadline.deadlineNanos < 0) {
+            deadline = new ParseDeadline(enclosing.remaining(), enclosing);
+        }
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Fail if the current parse is out of time or its thread has been interrupted
+     * @throws ParseTimeoutException if the parse should stop
+     */
+    public static void check() throws ParseTimeoutException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ParseTimeoutException("Parse cancelled");
+        }
+        ParseDeadline deadline = CURRENT.get();
+        if (deadline != null && deadline.remaining() <= 0) {
+            throw new ParseTimeoutException(String.format(
+                    "Parse exceeded its %d ms deadline", deadline.budgetMillis));
+        }
+    }
+
+    /**
+     * @return true if the current parse is out of time or cancelled, for callers that
+     * skip remaining work instead of failing
+     */
+    public static boolean isExpired() {
+        ParseDeadline deadline = CURRENT.get();
+        return Thread.currentThread().isInterrupted() || (deadline != null && deadline.remaining() <= 0);
+    }
+
+    /**
+     * @return Milliseconds left for the current parse, or Long.MAX_VALUE without a deadline
+     */
+    public static long remainingMillis() {
+        ParseDeadline deadline = CURRENT.get();
+        return deadline != null ? Math.max(0, deadline.remaining()) : Long.MAX_VALUE;
+    }
+
+    private long remaining() {
+        return (deadlineNanos - System.nanoTime()) / 1_000_000;
+    }
+
+    /**
+     * Restore the enclosing scope, if any
+     */
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
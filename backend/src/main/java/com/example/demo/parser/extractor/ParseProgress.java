@@ -0,0 +1,126 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.model.Transaction;
+
+/**
+ * Progress of one parse, reported to a listener bound to the parsing thread the same way as a
+ * {@link ParseDeadline}. The stripper reports pages as they are extracted, the parser service the
+ * detected issuer, and the issuer parsers their summary fields as soon as they have them and
+ * then each transaction as it is read. Without an open scope every report is a no-op.
+ *
+ * Several extraction passes may read the same pages; only the first report of each page and of
+ * the summary reaches the listener.
+ */
+public final class ParseProgress implements AutoCloseable {
+
+    /**
+     * Receives the reports, on the parsing thread. Implementations must not throw, and must be
+     * done with a {@link StatementData} before returning, since the parser goes on filling it in.
+     */
+    public interface Listener {
+
+        /**
+         * @param page Page just extracted, from 1
+         * @param pages Pages in the document
+         */
+        default void pageExtracted(int page, int pages) {
+        }
+
+        /**
+         * @param issuer Name of the issuer whose parser will read the statement
+         */
+        default void issuerDetected(String issuer) {
+        }
+
+        /**
+         * @param data The statement with its summary fields read and no transactions yet
+         */
+        default void summaryReady(StatementData data) {
+        }
+
+        /**
+         * @param transaction A transaction just read
+         */
+        default void transactionRead(Transaction transaction) {
+        }
+    }
+
+    private static final ThreadLocal<ParseProgress> CURRENT = new ThreadLocal<>();
+
+    private final Listener listener;
+    private final ParseProgress previous;
+    private int lastPage;
+    private boolean summarySent;
+
+    private ParseProgress(Listener listener, ParseProgress previous) {
+        this.listener = listener;
+        this.previous = previous;
+    }
+
+    /**
+     * Report the current thread's parse progress to a listener until the scope is closed
+     * @param listener The listener
+     * @return The scope
+     */
+    public static ParseProgress open(Listener listener) {
+        ParseProgress progress = new ParseProgress(listener, CURRENT.get());
+        CURRENT.set(progress);
+        return progress;
+    }
+
+    /**
+     * @param page Page just extracted, from 1
+     * @param pages Pages in the document
+     */
+    public static void page(int page, int pages) {
+        ParseProgress progress = CURRENT.get();
+        if (progress != null && page > progress.lastPage) {
+            progress.lastPage = page;
+            progress.listener.pageExtracted(page, pages);
+        }
+    }
+
+    /**
+     * @param issuer Name of the detected issuer
+     */
+    public static void issuer(String issuer) {
+        ParseProgress progress = CURRENT.get();
+        if (progress != null) {
+            progress.listener.issuerDetected(issuer);
+        }
+    }
+
+    /**
+     * @param data The statement with its summary fields read
+     */
+    public static void summary(StatementData data) {
+        ParseProgress progress = CURRENT.get();
+        if (progress != null && !progress.summarySent) {
+            progress.summarySent = true;
+            progress.listener.summaryReady(data);
+        }
+    }
+
+    /**
+     * @param transaction A transaction just read
+     */
+    public static void transaction(Transaction transaction) {
+        ParseProgress progress = CURRENT.get();
+        if (progress != null) {
+            progress.listener.transactionRead(transaction);
+        }
+    }
+
+    /**
+     * Restore the enclosing scope, if any
+     */
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
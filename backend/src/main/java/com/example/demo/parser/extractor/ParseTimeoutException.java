@@ -0,0 +1,13 @@
+package com.example.demo.parser.extractor;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a parse runs past its {@link ParseDeadline} or its thread is interrupted
+ */
+public class ParseTimeoutException extends IOException {
+
+    public ParseTimeoutException(String message) {
+        super(message);
+    }
+}
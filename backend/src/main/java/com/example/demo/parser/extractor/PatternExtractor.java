@@ -5,16 +5,20 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Utility class for pattern-based text extraction using regex
+ * Utility class for pattern-based text extraction using regex.
+ * Matches run through {@link RegexGuard}, so a pattern that backtracks past its time budget
+ * counts as no match instead of holding the thread. Once the current {@link ParseDeadline}
+ * has expired no further patterns are tried.
  */
 public class PatternExtractor {
 
     private static final Logger logger = LoggerFactory.getLogger(PatternExtractor.class);
 
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+
     /**
      * Extracts the first match of a pattern from text
      * @param text The text to search in
@@ -33,15 +37,17 @@ public class PatternExtractor {
      * @return First match or null if not found
      */
     public static String extractFirst(String text, String pattern, int group) {
+        if (ParseDeadline.isExpired()) {
+            return null;
+        }
         try {
-            Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-            Matcher matcher = p.matcher(text);
-
-            if (matcher.find()) {
-                String result = matcher.group(group);
+            String result = RegexGuard.findFirst(pattern, FLAGS, text, group);
+            if (result != null) {
                 logger.debug("Pattern matched: {} -> {}", pattern, result);
-                return result != null ? result.trim() : null;
+                return result.trim();
             }
+        } catch (RegexTimeoutException e) {
+            logger.warn("Pattern abandoned after {} ms: {}", RegexGuard.getTimeoutMillis(), pattern);
         } catch (Exception e) {
             logger.error("Error extracting pattern '{}': {}", pattern, e.getMessage());
         }
@@ -68,19 +74,18 @@ public class PatternExtractor {
      */
     public static List<String> extractAll(String text, String pattern, int group) {
         List<String> results = new ArrayList<>();
+        if (ParseDeadline.isExpired()) {
+            return results;
+        }
 
         try {
-            Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-            Matcher matcher = p.matcher(text);
-
-            while (matcher.find()) {
-                String match = matcher.group(group);
-                if (match != null) {
-                    results.add(match.trim());
-                }
+            for (String match : RegexGuard.findAll(pattern, FLAGS, text, group)) {
+                results.add(match.trim());
             }
 
             logger.debug("Pattern matched {} times: {}", results.size(), pattern);
+        } catch (RegexTimeoutException e) {
+            logger.warn("Pattern abandoned after {} ms: {}", RegexGuard.getTimeoutMillis(), pattern);
         } catch (Exception e) {
             logger.error("Error extracting all patterns '{}': {}", pattern, e.getMessage());
         }
@@ -96,8 +101,10 @@ public class PatternExtractor {
      */
     public static boolean matches(String text, String pattern) {
         try {
-            Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-            return p.matcher(text).find();
+            return RegexGuard.find(pattern, FLAGS, text);
+        } catch (RegexTimeoutException e) {
+            logger.warn("Pattern abandoned after {} ms: {}", RegexGuard.getTimeoutMillis(), pattern);
+            return false;
         } catch (Exception e) {
             logger.error("Error checking pattern '{}': {}", pattern, e.getMessage());
             return false;
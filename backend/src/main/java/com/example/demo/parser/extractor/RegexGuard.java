@@ -0,0 +1,219 @@
+package com.example.demo.parser.extractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs extraction regexes under a time budget so a garbled statement cannot pin a thread.
+ * JDK patterns match against a {@link DeadlineCharSequence} and fail with
+ * {@link RegexTimeoutException} once the budget is spent. With the RE2J engine selected,
+ * every pattern RE2/J can express runs in linear time instead; the rest (back-references,
+ * look-around) stay on the guarded JDK engine. The budget is cut short when less time than that
+ * is left on the current {@link ParseDeadline}. Compiled patterns are cached.
+ */
+public class RegexGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegexGuard.class);
+
+    public enum Engine {
+        /** java.util.regex with a per-match deadline */
+        JDK,
+        /** RE2/J (linear time) where the pattern allows, guarded JDK otherwise */
+        RE2J
+    }
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 250;
+
+    private static volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private static volatile Engine engine = Engine.JDK;
+
+    private static final Map<String, CompiledPattern> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Replace the time budget and engine used for all subsequent matches
+     * @param newTimeoutMillis Budget per match in milliseconds
+     * @param newEngine The engine to use
+     */
+    public static void configure(long newTimeoutMillis, Engine newEngine) {
+        timeoutMillis = newTimeoutMillis;
+        engine = newEngine;
+        cache.clear();
+        logger.info("Regex guard: {} engine, {} ms per match", newEngine, newTimeoutMillis);
+    }
+
+    /**
+     * @return The time budget per match in milliseconds
+     */
+    public static long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Find the first match of a pattern
+     * @param regex The regex pattern
+     * @param flags java.util.regex.Pattern flags
+     * @param text The text to search
+     * @param group The capture group to return (0 for the entire match)
+     * @return The group of the first match, or null if there is no match or the group did not participate
+     * @throws RegexTimeoutException if the match runs past the time budget
+     */
+    public static String findFirst(String regex, int flags, CharSequence text, int group) {
+        return compile(regex, flags).findFirst(text, group);
+    }
+
+    /**
+     * Find all matches of a pattern
+     * @param regex The regex pattern
+     * @param flags java.util.regex.Pattern flags
+     * @param text The text to search
+     * @param group The capture group to collect
+     * @return The group of every match in which it participated
+     * @throws RegexTimeoutException if the scan runs past the time budget
+     */
+    public static List<String> findAll(String regex, int flags, CharSequence text, int group) {
+        return compile(regex, flags).findAll(text, group);
+    }
+
+    /**
+     * @param regex The regex pattern
+     * @param flags java.util.regex.Pattern flags
+     * @param text The text to search
+     * @return true if the pattern occurs in the text
+     * @throws RegexTimeoutException if the match runs past the time budget
+     */
+    public static boolean find(String regex, int flags, CharSequence text) {
+        return compile(regex, flags).find(text);
+    }
+
+    /**
+     * JDK matcher over the text with the time budget applied, for callers that need
+     * more than one group per match
+     * @param pattern The compiled pattern
+     * @param text The text to search
+     * @return A matcher whose find() throws {@link RegexTimeoutException} past the budget
+     */
+    public static Matcher matcher(Pattern pattern, CharSequence text) {
+        return pattern.matcher(new DeadlineCharSequence(text, budgetMillis(), pattern.pattern()));
+    }
+
+    private static long budgetMillis() {
+        return Math.min(timeoutMillis, ParseDeadline.remainingMillis());
+    }
+
+    private static CompiledPattern compile(String regex, int flags) {
+        return cache.computeIfAbsent(flags + "/" + regex, key -> {
+            if (engine == Engine.RE2J) {
+                CompiledPattern re2j = Re2jPattern.tryCompile(regex, flags);
+                if (re2j != null) {
+                    return re2j;
+                }
+                logger.debug("Pattern not supported by RE2/J, using guarded JDK engine: {}", regex);
+            }
+            return new JdkPattern(Pattern.compile(regex, flags));
+        });
+    }
+
+    private interface CompiledPattern {
+        String findFirst(CharSequence text, int group);
+
+        List<String> findAll(CharSequence text, int group);
+
+        boolean find(CharSequence text);
+    }
+
+    private static final class JdkPattern implements CompiledPattern {
+        private final Pattern pattern;
+
+        private JdkPattern(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        private Matcher matcher(CharSequence text) {
+            return pattern.matcher(new DeadlineCharSequence(text, budgetMillis(), pattern.pattern()));
+        }
+
+        @Override
+        public String findFirst(CharSequence text, int group) {
+            Matcher matcher = matcher(text);
+            return matcher.find() ? matcher.group(group) : null;
+        }
+
+        @Override
+        public List<String> findAll(CharSequence text, int group) {
+            List<String> results = new ArrayList<>();
+            Matcher matcher = matcher(text);
+            while (matcher.find()) {
+                String match = matcher.group(group);
+                if (match != null) {
+                    results.add(match);
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public boolean find(CharSequence text) {
+            return matcher(text).find();
+        }
+    }
+
+    private static final class Re2jPattern implements CompiledPattern {
+        private final com.google.re2j.Pattern pattern;
+
+        private Re2jPattern(com.google.re2j.Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        static Re2jPattern tryCompile(String regex, int flags) {
+            if ((flags & ~(Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL)) != 0) {
+                return null;
+            }
+            int re2Flags = 0;
+            if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+                re2Flags |= com.google.re2j.Pattern.CASE_INSENSITIVE;
+            }
+            if ((flags & Pattern.MULTILINE) != 0) {
+                re2Flags |= com.google.re2j.Pattern.MULTILINE;
+            }
+            if ((flags & Pattern.DOTALL) != 0) {
+                re2Flags |= com.google.re2j.Pattern.DOTALL;
+            }
+            try {
+                return new Re2jPattern(com.google.re2j.Pattern.compile(regex, re2Flags));
+            } catch (com.google.re2j.PatternSyntaxException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String findFirst(CharSequence text, int group) {
+            com.google.re2j.Matcher matcher = pattern.matcher(text);
+            return matcher.find() ? matcher.group(group) : null;
+        }
+
+        @Override
+        public List<String> findAll(CharSequence text, int group) {
+            List<String> results = new ArrayList<>();
+            com.google.re2j.Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                String match = matcher.group(group);
+                if (match != null) {
+                    results.add(match);
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public boolean find(CharSequence text) {
+            return pattern.matcher(text).find();
+        }
+    }
+}
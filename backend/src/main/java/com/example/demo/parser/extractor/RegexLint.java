@@ -0,0 +1,209 @@
+package com.example.demo.parser.extractor;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flags regex constructs prone to super-linear backtracking:
+ * a repeated group that itself contains an unbounded quantifier, such as (?:X+\s*)*,
+ * and an unbounded wildcard directly followed by another repeated token, such as .*\s+.
+ * This is a heuristic, not a proof: a clean pattern can still be slow, which is why
+ * {@link RegexGuard} enforces a time budget regardless.
+ */
+public class RegexLint {
+
+    private static final String PATTERN_SUFFIX = "PATTERN";
+
+    /**
+     * Check a single pattern
+     * @param regex The regex pattern
+     * @return Findings, empty if none
+     */
+    public static List<String> check(String regex) {
+        List<String> findings = new ArrayList<>();
+        Deque<Boolean> groups = new ArrayDeque<>();
+        groups.push(false);
+
+        int wildcardAt = -1;
+        int i = 0;
+
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int atomStart = i;
+            boolean groupAtom = false;
+            boolean groupUnbounded = false;
+            boolean wildcard = false;
+
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                i = skipCharClass(regex, i);
+            } else if (c == '(') {
+                int flagsEnd = inlineFlagsEnd(regex, i);
+                if (flagsEnd > 0) {
+                    i = flagsEnd;
+                    continue;
+                }
+                groups.push(false);
+                i++;
+                continue;
+            } else if (c == ')') {
+                groupUnbounded = groups.size() > 1 ? groups.pop() : false;
+                groupAtom = true;
+                atomStart = groupStart(regex, i);
+                i++;
+            } else if (c == '|') {
+                wildcardAt = -1;
+                i++;
+                continue;
+            } else if (c == '^' || c == '$') {
+                i++;
+                continue;
+            } else {
+                wildcard = c == '.';
+                i++;
+            }
+
+            // Quantifier following the atom
+            int quantifierStart = i;
+            boolean unbounded = false;
+            boolean repeats = false;
+            boolean possessive = false;
+
+            if (i < regex.length()) {
+                char q = regex.charAt(i);
+                if (q == '*' || q == '+') {
+                    unbounded = true;
+                    repeats = true;
+                    i++;
+                } else if (q == '?') {
+                    i++;
+                } else if (q == '{') {
+                    int close = regex.indexOf('}', i);
+                    if (close > 0) {
+                        String[] bounds = regex.substring(i + 1, close).split(",", -1);
+                        unbounded = bounds.length == 2 && bounds[1].isBlank();
+                        repeats = unbounded || maxOf(bounds) > 1;
+                        i = close + 1;
+                    }
+                }
+                if (i > quantifierStart && i < regex.length()) {
+                    char suffix = regex.charAt(i);
+                    possessive = suffix == '+';
+                    if (suffix == '?' || suffix == '+') {
+                        i++;
+                    }
+                }
+            }
+
+            if (groupAtom && groupUnbounded && repeats && !possessive) {
+                findings.add("nested quantifier: repeated group at offset " + atomStart
+                        + " contains an unbounded quantifier");
+            }
+
+            if (wildcardAt >= 0 && atomStart > wildcardAt) {
+                if (repeats && !possessive) {
+                    findings.add("unbounded wildcard at offset " + wildcardAt
+                            + " is followed by a repeated token at offset " + atomStart);
+                }
+                wildcardAt = -1;
+            }
+            if (wildcard && unbounded && !possessive) {
+                wildcardAt = atomStart;
+            }
+
+            if ((unbounded && !possessive) || groupUnbounded) {
+                groups.pop();
+                groups.push(true);
+            }
+        }
+
+        return findings;
+    }
+
+    /**
+     * Check every static String constant whose name ends in PATTERN
+     * @param type The class declaring the patterns
+     * @return Constant name to findings, for constants with findings only
+     */
+    public static Map<String, List<String>> checkConstants(Class<?> type) {
+        Map<String, List<String>> results = new LinkedHashMap<>();
+
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) || field.getType() != String.class
+                    || !field.getName().endsWith(PATTERN_SUFFIX)) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                List<String> findings = check((String) field.get(null));
+                if (!findings.isEmpty()) {
+                    results.put(field.getName(), findings);
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                // Not readable, nothing to lint
+            }
+        }
+
+        return results;
+    }
+
+    private static int skipCharClass(String regex, int i) {
+        i++;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        while (i < regex.length() && regex.charAt(i) != ']') {
+            i += regex.charAt(i) == '\\' ? 2 : 1;
+        }
+        return i + 1;
+    }
+
+    /**
+     * @return End of an inline flag group such as (?i), or -1 if the parenthesis opens a real group
+     */
+    private static int inlineFlagsEnd(String regex, int i) {
+        if (i + 1 >= regex.length() || regex.charAt(i + 1) != '?') {
+            return -1;
+        }
+        int j = i + 2;
+        while (j < regex.length() && (Character.isLetter(regex.charAt(j)) || regex.charAt(j) == '-')) {
+            j++;
+        }
+        return j > i + 2 && j < regex.length() && regex.charAt(j) == ')' ? j + 1 : -1;
+    }
+
+    private static int groupStart(String regex, int close) {
+        int depth = 0;
+        for (int i = close; i >= 0; i--) {
+            char c = regex.charAt(i);
+            if (i > 0 && regex.charAt(i - 1) == '\\') {
+                continue;
+            }
+            if (c == ')') {
+                depth++;
+            } else if (c == '(' && --depth == 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int maxOf(String[] bounds) {
+        try {
+            return Integer.parseInt(bounds[bounds.length - 1].trim());
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.parser.extractor;
+
+/**
+ * Thrown when a regex match runs past its time budget, typically because the pattern
+ * backtracks super-linearly on garbled input
+ */
+public class RegexTimeoutException extends RuntimeException {
+
+    public RegexTimeoutException(String message) {
+        super(message);
+    }
+}
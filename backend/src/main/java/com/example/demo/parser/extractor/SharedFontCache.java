@@ -0,0 +1,400 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parsed fonts shared across documents. Statements from the same bank embed the same font
+ * programs, ToUnicode CMaps and encodings, and parsing them again for every load is a large
+ * share of extraction time on small statements. Fonts are looked up by a cheap key, the font's
+ * subtype and base font name with the raw length of every stream it references, which needs no
+ * stream data read. A font found under the key is only used if its dictionary and streams equal
+ * the document's, compared byte for byte, which stops at the first difference; different fonts
+ * sharing a key each get their own pool. Fonts are built from a detached copy of the dictionary
+ * so they outlive the document they came from.
+ * <p>
+ * A {@link PDFont} caches glyph data as it is used and is not thread-safe, so each font keeps a
+ * small pool of idle instances: a document leases one for as long as it extracts text and gives
+ * it back afterwards. The pools live in an LRU bounded by the total raw stream size of the
+ * instances they may hold. Type 3 fonts are never shared, since their glyphs are content
+ * streams that refer back into the document's resources.
+ */
+public class SharedFontCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedFontCache.class);
+
+    /** Idle instances kept per font; concurrent parses beyond this build their own */
+    private static final int MAX_IDLE = 4;
+
+    /** Rough size of the parsed structures of a font with no embedded program */
+    private static final long BASE_WEIGHT = 4 * 1024;
+
+    private static final SharedFontCache instance = new SharedFontCache();
+
+    private final Map<String, List<Pool>> pools = new LinkedHashMap<>(64, 0.75f, true);
+    private volatile long maxBytes = 32L * 1024 * 1024;
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * A font leased to one document
+     */
+    public static final class Lease {
+        private final Pool pool;
+        private final PDFont font;
+
+        private Lease(Pool pool, PDFont font) {
+            this.pool = pool;
+            this.font = font;
+        }
+
+        public PDFont getFont() {
+            return font;
+        }
+    }
+
+    private static final class Pool {
+        final Queue<PDFont> idle = new ConcurrentLinkedQueue<>();
+        /** Detached copy the instances are built from, compared with the fonts of later documents */
+        final COSDictionary source;
+        final long weight;
+        volatile boolean evicted;
+
+        Pool(COSDictionary source, long weight) {
+            this.source = source;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @return The shared cache
+     */
+    public static SharedFontCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Set the size bound, evicting fonts if the cache is over it
+     * @param bytes Maximum total weight; 0 disables sharing
+     */
+    public static void configure(long bytes) {
+        instance.resize(bytes);
+        logger.info("Shared font cache: {} bytes", bytes);
+    }
+
+    /**
+     * Lease a parsed font equal to the given one
+     * @param indirect Reference to the font dictionary in the document being read
+     * @return The lease, or null if the font is not shareable or sharing is disabled
+     */
+    public Lease lease(COSObject indirect) {
+        if (maxBytes <= 0 || !(indirect.getObject() instanceof COSDictionary dictionary)
+                || COSName.TYPE3.equals(dictionary.getCOSName(COSName.SUBTYPE))) {
+            return null;
+        }
+
+        try {
+            String key = key(dictionary);
+            List<Pool> candidates;
+            synchronized (this) {
+                List<Pool> keyed = pools.get(key);
+                candidates = keyed != null ? List.copyOf(keyed) : List.of();
+            }
+            Pool pool = null;
+            for (Pool candidate : candidates) {
+                if (sameContent(dictionary, candidate.source, new IdentityHashMap<>())) {
+                    pool = candidate;
+                    break;
+                }
+            }
+            PDFont font = pool != null ? pool.idle.poll() : null;
+            if (font != null) {
+                hits.increment();
+                return new Lease(pool, font);
+            }
+
+            misses.increment();
+            COSDictionary detached = (COSDictionary) detach(dictionary, new IdentityHashMap<>());
+            font = PDFontFactory.createFont(detached);
+            if (pool == null) {
+                pool = new Pool(detached, (streamBytes(detached, new IdentityHashMap<>()) + BASE_WEIGHT) * MAX_IDLE);
+                add(key, pool);
+            }
+            return new Lease(pool, font);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Font {} not shared: {}", indirect.getObjectNumber(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Give leased fonts back; their pools keep them unless full or evicted meanwhile
+     * @param leases The leases, no longer used by their document
+     */
+    public void release(Iterable<Lease> leases) {
+        for (Lease lease : leases) {
+            Pool pool = lease.pool;
+            if (!pool.evicted && pool.idle.size() < MAX_IDLE) {
+                pool.idle.offer(lease.font);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of distinct fonts held
+     */
+    public synchronized int size() {
+        return pools.values().stream().mapToInt(List::size).sum();
+    }
+
+    public synchronized void clear() {
+        pools.values().forEach(keyed -> keyed.forEach(pool -> pool.evicted = true));
+        pools.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Add a pool under its key, unless an equal font was added meanwhile by another document
+     */
+    private synchronized void add(String key, Pool pool) throws IOException {
+        if (pool.weight > maxBytes) {
+            return;
+        }
+        List<Pool> keyed = pools.computeIfAbsent(key, k -> new ArrayList<>(1));
+        for (Pool existing : keyed) {
+            if (sameContent(pool.source, existing.source, new IdentityHashMap<>())) {
+                return;
+            }
+        }
+        keyed.add(pool);
+        totalBytes += pool.weight;
+        evict();
+    }
+
+    private synchronized void resize(long bytes) {
+        maxBytes = bytes;
+        evict();
+    }
+
+    /**
+     * Drop least recently used pools until the total fits; caller holds the lock
+     */
+    private void evict() {
+        Iterator<List<Pool>> eldest = pools.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            for (Pool pool : eldest.next()) {
+                totalBytes -= pool.weight;
+                pool.evicted = true;
+            }
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Cheap lookup key: subtype, base font and the raw length of every stream the font
+     * references, in the order met; reads no stream data
+     */
+    private static String key(COSDictionary dictionary) {
+        StringBuilder key = new StringBuilder()
+                .append(dictionary.getNameAsString(COSName.SUBTYPE)).append('/')
+                .append(dictionary.getNameAsString(COSName.BASE_FONT));
+        appendStreamLengths(key, dictionary, new IdentityHashMap<>());
+        return key.toString();
+    }
+
+    private static void appendStreamLengths(StringBuilder key, COSBase base, Map<COSBase, Boolean> visited) {
+        COSBase value = base instanceof COSObject object ? object.getObject() : base;
+        if (!(value instanceof COSDictionary) && !(value instanceof COSArray)
+                || visited.put(value, Boolean.TRUE) != null) {
+            return;
+        }
+        if (value instanceof COSStream stream) {
+            key.append(':').append(stream.getLength());
+        }
+        if (value instanceof COSArray array) {
+            for (int i = 0; i < array.size(); i++) {
+                appendStreamLengths(key, array.get(i), visited);
+            }
+        } else {
+            List<COSName> names = new ArrayList<>(((COSDictionary) value).keySet());
+            names.sort(null);
+            for (COSName name : names) {
+                appendStreamLengths(key, ((COSDictionary) value).getItem(name), visited);
+            }
+        }
+    }
+
+    /**
+     * Compare two object graphs: dictionaries by their entries (a stream's Length aside),
+     * references resolved, streams by their raw (still encoded) bytes
+     * @param visited Pairs already compared or being compared, so cycles end
+     */
+    private static boolean sameContent(COSBase left, COSBase right, Map<COSBase, COSBase> visited)
+            throws IOException {
+        COSBase a = left instanceof COSObject object ? object.getObject() : left;
+        COSBase b = right instanceof COSObject object ? object.getObject() : right;
+        if (a == null || b == null || a instanceof COSNull || b instanceof COSNull) {
+            return (a == null || a instanceof COSNull) && (b == null || b instanceof COSNull);
+        }
+        if (a instanceof COSDictionary || a instanceof COSArray) {
+            COSBase pair = visited.get(a);
+            if (pair != null) {
+                return pair == b;
+            }
+            visited.put(a, b);
+        }
+
+        if (a instanceof COSStream streamA) {
+            return b instanceof COSStream streamB && streamA.getLength() == streamB.getLength()
+                    && sameEntries(streamA, streamB, visited) && sameBytes(streamA, streamB);
+        }
+        if (a instanceof COSDictionary dictionaryA) {
+            return b instanceof COSDictionary dictionaryB && !(b instanceof COSStream)
+                    && sameEntries(dictionaryA, dictionaryB, visited);
+        }
+        if (a instanceof COSArray arrayA) {
+            if (!(b instanceof COSArray arrayB) || arrayA.size() != arrayB.size()) {
+                return false;
+            }
+            for (int i = 0; i < arrayA.size(); i++) {
+                if (!sameContent(arrayA.get(i), arrayB.get(i), visited)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof COSString stringA) {
+            return b instanceof COSString stringB && Arrays.equals(stringA.getBytes(), stringB.getBytes());
+        }
+        if (a instanceof COSNumber numberA) {
+            return b instanceof COSNumber numberB && numberA.floatValue() == numberB.floatValue();
+        }
+        return a.equals(b);
+    }
+
+    private static boolean sameEntries(COSDictionary a, COSDictionary b, Map<COSBase, COSBase> visited)
+            throws IOException {
+        int entries = 0;
+        for (Map.Entry<COSName, COSBase> entry : a.entrySet()) {
+            if (a instanceof COSStream && COSName.LENGTH.equals(entry.getKey())) {
+                continue;
+            }
+            entries++;
+            if (!sameContent(entry.getValue(), b.getItem(entry.getKey()), visited)) {
+                return false;
+            }
+        }
+        int otherEntries = b.size() - (b instanceof COSStream && b.containsKey(COSName.LENGTH) ? 1 : 0);
+        return entries == otherEntries;
+    }
+
+    private static boolean sameBytes(COSStream a, COSStream b) throws IOException {
+        try (InputStream inA = a.createRawInputStream(); InputStream inB = b.createRawInputStream()) {
+            byte[] bufferA = new byte[8192];
+            byte[] bufferB = new byte[8192];
+            while (true) {
+                int read = inA.readNBytes(bufferA, 0, bufferA.length);
+                if (inB.readNBytes(bufferB, 0, bufferB.length) != read
+                        || !Arrays.equals(bufferA, 0, read, bufferB, 0, read)) {
+                    return false;
+                }
+                if (read < bufferA.length) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the object graph into memory, resolving references, so nothing in it points back
+     * into the source document. Names, strings and numbers are immutable here and shared.
+     */
+    private static COSBase detach(COSBase base, Map<COSBase, COSBase> copies) throws IOException {
+        COSBase value = base instanceof COSObject object ? object.getObject() : base;
+        if (!(value instanceof COSDictionary) && !(value instanceof COSArray)) {
+            return value;
+        }
+        COSBase existing = copies.get(value);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (value instanceof COSArray array) {
+            COSArray copy = new COSArray();
+            copies.put(value, copy);
+            for (int i = 0; i < array.size(); i++) {
+                COSBase item = detach(array.get(i), copies);
+                copy.add(item != null ? item : COSNull.NULL);
+            }
+            return copy;
+        }
+
+        COSDictionary dictionary = (COSDictionary) value;
+        COSDictionary copy = dictionary instanceof COSStream ? new COSStream() : new COSDictionary();
+        copies.put(value, copy);
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+            if (copy instanceof COSStream && COSName.LENGTH.equals(entry.getKey())) {
+                continue;
+            }
+            COSBase item = detach(entry.getValue(), copies);
+            if (item != null) {
+                copy.setItem(entry.getKey(), item);
+            }
+        }
+        if (copy instanceof COSStream streamCopy) {
+            try (InputStream in = ((COSStream) dictionary).createRawInputStream();
+                 OutputStream out = streamCopy.createRawOutputStream()) {
+                in.transferTo(out);
+            }
+        }
+        return copy;
+    }
+
+    private static long streamBytes(COSBase value, Map<COSBase, Boolean> visited) {
+        if (!(value instanceof COSDictionary) && !(value instanceof COSArray)
+                || visited.put(value, Boolean.TRUE) != null) {
+            return 0;
+        }
+        long bytes = value instanceof COSStream stream ? stream.getLength() : 0;
+        Iterable<COSBase> children = value instanceof COSArray array ? array : ((COSDictionary) value).getValues();
+        for (COSBase child : children) {
+            bytes += streamBytes(child, visited);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.StatementToken.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hand-written single-pass tokenizer for statement text.
+ * Walks the text once and emits dates, amounts (with currency), masked card numbers,
+ * known statement labels and plain words, each with its offsets and line number.
+ * Punctuation and whitespace separate tokens and are not emitted.
+ */
+public class StatementLexer {
+
+    /** Statement labels recognised as KEYWORD tokens; the longest label wins */
+    private static final String[] KEYWORDS = {
+            "Card Number", "Card No", "Card ending in", "Card ending with", "Account ending in",
+            "Card Type", "Card Product", "Card Variant", "Product Name", "Card Member Name",
+            "Statement Date", "Date of Statement", "Closing Date", "Bill Date", "Statement Period",
+            "Payment Due Date", "Due Date", "Pay By", "Payment Due By",
+            "Total Amount Due", "Amount Due", "Amount Payable", "New Balance",
+            "Outstanding Balance", "Total Outstanding",
+            "Minimum Amount Due", "Minimum Payment", "Minimum Due",
+            "Credit Limit", "Total Limit", "Card Limit",
+            "Available Credit Limit", "Available Credit", "Available Limit", "Credit Available"
+    };
+
+    private static final Set<String> MONTHS = Set.of(
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC");
+
+    private static final int CARD_LENGTH = 16;
+    private static final int AMEX_CARD_LENGTH = 15;
+
+    private static final KeywordNode KEYWORD_TRIE = new KeywordNode();
+
+    static {
+        for (String keyword : KEYWORDS) {
+            KeywordNode node = KEYWORD_TRIE;
+            for (String word : keyword.split(" ")) {
+                node = node.children.computeIfAbsent(word.toUpperCase(Locale.ROOT), w -> new KeywordNode());
+            }
+            node.label = keyword;
+        }
+    }
+
+    private final String text;
+    private final int length;
+    private final List<StatementToken> tokens = new ArrayList<>();
+    private int pos;
+    private int line = 1;
+
+    private StatementLexer(String text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /**
+     * Tokenize statement text
+     * @param text The extracted text
+     * @return Tokens in document order
+     */
+    public static List<StatementToken> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StatementLexer lexer = new StatementLexer(text);
+        lexer.run();
+        return lexer.tokens;
+    }
+
+    private void run() {
+        while (pos < length) {
+            char c = text.charAt(pos);
+
+            if (c == '\n') {
+                line++;
+                pos++;
+            } else if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pos++;
+            } else if (c == '₹' || c == '$') {
+                lexCurrencySymbol(c);
+            } else if (isCardChar(c) && lexMaskedCard()) {
+                // emitted
+            } else if (isDigit(c)) {
+                if (!lexNumericDate()) {
+                    lexNumber(pos, null);
+                }
+            } else if (Character.isLetter(c)) {
+                lexWord();
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private void lexCurrencySymbol(char symbol) {
+        int start = pos;
+        int next = skipHorizontalSpace(pos + 1);
+        if (next < length && isDigit(text.charAt(next))) {
+            lexNumber(next, symbol == '₹' ? "INR" : "USD", start);
+        } else {
+            pos++;
+        }
+    }
+
+    /**
+     * Groups of digits and mask characters (X, *, •) separated by single spaces or hyphens,
+     * 15 or 16 characters in all, ending in four digits
+     */
+    private boolean lexMaskedCard() {
+        int i = pos;
+        int count = 0;
+        int masks = 0;
+        int end = pos;
+
+        while (true) {
+            int groupStart = i;
+            while (i < length && isCardChar(text.charAt(i)) && count < CARD_LENGTH) {
+                if (!isDigit(text.charAt(i))) {
+                    masks++;
+                }
+                count++;
+                i++;
+            }
+            if (i == groupStart) {
+                break;
+            }
+            end = i;
+            if (count >= CARD_LENGTH || i + 1 >= length) {
+                break;
+            }
+            char separator = text.charAt(i);
+            if ((separator == ' ' || separator == '-') && isCardChar(text.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+
+        if ((count != CARD_LENGTH && count != AMEX_CARD_LENGTH) || masks < 4 || isWordChar(end)) {
+            return false;
+        }
+        for (int k = end - 4; k < end; k++) {
+            if (!isDigit(text.charAt(k))) {
+                return false;
+            }
+        }
+
+        emit(Type.MASKED_CARD, pos, end, text.substring(end - 4, end));
+        return true;
+    }
+
+    /**
+     * dd-Mon-yyyy, dd/mm/yyyy, dd.mm.yy, dd Mon yyyy and yyyy-mm-dd
+     */
+    private boolean lexNumericDate() {
+        int i = pos;
+        int dayDigits = countDigits(i);
+
+        if (dayDigits == 4) {
+            // yyyy-mm-dd
+            i += 4;
+            if (charIs(i, '-') && countDigits(i + 1) == 2 && charIs(i + 3, '-') && countDigits(i + 4) == 2
+                    && !isWordChar(i + 6)) {
+                emit(Type.DATE, pos, i + 6, null);
+                return true;
+            }
+            return false;
+        }
+        if (dayDigits < 1 || dayDigits > 2) {
+            return false;
+        }
+
+        i += dayDigits;
+        if (i >= length) {
+            return false;
+        }
+        char separator = text.charAt(i);
+        if (separator != '-' && separator != '/' && separator != '.' && separator != ' ') {
+            return false;
+        }
+        i++;
+
+        int monthEnd;
+        int monthLetters = countLetters(i);
+        if (monthLetters >= 3 && monthLetters <= 9
+                && MONTHS.contains(text.substring(i, i + 3).toUpperCase(Locale.ROOT))) {
+            monthEnd = i + monthLetters;
+        } else {
+            int monthDigits = countDigits(i);
+            if (separator == ' ' || monthDigits < 1 || monthDigits > 2) {
+                return false;
+            }
+            monthEnd = i + monthDigits;
+        }
+
+        if (!charIs(monthEnd, separator)) {
+            return false;
+        }
+        int yearDigits = countDigits(monthEnd + 1);
+        if (yearDigits != 2 && yearDigits != 4) {
+            return false;
+        }
+        int end = monthEnd + 1 + yearDigits;
+        if (isWordChar(end)) {
+            return false;
+        }
+
+        emit(Type.DATE, pos, end, null);
+        return true;
+    }
+
+    private void lexNumber(int numberStart, String currency) {
+        lexNumber(numberStart, currency, numberStart);
+    }
+
+    /**
+     * Digits with optional thousands separators and decimals; a number running straight
+     * into letters ("2nd", "3456ABC") is a word instead, except for a Cr/Dr suffix ("1,234.00Cr"),
+     * which is left to be read as a word of its own
+     */
+    private void lexNumber(int numberStart, String currency, int tokenStart) {
+        int i = numberStart;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                i++;
+            } else if (c == ',' && i + 1 < length && isDigit(text.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (charIs(i, '.') && i + 1 < length && isDigit(text.charAt(i + 1))) {
+            i++;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+
+        if (i < length && Character.isLetter(text.charAt(i)) && !isCreditDebitSuffix(i)) {
+            int end = i;
+            while (isWordChar(end)) {
+                end++;
+            }
+            emit(Type.WORD, tokenStart, end, null);
+            return;
+        }
+
+        tokens.add(new StatementToken(Type.AMOUNT, text.substring(numberStart, i), currency, tokenStart, i, line));
+        pos = i;
+    }
+
+    private void lexWord() {
+        int start = pos;
+
+        // Rs. 1,234.00 / INR 1234 / Rs1,234.00 / INR500: the prefix ends at its last letter
+        int letters = countLetters(start);
+        String prefix = text.substring(start, start + letters).toUpperCase(Locale.ROOT);
+        if (prefix.equals("RS") || prefix.equals("INR")) {
+            int next = start + letters;
+            if (charIs(next, '.')) {
+                next++;
+            }
+            next = skipHorizontalSpace(next);
+            if (next < length && isDigit(text.charAt(next))) {
+                lexNumber(next, "INR", start);
+                return;
+            }
+        }
+
+        int end = wordEnd(start);
+        String word = text.substring(start, end);
+        String upper = word.toUpperCase(Locale.ROOT);
+
+        // Oct 01, 2024
+        if (word.length() >= 3 && MONTHS.contains(upper.substring(0, 3))) {
+            int i = skipHorizontalSpace(end);
+            int dayDigits = countDigits(i);
+            if (i > end && dayDigits >= 1 && dayDigits <= 2) {
+                int j = i + dayDigits;
+                if (charIs(j, ',')) {
+                    j++;
+                }
+                j = skipHorizontalSpace(j);
+                if (countDigits(j) == 4 && !isWordChar(j + 4)) {
+                    emit(Type.DATE, start, j + 4, null);
+                    return;
+                }
+            }
+        }
+
+        KeywordNode node = KEYWORD_TRIE.children.get(upper);
+        if (node != null) {
+            String label = node.label;
+            int labelEnd = end;
+            int i = end;
+            while (true) {
+                int next = skipHorizontalSpace(i);
+                if (next == i || next >= length || !Character.isLetter(text.charAt(next))) {
+                    break;
+                }
+                int nextEnd = wordEnd(next);
+                node = node.children.get(text.substring(next, nextEnd).toUpperCase(Locale.ROOT));
+                if (node == null) {
+                    break;
+                }
+                i = nextEnd;
+                if (node.label != null) {
+                    label = node.label;
+                    labelEnd = nextEnd;
+                }
+            }
+            if (label != null) {
+                emit(Type.KEYWORD, start, labelEnd, label);
+                return;
+            }
+        }
+
+        emit(Type.WORD, start, end, null);
+    }
+
+    private void emit(Type type, int start, int end, String value) {
+        tokens.add(new StatementToken(type, text.substring(start, end), value, start, end, line));
+        pos = end;
+    }
+
+    private int wordEnd(int start) {
+        int end = start;
+        while (isWordChar(end)) {
+            end++;
+        }
+        return end;
+    }
+
+    private int skipHorizontalSpace(int i) {
+        while (i < length && (text.charAt(i) == ' ' || text.charAt(i) == '\t' || text.charAt(i) == ' ')) {
+            i++;
+        }
+        return i;
+    }
+
+    private int countDigits(int i) {
+        int start = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private int countLetters(int i) {
+        int start = i;
+        while (i < length && Character.isLetter(text.charAt(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private boolean charIs(int i, char c) {
+        return i < length && text.charAt(i) == c;
+    }
+
+    /**
+     * @return true if the letters at i are exactly "Cr" or "Dr", in any case
+     */
+    private boolean isCreditDebitSuffix(int i) {
+        if (countLetters(i) != 2 || isWordChar(i + 2)) {
+            return false;
+        }
+        char first = Character.toUpperCase(text.charAt(i));
+        return (first == 'C' || first == 'D') && Character.toUpperCase(text.charAt(i + 1)) == 'R';
+    }
+
+    private boolean isWordChar(int i) {
+        return i < length && Character.isLetterOrDigit(text.charAt(i));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isCardChar(char c) {
+        return isDigit(c) || c == 'X' || c == 'x' || c == '*' || c == '•';
+    }
+
+    private static final class KeywordNode {
+        private final Map<String, KeywordNode> children = new HashMap<>();
+        private String label;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripperByArea;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Region stripper with the same text-only "Do" operator and {@link ParseDeadline} checks
+ * as {@link StatementTextStripper}
+ */
+public class StatementRegionStripper extends PDFTextStripperByArea {
+
+    private final TextOnlyDrawObject drawObject = new TextOnlyDrawObject(this);
+    private int operators;
+
+    public StatementRegionStripper() throws IOException {
+        super();
+        addOperator(drawObject);
+    }
+
+    @Override
+    public void extractRegions(PDPage page) throws IOException {
+        ParseDeadline.check();
+        drawObject.reset();
+        super.extractRegions(page);
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        if (++operators % StatementTextStripper.OPERATOR_CHECK_INTERVAL == 0) {
+            ParseDeadline.check();
+        }
+        super.processOperator(operator, operands);
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        drawObject.glyphShown();
+        super.processTextPosition(text);
+    }
+}
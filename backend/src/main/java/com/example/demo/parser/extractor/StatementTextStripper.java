@@ -0,0 +1,78 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Base text stripper for statement extraction.
+ * Uses a text-only "Do" operator (see {@link TextOnlyDrawObject}) and enforces the extraction
+ * time limit from {@link PDFLoadLimits} at every page boundary. The per-parse {@link ParseDeadline}
+ * is checked at page boundaries and every few hundred content stream operators. Shared fonts
+ * leased for the document are released when {@link #writeText} returns. Each finished page is
+ * reported to the thread's {@link ParseProgress}.
+ */
+public class StatementTextStripper extends PDFTextStripper {
+
+    static final int OPERATOR_CHECK_INTERVAL = 256;
+
+    private final TextOnlyDrawObject drawObject = new TextOnlyDrawObject(this);
+    private long deadline;
+    private int operators;
+    private int pages;
+
+    public StatementTextStripper() {
+        super();
+        addOperator(drawObject);
+    }
+
+    @Override
+    public void writeText(PDDocument doc, Writer outputStream) throws IOException {
+        deadline = System.currentTimeMillis() + PDFDocumentLoader.getLimits().getMaxExtractionMillis();
+        drawObject.reset();
+        pages = doc.getNumberOfPages();
+        try {
+            super.writeText(doc, outputStream);
+        } finally {
+            PDFDocumentLoader.releaseFonts(doc);
+        }
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        ParseDeadline.check();
+        if (System.currentTimeMillis() > deadline) {
+            throw new DocumentLimitExceededException(String.format(
+                    "Text extraction took longer than %d ms (stopped at page %d)",
+                    PDFDocumentLoader.getLimits().getMaxExtractionMillis(), getCurrentPageNo()));
+        }
+        super.startPage(page);
+    }
+
+    @Override
+    protected void endPage(PDPage page) throws IOException {
+        super.endPage(page);
+        ParseProgress.page(getCurrentPageNo(), pages);
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        if (++operators % OPERATOR_CHECK_INTERVAL == 0) {
+            ParseDeadline.check();
+        }
+        super.processOperator(operator, operands);
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        drawObject.glyphShown();
+        super.processTextPosition(text);
+    }
+}
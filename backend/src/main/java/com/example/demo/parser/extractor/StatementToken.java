@@ -0,0 +1,85 @@
+package com.example.demo.parser.extractor;
+
+/**
+ * A typed token produced by {@link StatementLexer}
+ */
+public class StatementToken {
+
+    public enum Type {
+        /** A date such as 01-Oct-2024, 01/10/2024 or 01 Oct 2024 */
+        DATE,
+        /** A number, with the currency that preceded it if any */
+        AMOUNT,
+        /** A masked card number such as XXXX XXXX XXXX 1234 */
+        MASKED_CARD,
+        /** A known statement label such as "Total Amount Due" */
+        KEYWORD,
+        /** Any other word */
+        WORD
+    }
+
+    private final Type type;
+    private final String text;
+    private final String value;
+    private final int start;
+    private final int end;
+    private final int line;
+
+    StatementToken(Type type, String text, String value, int start, int end, int line) {
+        this.type = type;
+        this.text = text;
+        this.value = value;
+        this.start = start;
+        this.end = end;
+        this.line = line;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The token text as it appears in the statement
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return Type specific value: the canonical label for KEYWORD, the currency for AMOUNT
+     *         (null when none was given) and the last four digits for MASKED_CARD
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return Offset of the first character in the source text
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return Offset just past the last character in the source text
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return Line number in the source text, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public boolean is(Type type) {
+        return this.type == type;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + text + (value != null ? " = " + value : "") + ") @" + line + ":" + start;
+    }
+}
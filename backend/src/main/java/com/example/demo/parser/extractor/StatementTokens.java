@@ -0,0 +1,135 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.StatementToken.Type;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Token stream of a statement with the lookups the issuer parsers need,
+ * so a field is read from the tokens instead of running one regex per field
+ */
+public class StatementTokens implements Iterable<StatementToken> {
+
+    private final List<StatementToken> tokens;
+
+    private StatementTokens(List<StatementToken> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Tokenize statement text
+     * @param text The extracted text
+     * @return The token stream
+     */
+    public static StatementTokens of(String text) {
+        return new StatementTokens(StatementLexer.tokenize(text));
+    }
+
+    /**
+     * Find the value directly following a label, e.g. the DATE after "Statement Date:".
+     * Labels are tried in document order; an occurrence not followed by a token of the wanted type is skipped.
+     * @param type The wanted value type
+     * @param labels Acceptable labels, as listed in the lexer's keyword table
+     * @return The value text or null
+     */
+    public String valueAfter(Type type, String... labels) {
+        StatementToken token = tokenAfter(type, labels);
+        return token != null ? token.getText() : null;
+    }
+
+    /**
+     * Find the last four card digits following a label, from either a masked card number
+     * or a bare four digit number ("Card ending in 1234")
+     * @param labels Acceptable labels, as listed in the lexer's keyword table
+     * @return The four digits or null
+     */
+    public String cardDigitsAfter(String... labels) {
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            if (isLabel(tokens.get(i), labels)) {
+                StatementToken next = tokens.get(i + 1);
+                if (next.is(Type.MASKED_CARD)) {
+                    return next.getValue();
+                }
+                if (next.is(Type.AMOUNT) && next.getValue() == null && isFourDigits(next.getText())) {
+                    return next.getText();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param type The wanted value type
+     * @param labels Acceptable labels
+     * @return The token directly following the first matching label, or null
+     */
+    public StatementToken tokenAfter(Type type, String... labels) {
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            if (isLabel(tokens.get(i), labels) && tokens.get(i + 1).is(type)) {
+                return tokens.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param type The token type
+     * @return The first token of the type or null
+     */
+    public StatementToken first(Type type) {
+        for (StatementToken token : tokens) {
+            if (token.is(type)) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param type The token type
+     * @return All tokens of the type in document order
+     */
+    public List<StatementToken> ofType(Type type) {
+        return tokens.stream().filter(token -> token.is(type)).collect(Collectors.toList());
+    }
+
+    public List<StatementToken> getTokens() {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    @Override
+    public Iterator<StatementToken> iterator() {
+        return getTokens().iterator();
+    }
+
+    private static boolean isLabel(StatementToken token, String[] labels) {
+        if (!token.is(Type.KEYWORD)) {
+            return false;
+        }
+        for (String label : labels) {
+            if (label.equalsIgnoreCase(token.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFourDigits(String text) {
+        if (text.length() != 4) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.MissingOperandException;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * "Do" operator for text extraction.
+ * Image XObjects are skipped without being instantiated. Form XObjects are processed the first
+ * time they are drawn; if that produced no glyphs (logos, background artwork, rules) the form is
+ * remembered and skipped on every later page of the same document.
+ */
+class TextOnlyDrawObject extends OperatorProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextOnlyDrawObject.class);
+    private static final int MAX_FORM_NESTING = 50;
+
+    private final Set<COSStream> textFreeForms = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long glyphCount;
+
+    TextOnlyDrawObject(PDFStreamEngine context) {
+        super(context);
+    }
+
+    /**
+     * Called by the owning stripper for every glyph it receives
+     */
+    void glyphShown() {
+        glyphCount++;
+    }
+
+    /**
+     * Forget memoized forms; called when the stripper starts on a new document
+     */
+    void reset() {
+        textFreeForms.clear();
+        glyphCount = 0;
+    }
+
+    @Override
+    public void process(Operator operator, List<COSBase> operands) throws IOException {
+        if (operands.isEmpty()) {
+            throw new MissingOperandException(operator, operands);
+        }
+        if (!(operands.get(0) instanceof COSName name)) {
+            return;
+        }
+
+        PDFStreamEngine context = getContext();
+        PDResources resources = context.getResources();
+        if (resources == null || resources.isImageXObject(name)) {
+            return;
+        }
+
+        PDXObject xobject = resources.getXObject(name);
+        if (!(xobject instanceof PDFormXObject form)) {
+            return;
+        }
+
+        COSStream stream = form.getCOSObject();
+        if (textFreeForms.contains(stream)) {
+            return;
+        }
+
+        context.increaseLevel();
+        try {
+            if (context.getLevel() > MAX_FORM_NESTING) {
+                logger.warn("Form XObject nesting too deep, skipping {}", name.getName());
+                return;
+            }
+
+            long before = glyphCount;
+            if (form instanceof PDTransparencyGroup group) {
+                context.showTransparencyGroup(group);
+            } else {
+                context.showForm(form);
+            }
+
+            if (glyphCount == before) {
+                textFreeForms.add(stream);
+            }
+        } finally {
+            context.decreaseLevel();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return OperatorName.DRAW_OBJECT;
+    }
+}
@@ -1,8 +1,15 @@
 package com.example.demo.parser.issuer;
 
 
+import com.example.demo.parser.extractor.CardCatalog;
+import com.example.demo.parser.extractor.ExtractedText;
+import com.example.demo.parser.extractor.NormalizedText;
+import com.example.demo.parser.extractor.ParseProgress;
 import com.example.demo.parser.extractor.PDFTextExtractor;
 import com.example.demo.parser.extractor.PatternExtractor;
+import com.example.demo.parser.extractor.StatementToken.Type;
+import com.example.demo.parser.extractor.StatementTokens;
+import com.example.demo.parser.model.CardProduct;
 import com.example.demo.parser.model.StatementData;
 import com.example.demo.parser.CreditCardParser;
 import com.example.demo.parser.util.AmountParser;
@@ -36,33 +43,30 @@ public class AmexParser implements CreditCardParser {
         logger.info("Parsing American Express statement: {}", pdfFile.getName());
 
         String text = PDFTextExtractor.extractText(pdfFile);
+        StatementTokens tokens = StatementTokens.of(text);
 
         StatementData data = StatementData.builder()
                 .issuerName(ISSUER_NAME)
                 .build();
 
         // Extract 5 key data points
-        extractCardLastFourDigits(text, data);
+        extractCardLastFourDigits(text, tokens, data);
         extractCardVariant(text, data);
-        extractStatementDate(text, data);
-        extractPaymentDueDate(text, data);
-        extractTotalAmountDue(text, data);
+        extractStatementDate(text, tokens, data);
+        extractPaymentDueDate(text, tokens, data);
+        extractTotalAmountDue(text, tokens, data);
 
         // Additional information
-        extractCreditLimit(text, data);
+        extractCreditLimit(text, tokens, data);
+        ParseProgress.summary(data);
 
         logger.info("Successfully parsed American Express statement. Valid: {}", data.isValid());
         return data;
     }
 
     @Override
-    public boolean supports(String text) {
-        if (text == null) return false;
-
-        String upperText = text.toUpperCase();
-        return upperText.contains("AMERICAN EXPRESS") ||
-                upperText.contains("AMEX") ||
-                upperText.contains("AMERICANEXPRESS");
+    public boolean supports(NormalizedText text) {
+        return text.containsAny("AMERICAN EXPRESS", "AMEX", "AMERICANEXPRESS");
     }
 
     @Override
@@ -70,8 +74,11 @@ public class AmexParser implements CreditCardParser {
         return ISSUER_NAME;
     }
 
-    private void extractCardLastFourDigits(String text, StatementData data) {
-        String cardNumber = PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1);
+    private void extractCardLastFourDigits(String text, StatementTokens tokens, StatementData data) {
+        String cardNumber = tokens.cardDigitsAfter("Card ending in", "Account ending in");
+        if (cardNumber == null) {
+            cardNumber = PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1);
+        }
         if (cardNumber != null) {
             data.setCardLastFourDigits(cardNumber);
             logger.debug("Extracted card last 4 digits: {}", cardNumber);
@@ -79,15 +86,29 @@ public class AmexParser implements CreditCardParser {
     }
 
     private void extractCardVariant(String text, StatementData data) {
+        // The labelled value names the product; the header scan is for statements without a label
         String variant = PatternExtractor.extractFirst(text, CARD_VARIANT_PATTERN, 1);
+        CardCatalog catalog = CardCatalog.getInstance();
+        CardProduct product = variant != null
+                ? catalog.findLabelledProduct(variant, ISSUER_NAME)
+                : catalog.findProduct(ExtractedText.normalized(text), ISSUER_NAME);
+        if (product != null) {
+            data.setCardVariant(product.getName());
+            logger.debug("Extracted card variant from catalog: {}", product.getName());
+            return;
+        }
+
         if (variant != null) {
             data.setCardVariant(PatternExtractor.cleanText(variant));
             logger.debug("Extracted card variant: {}", variant);
         }
     }
 
-    private void extractStatementDate(String text, StatementData data) {
-        String dateStr = PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1);
+    private void extractStatementDate(String text, StatementTokens tokens, StatementData data) {
+        String dateStr = tokens.valueAfter(Type.DATE, "Statement Date", "Closing Date");
+        if (dateStr == null) {
+            dateStr = PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1);
+        }
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
             if (date != null) {
@@ -97,8 +118,11 @@ public class AmexParser implements CreditCardParser {
         }
     }
 
-    private void extractPaymentDueDate(String text, StatementData data) {
-        String dateStr = PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1);
+    private void extractPaymentDueDate(String text, StatementTokens tokens, StatementData data) {
+        String dateStr = tokens.valueAfter(Type.DATE, "Payment Due Date", "Due Date");
+        if (dateStr == null) {
+            dateStr = PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1);
+        }
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
             if (date != null) {
@@ -108,8 +132,11 @@ public class AmexParser implements CreditCardParser {
         }
     }
 
-    private void extractTotalAmountDue(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1);
+    private void extractTotalAmountDue(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Total Amount Due", "New Balance", "Amount Due");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1);
+        }
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
@@ -119,8 +146,11 @@ public class AmexParser implements CreditCardParser {
         }
     }
 
-    private void extractCreditLimit(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1);
+    private void extractCreditLimit(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Credit Limit");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1);
+        }
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
@@ -1,7 +1,16 @@
 package com.example.demo.parser.issuer;
 
+import com.example.demo.parser.extractor.CardCatalog;
+import com.example.demo.parser.extractor.ExtractedText;
+import com.example.demo.parser.extractor.NormalizedText;
 import com.example.demo.parser.extractor.PDFTextExtractor;
+import com.example.demo.parser.extractor.ParseProgress;
 import com.example.demo.parser.extractor.PatternExtractor;
+import com.example.demo.parser.extractor.RegexGuard;
+import com.example.demo.parser.extractor.RegexTimeoutException;
+import com.example.demo.parser.extractor.StatementToken.Type;
+import com.example.demo.parser.extractor.StatementTokens;
+import com.example.demo.parser.model.CardProduct;
 import com.example.demo.parser.model.StatementData;
 //import com.creditcard.parser.model.Transaction;
 import com.example.demo.parser.model.Transaction;
@@ -35,7 +44,7 @@ public class HDFCParser implements CreditCardParser {
     private static final String ISSUER_NAME = "HDFC Bank";
 
     // Patterns for HDFC statements
-    private static final String CARD_NUMBER_PATTERN = "(?:Card\\s+Number|Card\\s+No\\.?)\\s*:?\\s*(?:X{4}\\s*){3}(\\d{4})";
+    private static final String CARD_NUMBER_PATTERN = "(?:Card\\s+Number|Card\\s+No\\.?)\\s*:?\\s*X{4}\\s*X{4}\\s*X{4}\\s*(\\d{4})";
     private static final String CARD_VARIANT_PATTERN = "(?:Card\\s+Type|Product|Card\\s+Variant)\\s*:?\\s*([A-Za-z\\s+]+?)(?:\\n|$)";
     private static final String STATEMENT_DATE_PATTERN = "(?:Statement\\s+Date|Date\\s+of\\s+Statement)\\s*:?\\s*([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{4})";
     private static final String DUE_DATE_PATTERN = "(?:Payment\\s+Due\\s+Date|Due\\s+Date|Pay\\s+By)\\s*:?\\s*([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{4})";
@@ -44,7 +53,8 @@ public class HDFCParser implements CreditCardParser {
     private static final String AVAILABLE_CREDIT_PATTERN = "(?:Available\\s+Credit\\s+Limit|Available\\s+Limit)\\s*:?\\s*(?:Rs\\.?|₹)?\\s*([\\d,]+\\.?\\d*)";
 
     // Transaction pattern: Date Description Amount
-    private static final String TRANSACTION_PATTERN = "([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{2,4})\\s+(.{10,60}?)\\s+(?:Rs\\.?|₹)?\\s*([\\d,]+\\.\\d{2})";
+    private static final String TRANSACTION_PATTERN = "([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{2,4})[ \\t]+([^\\n]{10,60}?)[ \\t]+(?:(?:Rs\\.?|₹)[ \\t]*)?([\\d,]+\\.\\d{2})";
+    private static final Pattern TRANSACTION_REGEX = Pattern.compile(TRANSACTION_PATTERN, Pattern.MULTILINE);
 
     public HDFCParser() {
         // This public constructor allows instantiation from ParserFactory
@@ -56,6 +66,7 @@ public class HDFCParser implements CreditCardParser {
 
         // Extract text from PDF
         String text = PDFTextExtractor.extractText(pdfFile);
+        StatementTokens tokens = StatementTokens.of(text);
 
         // Create statement data object
         StatementData data = StatementData.builder()
@@ -63,15 +74,16 @@ public class HDFCParser implements CreditCardParser {
                 .build();
 
         // Extract 5 key data points
-        extractCardLastFourDigits(text, data);
+        extractCardLastFourDigits(text, tokens, data);
         extractCardVariant(text, data);
-        extractStatementDate(text, data);
-        extractPaymentDueDate(text, data);
-        extractTotalAmountDue(text, data);
+        extractStatementDate(text, tokens, data);
+        extractPaymentDueDate(text, tokens, data);
+        extractTotalAmountDue(text, tokens, data);
 
         // Extract additional information
-        extractCreditLimit(text, data);
-        extractAvailableCredit(text, data);
+        extractCreditLimit(text, tokens, data);
+        extractAvailableCredit(text, tokens, data);
+        ParseProgress.summary(data);
         extractTransactions(text, data);
 
         logger.info("Successfully parsed HDFC statement. Valid: {}", data.isValid());
@@ -79,14 +91,15 @@ public class HDFCParser implements CreditCardParser {
     }
 
     @Override
-    public boolean supports(String text) {
-        if (text == null) return false;
-
+    public boolean supports(NormalizedText text) {
         // Check for HDFC specific markers
-        String upperText = text.toUpperCase();
-        return upperText.contains("HDFC BANK") ||
-                upperText.contains("HDFCBANK") ||
-                (upperText.contains("HDFC") && upperText.contains("CREDIT CARD"));
+        return text.containsAny("HDFC BANK", "HDFCBANK") ||
+                (text.contains("HDFC") && text.contains("CREDIT CARD"));
+    }
+
+    @Override
+    public boolean readsTransactions() {
+        return true;
     }
 
     @Override
@@ -97,8 +110,11 @@ public class HDFCParser implements CreditCardParser {
     /**
      * Extract card last 4 digits
      */
-    private void extractCardLastFourDigits(String text, StatementData data) {
-        String cardNumber = PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1);
+    private void extractCardLastFourDigits(String text, StatementTokens tokens, StatementData data) {
+        String cardNumber = tokens.cardDigitsAfter("Card Number", "Card No");
+        if (cardNumber == null) {
+            cardNumber = PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1);
+        }
         if (cardNumber != null) {
             data.setCardLastFourDigits(cardNumber);
             logger.debug("Extracted card last 4 digits: {}", cardNumber);
@@ -111,7 +127,18 @@ public class HDFCParser implements CreditCardParser {
      * Extract card variant/type
      */
     private void extractCardVariant(String text, StatementData data) {
+        // The labelled value names the product; the header scan is for statements without a label
         String variant = PatternExtractor.extractFirst(text, CARD_VARIANT_PATTERN, 1);
+        CardCatalog catalog = CardCatalog.getInstance();
+        CardProduct product = variant != null
+                ? catalog.findLabelledProduct(variant, ISSUER_NAME)
+                : catalog.findProduct(ExtractedText.normalized(text), ISSUER_NAME);
+        if (product != null) {
+            data.setCardVariant(product.getName());
+            logger.debug("Extracted card variant from catalog: {}", product.getName());
+            return;
+        }
+
         if (variant != null) {
             data.setCardVariant(PatternExtractor.cleanText(variant));
             logger.debug("Extracted card variant: {}", variant);
@@ -121,8 +148,11 @@ public class HDFCParser implements CreditCardParser {
     /**
      * Extract statement date
      */
-    private void extractStatementDate(String text, StatementData data) {
-        String dateStr = PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1);
+    private void extractStatementDate(String text, StatementTokens tokens, StatementData data) {
+        String dateStr = tokens.valueAfter(Type.DATE, "Statement Date", "Date of Statement");
+        if (dateStr == null) {
+            dateStr = PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1);
+        }
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
             if (date != null) {
@@ -135,8 +165,11 @@ public class HDFCParser implements CreditCardParser {
     /**
      * Extract payment due date
      */
-    private void extractPaymentDueDate(String text, StatementData data) {
-        String dateStr = PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1);
+    private void extractPaymentDueDate(String text, StatementTokens tokens, StatementData data) {
+        String dateStr = tokens.valueAfter(Type.DATE, "Payment Due Date", "Due Date", "Pay By");
+        if (dateStr == null) {
+            dateStr = PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1);
+        }
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
             if (date != null) {
@@ -149,8 +182,11 @@ public class HDFCParser implements CreditCardParser {
     /**
      * Extract total amount due
      */
-    private void extractTotalAmountDue(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1);
+    private void extractTotalAmountDue(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Total Amount Due", "Amount Due", "Outstanding Balance");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1);
+        }
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
@@ -163,8 +199,11 @@ public class HDFCParser implements CreditCardParser {
     /**
      * Extract credit limit
      */
-    private void extractCreditLimit(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1);
+    private void extractCreditLimit(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Credit Limit");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1);
+        }
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
@@ -177,8 +216,11 @@ public class HDFCParser implements CreditCardParser {
     /**
      * Extract available credit
      */
-    private void extractAvailableCredit(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, AVAILABLE_CREDIT_PATTERN, 1);
+    private void extractAvailableCredit(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Available Credit Limit", "Available Limit");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, AVAILABLE_CREDIT_PATTERN, 1);
+        }
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
@@ -192,35 +234,39 @@ public class HDFCParser implements CreditCardParser {
      * Extract transactions
      */
     private void extractTransactions(String text, StatementData data) {
-        Pattern pattern = Pattern.compile(TRANSACTION_PATTERN, Pattern.MULTILINE);
-        Matcher matcher = pattern.matcher(text);
+        Matcher matcher = RegexGuard.matcher(TRANSACTION_REGEX, text);
 
         int count = 0;
-        while (matcher.find() && count < 50) { // Limit to 50 transactions
-            try {
-                String dateStr = matcher.group(1);
-                String description = matcher.group(2).trim();
-                String amountStr = matcher.group(3);
-
-                LocalDate txnDate = DateParser.parseDate(dateStr);
-                BigDecimal amount = AmountParser.parseAmount(amountStr);
-
-                if (txnDate != null && amount != null) {
-                    Transaction transaction = Transaction.builder()
-                            .transactionDate(txnDate)
-                            .description(description)
-                            .amount(amount)
-                            .type("DEBIT")
-                            .build();
-
-                    data.addTransaction(transaction);
-                    count++;
+        try {
+            while (matcher.find() && count < 50) { // Limit to 50 transactions
+                try {
+                    String dateStr = matcher.group(1);
+                    String description = matcher.group(2).trim();
+                    String amountStr = matcher.group(3);
+
+                    LocalDate txnDate = DateParser.parseDate(dateStr);
+                    BigDecimal amount = AmountParser.parseAmount(amountStr);
+
+                    if (txnDate != null && amount != null) {
+                        Transaction transaction = Transaction.builder()
+                                .transactionDate(txnDate)
+                                .description(description)
+                                .amount(amount)
+                                .type("DEBIT")
+                                .build();
+
+                        data.addTransaction(transaction);
+                        ParseProgress.transaction(transaction);
+                        count++;
+                    }
+                } catch (Exception e) {
+                    logger.debug("Error parsing transaction: {}", e.getMessage());
                 }
-            } catch (Exception e) {
-                logger.debug("Error parsing transaction: {}", e.getMessage());
             }
+        } catch (RegexTimeoutException e) {
+            logger.warn("Transaction scan abandoned after {} ms", RegexGuard.getTimeoutMillis());
         }
 
         logger.info("Extracted {} transactions", count);
     }
-}
\ No newline at end of file
+}
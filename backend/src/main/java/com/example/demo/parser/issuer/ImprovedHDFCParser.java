@@ -2,8 +2,21 @@ package com.example.demo.parser.issuer;
 
 
 
+import com.example.demo.parser.extractor.AdaptiveStrategies;
+import com.example.demo.parser.extractor.AdaptiveStrategies.Strategy;
 import com.example.demo.parser.extractor.AdvancedPDFExtractor;
+import com.example.demo.parser.extractor.CardCatalog;
+import com.example.demo.parser.extractor.ExtractedText;
+import com.example.demo.parser.extractor.Lazy;
 import com.example.demo.parser.extractor.PDFTextExtractor;
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseProgress;
+import com.example.demo.parser.extractor.PatternExtractor;
+import com.example.demo.parser.extractor.StatementToken;
+import com.example.demo.parser.extractor.StatementToken.Type;
+import com.example.demo.parser.extractor.StatementTokens;
+import com.example.demo.parser.extractor.NormalizedText;
+import com.example.demo.parser.model.CardProduct;
 import com.example.demo.parser.model.StatementData;
 import com.example.demo.parser.model.Transaction;
 import com.example.demo.parser.CreditCardParser;
@@ -18,8 +31,6 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Improved HDFC Parser that handles real PDF formats
@@ -34,39 +45,49 @@ public class ImprovedHDFCParser implements CreditCardParser {
     public StatementData parse(File pdfFile) throws IOException {
         logger.info("Parsing HDFC Bank statement with advanced extractor: {}", pdfFile.getName());
 
-        // Extract text with multiple strategies
+        // Raw text and tables are always needed; layout text and regions are built only
+        // if a strategy that reads them gets to run
         String rawText = PDFTextExtractor.extractText(pdfFile);
-        String layoutText = AdvancedPDFExtractor.extractTextWithLayout(pdfFile);
-        Map<String, String> regions = AdvancedPDFExtractor.extractByRegions(pdfFile);
+        ParseDeadline.check();
+        Lazy<String> layoutText = Lazy.of(() -> AdvancedPDFExtractor.extractTextWithLayout(pdfFile));
+        Lazy<Map<String, String>> regions = Lazy.of(() -> AdvancedPDFExtractor.extractByRegions(pdfFile));
+        NormalizedText normalized = ExtractedText.normalized(rawText);
+        StatementTokens tokens = StatementTokens.of(rawText);
         List<List<String>> tables = AdvancedPDFExtractor.extractTables(pdfFile);
+        ParseDeadline.check();
 
         StatementData data = StatementData.builder()
                 .issuerName(ISSUER_NAME)
                 .build();
 
         // Extract using multiple fallback strategies
-        extractCardLastFourDigits(rawText, layoutText, data);
-        extractCardVariant(rawText, layoutText, data);
-        extractStatementDate(rawText, layoutText, data);
-        extractPaymentDueDate(rawText, layoutText, data);
-        extractTotalAmountDue(rawText, layoutText, regions, data);
+        extractCardLastFourDigits(rawText, layoutText, tokens, data);
+        extractCardVariant(rawText, layoutText, normalized, data);
+        extractStatementDate(rawText, layoutText, tokens, data);
+        extractPaymentDueDate(rawText, layoutText, tokens, data);
+        extractTotalAmountDue(rawText, regions, tokens, data);
 
         // Additional fields
-        extractCreditLimit(rawText, layoutText, data);
-        extractAvailableCredit(rawText, layoutText, data);
+        extractCreditLimit(rawText, layoutText, tokens, data);
+        extractAvailableCredit(rawText, layoutText, tokens, data);
+        ParseProgress.summary(data);
+        ParseDeadline.check();
         extractTransactions(tables, rawText, data);
 
-        logger.info("HDFC Parsing complete. Valid: {}", data.isValid());
+        logger.info("HDFC Parsing complete. Valid: {}{}", data.isValid(),
+                layoutText.isBuilt() ? "" : " (layout text not needed)");
         return data;
     }
 
     @Override
-    public boolean supports(String text) {
-        if (text == null) return false;
-        String upper = text.toUpperCase();
-        return upper.contains("HDFC BANK") ||
-                upper.contains("HDFCBANK") ||
-                (upper.contains("HDFC") && (upper.contains("CREDIT CARD") || upper.contains("STATEMENT")));
+    public boolean supports(NormalizedText text) {
+        return text.containsAny("HDFC BANK", "HDFCBANK") ||
+                (text.contains("HDFC") && text.containsAny("CREDIT CARD", "STATEMENT"));
+    }
+
+    @Override
+    public boolean readsTransactions() {
+        return true;
     }
 
     @Override
@@ -75,91 +96,99 @@ public class ImprovedHDFCParser implements CreditCardParser {
     }
 
     /**
-     * Extract card number with multiple pattern attempts
+     * Extract card number from the token stream, then with multiple pattern attempts
      */
-    private void extractCardLastFourDigits(String rawText, String layoutText, StatementData data) {
+    private void extractCardLastFourDigits(String rawText, Lazy<String> layoutText, StatementTokens tokens,
+                                           StatementData data) throws IOException {
         String[] patterns = {
-                "(?i)Card\\s+Number\\s*:?\\s*(?:X+\\s*){3}(\\d{4})",
+                "(?i)Card\\s+Number\\s*:?[X\\s]*X\\s*(\\d{4})",
                 "(?i)Card\\s+No\\.?\\s*:?\\s*(?:[X*]\\s*){12}(\\d{4})",
                 "(?i)(?:ending|ends)\\s+(?:in|with)\\s*:?\\s*(\\d{4})",
                 "(?i)\\*{12}(\\d{4})",
                 "XXXX\\s+XXXX\\s+XXXX\\s+(\\d{4})"
         };
 
-        for (String pattern : patterns) {
-            String result = extractWithPattern(rawText, pattern);
-            if (result == null) {
-                result = extractWithPattern(layoutText, pattern);
-            }
+        Strategy[] strategies = new Strategy[2 + patterns.length * 2];
+        strategies[0] = Strategy.of("tokens",
+                () -> tokens.cardDigitsAfter("Card Number", "Card No", "Card ending in", "Card ending with"));
+        strategies[1] = Strategy.of("maskedCard", () -> {
+            StatementToken card = tokens.first(Type.MASKED_CARD);
+            return card != null ? card.getValue() : null;
+        });
+        // The patterns all read the one masked card number, so the most successful may go first
+        for (int i = 0; i < patterns.length; i++) {
+            String pattern = patterns[i];
+            strategies[2 + i] = Strategy.equivalent("raw:" + i, () -> fourDigits(extractWithPattern(rawText, pattern)));
+            strategies[2 + patterns.length + i] = Strategy.expensive("layout:" + i,
+                    () -> fourDigits(extractWithPattern(layoutText.get(), pattern)));
+        }
 
-            if (result != null && result.matches("\\d{4}")) {
-                data.setCardLastFourDigits(result);
-                logger.debug("Extracted card number: ****{}", result);
-                return;
-            }
+        String digits = AdaptiveStrategies.forField(ISSUER_NAME, "cardLastFourDigits").run(strategies);
+        if (digits != null) {
+            data.setCardLastFourDigits(digits);
+            logger.debug("Extracted card number: ****{}", digits);
+            return;
         }
 
         logger.warn("Could not extract card number");
     }
 
     /**
-     * Extract card variant with fuzzy matching
+     * Extract card variant: the labelled value first, matched against the catalog; the header
+     * scan only when the text has no label, then the label in the layout text
      */
-    private void extractCardVariant(String rawText, String layoutText, StatementData data) {
-        // Try with keyword search
-        String result = AdvancedPDFExtractor.findValueAfterKeyword(rawText,
+    private void extractCardVariant(String rawText, Lazy<String> layoutText, NormalizedText normalized,
+                                    StatementData data) throws IOException {
+        CardCatalog catalog = CardCatalog.getInstance();
+        String labelled = AdvancedPDFExtractor.findValueAfterKeyword(
+                AdaptiveStrategies.forField(ISSUER_NAME, "cardVariant/raw"), rawText,
                 "Card Type", "Product", "Card Variant", "Card Name", "Card Product");
-
-        if (result == null) {
-            result = AdvancedPDFExtractor.findValueAfterKeyword(layoutText,
+        if (labelled == null) {
+            CardProduct product = catalog.findProduct(normalized, ISSUER_NAME);
+            if (product != null) {
+                data.setCardVariant(product.getName());
+                logger.debug("Extracted card variant from catalog: {}", product.getName());
+                return;
+            }
+            labelled = AdvancedPDFExtractor.findValueAfterKeyword(
+                    AdaptiveStrategies.forField(ISSUER_NAME, "cardVariant/layout"), layoutText.get(),
                     "Card Type", "Product", "Card Variant");
         }
-
-        // Known HDFC card variants
-        String[] knownVariants = {
-                "MoneyBack", "MoneyBack+", "Regalia", "Regalia First", "Regalia Gold",
-                "Diners Club", "Diners Black", "Infinia", "Millennia", "Freedom",
-                "Platinum", "Titanium", "Visa Signature", "World MasterCard"
-        };
-
-        // Try to match known variants in the text
-        if (result == null) {
-            for (String variant : knownVariants) {
-                if (rawText.toUpperCase().contains(variant.toUpperCase())) {
-                    result = variant;
-                    break;
-                }
-            }
+        if (labelled == null) {
+            return;
         }
 
-        if (result != null) {
-            // Clean up the result
-            result = result.replaceAll("(?i)(card|credit|hdfc)", "").trim();
-            data.setCardVariant(result);
-            logger.debug("Extracted card variant: {}", result);
+        CardProduct product = catalog.findLabelledProduct(labelled, ISSUER_NAME);
+        if (product != null) {
+            data.setCardVariant(product.getName());
+            logger.debug("Extracted card variant from catalog: {}", product.getName());
+            return;
         }
+        // Clean up the result
+        String result = labelled.replaceAll("(?i)(card|credit|hdfc)", "").trim();
+        data.setCardVariant(result);
+        logger.debug("Extracted card variant: {}", result);
     }
 
     /**
      * Extract statement date with multiple formats
      */
-    private void extractStatementDate(String rawText, String layoutText, StatementData data) {
-        // Try direct keyword extraction
-        String dateStr = AdvancedPDFExtractor.findValueAfterKeyword(rawText,
-                "Statement Date", "Date of Statement", "Statement Period", "Bill Date");
-
-        if (dateStr == null) {
-            dateStr = AdvancedPDFExtractor.findValueAfterKeyword(layoutText,
-                    "Statement Date", "Date of Statement");
-        }
-
-        // Extract all dates and pick the most likely one
-        if (dateStr == null) {
-            List<String> allDates = AdvancedPDFExtractor.extractAllDates(rawText);
-            if (!allDates.isEmpty()) {
-                dateStr = allDates.get(0); // Usually first date is statement date
-            }
-        }
+    private void extractStatementDate(String rawText, Lazy<String> layoutText, StatementTokens tokens,
+                                      StatementData data) throws IOException {
+        String dateStr = AdaptiveStrategies.forField(ISSUER_NAME, "statementDate").run(
+                Strategy.of("tokens",
+                        () -> tokens.valueAfter(Type.DATE, "Statement Date", "Date of Statement", "Bill Date")),
+                Strategy.of("raw", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "statementDate/raw"), rawText,
+                        "Statement Date", "Date of Statement", "Statement Period", "Bill Date")),
+                Strategy.expensive("layout", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "statementDate/layout"), layoutText.get(),
+                        "Statement Date", "Date of Statement")),
+                // Usually the first date is the statement date
+                Strategy.fallback("firstDate", () -> {
+                    List<String> allDates = AdvancedPDFExtractor.extractAllDates(rawText);
+                    return allDates.isEmpty() ? null : allDates.get(0);
+                }));
 
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
@@ -173,15 +202,18 @@ public class ImprovedHDFCParser implements CreditCardParser {
     /**
      * Extract payment due date
      */
-    private void extractPaymentDueDate(String rawText, String layoutText, StatementData data) {
-        String dateStr = AdvancedPDFExtractor.findValueAfterKeyword(rawText,
-                "Payment Due Date", "Due Date", "Pay By", "Payment Due By",
-                "Last Date of Payment", "Payment Deadline");
-
-        if (dateStr == null) {
-            dateStr = AdvancedPDFExtractor.findValueAfterKeyword(layoutText,
-                    "Payment Due Date", "Due Date", "Pay By");
-        }
+    private void extractPaymentDueDate(String rawText, Lazy<String> layoutText, StatementTokens tokens,
+                                       StatementData data) throws IOException {
+        String dateStr = AdaptiveStrategies.forField(ISSUER_NAME, "paymentDueDate").run(
+                Strategy.of("tokens",
+                        () -> tokens.valueAfter(Type.DATE, "Payment Due Date", "Due Date", "Pay By", "Payment Due By")),
+                Strategy.of("raw", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "paymentDueDate/raw"), rawText,
+                        "Payment Due Date", "Due Date", "Pay By", "Payment Due By",
+                        "Last Date of Payment", "Payment Deadline")),
+                Strategy.expensive("layout", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "paymentDueDate/layout"), layoutText.get(),
+                        "Payment Due Date", "Due Date", "Pay By")));
 
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
@@ -195,32 +227,23 @@ public class ImprovedHDFCParser implements CreditCardParser {
     /**
      * Extract total amount due with multiple strategies
      */
-    private void extractTotalAmountDue(String rawText, String layoutText,
-                                       Map<String, String> regions, StatementData data) {
-        String amountStr = AdvancedPDFExtractor.findValueAfterKeyword(rawText,
-                "Total Amount Due", "Amount Due", "Outstanding Balance",
-                "Total Outstanding", "Payment Amount", "Amount Payable");
-
-        if (amountStr == null && regions.containsKey("account")) {
-            amountStr = AdvancedPDFExtractor.findValueAfterKeyword(regions.get("account"),
-                    "Total Amount Due", "Amount Due");
-        }
-
-        // Fallback: extract all amounts and pick the largest (likely the total due)
-        if (amountStr == null) {
-            List<String> allAmounts = AdvancedPDFExtractor.extractAllAmounts(rawText);
-            if (!allAmounts.isEmpty()) {
-                // Find the largest amount
-                BigDecimal maxAmount = BigDecimal.ZERO;
-                for (String amt : allAmounts) {
-                    BigDecimal parsed = AmountParser.parseAmount(amt);
-                    if (parsed != null && parsed.compareTo(maxAmount) > 0) {
-                        maxAmount = parsed;
-                        amountStr = amt;
-                    }
-                }
-            }
-        }
+    private void extractTotalAmountDue(String rawText, Lazy<Map<String, String>> regions, StatementTokens tokens,
+                                       StatementData data) throws IOException {
+        String amountStr = AdaptiveStrategies.forField(ISSUER_NAME, "totalAmountDue").run(
+                Strategy.of("tokens", () -> tokens.valueAfter(Type.AMOUNT,
+                        "Total Amount Due", "Amount Due", "Outstanding Balance", "Total Outstanding", "Amount Payable")),
+                Strategy.of("raw", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "totalAmountDue/raw"), rawText,
+                        "Total Amount Due", "Amount Due", "Outstanding Balance",
+                        "Total Outstanding", "Payment Amount", "Amount Payable")),
+                Strategy.expensive("region", () -> {
+                    String account = regions.get().get("account");
+                    return account == null ? null : AdvancedPDFExtractor.findValueAfterKeyword(
+                            AdaptiveStrategies.forField(ISSUER_NAME, "totalAmountDue/region"), account,
+                            "Total Amount Due", "Amount Due");
+                }),
+                // Extract all amounts and pick the largest (likely the total due)
+                Strategy.fallback("largestAmount", () -> largestAmount(rawText)));
 
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
@@ -234,14 +257,16 @@ public class ImprovedHDFCParser implements CreditCardParser {
     /**
      * Extract credit limit
      */
-    private void extractCreditLimit(String rawText, String layoutText, StatementData data) {
-        String amountStr = AdvancedPDFExtractor.findValueAfterKeyword(rawText,
-                "Credit Limit", "Total Limit", "Card Limit");
-
-        if (amountStr == null) {
-            amountStr = AdvancedPDFExtractor.findValueAfterKeyword(layoutText,
-                    "Credit Limit", "Total Limit");
-        }
+    private void extractCreditLimit(String rawText, Lazy<String> layoutText, StatementTokens tokens,
+                                    StatementData data) throws IOException {
+        String amountStr = AdaptiveStrategies.forField(ISSUER_NAME, "creditLimit").run(
+                Strategy.of("tokens", () -> tokens.valueAfter(Type.AMOUNT, "Credit Limit", "Total Limit", "Card Limit")),
+                Strategy.of("raw", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "creditLimit/raw"), rawText,
+                        "Credit Limit", "Total Limit", "Card Limit")),
+                Strategy.expensive("layout", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "creditLimit/layout"), layoutText.get(),
+                        "Credit Limit", "Total Limit")));
 
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
@@ -255,14 +280,17 @@ public class ImprovedHDFCParser implements CreditCardParser {
     /**
      * Extract available credit
      */
-    private void extractAvailableCredit(String rawText, String layoutText, StatementData data) {
-        String amountStr = AdvancedPDFExtractor.findValueAfterKeyword(rawText,
-                "Available Credit", "Available Limit", "Credit Available");
-
-        if (amountStr == null) {
-            amountStr = AdvancedPDFExtractor.findValueAfterKeyword(layoutText,
-                    "Available Credit", "Available Limit");
-        }
+    private void extractAvailableCredit(String rawText, Lazy<String> layoutText, StatementTokens tokens,
+                                        StatementData data) throws IOException {
+        String amountStr = AdaptiveStrategies.forField(ISSUER_NAME, "availableCredit").run(
+                Strategy.of("tokens", () -> tokens.valueAfter(Type.AMOUNT,
+                        "Available Credit Limit", "Available Credit", "Available Limit", "Credit Available")),
+                Strategy.of("raw", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "availableCredit/raw"), rawText,
+                        "Available Credit", "Available Limit", "Credit Available")),
+                Strategy.expensive("layout", () -> AdvancedPDFExtractor.findValueAfterKeyword(
+                        AdaptiveStrategies.forField(ISSUER_NAME, "availableCredit/layout"), layoutText.get(),
+                        "Available Credit", "Available Limit")));
 
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
@@ -305,6 +333,7 @@ public class ImprovedHDFCParser implements CreditCardParser {
                             .build();
 
                     data.addTransaction(transaction);
+                    ParseProgress.transaction(transaction);
                     transactionCount++;
                 }
             }
@@ -314,18 +343,29 @@ public class ImprovedHDFCParser implements CreditCardParser {
     }
 
     /**
-     * Helper method to extract with pattern
+     * @return The largest amount in the text, as written, or null if there is none
      */
-    private String extractWithPattern(String text, String pattern) {
-        try {
-            Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-            Matcher m = p.matcher(text);
-            if (m.find()) {
-                return m.group(1).trim();
+    private String largestAmount(String rawText) {
+        String largest = null;
+        BigDecimal maxAmount = BigDecimal.ZERO;
+        for (String amt : AdvancedPDFExtractor.extractAllAmounts(rawText)) {
+            BigDecimal parsed = AmountParser.parseAmount(amt);
+            if (parsed != null && parsed.compareTo(maxAmount) > 0) {
+                maxAmount = parsed;
+                largest = amt;
             }
-        } catch (Exception e) {
-            // Ignore
         }
-        return null;
+        return largest;
+    }
+
+    private static String fourDigits(String result) {
+        return result != null && result.matches("\\d{4}") ? result : null;
+    }
+
+    /**
+     * Helper method to extract with pattern
+     */
+    private String extractWithPattern(String text, String pattern) {
+        return PatternExtractor.extractFirst(text, pattern, 1);
     }
 }
\ No newline at end of file
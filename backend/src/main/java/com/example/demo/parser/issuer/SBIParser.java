@@ -2,8 +2,15 @@ package com.example.demo.parser.issuer;
 
 
 
+import com.example.demo.parser.extractor.CardCatalog;
+import com.example.demo.parser.extractor.ExtractedText;
+import com.example.demo.parser.extractor.NormalizedText;
+import com.example.demo.parser.extractor.ParseProgress;
 import com.example.demo.parser.extractor.PDFTextExtractor;
 import com.example.demo.parser.extractor.PatternExtractor;
+import com.example.demo.parser.extractor.StatementToken.Type;
+import com.example.demo.parser.extractor.StatementTokens;
+import com.example.demo.parser.model.CardProduct;
 import com.example.demo.parser.model.StatementData;
 import com.example.demo.parser.CreditCardParser;
 import com.example.demo.parser.util.AmountParser;
@@ -25,7 +32,7 @@ public class SBIParser implements CreditCardParser {
     private static final String ISSUER_NAME = "SBI Card";
 
     // Patterns for SBI Card statements
-    private static final String CARD_NUMBER_PATTERN = "(?:Card\\s+Number|Card\\s+No)\\s*:?\\s*(?:X+\\s*)*?(\\d{4})";
+    private static final String CARD_NUMBER_PATTERN = "(?:Card\\s+Number|Card\\s+No)\\s*:?[X\\s]*(\\d{4})";
     private static final String CARD_VARIANT_PATTERN = "(?:Card\\s+Type|Product\\s+Name)\\s*:?\\s*([A-Za-z\\s]+?)(?:\\n|$)";
     private static final String STATEMENT_DATE_PATTERN = "(?:Statement\\s+Date|Date\\s+of\\s+Statement)\\s*:?\\s*([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{4})";
     private static final String DUE_DATE_PATTERN = "(?:Payment\\s+Due\\s+Date|Due\\s+Date)\\s*:?\\s*([\\d]{2}[-/][A-Za-z]{3}[-/][\\d]{4})";
@@ -37,33 +44,31 @@ public class SBIParser implements CreditCardParser {
         logger.info("Parsing SBI Card statement: {}", pdfFile.getName());
 
         String text = PDFTextExtractor.extractText(pdfFile);
+        StatementTokens tokens = StatementTokens.of(text);
 
         StatementData data = StatementData.builder()
                 .issuerName(ISSUER_NAME)
                 .build();
 
         // Extract 5 key data points
-        extractCardLastFourDigits(text, data);
+        extractCardLastFourDigits(text, tokens, data);
         extractCardVariant(text, data);
-        extractStatementDate(text, data);
-        extractPaymentDueDate(text, data);
-        extractTotalAmountDue(text, data);
+        extractStatementDate(text, tokens, data);
+        extractPaymentDueDate(text, tokens, data);
+        extractTotalAmountDue(text, tokens, data);
 
         // Additional information
-        extractCreditLimit(text, data);
+        extractCreditLimit(text, tokens, data);
+        ParseProgress.summary(data);
 
         logger.info("Successfully parsed SBI Card statement. Valid: {}", data.isValid());
         return data;
     }
 
     @Override
-    public boolean supports(String text) {
-        if (text == null) return false;
-
-        String upperText = text.toUpperCase();
-        return upperText.contains("SBI CARD") ||
-                upperText.contains("SBICARD") ||
-                (upperText.contains("SBI") && upperText.contains("CREDIT CARD"));
+    public boolean supports(NormalizedText text) {
+        return text.containsAny("SBI CARD", "SBICARD") ||
+                (text.contains("SBI") && text.contains("CREDIT CARD"));
     }
 
     @Override
@@ -71,8 +76,11 @@ public class SBIParser implements CreditCardParser {
         return ISSUER_NAME;
     }
 
-    private void extractCardLastFourDigits(String text, StatementData data) {
-        String cardNumber = PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1);
+    private void extractCardLastFourDigits(String text, StatementTokens tokens, StatementData data) {
+        String cardNumber = tokens.cardDigitsAfter("Card Number", "Card No");
+        if (cardNumber == null) {
+            cardNumber = PatternExtractor.extractFirst(text, CARD_NUMBER_PATTERN, 1);
+        }
         if (cardNumber != null) {
             data.setCardLastFourDigits(cardNumber);
             logger.debug("Extracted card last 4 digits: {}", cardNumber);
@@ -80,15 +88,29 @@ public class SBIParser implements CreditCardParser {
     }
 
     private void extractCardVariant(String text, StatementData data) {
+        // The labelled value names the product; the header scan is for statements without a label
         String variant = PatternExtractor.extractFirst(text, CARD_VARIANT_PATTERN, 1);
+        CardCatalog catalog = CardCatalog.getInstance();
+        CardProduct product = variant != null
+                ? catalog.findLabelledProduct(variant, ISSUER_NAME)
+                : catalog.findProduct(ExtractedText.normalized(text), ISSUER_NAME);
+        if (product != null) {
+            data.setCardVariant(product.getName());
+            logger.debug("Extracted card variant from catalog: {}", product.getName());
+            return;
+        }
+
         if (variant != null) {
             data.setCardVariant(PatternExtractor.cleanText(variant));
             logger.debug("Extracted card variant: {}", variant);
         }
     }
 
-    private void extractStatementDate(String text, StatementData data) {
-        String dateStr = PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1);
+    private void extractStatementDate(String text, StatementTokens tokens, StatementData data) {
+        String dateStr = tokens.valueAfter(Type.DATE, "Statement Date", "Date of Statement");
+        if (dateStr == null) {
+            dateStr = PatternExtractor.extractFirst(text, STATEMENT_DATE_PATTERN, 1);
+        }
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
             if (date != null) {
@@ -98,8 +120,11 @@ public class SBIParser implements CreditCardParser {
         }
     }
 
-    private void extractPaymentDueDate(String text, StatementData data) {
-        String dateStr = PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1);
+    private void extractPaymentDueDate(String text, StatementTokens tokens, StatementData data) {
+        String dateStr = tokens.valueAfter(Type.DATE, "Payment Due Date", "Due Date");
+        if (dateStr == null) {
+            dateStr = PatternExtractor.extractFirst(text, DUE_DATE_PATTERN, 1);
+        }
         if (dateStr != null) {
             LocalDate date = DateParser.parseDate(dateStr);
             if (date != null) {
@@ -109,8 +134,11 @@ public class SBIParser implements CreditCardParser {
         }
     }
 
-    private void extractTotalAmountDue(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1);
+    private void extractTotalAmountDue(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Total Amount Due", "Amount Due");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, TOTAL_DUE_PATTERN, 1);
+        }
         if (amountStr != null) {
            BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
@@ -120,8 +148,11 @@ public class SBIParser implements CreditCardParser {
         }
     }
 
-    private void extractCreditLimit(String text, StatementData data) {
-        String amountStr = PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1);
+    private void extractCreditLimit(String text, StatementTokens tokens, StatementData data) {
+        String amountStr = tokens.valueAfter(Type.AMOUNT, "Credit Limit");
+        if (amountStr == null) {
+            amountStr = PatternExtractor.extractFirst(text, CREDIT_LIMIT_PATTERN, 1);
+        }
         if (amountStr != null) {
             BigDecimal amount = AmountParser.parseAmount(amountStr);
             if (amount != null) {
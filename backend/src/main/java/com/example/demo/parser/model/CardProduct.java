@@ -0,0 +1,34 @@
+package com.example.demo.parser.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A card product offered by an issuer, as listed in the card catalog
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CardProduct {
+
+    private String issuer;
+    private String name;
+    private String network;
+
+    @Builder.Default
+    private List<String> aliases = new ArrayList<>();
+
+    /**
+     * The name alone is an everyday word ("Reserve", "Select"), so it only identifies the product
+     * next to a card or product label; aliases are matched anywhere
+     */
+    private boolean generic;
+}
@@ -0,0 +1,38 @@
+package com.example.demo.parser.model;
+
+import java.time.Instant;
+import java.util.HashMap;
+
+/**
+ * Body of an error response: the message, a machine-readable code for the errors clients act on,
+ * and when it happened. It is written as a plain map, so its JSON is the object clients already
+ * read; its own type lets the protobuf writer find it and write the Error message.
+ */
+public class ErrorResponse extends HashMap<String, String> {
+
+    public static final String ERROR = "error";
+
+    public static final String CODE = "code";
+
+    public static final String TIMESTAMP = "timestamp";
+
+    public ErrorResponse() {
+    }
+
+    /**
+     * @param message What went wrong
+     */
+    public ErrorResponse(String message) {
+        put(ERROR, message);
+        put(TIMESTAMP, Instant.now().toString());
+    }
+
+    /**
+     * @param code Machine-readable reason, e.g. PARSE_TIMEOUT
+     * @return This response
+     */
+    public ErrorResponse withCode(String code) {
+        put(CODE, code);
+        return this;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.parser.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Where a field sits on a learned layout: the box of the text line holding the value,
+ * in PDF points from the top left of the page, and which value of the field's type
+ * on that line it is
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FieldBox {
+
+    private int page;
+    private float x;
+    private float y;
+    private float width;
+    private float height;
+
+    /** 0 for the first value of the field's type on the line, 1 for the second, ... */
+    private int occurrence;
+}
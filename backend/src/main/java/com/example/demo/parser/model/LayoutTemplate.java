@@ -0,0 +1,28 @@
+package com.example.demo.parser.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Field positions learned for one statement layout, identified by its page 1 fingerprint
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LayoutTemplate {
+
+    private String fingerprint;
+    private String issuer;
+
+    /** Field name to box, for every field the keyword search found on the learning statement */
+    @Builder.Default
+    private Map<String, FieldBox> fields = new LinkedHashMap<>();
+}
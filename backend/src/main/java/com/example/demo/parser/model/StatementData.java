@@ -1,6 +1,7 @@
 package com.example.demo.parser.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,7 +17,7 @@ import java.util.List;
  * Contains the 5 key data points required for the assignment
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class StatementData {
@@ -59,8 +60,16 @@ public class StatementData {
     private BigDecimal minimumAmountDue;
 
     @Builder.Default
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Transaction> transactions = new ArrayList<>();
 
+    /**
+     * The transactions by column, in place of {@link #transactions}, when a client asked for the
+     * columnar layout; null otherwise
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TransactionColumns transactionColumns;
+
     /**
      * Check if the parsed data contains all required fields
      * @return true if card number, amount, and due date are present
@@ -71,6 +80,16 @@ public class StatementData {
                 paymentDueDate != null;
     }
 
+    /**
+     * @return A copy of the statement with its transactions by column instead of by row
+     */
+    public StatementData withColumnarTransactions() {
+        return toBuilder()
+                .transactions(null)
+                .transactionColumns(TransactionColumns.of(transactions != null ? transactions : List.of()))
+                .build();
+    }
+
     /**
      * Add a transaction to the statement
      * @param transaction The transaction to add
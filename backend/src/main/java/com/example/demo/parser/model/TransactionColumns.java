@@ -0,0 +1,132 @@
+package com.example.demo.parser.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A statement's transactions stored column by column rather than as one object per row, for
+ * large statements: field names are written once instead of per transaction, dates are numbers,
+ * amounts are whole numbers at a shared scale, and types are indexes into a short list.
+ * Column i of every array belongs to transaction i.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionColumns {
+
+    /** Transaction dates as yyyymmdd numbers, e.g. 20241003; 0 if missing */
+    private int[] transactionDates;
+
+    /** Posting dates as yyyymmdd numbers, 0 if missing; null if no transaction has one */
+    private int[] postingDates;
+
+    private String[] descriptions;
+
+    /** Null if no transaction has a merchant name */
+    private String[] merchantNames;
+
+    /** Amounts as unscaled values at {@link #amountScale}, e.g. 149900 for 1499.00 at scale 2; 0 if missing */
+    private long[] amounts;
+
+    private int amountScale;
+
+    /** Distinct transaction types, in order of first appearance */
+    private String[] types;
+
+    /** Index of each transaction's type in {@link #types}; -1 if it has none */
+    private int[] typeIndexes;
+
+    /**
+     * @param transactions Transactions in statement order
+     * @return The same transactions by column
+     */
+    public static TransactionColumns of(List<Transaction> transactions) {
+        int count = transactions.size();
+        int scale = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction.getAmount() != null) {
+                scale = Math.max(scale, transaction.getAmount().scale());
+            }
+        }
+
+        TransactionColumns columns = TransactionColumns.builder()
+                .transactionDates(new int[count])
+                .descriptions(new String[count])
+                .amounts(new long[count])
+                .amountScale(scale)
+                .typeIndexes(new int[count])
+                .build();
+        int[] postingDates = new int[count];
+        String[] merchantNames = new String[count];
+        boolean anyPostingDate = false;
+        boolean anyMerchantName = false;
+        Map<String, Integer> typeIndex = new LinkedHashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = transactions.get(i);
+            columns.transactionDates[i] = toNumber(transaction.getTransactionDate());
+            postingDates[i] = toNumber(transaction.getPostingDate());
+            anyPostingDate |= transaction.getPostingDate() != null;
+            columns.descriptions[i] = transaction.getDescription();
+            merchantNames[i] = transaction.getMerchantName();
+            anyMerchantName |= transaction.getMerchantName() != null;
+            columns.amounts[i] = transaction.getAmount() != null
+                    ? transaction.getAmount().setScale(scale).unscaledValue().longValueExact()
+                    : 0;
+            columns.typeIndexes[i] = transaction.getType() != null
+                    ? typeIndex.computeIfAbsent(transaction.getType(), type -> typeIndex.size())
+                    : -1;
+        }
+        columns.postingDates = anyPostingDate ? postingDates : null;
+        columns.merchantNames = anyMerchantName ? merchantNames : null;
+        columns.types = typeIndex.keySet().toArray(new String[0]);
+        return columns;
+    }
+
+    /**
+     * @return The transactions as rows again
+     */
+    public List<Transaction> toTransactions() {
+        int count = descriptions != null ? descriptions.length : 0;
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(Transaction.builder()
+                    .transactionDate(toDate(transactionDates[i]))
+                    .postingDate(postingDates != null ? toDate(postingDates[i]) : null)
+                    .description(descriptions[i])
+                    .merchantName(merchantNames != null ? merchantNames[i] : null)
+                    .amount(BigDecimal.valueOf(amounts[i], amountScale))
+                    .type(typeIndexes[i] >= 0 ? types[typeIndexes[i]] : null)
+                    .build());
+        }
+        return transactions;
+    }
+
+    /**
+     * @param date A date, or null
+     * @return The date as a yyyymmdd number, or 0 for null
+     */
+    public static int toNumber(LocalDate date) {
+        return date != null ? date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth() : 0;
+    }
+
+    /**
+     * @param number A yyyymmdd number, or 0
+     * @return The date, or null for 0
+     */
+    public static LocalDate toDate(int number) {
+        return number != 0 ? LocalDate.of(number / 10000, number / 100 % 100, number % 100) : null;
+    }
+}
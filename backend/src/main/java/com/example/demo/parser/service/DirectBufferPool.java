@@ -0,0 +1,145 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.DocumentLimitExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers for request bodies, bucketed by power-of-two capacity.
+ * Direct buffers are expensive to allocate and only freed by the garbage collector, so released
+ * buffers are kept for the next request as long as the pool stays under its size bound.
+ */
+@Component
+public class DirectBufferPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectBufferPool.class);
+
+    /** Smallest bucket; bodies without a Content-Length start here and grow */
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    private final int maxCapacity;
+    private final long maxPooledBytes;
+    private final Queue<ByteBuffer>[] buckets;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * @param maxBody Largest body a buffer may hold
+     * @param poolSize Total capacity of the idle buffers kept for reuse
+     */
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(@Value("${parser.raw.max-size:10MB}") DataSize maxBody,
+                            @Value("${parser.raw.buffer-pool-size:32MB}") DataSize poolSize) {
+        this.maxCapacity = (int) Math.min(maxBody.toBytes(), 1 << 30);
+        this.maxPooledBytes = poolSize.toBytes();
+        this.buckets = new Queue[bucket(Math.max(maxCapacity, MIN_CAPACITY)) + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * @return The largest body a buffer may hold, in bytes
+     */
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * Read a whole stream into a pooled buffer
+     * @param in The stream, e.g. a servlet request body
+     * @param expectedLength Length announced by the sender, or -1
+     * @return The content between position 0 and limit; give it back with {@link #release(ByteBuffer)}
+     * @throws DocumentLimitExceededException if the stream is longer than the maximum capacity
+     * @throws IOException if reading fails
+     */
+    public ByteBuffer read(InputStream in, long expectedLength) throws IOException {
+        if (expectedLength > maxCapacity) {
+            throw new DocumentLimitExceededException(String.format(
+                    "Body of %d bytes is over the limit of %d", expectedLength, maxCapacity));
+        }
+        ByteBuffer buffer = acquire(expectedLength > 0 ? (int) expectedLength : MIN_CAPACITY);
+        try {
+            ReadableByteChannel channel = Channels.newChannel(in);
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    if (buffer.capacity() >= maxCapacity) {
+                        if (in.read() == -1) {
+                            break;
+                        }
+                        throw new DocumentLimitExceededException(String.format(
+                                "Body is over the limit of %d bytes", maxCapacity));
+                    }
+                    buffer = grow(buffer);
+                }
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * @param minCapacity Bytes needed
+     * @return A cleared direct buffer of at least that capacity
+     */
+    ByteBuffer acquire(int minCapacity) {
+        int index = bucket(Math.max(minCapacity, MIN_CAPACITY));
+        ByteBuffer buffer = index < buckets.length ? buckets[index].poll() : null;
+        if (buffer != null) {
+            pooledBytes.addAndGet(-buffer.capacity());
+        } else {
+            buffer = ByteBuffer.allocateDirect(Math.min(capacityOf(index), Math.max(maxCapacity, MIN_CAPACITY)));
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back for reuse; dropped if the pool is full
+     * @param buffer A buffer from {@link #read} or {@link #acquire}
+     */
+    public void release(ByteBuffer buffer) {
+        int index = bucket(buffer.capacity());
+        if (index >= buckets.length || pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            if (index < buckets.length) {
+                pooledBytes.addAndGet(-buffer.capacity());
+            }
+            logger.debug("Buffer pool full, dropping {} byte buffer", buffer.capacity());
+            return;
+        }
+        buffer.clear();
+        buckets[index].offer(buffer);
+    }
+
+    private ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer larger = acquire((int) Math.min((long) buffer.capacity() * 2, maxCapacity));
+        larger.put(buffer.flip());
+        release(buffer);
+        return larger;
+    }
+
+    private static int bucket(int capacity) {
+        int rounded = capacity <= MIN_CAPACITY ? MIN_CAPACITY : Integer.highestOneBit(capacity - 1) << 1;
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+
+    private static int capacityOf(int bucket) {
+        return MIN_CAPACITY << bucket;
+    }
+}
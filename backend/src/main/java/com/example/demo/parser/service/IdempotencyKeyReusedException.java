@@ -0,0 +1,14 @@
+package com.example.demo.parser.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an idempotency key still held by the {@link IdempotencyStore} is sent with a
+ * different request than the one it was first used for
+ */
+public class IdempotencyKeyReusedException extends IOException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.ParseDeadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Responses recorded under the client's Idempotency-Key, so a client retrying a request it gave
+ * up on gets the first attempt's response instead of a second parse. A retry arriving while the
+ * first attempt is still running waits for it, within its own {@link ParseDeadline}, the same way
+ * as {@link SingleFlight}; one arriving later gets the recorded response until it expires.
+ *
+ * Only final outcomes are recorded: successes and client errors. Responses saying "not now"
+ * (429, 503 and other server errors) are handed to the callers already waiting and then
+ * forgotten, so the next retry runs again. Keys are scoped to the client sending them, and a key
+ * sent with a different request than its first one is refused: requests are told apart by a
+ * fingerprint holding the hash of their content. A streamed body is only hashed as it is read, so
+ * its fingerprint comes with the response, and a retry hashes its own body before it is given the
+ * recorded one; responses without a fingerprint are not recorded.
+ *
+ * Entries expire parser.idempotency.ttl after they are recorded, and the oldest are dropped
+ * early while there are more than parser.idempotency.max-entries or their responses take more
+ * than parser.idempotency.max-bytes. Every entry lives equally long once recorded, so the
+ * insertion order of a {@link LinkedHashMap} is close enough to expiry order to evict from its head.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    /**
+     * Work run by the first request for a key
+     */
+    @FunctionalInterface
+    public interface Call {
+        StoredResponse call() throws IOException;
+    }
+
+    /**
+     * Fingerprint of a request whose body is read only after its key is looked up
+     */
+    @FunctionalInterface
+    public interface Fingerprint {
+        String compute() throws IOException;
+    }
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxResponseBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long totalBytes;
+
+    /**
+     * @param ttl How long a recorded response is replayed
+     * @param maxEntries Keys held at once, running or recorded
+     * @param maxBytes Response bytes held at once
+     * @param maxResponseSize Largest response recorded; larger ones are not replayable
+     */
+    public IdempotencyStore(@Value("${parser.idempotency.ttl:1h}") Duration ttl,
+                            @Value("${parser.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${parser.idempotency.max-bytes:64MB}") DataSize maxBytes,
+                            @Value("${parser.idempotency.max-response-size:1MB}") DataSize maxResponseSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes.toBytes();
+        this.maxResponseBytes = maxResponseSize.toBytes();
+    }
+
+    /**
+     * @return Largest response body that is recorded
+     */
+    public long getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    /**
+     * Run the request, or replay the response recorded for its key
+     * @param client The client sending the key
+     * @param key The Idempotency-Key header
+     * @param fingerprint Identifies the request, so a key reused for another one is caught
+     * @param call Produces the response if the key is new
+     * @return The response, marked replayed if it came from an earlier request
+     * @throws IdempotencyKeyReusedException if the key was first used for a different request
+     * @throws IOException if the call, or the first request's call being waited on, failed with one
+     * @throws com.example.demo.parser.extractor.ParseTimeoutException if the deadline passes while waiting
+     */
+    public StoredResponse execute(String client, String key, String fingerprint, Call call) throws IOException {
+        return execute(client, key, fingerprint, () -> fingerprint, call);
+    }
+
+    /**
+     * Run a request whose fingerprint is known only once its body has been read, such as a
+     * streamed upload, or replay the response recorded for its key. The call's response carries
+     * the fingerprint of the body it read; a later request with the key computes its own before
+     * it is given that response.
+     * @param client The client sending the key
+     * @param key The Idempotency-Key header
+     * @param fingerprint Reads and fingerprints the request's body, when the key is not new
+     * @param call Produces the response, with its fingerprint, if the key is new
+     * @return The response, marked replayed if it came from an earlier request
+     * @throws IdempotencyKeyReusedException if the key was first used for a different request
+     * @throws IOException if the call, or the first request's call being waited on, failed with one
+     * @throws com.example.demo.parser.extractor.ParseTimeoutException if the deadline passes while waiting
+     */
+    public StoredResponse executeStreamed(String client, String key, Fingerprint fingerprint, Call call)
+            throws IOException {
+        return execute(client, key, null, fingerprint, call);
+    }
+
+    private StoredResponse execute(String client, String key, String known, Fingerprint fingerprint, Call call)
+            throws IOException {
+        String id = client + "\n" + key;
+        Entry own = new Entry(known);
+        Entry existing;
+        synchronized (this) {
+            evict(System.nanoTime());
+            existing = entries.get(id);
+            if (existing == null) {
+                entries.put(id, own);
+            }
+        }
+
+        if (existing != null) {
+            // Refused up front when both sides are known; a streamed first request is only known once it is done
+            String recorded = existing.fingerprint;
+            if (known != null && recorded != null && !recorded.equals(known)) {
+                throw reused(key);
+            }
+            StoredResponse response = SingleFlight.await(existing.response);
+            recorded = existing.fingerprint;
+            if (recorded != null && !recorded.equals(known != null ? known : fingerprint.compute())) {
+                throw reused(key);
+            }
+            logger.debug("Replaying response for idempotency key {}", key);
+            return response.replayed();
+        }
+
+        try {
+            StoredResponse response = call.call();
+            if (own.fingerprint == null) {
+                own.fingerprint = response.getFingerprint();
+            }
+            record(id, own, response);
+            own.response.complete(response);
+            return response;
+        } catch (IOException | RuntimeException | Error e) {
+            forget(id, own);
+            own.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static IdempotencyKeyReusedException reused(String key) {
+        return new IdempotencyKeyReusedException("Idempotency key " + key + " was used for a different request");
+    }
+
+    /**
+     * @return Keys held, running or recorded
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void record(String id, Entry entry, StoredResponse response) {
+        if (!response.isFinal() || response.getBody() == null || response.getBody().length > maxResponseBytes
+                || entry.fingerprint == null) {
+            forget(id, entry);
+            return;
+        }
+        if (entries.get(id) != entry) {
+            // Evicted while running; the response still goes to its waiters
+            return;
+        }
+        entry.expiresAt = System.nanoTime() + ttlNanos;
+        entry.bytes = response.getBody().length;
+        totalBytes += entry.bytes;
+        evict(System.nanoTime());
+    }
+
+    private synchronized void forget(String id, Entry entry) {
+        if (entries.remove(id, entry)) {
+            totalBytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Drop expired entries from the head, then the oldest while over the limits. Called with the lock held.
+     */
+    private void evict(long now) {
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()) {
+            Entry entry = oldest.next();
+            boolean expired = entry.expiresAt != 0 && entry.expiresAt - now <= 0;
+            if (!expired && entries.size() <= maxEntries && totalBytes <= maxBytes) {
+                return;
+            }
+            oldest.remove();
+            totalBytes -= entry.bytes;
+        }
+    }
+
+    private static final class Entry {
+        /** Null until a streamed request has read its body */
+        private volatile String fingerprint;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+        /** System.nanoTime() at which the recorded response expires; 0 while the request runs */
+        private long expiresAt;
+        private long bytes;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * A response as it is recorded and replayed
+     */
+    public static final class StoredResponse {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+        private final String fingerprint;
+        private final boolean replayed;
+
+        /**
+         * @param status HTTP status
+         * @param contentType Content type of the body
+         * @param body The body, or null if it was not kept
+         */
+        public StoredResponse(int status, String contentType, byte[] body) {
+            this(status, contentType, body, null);
+        }
+
+        /**
+         * @param status HTTP status
+         * @param contentType Content type of the body
+         * @param body The body, or null if it was not kept
+         * @param fingerprint Fingerprint of the streamed request the response answers, or null
+         *                    if its body was not read to the end
+         */
+        public StoredResponse(int status, String contentType, byte[] body, String fingerprint) {
+            this(status, contentType, body, fingerprint, false);
+        }
+
+        private StoredResponse(int status, String contentType, byte[] body, String fingerprint, boolean replayed) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.fingerprint = fingerprint;
+            this.replayed = replayed;
+        }
+
+        StoredResponse replayed() {
+            return new StoredResponse(status, contentType, body, fingerprint, true);
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * @return true if the response was recorded for an earlier request with the same key
+         */
+        public boolean isReplayed() {
+            return replayed;
+        }
+
+        /**
+         * @return false for responses a retry may get a different answer to: 429 and server errors
+         */
+        public boolean isFinal() {
+            return status < 500 && status != 429;
+        }
+    }
+}
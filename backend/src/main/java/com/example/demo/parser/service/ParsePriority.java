@@ -0,0 +1,83 @@
+package com.example.demo.parser.service;
+
+import java.util.Locale;
+
+/**
+ * Priority class of a parse, used by {@link ParseScheduler} to share parse slots between
+ * user-facing requests and bulk work. The class is bound to the calling thread with
+ * {@link #open()}, the same way as a parse deadline; parses on a thread without one are
+ * interactive.
+ */
+public enum ParsePriority {
+
+    /** A user waiting on the response, e.g. an upload from the frontend */
+    INTERACTIVE,
+
+    /** Bulk work someone is waiting on as a whole, e.g. an archive upload or a backfill */
+    BATCH,
+
+    /** Work nobody is waiting on, e.g. re-parsing everything after a parser change */
+    BACKGROUND;
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return The class of parses on the current thread
+     */
+    public static ParsePriority current() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.priority : INTERACTIVE;
+    }
+
+    /**
+     * @param value A class name, in any case, e.g. from a request header
+     * @return The class, or null if the name is not one
+     */
+    public static ParsePriority parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param other Another class
+     * @return Whichever of the two is less urgent
+     */
+    public ParsePriority atMost(ParsePriority other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    /**
+     * Run parses on the current thread in this class until the scope is closed
+     * @return The scope
+     */
+    public Scope open() {
+        Scope scope = new Scope(this, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * A priority bound to the current thread; closing it restores the enclosing one
+     */
+    public static final class Scope implements AutoCloseable {
+        private final ParsePriority priority;
+        private final Scope previous;
+
+        private Scope(ParsePriority priority, Scope previous) {
+            this.priority = priority;
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.parser.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a parse is turned away because its priority class already has as many parses
+ * waiting as the {@link ParseScheduler} allows; the caller should retry later
+ */
+public class ParseRejectedException extends IOException {
+
+    public ParseRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares a fixed number of parse slots between the {@link ParsePriority} classes, so a bulk
+ * backfill cannot take the CPU from users waiting on an upload. A parse takes a slot before it
+ * starts and gives it back when done; while all slots are busy, callers queue per class.
+ *
+ * Free slots go to the waiting classes by weighted fair queueing (stride scheduling): each class
+ * advances a virtual clock by 1/weight per parse it is given, and the class furthest behind goes
+ * next, so with weights 8:2:1 interactive parses get eight slots for every two batch parses and
+ * one background parse while all three are waiting, and all the slots when the others are idle.
+ * Batch and background parses may together hold at most the slots minus the interactive reserve,
+ * counted across both classes, so an interactive parse never queues behind a saturating backfill
+ * for long; a host with no more slots than the reserve gets one extra slot for them. Each class has
+ * its own concurrency cap and queue bound; callers over the bound are rejected rather than kept
+ * waiting on request threads. Waits count against the caller's {@link ParseDeadline}.
+ */
+@Component
+public class ParseScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParseScheduler.class);
+
+    private static final long STRIDE = 1L << 20;
+
+    /** Recent queue times kept per class for the percentiles */
+    private static final int WAIT_SAMPLES = 1024;
+
+    private final boolean enabled;
+    private final int slots;
+    private final int bulkSlots;
+    private final Map<ParsePriority, ClassState> classes = new EnumMap<>(ParsePriority.class);
+    private final Map<String, ParsePriority> apiKeys;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int running;
+    private int bulkRunning;
+    private long virtualTime;
+
+    /**
+     * @param enabled false to let every parse run at once, as without a scheduler
+     * @param slots Parses running at once, or 0 for one per CPU
+     * @param interactiveReserve Slots that only interactive parses may use
+     * @param weights Share of the slots per class, e.g. "interactive=8,batch=2,background=1"
+     * @param maxConcurrency Cap on running parses per class, 0 for none beyond the reserve
+     * @param maxQueued Callers that may wait per class before more are rejected
+     * @param apiKeys API keys and the class their callers are limited to, e.g. "backfill-key=batch"
+     */
+    public ParseScheduler(@Value("${parser.scheduler.enabled:true}") boolean enabled,
+                          @Value("${parser.scheduler.slots:0}") int slots,
+                          @Value("${parser.scheduler.interactive-reserve:1}") int interactiveReserve,
+                          @Value("${parser.scheduler.weights:interactive=8,batch=2,background=1}") String weights,
+                          @Value("${parser.scheduler.max-concurrency:interactive=0,batch=0,background=1}") String maxConcurrency,
+                          @Value("${parser.scheduler.max-queued:interactive=256,batch=64,background=16}") String maxQueued,
+                          @Value("${parser.scheduler.api-keys:}") String apiKeys) {
+        this.enabled = enabled;
+        int reserve = Math.max(0, interactiveReserve);
+        int available = slots > 0 ? slots : Runtime.getRuntime().availableProcessors();
+        if (enabled && available <= reserve) {
+            // Keep the reserve and still let bulk work through, one parse at a time
+            logger.warn("Parse scheduler: {} slots leave none beyond the interactive reserve of {}; using {}",
+                    available, reserve, reserve + 1);
+            available = reserve + 1;
+        }
+        this.slots = available;
+        this.bulkSlots = this.slots - reserve;
+
+        Map<ParsePriority, Integer> weight = perClass(weights);
+        Map<ParsePriority, Integer> cap = perClass(maxConcurrency);
+        Map<ParsePriority, Integer> queued = perClass(maxQueued);
+        for (ParsePriority priority : ParsePriority.values()) {
+            int limit = priority == ParsePriority.INTERACTIVE ? this.slots : bulkSlots;
+            int configured = cap.getOrDefault(priority, 0);
+            classes.put(priority, new ClassState(
+                    priority != ParsePriority.INTERACTIVE,
+                    Math.max(1, weight.getOrDefault(priority, 1)),
+                    configured > 0 ? Math.min(configured, limit) : limit,
+                    Math.max(0, queued.getOrDefault(priority, 64))));
+        }
+
+        this.apiKeys = new HashMap<>();
+        for (String pair : apiKeys.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length == 2 && ParsePriority.parse(parts[1]) != null) {
+                this.apiKeys.put(parts[0].trim(), ParsePriority.parse(parts[1]));
+            }
+        }
+        logger.info("Parse scheduler: {} slots, {} for batch and background", this.slots, bulkSlots);
+    }
+
+    /**
+     * A slot held by a running parse
+     */
+    public final class Permit implements AutoCloseable {
+        private final ClassState state;
+        private boolean released;
+
+        private Permit(ClassState state) {
+            this.state = state;
+        }
+
+        /**
+         * Give the slot to the next waiting parse
+         */
+        @Override
+        public void close() {
+            if (state == null || released) {
+                return;
+            }
+            released = true;
+            lock.lock();
+            try {
+                running--;
+                state.running--;
+                if (state.bulk) {
+                    bulkRunning--;
+                }
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wait for a parse slot for the current thread's priority class
+     * @return The slot, to be closed when the parse ends
+     * @throws ParseRejectedException if too many parses of the class are already waiting
+     * @throws ParseTimeoutException if the caller's deadline passes or it is interrupted while waiting
+     */
+    public Permit acquire() throws ParseRejectedException, ParseTimeoutException {
+        return acquire(ParsePriority.current());
+    }
+
+    /**
+     * Wait for a parse slot
+     * @param priority The class to queue in
+     * @return The slot, to be closed when the parse ends
+     * @throws ParseRejectedException if too many parses of the class are already waiting
+     * @throws ParseTimeoutException if the caller's deadline passes or it is interrupted while waiting
+     */
+    public Permit acquire(ParsePriority priority) throws ParseRejectedException, ParseTimeoutException {
+        if (!enabled) {
+            return new Permit(null);
+        }
+        ClassState state = classes.get(priority);
+        long enqueued = System.nanoTime();
+
+        lock.lock();
+        try {
+            if (state.queue.size() >= state.maxQueued) {
+                state.rejected++;
+                throw new ParseRejectedException(String.format(
+                        "Too many %s parses waiting (%d)", priority.name().toLowerCase(Locale.ROOT), state.maxQueued));
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            if (state.queue.isEmpty() && state.running == 0) {
+                // A class coming back from idle starts at the current virtual time, without banked credit
+                state.pass = Math.max(state.pass, virtualTime);
+            }
+            state.queue.add(waiter);
+            dispatch();
+
+            while (!waiter.granted) {
+                long remaining = ParseDeadline.remainingMillis();
+                if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                    state.queue.remove(waiter);
+                    state.timedOut++;
+                    throw new ParseTimeoutException("Parse deadline passed while waiting for a parse slot");
+                }
+                try {
+                    waiter.condition.await(Math.min(remaining, TimeUnit.DAYS.toMillis(1)), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            state.recordWait(System.nanoTime() - enqueued);
+            return new Permit(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param apiKey The caller's API key, or null
+     * @return The class the key's caller is limited to, or null if the key is not configured
+     */
+    public ParsePriority priorityForApiKey(String apiKey) {
+        return apiKey != null ? apiKeys.get(apiKey) : null;
+    }
+
+    /**
+     * Hand free slots to waiting parses, the class with the lowest virtual time first; batch and
+     * background are passed over once together they hold the slots outside the reserve. Called
+     * with the lock held.
+     */
+    private void dispatch() {
+        while (running < slots) {
+            ClassState next = null;
+            for (ClassState state : classes.values()) {
+                if (!state.queue.isEmpty() && state.running < state.maxConcurrency
+                        && (!state.bulk || bulkRunning < bulkSlots)
+                        && (next == null || state.pass < next.pass)) {
+                    next = state;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter waiter = next.queue.poll();
+            waiter.granted = true;
+            running++;
+            next.running++;
+            if (next.bulk) {
+                bulkRunning++;
+            }
+            virtualTime = next.pass;
+            next.pass += STRIDE / next.weight;
+            waiter.condition.signal();
+        }
+    }
+
+    /**
+     * @return Per-class figures: slots in use, callers waiting, and queue times
+     */
+    public Map<String, ClassStats> stats() {
+        Map<String, ClassStats> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            classes.forEach((priority, state) -> stats.put(priority.name().toLowerCase(Locale.ROOT), state.stats()));
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+
+    private static Map<ParsePriority, Integer> perClass(String spec) {
+        Map<ParsePriority, Integer> values = new EnumMap<>(ParsePriority.class);
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length != 2 || ParsePriority.parse(parts[0]) == null) {
+                if (!pair.isBlank()) {
+                    logger.warn("Ignoring scheduler setting '{}': expected class=number", pair);
+                }
+                continue;
+            }
+            values.put(ParsePriority.parse(parts[0]), Integer.parseInt(parts[1].trim()));
+        }
+        return values;
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Queue and counters of one class; guarded by the scheduler lock
+     */
+    private static final class ClassState {
+        private final boolean bulk;
+        private final int weight;
+        private final int maxConcurrency;
+        private final int maxQueued;
+        private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        private final long[] waits = new long[WAIT_SAMPLES];
+        private int running;
+        private long pass;
+        private long admitted;
+        private long rejected;
+        private long timedOut;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        ClassState(boolean bulk, int weight, int maxConcurrency, int maxQueued) {
+            this.bulk = bulk;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.maxQueued = maxQueued;
+        }
+
+        void recordWait(long nanos) {
+            waits[(int) (admitted % WAIT_SAMPLES)] = nanos;
+            admitted++;
+            totalWaitNanos += nanos;
+            maxWaitNanos = Math.max(maxWaitNanos, nanos);
+        }
+
+        ClassStats stats() {
+            long[] recent = Arrays.copyOf(waits, (int) Math.min(admitted, WAIT_SAMPLES));
+            Arrays.sort(recent);
+            return new ClassStats(weight, maxConcurrency, running, queue.size(), admitted, rejected, timedOut,
+                    admitted > 0 ? totalWaitNanos / admitted / 1_000_000.0 : 0,
+                    percentile(recent, 0.5), percentile(recent, 0.99), maxWaitNanos / 1_000_000.0);
+        }
+
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Snapshot of one priority class; queue times are in milliseconds, percentiles over the
+     * last {@value #WAIT_SAMPLES} parses
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class ClassStats {
+        private final int weight;
+        private final int maxConcurrency;
+        private final int running;
+        private final int queued;
+        private final long admitted;
+        private final long rejected;
+        private final long timedOut;
+        private final double meanWaitMs;
+        private final double p50WaitMs;
+        private final double p99WaitMs;
+        private final double maxWaitMs;
+    }
+}
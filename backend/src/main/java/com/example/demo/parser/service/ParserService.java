@@ -1,15 +1,36 @@
 package com.example.demo.parser.service;
 
+import com.example.demo.parser.extractor.AdvancedPDFExtractor;
+import com.example.demo.parser.extractor.AdvancedPDFExtractor.TextLine;
+import com.example.demo.parser.extractor.DecryptedDocument;
+import com.example.demo.parser.extractor.ExtractedText;
+import com.example.demo.parser.extractor.InMemoryDocument;
+import com.example.demo.parser.extractor.LayoutExtractor;
+import com.example.demo.parser.extractor.LayoutFingerprint;
+import com.example.demo.parser.extractor.LayoutTemplates;
+import com.example.demo.parser.extractor.NormalizedText;
 import com.example.demo.parser.extractor.PDFTextExtractor;
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseProgress;
+import com.example.demo.parser.model.LayoutTemplate;
 import com.example.demo.parser.model.StatementData;
 import com.example.demo.parser.CreditCardParser;
 import com.example.demo.parser.ParserFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 
 /**
  * Service for parsing credit card statements
@@ -19,6 +40,32 @@ public class ParserService {
 
     private static final Logger logger = LoggerFactory.getLogger(ParserService.class);
 
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    /** Name given to in-memory statements in logs and extractor calls */
+    private static final String UPLOAD_PREFIX = "upload-";
+
+    /** Parses in flight keyed by content hash (and password), so retried or shared uploads are parsed once */
+    private final SingleFlight<String, StatementData> inFlight = new SingleFlight<>();
+
+    /** Shares parse slots between priority classes, or null to run every parse at once */
+    private final ParseScheduler scheduler;
+
+    /**
+     * A service that runs every parse at once, for the command-line tools
+     */
+    public ParserService() {
+        this(null);
+    }
+
+    /**
+     * @param scheduler Admits parses by the caller's {@link ParsePriority}, or null for none
+     */
+    @Autowired
+    public ParserService(ParseScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
     /**
      * Parse a credit card statement PDF file
      * @param pdfFile The PDF file to parse
@@ -26,31 +73,246 @@ public class ParserService {
      * @throws IOException if file reading fails
      */
     public StatementData parseStatement(File pdfFile) throws IOException {
+        return parseStatement(pdfFile, new StageTimer());
+    }
+
+    /**
+     * Parse a credit card statement PDF file, recording per-stage timings.
+     * Honours the caller's {@link ParseDeadline}, checked between stages and inside extraction.
+     * Concurrent calls for identical content share one parse and its result; only the caller
+     * that ran it gets the stage timings beyond "hash" and "queue".
+     * @param pdfFile The PDF file to parse
+     * @param timer Receives the hash, validate, extract, detect, layout and parse durations
+     * @return Parsed statement data
+     * @throws IOException if file reading fails
+     * @throws com.example.demo.parser.extractor.ParseTimeoutException if the deadline passes first
+     */
+    public StatementData parseStatement(File pdfFile, StageTimer timer) throws IOException {
+        return parseStatement(pdfFile, null, timer);
+    }
+
+    /**
+     * Parse a possibly password-protected statement. The file is decrypted once, before
+     * validation, and every later stage reads the decrypted copy held in memory; the copy is
+     * zeroed when the parse ends. Only calls with the same content and password share a parse.
+     * @param pdfFile The PDF file to parse
+     * @param password The statement password supplied by its owner, or null
+     * @param timer Receives the stage durations, including "decrypt" when a password is given
+     * @return Parsed statement data
+     * @throws org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException if the file is
+     *         encrypted and the password is missing or wrong
+     * @throws IOException if file reading fails
+     * @throws com.example.demo.parser.extractor.ParseTimeoutException if the deadline passes first
+     */
+    public StatementData parseStatement(File pdfFile, String password, StageTimer timer) throws IOException {
+        ParseDeadline.check();
+        timer.start();
+        String key = contentHash(pdfFile);
+        if (password != null) {
+            key += ":" + sha256(password.getBytes(StandardCharsets.UTF_8));
+        }
+        timer.stop("hash");
+
+        return inFlight.execute(key, () -> {
+            try (ParseScheduler.Permit permit = acquireSlot(timer)) {
+                return decryptAndParse(pdfFile, password, timer);
+            }
+        });
+    }
+
+    /**
+     * Parse a statement held in memory, such as a raw request body. The buffer is read in place
+     * by every extraction pass; nothing is written to disk.
+     * @param content The PDF bytes between position and limit; left unchanged
+     * @param password The statement password supplied by its owner, or null
+     * @param timer Receives the stage durations
+     * @return Parsed statement data
+     * @throws IOException if the content cannot be parsed
+     * @throws com.example.demo.parser.extractor.ParseTimeoutException if the deadline passes first
+     */
+    public StatementData parseStatement(ByteBuffer content, String password, StageTimer timer) throws IOException {
+        ParseDeadline.check();
+        timer.start();
+        MessageDigest digest = sha256Digest();
+        digest.update(content.duplicate());
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        String key = password != null
+                ? contentHash + ":" + sha256(password.getBytes(StandardCharsets.UTF_8))
+                : contentHash;
+        timer.stop("hash");
+
+        File name = new File(UPLOAD_PREFIX + contentHash.substring(0, 16) + ".pdf");
+        return inFlight.execute(key, () -> {
+            try (ParseScheduler.Permit permit = acquireSlot(timer);
+                 InMemoryDocument document = InMemoryDocument.open(name, content, null)) {
+                return decryptAndParse(name, password, timer);
+            }
+        });
+    }
+
+    /**
+     * Take a parse slot in the caller's own priority class. Only the caller that runs a parse
+     * takes one; callers joining it hold no slot and never queue, so identical parses cost one
+     * slot however many callers wait on them. A caller joining a parse still queued for its slot
+     * waits with it, for as long as its own deadline allows; if the queued caller is turned away
+     * or times out, the joining caller takes a slot and runs the parse itself.
+     * @param timer Receives the "queue" duration
+     * @return The slot, or null without a scheduler
+     */
+    private ParseScheduler.Permit acquireSlot(StageTimer timer) throws IOException {
+        if (scheduler == null) {
+            return null;
+        }
+        timer.start();
+        ParseScheduler.Permit permit = scheduler.acquire();
+        timer.stop("queue");
+        return permit;
+    }
+
+    private StatementData decryptAndParse(File pdfFile, String password, StageTimer timer) throws IOException {
+        if (password == null) {
+            return parse(pdfFile, timer);
+        }
+        timer.start();
+        try (InMemoryDocument decrypted = DecryptedDocument.open(pdfFile, password)) {
+            timer.stop("decrypt");
+            return parse(pdfFile, timer);
+        }
+    }
+
+    private StatementData parse(File pdfFile, StageTimer timer) throws IOException {
+        return interpret(pdfFile, extractText(pdfFile, timer), timer);
+    }
+
+    /**
+     * First half of a parse: validate the PDF and extract its full text. This is where the
+     * pages are loaded and glyphs decoded; the staged batch pipeline runs it on its own pool.
+     * @param pdfFile The PDF file, on disk or held by an {@link InMemoryDocument} scope
+     * @param timer Receives the validate and extract durations
+     * @return The extracted text
+     * @throws IOException if the file is not a readable PDF
+     */
+    public String extractText(File pdfFile, StageTimer timer) throws IOException {
         logger.info("Starting to parse statement: {}", pdfFile.getName());
 
         // Validate PDF
-        if (!PDFTextExtractor.isValidPDF(pdfFile)) {
+        timer.start();
+        boolean valid = PDFTextExtractor.checkPDF(pdfFile);
+        timer.stop("validate");
+        if (!valid) {
             throw new IOException("Invalid PDF file");
         }
 
         // Extract text
+        ParseDeadline.check();
+        timer.start();
         String text = PDFTextExtractor.extractText(pdfFile);
+        timer.stop("extract");
+        return text;
+    }
+
+    /**
+     * Second half of a parse: detect the issuer and read the fields, from a layout template when
+     * one matches or else with the issuer's parser. The parser is given the extracted text rather
+     * than decoding the pages again; it may still load the PDF for layout-dependent fields.
+     * @param pdfFile The PDF file, on disk or held by an {@link InMemoryDocument} scope
+     * @param text Output of {@link #extractText(File, StageTimer)} for the file
+     * @param timer Receives the detect, layout and parse durations
+     * @return Parsed statement data, or null if no parser supports the statement
+     * @throws IOException if the PDF cannot be read
+     */
+    public StatementData interpret(File pdfFile, String text, StageTimer timer) throws IOException {
+        timer.start();
+        NormalizedText normalized = NormalizedText.of(text);
+        try (ExtractedText extracted = ExtractedText.open(pdfFile, normalized)) {
+            return interpretText(pdfFile, normalized, timer);
+        }
+    }
 
-        // Detect issuer and get appropriate parser
-        CreditCardParser parser = ParserFactory.getParser(text);
+    private StatementData interpretText(File pdfFile, NormalizedText normalized, StageTimer timer) throws IOException {
+        // Detect issuer and get appropriate parser; the timer was started before normalizing
+        CreditCardParser parser = ParserFactory.getParser(normalized);
+        timer.stop("detect");
 
         if (parser == null) {
             logger.warn("No suitable parser found for the statement");
             return null;
         }
+        ParseProgress.issuer(parser.getIssuerName());
+
+        // Known layouts are read by position from page 1, skipping the keyword search; not for
+        // parsers that read transactions, which a template cannot give back
+        ParseDeadline.check();
+        List<TextLine> firstPage = null;
+        String fingerprint = null;
+        if (LayoutTemplates.isEnabled() && !parser.readsTransactions()) {
+            timer.start();
+            firstPage = AdvancedPDFExtractor.extractTextLines(pdfFile, 1, 1);
+            fingerprint = LayoutFingerprint.of(parser.getIssuerName(), firstPage);
+            LayoutTemplate template = fingerprint != null ? LayoutTemplates.getInstance().find(fingerprint) : null;
+            StatementData data = template != null ? LayoutExtractor.extract(template, firstPage, normalized) : null;
+            timer.stop("layout");
+
+            if (data != null && data.isValid()) {
+                ParseProgress.summary(data);
+                logger.info("Parsed statement from {} by layout {}", data.getIssuerName(), fingerprint);
+                return data;
+            }
+        }
 
         // Parse the statement
+        ParseDeadline.check();
+        timer.start();
         StatementData data = parser.parse(pdfFile);
+        timer.stop("parse");
+        // Only sent here if the parser did not report its summary fields itself
+        ParseProgress.summary(data);
+
+        // Field extractors skip their remaining strategies once out of time, so a late result is incomplete
+        ParseDeadline.check();
+
+        // Learn where this layout keeps its fields for the next statement printed from it
+        if (fingerprint != null && data.isValid() && LayoutTemplates.getInstance().find(fingerprint) == null) {
+            LayoutTemplate learned = LayoutExtractor.learn(fingerprint, firstPage, normalized, data);
+            if (learned != null) {
+                LayoutTemplates.getInstance().register(learned);
+            }
+        }
 
         logger.info("Successfully parsed statement from: {}", data.getIssuerName());
         return data;
     }
 
+    /**
+     * SHA-256 of the file content
+     * @param file The file to hash
+     * @return Lower-case hex digest
+     * @throws IOException if the file cannot be read
+     */
+    static String contentHash(File file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String sha256(byte[] value) {
+        return HexFormat.of().formatHex(sha256Digest().digest(value));
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     /**
      * Detect the issuer from PDF text
      * @param text The extracted text
@@ -0,0 +1,193 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.CreditCardParser;
+import com.example.demo.parser.ParserFactory;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Warms up PDFBox and the issuer parsers in the background right after startup.
+ * PDFBox initializes its font mappings, glyph lists and AFM metrics lazily, which makes the
+ * first parse on a fresh instance several times slower than the rest. Until the warm-up has
+ * finished the health endpoint reports the service as not ready.
+ */
+@Service
+@ConditionalOnProperty(name = "parser.warmup.enabled", havingValue = "true")
+public class ParserWarmupService implements ApplicationListener<ApplicationStartedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParserWarmupService.class);
+
+    private final ParserService parserService;
+
+    @Value("${parser.warmup.training-dir:}")
+    private String trainingDir;
+
+    @Value("${parser.warmup.exit-after-warmup:false}")
+    private boolean exitAfterWarmup;
+
+    private volatile boolean complete;
+
+    public ParserWarmupService(ParserService parserService) {
+        this.parserService = parserService;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+
+        Thread thread = new Thread(() -> {
+            warmUp();
+            if (exitAfterWarmup) {
+                logger.info("Warm-up finished, exiting as requested");
+                System.exit(SpringApplication.exit(context));
+            }
+        }, "parser-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return true once the warm-up has finished and the service is ready for traffic
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void warmUp() {
+        long started = System.currentTimeMillis();
+
+        // Warm-up parses yield their slots to real traffic arriving meanwhile
+        try (ParsePriority.Scope priority = ParsePriority.BACKGROUND.open()) {
+            warmUpFonts();
+
+            List<File> statements = trainingStatements();
+            if (statements.isEmpty()) {
+                statements = syntheticStatements();
+            }
+
+            for (File statement : statements) {
+                try {
+                    parserService.parseStatement(statement);
+                } catch (Exception e) {
+                    logger.debug("Warm-up parse of {} failed: {}", statement.getName(), e.getMessage());
+                }
+            }
+
+            logger.info("Parser warm-up finished in {} ms ({} statements)",
+                    System.currentTimeMillis() - started, statements.size());
+        } catch (Exception e) {
+            logger.warn("Parser warm-up failed, continuing cold: {}", e.getMessage());
+        } finally {
+            complete = true;
+        }
+    }
+
+    /**
+     * Force PDFBox's lazily built font state: the system font scan behind FontMappers,
+     * the Adobe glyph list and the Standard 14 AFM metrics
+     */
+    private void warmUpFonts() {
+        FontMappers.instance().getFontBoxFont("Helvetica", null);
+        GlyphList.getAdobeGlyphList();
+        GlyphList.getZapfDingbats();
+        for (Standard14Fonts.FontName name : Standard14Fonts.FontName.values()) {
+            new PDType1Font(name);
+        }
+        logger.debug("Font warm-up done");
+    }
+
+    private List<File> trainingStatements() throws IOException {
+        if (trainingDir == null || trainingDir.isBlank()) {
+            return List.of();
+        }
+
+        Path dir = Path.of(trainingDir);
+        if (!Files.isDirectory(dir)) {
+            logger.warn("Warm-up training directory not found: {}", dir);
+            return List.of();
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> path.toString().toLowerCase().endsWith(".pdf"))
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Write a minimal statement per registered issuer so every parser runs once
+     */
+    private List<File> syntheticStatements() throws IOException {
+        Path dir = Files.createTempDirectory("parser-warmup");
+        dir.toFile().deleteOnExit();
+
+        return ParserFactory.getAllParsers().stream()
+                .map(CreditCardParser::getIssuerName)
+                .map(issuer -> {
+                    try {
+                        File file = dir.resolve(issuer.replaceAll("\\W+", "_") + ".pdf").toFile();
+                        writeSyntheticStatement(file, issuer);
+                        file.deleteOnExit();
+                        return file;
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+    private void writeSyntheticStatement(File file, String issuer) throws IOException {
+        String[] lines = {
+                issuer.toUpperCase() + " CREDIT CARD STATEMENT",
+                "Card Number: XXXX XXXX XXXX 0000",
+                "Product Name: " + issuer + " Platinum",
+                "Statement Date: 01-Jan-2024",
+                "Payment Due Date: 20-Jan-2024",
+                "Total Amount Due: Rs. 1,000.00",
+                "Credit Limit: Rs. 1,00,000",
+                "02-Jan-24 WARMUP MERCHANT 1,000.00"
+        };
+
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 10);
+                content.setLeading(14);
+                content.newLineAtOffset(50, 700);
+                for (String line : lines) {
+                    content.showText(line);
+                    content.newLine();
+                }
+                content.endText();
+            }
+
+            document.save(file);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.demo.parser.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token buckets for the parse endpoints. A request costs one token plus one for every
+ * started parser.rate-limit.bytes-per-token of its body, so a client sending large statements
+ * runs out sooner than one sending small ones; tokens come back at a steady rate up to the
+ * bucket's burst size. Clients are identified by API key when the key has a configured limit,
+ * and by address otherwise, so unknown keys cannot be used to get fresh buckets.
+ *
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm form of a token bucket), updated with one compare-and-set,
+ * and the buckets live in a {@link ConcurrentHashMap}, so checking a request takes no lock and
+ * costs well under a microsecond however many threads check at once. Full buckets are
+ * indistinguishable from new ones and are dropped once the map grows past its client limit.
+ */
+@Component
+public class RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    private final boolean enabled;
+    private final Limit defaultLimit;
+    private final Map<String, Limit> keyLimits;
+    private final long bytesPerToken;
+    private final int maxClients;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param enabled false to let every request through
+     * @param tokensPerSecond Tokens each client gets back per second
+     * @param burst Tokens a client may spend at once, after being idle
+     * @param bytesPerToken Body size charged one extra token
+     * @param apiKeys API keys with their own limits, e.g. "backfill-job=20/600" for 20 tokens per second, burst 600
+     * @param maxClients Buckets kept before full ones are dropped
+     */
+    public RateLimiter(@Value("${parser.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${parser.rate-limit.tokens-per-second:2}") double tokensPerSecond,
+                       @Value("${parser.rate-limit.burst:60}") int burst,
+                       @Value("${parser.rate-limit.bytes-per-token:1MB}") DataSize bytesPerToken,
+                       @Value("${parser.rate-limit.api-keys:}") String apiKeys,
+                       @Value("${parser.rate-limit.max-clients:100000}") int maxClients) {
+        this.enabled = enabled;
+        this.defaultLimit = new Limit(tokensPerSecond, burst);
+        this.bytesPerToken = Math.max(1, bytesPerToken.toBytes());
+        this.maxClients = Math.max(1, maxClients);
+
+        this.keyLimits = new HashMap<>();
+        for (String pair : apiKeys.split(",")) {
+            String[] parts = pair.trim().split("[=/]");
+            if (parts.length != 3) {
+                if (!pair.isBlank()) {
+                    logger.warn("Ignoring rate limit '{}': expected key=tokens-per-second/burst", pair);
+                }
+                continue;
+            }
+            keyLimits.put(parts[0].trim(),
+                    new Limit(Double.parseDouble(parts[1].trim()), Integer.parseInt(parts[2].trim())));
+        }
+        logger.info("Rate limit: {} tokens/s, burst {}, one extra token per {} bytes{}",
+                tokensPerSecond, burst, this.bytesPerToken, enabled ? "" : " (disabled)");
+    }
+
+    /**
+     * @return false if every request is let through
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param apiKey The caller's API key, or null
+     * @param address The caller's address
+     * @return The bucket name for the caller: the key if it has a configured limit, else the address
+     */
+    public String clientOf(String apiKey, String address) {
+        return apiKey != null && keyLimits.containsKey(apiKey) ? "key:" + apiKey : "ip:" + address;
+    }
+
+    /**
+     * @param bodyBytes Size of the request body, 0 if unknown
+     * @return Tokens the request costs
+     */
+    public long costOf(long bodyBytes) {
+        return 1 + (Math.max(0, bodyBytes) + bytesPerToken - 1) / bytesPerToken;
+    }
+
+    /**
+     * @param bytes Body bytes read
+     * @return Tokens the bytes cost, rounded down
+     */
+    public long costOfBytes(long bytes) {
+        return bytes / bytesPerToken;
+    }
+
+    /**
+     * @return Body size charged one token
+     */
+    public long getBytesPerToken() {
+        return bytesPerToken;
+    }
+
+    /**
+     * Take tokens from a client's bucket if it has enough. A request costing more than the whole
+     * burst is let through when the bucket is full, and empties it.
+     * @param client Bucket name from {@link #clientOf}
+     * @param cost Tokens to take
+     * @return Whether the tokens were taken, with the bucket's state for the response headers
+     */
+    public Decision tryAcquire(String client, long cost) {
+        Limit limit = limitOf(client);
+        if (!enabled) {
+            return new Decision(true, limit.burst, limit.burst, 0, 0);
+        }
+        Bucket bucket = bucket(client);
+        long increment = Math.min(cost, limit.burst) * limit.intervalNanos;
+        while (true) {
+            long now = System.nanoTime();
+            long full = bucket.fullAt.get();
+            long base = full - now > 0 ? full : now;
+            long next = base + increment;
+            long allowedAt = next - limit.burstNanos;
+            if (allowedAt - now > 0) {
+                return new Decision(false, limit.burst, limit.tokensAt(base, now), base - now, allowedAt - now);
+            }
+            if (bucket.fullAt.compareAndSet(full, next)) {
+                return new Decision(true, limit.burst, limit.tokensAt(next, now), next - now, 0);
+            }
+        }
+    }
+
+    /**
+     * Take tokens whether or not the client has them, for work found to cost more once it has
+     * been let in; the bucket goes into debt and later requests wait for it to be paid off
+     * @param client Bucket name from {@link #clientOf}
+     * @param cost Tokens to take
+     */
+    public void charge(String client, long cost) {
+        if (!enabled || cost <= 0) {
+            return;
+        }
+        Limit limit = limitOf(client);
+        long increment = cost * limit.intervalNanos;
+        bucket(client).fullAt.accumulateAndGet(increment, (full, add) -> {
+            long now = System.nanoTime();
+            return (full - now > 0 ? full : now) + add;
+        });
+    }
+
+    private Limit limitOf(String client) {
+        Limit limit = client.startsWith("key:") ? keyLimits.get(client.substring(4)) : null;
+        return limit != null ? limit : defaultLimit;
+    }
+
+    private Bucket bucket(String client) {
+        Bucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            // A bucket that has refilled is the same as a new one; a request racing with its
+            // removal may update the dropped copy, at worst letting that one request off
+            long now = System.nanoTime();
+            buckets.values().removeIf(idle -> idle.fullAt.get() - now <= 0);
+        }
+        return buckets.computeIfAbsent(client, name -> new Bucket(System.nanoTime()));
+    }
+
+    private static final class Bucket {
+        /** System.nanoTime() at which the bucket is full again; in the past when it is full */
+        private final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+    }
+
+    private static final class Limit {
+        private final int burst;
+        private final long intervalNanos;
+        private final long burstNanos;
+
+        Limit(double tokensPerSecond, int burst) {
+            this.burst = Math.max(1, burst);
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+            this.burstNanos = this.burst * intervalNanos;
+        }
+
+        /**
+         * @return Whole tokens in a bucket that is full at the given time
+         */
+        int tokensAt(long fullAt, long now) {
+            return (int) Math.max(0, (burstNanos - Math.max(0, fullAt - now)) / intervalNanos);
+        }
+    }
+
+    /**
+     * Outcome of {@link #tryAcquire}
+     */
+    public static final class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final long resetNanos;
+        private final long retryAfterNanos;
+
+        Decision(boolean allowed, int limit, int remaining, long resetNanos, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetNanos = resetNanos;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        /**
+         * @return Tokens in a full bucket
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * @return Tokens left after the request
+         */
+        public int getRemaining() {
+            return remaining;
+        }
+
+        /**
+         * @return Whole seconds until the bucket is full again
+         */
+        public long getResetSeconds() {
+            return ceilSeconds(resetNanos);
+        }
+
+        /**
+         * @return Whole seconds until the request would be let through, 0 if it was
+         */
+        public long getRetryAfterSeconds() {
+            return ceilSeconds(retryAfterNanos);
+        }
+
+        private static long ceilSeconds(long nanos) {
+            return (Math.max(0, nanos) + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+}
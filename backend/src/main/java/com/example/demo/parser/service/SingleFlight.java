@@ -0,0 +1,122 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call, callers arriving
+ * while it is in flight wait for the same result (or exception) instead of repeating the work.
+ * Nothing is kept once the call finishes, so this is not a cache. A caller that is not
+ * coalesced pays one putIfAbsent and one remove on a concurrent map, with no lock of its own.
+ * Waiting callers give up when their own {@link ParseDeadline} runs out. A failure that belongs
+ * to the caller that ran the call rather than to the work (its deadline or cancellation, or the
+ * scheduler turning it away) is not passed on: a waiting caller runs the call itself instead.
+ * @param <K> The key type
+ * @param <V> The result type
+ */
+public class SingleFlight<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlight.class);
+
+    /**
+     * Work run by the first caller for a key
+     * @param <V> The result type
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws IOException;
+    }
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run the call, or wait for the identical call already in flight
+     * @param key Identifies identical calls
+     * @param call The work to run if no call for the key is in flight
+     * @return The result of whichever call ran
+     * @throws IOException if the call that ran failed with one
+     * @throws ParseTimeoutException if the caller's deadline passes while waiting
+     */
+    public V execute(K key, Call<V> call) throws IOException {
+        while (true) {
+            CompletableFuture<V> own = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                return run(key, call, own);
+            }
+
+            logger.debug("Joining in-flight call for {}", key);
+            try {
+                return await(running);
+            } catch (ParseTimeoutException | ParseRejectedException e) {
+                // Still running means this caller's own deadline passed; otherwise the failure was the other caller's
+                if (!running.isCompletedExceptionally()) {
+                    throw e;
+                }
+                logger.debug("In-flight call for {} failed for its caller ({}), running it again", key, e.getMessage());
+                ParseDeadline.check();
+            }
+        }
+    }
+
+    private V run(K key, Call<V> call, CompletableFuture<V> own) throws IOException {
+        try {
+            V result = call.call();
+            own.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * @return Number of keys with a call in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    /**
+     * Wait for another caller's result, for as long as the current thread's {@link ParseDeadline} allows
+     * @param running The other caller's result
+     * @return The result
+     * @throws IOException if the other call failed with one
+     * @throws ParseTimeoutException if the deadline passes or the thread is interrupted first
+     */
+    static <V> V await(CompletableFuture<V> running) throws IOException {
+        try {
+            long remaining = ParseDeadline.remainingMillis();
+            return remaining == Long.MAX_VALUE ? running.get() : running.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ParseTimeoutException("Deadline passed while waiting for an identical parse in flight");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseTimeoutException("Parse cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.parser.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each stage of a parse took, in the order the stages ran
+ */
+public class StageTimer {
+
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final long createdAt = System.nanoTime();
+    private long stageStart = createdAt;
+
+    /**
+     * Marks the start of a stage
+     */
+    public void start() {
+        stageStart = System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since {@link #start()} under the given stage name
+     * @param stage The stage name
+     */
+    public void stop(String stage) {
+        durations.merge(stage, elapsedMillis(stageStart), Long::sum);
+    }
+
+    /**
+     * @return Stage name to elapsed milliseconds, in recording order
+     */
+    public Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(durations);
+    }
+
+    /**
+     * @return Milliseconds elapsed since this timer was created
+     */
+    public long getTotalMillis() {
+        return elapsedMillis(createdAt);
+    }
+
+    private static long elapsedMillis(long since) {
+        return (System.nanoTime() - since) / 1_000_000;
+    }
+}
@@ -3,8 +3,11 @@ package com.example.demo.parser.util;
 
 
 import com.example.demo.parser.extractor.AdvancedPDFExtractor;
+import com.example.demo.parser.extractor.NormalizedText;
+import com.example.demo.parser.extractor.PDFDocumentLoader;
+import com.example.demo.parser.extractor.PDFInputMode;
+import com.example.demo.parser.extractor.PDFLoadLimits;
 import com.example.demo.parser.extractor.PDFTextExtractor;
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
@@ -26,11 +29,17 @@ public class PDFDebugUtility {
      */
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.out.println("Usage: java PDFDebugUtility <pdf-file-path>");
+            System.out.println("Usage: java PDFDebugUtility <pdf-file-path> [--mmap]");
             System.out.println("Example: java PDFDebugUtility /path/to/statement.pdf");
             return;
         }
 
+        if (args.length > 1 && "--mmap".equals(args[1])) {
+            PDFDocumentLoader.configure(PDFLoadLimits.builder()
+                    .inputMode(PDFInputMode.MAPPED)
+                    .build());
+        }
+
         String pdfPath = args[0];
         File pdfFile = new File(pdfPath);
 
@@ -130,7 +139,7 @@ public class PDFDebugUtility {
      * Analyze basic PDF properties
      */
     private static void analyzeBasicInfo(File pdfFile) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+        try (PDDocument document = PDFDocumentLoader.load(pdfFile)) {
             System.out.println("\n--- BASIC PDF INFO ---");
             System.out.println("File: " + pdfFile.getName());
             System.out.println("Size: " + (pdfFile.length() / 1024) + " KB");
@@ -167,12 +176,15 @@ public class PDFDebugUtility {
                 "HDFC", "ICICI", "SBI", "Axis", "American Express"
         };
 
+        NormalizedText normalized = NormalizedText.of(text);
+
         for (String keyword : keywords) {
-            if (text.toUpperCase().contains(keyword.toUpperCase())) {
-                // Find context around the keyword
-                int index = text.toUpperCase().indexOf(keyword.toUpperCase());
-                int start = Math.max(0, index - 30);
-                int end = Math.min(text.length(), index + keyword.length() + 50);
+            int index = normalized.indexOf(keyword);
+            if (index >= 0) {
+                // Find context around the keyword, mapped back to the original text
+                int start = normalized.originalOffset(Math.max(0, index - 30));
+                int end = Math.min(text.length(),
+                        normalized.originalOffset(index + NormalizedText.fold(keyword).length() + 50));
                 String context = text.substring(start, end).replaceAll("\n", " ");
                 System.out.println("✓ Found: " + keyword);
                 System.out.println("  Context: ..." + context + "...");
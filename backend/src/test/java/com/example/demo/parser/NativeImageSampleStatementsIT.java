@@ -0,0 +1,48 @@
+package com.example.demo.parser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Parses every file in "Sample pdfs" with the native CLI image built by the 'native' profile
+ */
+class NativeImageSampleStatementsIT {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@TestFactory
+	Stream<DynamicTest> parsesEverySampleStatement() {
+		File binary = new File(System.getProperty("native.cli", "target/statement-parser-cli"));
+		File samples = new File(System.getProperty("samples.dir", "../Sample pdfs"));
+		assumeTrue(binary.canExecute(), "Native CLI not built: " + binary);
+
+		File[] pdfs = samples.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+		assertTrue(pdfs != null && pdfs.length > 0, "No sample statements in " + samples);
+
+		return Arrays.stream(pdfs).map(pdf -> DynamicTest.dynamicTest(pdf.getName(), () -> {
+			Process process = new ProcessBuilder(binary.getAbsolutePath(), pdf.getAbsolutePath())
+					.redirectError(ProcessBuilder.Redirect.DISCARD)
+					.start();
+			String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+			assertTrue(process.waitFor(60, TimeUnit.SECONDS), "Native CLI timed out");
+			assertEquals(0, process.exitValue(), output);
+
+			JsonNode record = mapper.readTree(output.lines().findFirst().orElse("{}"));
+			assertTrue(record.path("valid").asBoolean(), output);
+			assertTrue(record.hasNonNull("issuer"), output);
+		}));
+	}
+
+}
@@ -0,0 +1,290 @@
+package com.example.demo.parser.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MailReaderTest {
+
+	@Test
+	void nestedMultipartPartsAreSearched() throws IOException {
+		byte[] inner = pdf(300);
+		byte[] outer = pdf(500);
+		String mail = String.join("\r\n",
+				"From: statements@bank.example",
+				"Subject: Your statement",
+				"Content-Type: multipart/mixed; boundary=outer",
+				"",
+				"Preamble",
+				"--outer",
+				"Content-Type: multipart/alternative; boundary=alt",
+				"",
+				"--alt",
+				"Content-Type: text/plain",
+				"",
+				"Please find your statement attached.",
+				"--alt",
+				"Content-Type: text/html",
+				"",
+				"<p>Please find your statement attached.</p>",
+				"--alt--",
+				"",
+				"--outer",
+				"Content-Type: multipart/mixed; boundary=inner",
+				"",
+				"--inner",
+				"Content-Type: application/pdf; name=inner.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(inner),
+				"--inner--",
+				"--outer",
+				"Content-Type: application/pdf",
+				"Content-Disposition: attachment; filename=outer.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(outer),
+				"--outer--",
+				"Epilogue",
+				"");
+
+		Map<String, byte[]> entries = read(mail, false);
+
+		assertEquals(List.of("mail.eml#1/inner.pdf", "mail.eml#1/outer.pdf"), List.copyOf(entries.keySet()));
+		assertArrayEquals(inner, entries.get("mail.eml#1/inner.pdf"));
+		assertArrayEquals(outer, entries.get("mail.eml#1/outer.pdf"));
+	}
+
+	@Test
+	void quotedBoundariesAndFoldedHeaders() throws IOException {
+		byte[] content = pdf(200);
+		String mail = String.join("\r\n",
+				"Content-Type: multipart/mixed;",
+				"\tboundary=\"=_Part 1; of 2\"",
+				"",
+				"--=_Part 1; of 2",
+				"Content-Type: text/plain; charset=utf-8",
+				"",
+				"--=_Part 1 is not the boundary",
+				"--=_Part 1; of 2",
+				"Content-Type: application/octet-stream;",
+				" name=\"ignored.bin\"",
+				"Content-Disposition: attachment;",
+				"    filename=\"September statement.PDF\"",
+				"Content-Transfer-Encoding:",
+				" base64",
+				"",
+				mime(content),
+				"--=_Part 1; of 2--",
+				"");
+
+		Map<String, byte[]> entries = read(mail, false);
+
+		assertEquals(List.of("mail.eml#1/September statement.PDF"), List.copyOf(entries.keySet()));
+		assertArrayEquals(content, entries.values().iterator().next());
+	}
+
+	@Test
+	void base64IsDecodedAcrossLinesChunksAndPadding() throws IOException {
+		// One and two padding characters, and a body larger than one decode chunk
+		for (int size : new int[]{1, 2, 3, 100, 101, 102, 200_000}) {
+			byte[] content = pdf(size);
+			String[] encodings = {
+					mime(content),
+					Base64.getEncoder().encodeToString(content),
+					Base64.getMimeEncoder(60, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(content),
+					Base64.getEncoder().withoutPadding().encodeToString(content)
+			};
+			for (String encoded : encodings) {
+				String mail = String.join("\r\n",
+						"Content-Type: application/pdf; name=\"s.pdf\"",
+						"Content-Transfer-Encoding: BASE64",
+						"",
+						encoded,
+						"");
+				assertArrayEquals(content, read(mail, false).get("mail.eml#1/s.pdf"), "size " + size);
+			}
+		}
+	}
+
+	@Test
+	void attachmentsThatAreNotBase64PdfsAreSkipped() throws IOException {
+		byte[] content = pdf(64);
+		String mail = String.join("\r\n",
+				"Content-Type: multipart/mixed; boundary=b",
+				"",
+				"--b",
+				"Content-Type: image/png; name=logo.png",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(pdf(90)),
+				"--b",
+				"Content-Type: text/csv; name=transactions.csv",
+				"",
+				"date,amount",
+				"--b",
+				"Content-Type: application/pdf; name=quoted.pdf",
+				"Content-Transfer-Encoding: quoted-printable",
+				"",
+				"%PDF-1.4 =0A",
+				"--b",
+				"Content-Type: application/pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(content),
+				"--b--",
+				"");
+
+		Map<String, byte[]> entries = read(mail, false);
+
+		assertEquals(List.of("mail.eml#1/attachment.pdf"), List.copyOf(entries.keySet()));
+		assertArrayEquals(content, entries.get("mail.eml#1/attachment.pdf"));
+	}
+
+	@Test
+	void mboxMessagesAreSplitOnFromLinesAfterABlankLine() throws IOException {
+		byte[] first = pdf(120);
+		byte[] second = pdf(80);
+		String mbox = String.join("\n",
+				"From bank@example.com Mon Sep 30 10:00:00 2024",
+				"Content-Type: multipart/mixed; boundary=b",
+				"",
+				"--b",
+				"Content-Type: text/plain",
+				"",
+				"Statement attached.",
+				"From your bank, with thanks",
+				"--b",
+				"Content-Type: application/pdf; name=first.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(first),
+				"--b--",
+				"",
+				"From bank@example.com Mon Oct 31 10:00:00 2024",
+				"Content-Type: application/pdf; name=second.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(second),
+				"");
+
+		Map<String, byte[]> entries = read(mbox, true);
+
+		assertEquals(List.of("mail.eml#1/first.pdf", "mail.eml#2/second.pdf"), List.copyOf(entries.keySet()));
+		assertArrayEquals(first, entries.get("mail.eml#1/first.pdf"));
+		assertArrayEquals(second, entries.get("mail.eml#2/second.pdf"));
+	}
+
+	@Test
+	void partlyReadAttachmentIsSkippedByNext() throws IOException {
+		byte[] first = pdf(100_000);
+		byte[] second = pdf(10);
+		String mail = String.join("\r\n",
+				"Content-Type: multipart/mixed; boundary=b",
+				"",
+				"--b",
+				"Content-Type: application/pdf; name=a.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(first),
+				"--b",
+				"Content-Type: application/pdf; name=b.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				mime(second),
+				"--b--",
+				"");
+
+		try (MailReader reader = reader(mail, false)) {
+			byte[] head = reader.next().getContent().readNBytes(10);
+			assertArrayEquals(Arrays.copyOf(first, 10), head);
+			ArchiveReader.Entry next = reader.next();
+			assertEquals("mail.eml#1/b.pdf", next.getName());
+			assertArrayEquals(second, next.getContent().readAllBytes());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void truncatedMessageEndsTheAttachmentWhereTheInputEnds() throws IOException {
+		byte[] content = pdf(1000);
+		String encoded = mime(content);
+		// Cut at the end of the fourth 76-character line (228 decoded bytes), the closing boundary lost
+		int cut = 4 * 78;
+		String mail = String.join("\r\n",
+				"Content-Type: multipart/mixed; boundary=b",
+				"",
+				"--b",
+				"Content-Type: application/pdf; name=a.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				encoded.substring(0, cut));
+
+		Map<String, byte[]> entries = read(mail, false);
+		assertArrayEquals(Arrays.copyOf(content, 228), entries.get("mail.eml#1/a.pdf"));
+
+		// Cut inside the headers: nothing to return
+		assertEquals(Map.of(), read("Content-Type: multipart/mixed; boundary=b\r\n\r\n--b\r\nContent-Type: appl", false));
+	}
+
+	@Test
+	void truncatedBase64QuantumIsAnError() throws IOException {
+		String mail = String.join("\r\n",
+				"Content-Type: application/pdf; name=a.pdf",
+				"Content-Transfer-Encoding: base64",
+				"",
+				Base64.getEncoder().encodeToString(pdf(30)).substring(0, 37));
+
+		try (MailReader reader = reader(mail, false)) {
+			ArchiveReader.Entry entry = reader.next();
+			assertThrows(IOException.class, () -> entry.getContent().readAllBytes());
+		}
+	}
+
+	@Test
+	void headerParametersAreReadQuotedOrNot() {
+		assertEquals("a b;c", MailReader.parameter("multipart/mixed; boundary=\"a b;c\"; charset=x", "boundary"));
+		assertEquals("plain", MailReader.parameter("multipart/mixed;boundary = plain ; x=y", "boundary"));
+		assertNull(MailReader.parameter("multipart/mixed; xboundary=nope", "boundary"));
+	}
+
+	private static Map<String, byte[]> read(String mail, boolean mbox) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (MailReader reader = reader(mail, mbox)) {
+			ArchiveReader.Entry entry;
+			while ((entry = reader.next()) != null) {
+				entries.put(entry.getName(), entry.getContent().readAllBytes());
+			}
+		}
+		return entries;
+	}
+
+	private static MailReader reader(String mail, boolean mbox) {
+		return new MailReader(new ByteArrayInputStream(mail.getBytes(StandardCharsets.ISO_8859_1)), "mail.eml", mbox);
+	}
+
+	private static String mime(byte[] content) {
+		return Base64.getMimeEncoder().encodeToString(content);
+	}
+
+	private static byte[] pdf(int size) {
+		byte[] content = new byte[size];
+		byte[] header = "%PDF-1.4\n".getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < size; i++) {
+			content[i] = i < header.length ? header[i] : (byte) (i * 31 + 7);
+		}
+		return content;
+	}
+}
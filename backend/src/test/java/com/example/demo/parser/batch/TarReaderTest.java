@@ -0,0 +1,247 @@
+package com.example.demo.parser.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TarReaderTest {
+
+	private static final int BLOCK = 512;
+
+	@Test
+	void namesComeFromThePrefixAndLongNameRecords() throws IOException {
+		String deep = "statements/2024/" + "september/".repeat(12) + "axis.pdf";
+		Tar tar = new Tar()
+				.file("hdfc.pdf", "statements/2024", content(10))
+				.longName(deep)
+				.file(deep.substring(0, 99), "", content(20))
+				.pax("statements/pax/" + "x".repeat(120) + ".pdf")
+				.file("ignored.pdf", "", content(30))
+				.end();
+
+		List<String> names = new ArrayList<>();
+		try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+			ArchiveReader.Entry entry;
+			while ((entry = reader.next()) != null) {
+				names.add(entry.getName());
+			}
+		}
+
+		assertEquals(List.of("statements/2024/hdfc.pdf", deep, "statements/pax/" + "x".repeat(120) + ".pdf"), names);
+	}
+
+	@Test
+	void contentEndsAtItsSizeWhateverThePadding() throws IOException {
+		int[] sizes = {1, BLOCK - 1, BLOCK, BLOCK + 1, 3 * BLOCK};
+		Tar tar = new Tar();
+		for (int size : sizes) {
+			tar.file("f" + size, "", content(size));
+		}
+
+		try (ArchiveReader reader = ArchiveReader.open(tar.end().stream())) {
+			for (int size : sizes) {
+				ArchiveReader.Entry entry = reader.next();
+				assertEquals("f" + size, entry.getName());
+				assertEquals(size, entry.getSize());
+				assertArrayEquals(content(size), entry.getContent().readAllBytes());
+				assertEquals(-1, entry.getContent().read());
+			}
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void unreadContentIsSkipped() throws IOException {
+		Tar tar = new Tar()
+				.file("first", "", content(BLOCK + 7))
+				.file("second", "", content(3))
+				.end();
+
+		try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+			ArchiveReader.Entry first = reader.next();
+			assertEquals(content(BLOCK + 7)[0], (byte) first.getContent().read());
+			ArchiveReader.Entry second = reader.next();
+			assertEquals("second", second.getName());
+			assertArrayEquals(content(3), second.getContent().readAllBytes());
+		}
+	}
+
+	@Test
+	void zeroSizeEntriesAndOtherTypes() throws IOException {
+		Tar tar = new Tar()
+				.entry("empty.pdf", "", new byte[0], '0')
+				.entry("folder/", "", new byte[0], '5')
+				.entry("link.pdf", "", new byte[0], '2')
+				.file("after.pdf", "", content(5))
+				.end();
+
+		try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+			ArchiveReader.Entry empty = reader.next();
+			assertEquals("empty.pdf", empty.getName());
+			assertEquals(0, empty.getSize());
+			assertEquals(-1, empty.getContent().read());
+
+			ArchiveReader.Entry after = reader.next();
+			assertEquals("after.pdf", after.getName());
+			assertArrayEquals(content(5), after.getContent().readAllBytes());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void endOfArchiveBlocksEndTheEntries() throws IOException {
+		byte[] archive = new Tar().file("a.pdf", "", content(10)).end().bytes();
+		// Anything after the end blocks, such as a writer's record padding, is not read
+		byte[] trailing = Arrays.copyOf(archive, archive.length + 4 * BLOCK);
+		Arrays.fill(trailing, archive.length, trailing.length, (byte) 'x');
+
+		for (byte[] bytes : List.of(archive, trailing)) {
+			try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(bytes))) {
+				assertNotNull(reader.next());
+				assertNull(reader.next());
+				assertNull(reader.next());
+			}
+		}
+
+		// A writer that leaves the end blocks out
+		try (ArchiveReader reader = ArchiveReader.open(new Tar().file("a.pdf", "", content(10)).stream())) {
+			assertNotNull(reader.next());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void truncatedHeaderIsAnError() throws IOException {
+		byte[] archive = new Tar().file("a.pdf", "", content(10)).file("b.pdf", "", content(10)).bytes();
+		byte[] cut = Arrays.copyOf(archive, 2 * BLOCK + 100);
+
+		try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(cut))) {
+			assertNotNull(reader.next());
+			assertThrows(EOFException.class, reader::next);
+		}
+	}
+
+	@Test
+	void truncatedBodyIsAnError() throws IOException {
+		byte[] archive = new Tar().file("a.pdf", "", content(3 * BLOCK)).bytes();
+		byte[] cut = Arrays.copyOf(archive, BLOCK + BLOCK + 10);
+
+		try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(cut))) {
+			ArchiveReader.Entry entry = reader.next();
+			assertThrows(EOFException.class, () -> entry.getContent().readAllBytes());
+		}
+		try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(cut))) {
+			reader.next();
+			// Skipped rather than read
+			assertThrows(EOFException.class, reader::next);
+		}
+	}
+
+	@Test
+	void corruptChecksumIsRefused() throws IOException {
+		byte[] archive = new Tar().file("a.pdf", "", content(10)).end().bytes();
+		archive[0] = 'b';
+
+		try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(archive))) {
+			IOException e = assertThrows(IOException.class, reader::next);
+			assertEquals("Corrupt tar header", e.getMessage());
+		}
+	}
+
+	@Test
+	void gzippedTarIsDetected() throws IOException {
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+			out.write(new Tar().file("a.pdf", "", content(700)).end().bytes());
+		}
+
+		try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(gzipped.toByteArray()))) {
+			assertArrayEquals(content(700), reader.next().getContent().readAllBytes());
+			assertNull(reader.next());
+		}
+	}
+
+	private static byte[] content(int size) {
+		byte[] content = new byte[size];
+		for (int i = 0; i < size; i++) {
+			content[i] = (byte) ('a' + i % 26);
+		}
+		return content;
+	}
+
+	/**
+	 * Writes ustar archives block by block
+	 */
+	private static final class Tar {
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		Tar file(String name, String prefix, byte[] data) {
+			return entry(name, prefix, data, '0');
+		}
+
+		Tar longName(String name) {
+			return entry("././@LongLink", "", (name + "\0").getBytes(StandardCharsets.UTF_8), 'L');
+		}
+
+		Tar pax(String path) {
+			String record = " path=" + path + "\n";
+			int length = record.length() + 1;
+			length = record.length() + String.valueOf(length).length();
+			return entry("PaxHeader", "", (length + record).getBytes(StandardCharsets.UTF_8), 'x');
+		}
+
+		Tar entry(String name, String prefix, byte[] data, char type) {
+			byte[] header = new byte[BLOCK];
+			put(header, 0, name);
+			put(header, 100, "0000644");
+			put(header, 124, String.format("%011o", data.length));
+			put(header, 136, String.format("%011o", 0));
+			header[156] = (byte) type;
+			put(header, 257, "ustar");
+			put(header, 263, "00");
+			put(header, 345, prefix);
+			Arrays.fill(header, 148, 156, (byte) ' ');
+			long sum = 0;
+			for (byte b : header) {
+				sum += b & 0xff;
+			}
+			put(header, 148, String.format("%06o\0", sum));
+			out.writeBytes(header);
+			out.writeBytes(data);
+			out.writeBytes(new byte[(BLOCK - data.length % BLOCK) % BLOCK]);
+			return this;
+		}
+
+		Tar end() {
+			out.writeBytes(new byte[2 * BLOCK]);
+			return this;
+		}
+
+		byte[] bytes() {
+			return out.toByteArray();
+		}
+
+		ByteArrayInputStream stream() {
+			return new ByteArrayInputStream(bytes());
+		}
+
+		private static void put(byte[] header, int offset, String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			System.arraycopy(bytes, 0, header, offset, bytes.length);
+		}
+	}
+}
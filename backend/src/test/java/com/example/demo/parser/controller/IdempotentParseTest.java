@@ -0,0 +1,115 @@
+package com.example.demo.parser.controller;
+
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.service.ParserService;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+/**
+ * The password and transaction layout a statement was sent with are part of what an Idempotency-Key stands for
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotentParseTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@MockBean
+	private ParserService parserService;
+
+	@Test
+	void retryWithTheRightPasswordIsNotAnsweredWithTheWrongPasswordFailure() throws Exception {
+		when(parserService.parseStatement(any(File.class), eq("wrong"), any()))
+				.thenThrow(mock(InvalidPasswordException.class));
+		when(parserService.parseStatement(any(File.class), eq("right"), any())).thenReturn(statement());
+		String key = UUID.randomUUID().toString();
+
+		MvcResult wrong = parse(key, "wrong", null);
+		assertEquals(422, wrong.getResponse().getStatus());
+		assertTrue(wrong.getResponse().getContentAsString().contains("INVALID_PASSWORD"));
+
+		MvcResult retry = parse(key, "right", null);
+		assertEquals(422, retry.getResponse().getStatus());
+		assertTrue(retry.getResponse().getContentAsString().contains("IDEMPOTENCY_KEY_REUSED"));
+
+		MvcResult fresh = parse(UUID.randomUUID().toString(), "right", null);
+		assertEquals(200, fresh.getResponse().getStatus());
+		assertNull(fresh.getResponse().getHeader(StatementParserController.REPLAYED_HEADER));
+	}
+
+	@Test
+	void sameRequestReplaysAndAnotherLayoutIsRefused() throws Exception {
+		when(parserService.parseStatement(any(File.class), any(), any())).thenReturn(statement());
+		String key = UUID.randomUUID().toString();
+
+		MvcResult first = parse(key, "secret", "columnar");
+		assertEquals(200, first.getResponse().getStatus());
+		assertNull(first.getResponse().getHeader(StatementParserController.REPLAYED_HEADER));
+
+		MvcResult replay = parse(key, "secret", "COLUMNAR");
+		assertEquals(200, replay.getResponse().getStatus());
+		assertEquals("true", replay.getResponse().getHeader(StatementParserController.REPLAYED_HEADER));
+		assertEquals(first.getResponse().getContentAsString(), replay.getResponse().getContentAsString());
+
+		MvcResult rows = parse(key, "secret", null);
+		assertEquals(422, rows.getResponse().getStatus());
+		assertTrue(rows.getResponse().getContentAsString().contains("IDEMPOTENCY_KEY_REUSED"));
+
+		MvcResult noPassword = parse(key, null, "columnar");
+		assertEquals(422, noPassword.getResponse().getStatus());
+		assertFalse(noPassword.getResponse().getContentAsString().contains("secret"));
+	}
+
+	private MvcResult parse(String key, String password, String layout) throws Exception {
+		byte[] content = "%PDF-1.4 statement".getBytes(StandardCharsets.US_ASCII);
+		MockMultipartFile file = new MockMultipartFile("file", "statement.pdf", MediaType.APPLICATION_PDF_VALUE, content);
+		// Gives the upload a Content-Length, which the rate limit filter requires of multipart bodies
+		MockMultipartHttpServletRequestBuilder request = multipart("/api/statements/parse");
+		request.file(file).content(content).accept(MediaType.APPLICATION_JSON)
+				.header(StatementParserController.IDEMPOTENCY_KEY_HEADER, key);
+		if (password != null) {
+			request.param("password", password);
+		}
+		if (layout != null) {
+			request.header(StatementParserController.TRANSACTION_LAYOUT_HEADER, layout);
+		}
+		return mvc.perform(request).andReturn();
+	}
+
+	private static StatementData statement() {
+		return StatementData.builder()
+				.issuerName("HDFC Bank")
+				.cardLastFourDigits("1234")
+				.paymentDueDate(LocalDate.parse("2024-10-05"))
+				.totalAmountDue(new BigDecimal("12500.00"))
+				.transactions(new ArrayList<>())
+				.build();
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.demo.parser.controller;
+
+import com.example.demo.parser.service.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitFilterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final RateLimitFilter filter = new RateLimitFilter(
+			new RateLimiter(true, 0.01, 2, DataSize.ofBytes(1024), "", 100), objectMapper);
+
+	@Test
+	void allowedRequestsCarryTheBucketState() throws Exception {
+		MockHttpServletResponse response = send(upload(new byte[10]));
+
+		assertEquals(200, response.getStatus());
+		assertEquals("2", response.getHeader(RateLimitFilter.LIMIT_HEADER));
+		assertEquals("0", response.getHeader(RateLimitFilter.REMAINING_HEADER));
+		assertEquals("200", response.getHeader(RateLimitFilter.RESET_HEADER));
+		assertNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+	}
+
+	@Test
+	void refusalsCarryRetryAfter() throws Exception {
+		send(upload(new byte[10]));
+		MockFilterChain chain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(upload(new byte[10]), response, chain);
+
+		assertEquals(429, response.getStatus());
+		assertNull(chain.getRequest());
+		assertEquals("2", response.getHeader(RateLimitFilter.LIMIT_HEADER));
+		assertEquals("0", response.getHeader(RateLimitFilter.REMAINING_HEADER));
+		assertEquals("200", response.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals("RATE_LIMITED", errorCode(response));
+	}
+
+	@Test
+	void chunkedMultipartUploadsAreRefused() throws Exception {
+		MockHttpServletRequest request = upload(null);
+		MockFilterChain chain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+
+		assertEquals(411, response.getStatus());
+		assertNull(chain.getRequest());
+		assertEquals("LENGTH_REQUIRED", errorCode(response));
+
+		// No tokens were taken for it
+		assertEquals(200, send(upload(new byte[10])).getStatus());
+	}
+
+	@Test
+	void chunkedRawBodiesAreLetInAndMetered() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/statements/parse-archive");
+		request.setContentType("application/zip");
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+		assertNotNull(chain.getRequest());
+	}
+
+	private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	private static MockHttpServletRequest upload(byte[] body) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/statements/parse");
+		request.setContentType("multipart/form-data; boundary=x");
+		request.setRemoteAddr("10.0.0.1");
+		request.setContent(body);
+		return request;
+	}
+
+	@SuppressWarnings("unchecked")
+	private String errorCode(MockHttpServletResponse response) throws Exception {
+		return (String) objectMapper.readValue(response.getContentAsByteArray(), Map.class).get("code");
+	}
+}
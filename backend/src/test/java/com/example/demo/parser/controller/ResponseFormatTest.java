@@ -0,0 +1,190 @@
+package com.example.demo.parser.controller;
+
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import com.example.demo.parser.model.StatementData;
+import com.example.demo.parser.model.Transaction;
+import com.example.demo.parser.service.ParseRejectedException;
+import com.example.demo.parser.service.ParserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ResponseFormatTest {
+
+	private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+	private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+	/** Numbers are equal by value: the binary formats keep decimals in their own encodings */
+	private static final Comparator<JsonNode> SAME_VALUE = (a, b) -> a.isNumber() && b.isNumber()
+			? a.decimalValue().compareTo(b.decimalValue())
+			: a.equals(b) ? 0 : 1;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@MockBean
+	private ParserService parserService;
+
+	@BeforeEach
+	void parsedStatement() throws IOException {
+		List<Transaction> transactions = new ArrayList<>();
+		transactions.add(transaction("2024-09-03", "AMAZON INDIA", "1499.00", "DEBIT"));
+		transactions.add(transaction("2024-09-05", "PAYMENT RECEIVED", "5000.00", "CREDIT"));
+		when(parserService.parseStatement(any(File.class), any(), any())).thenReturn(StatementData.builder()
+				.issuerName("Axis Bank")
+				.cardLastFourDigits("3456")
+				.cardVariant("Neo")
+				.statementDate(LocalDate.parse("2024-10-01"))
+				.paymentDueDate(LocalDate.parse("2024-10-20"))
+				.totalAmountDue(new BigDecimal("43230.00"))
+				.transactions(transactions)
+				.build());
+	}
+
+	@Test
+	void cborAndSmileCarryTheSameFieldsAsJson() throws Exception {
+		JsonNode json = new ObjectMapper().readTree(parse(MediaType.APPLICATION_JSON, null).getResponse()
+				.getContentAsByteArray());
+
+		MvcResult cbor = parse(CBOR, null);
+		assertTrue(CBOR.isCompatibleWith(MediaType.parseMediaType(cbor.getResponse().getContentType())));
+		assertTrue(json.equals(SAME_VALUE, new ObjectMapper(new CBORFactory()).readTree(cbor.getResponse().getContentAsByteArray())));
+
+		MvcResult smile = parse(SMILE, null);
+		assertTrue(SMILE.isCompatibleWith(MediaType.parseMediaType(smile.getResponse().getContentType())));
+		assertTrue(json.equals(SAME_VALUE, new ObjectMapper(new SmileFactory()).readTree(smile.getResponse().getContentAsByteArray())));
+	}
+
+	@Test
+	void protobufWritesTheStatementMessage() throws Exception {
+		MvcResult result = parse(StatementProtobufConverter.PROTOBUF, null);
+
+		assertEquals(200, result.getResponse().getStatus());
+		Map<Integer, List<Object>> fields = fields(result.getResponse().getContentAsByteArray());
+		assertEquals("3456", string(fields.get(1).get(0)));
+		assertEquals("Neo", string(fields.get(2).get(0)));
+		assertEquals(20241001L, fields.get(3).get(0));
+		assertEquals("Axis Bank", string(fields.get(6).get(0)));
+		assertEquals(2, fields.get(11).size());
+		assertFalse(fields.containsKey(12));
+		assertEquals(1L, fields.get(13).get(0));
+
+		Map<Integer, List<Object>> first = fields((byte[]) fields.get(11).get(0));
+		assertEquals(20240903L, first.get(1).get(0));
+		assertEquals("AMAZON INDIA", string(first.get(3).get(0)));
+		Map<Integer, List<Object>> amount = fields((byte[]) first.get(5).get(0));
+		assertEquals(149900L, CodedInputStream.decodeZigZag64((Long) amount.get(1).get(0)));
+		assertEquals(2L, amount.get(2).get(0));
+	}
+
+	@Test
+	void columnarLayoutReplacesTheTransactionList() throws Exception {
+		JsonNode json = new ObjectMapper().readTree(parse(MediaType.APPLICATION_JSON, "columnar").getResponse()
+				.getContentAsByteArray());
+		assertTrue(json.path("transactions").isMissingNode() || json.path("transactions").isNull());
+		JsonNode columns = json.path("transactionColumns");
+		assertEquals(20240903, columns.path("transactionDates").get(0).asInt());
+		assertEquals("PAYMENT RECEIVED", columns.path("descriptions").get(1).asText());
+		assertEquals(149900, columns.path("amounts").get(0).asLong());
+		assertEquals(2, columns.path("amountScale").asInt());
+
+		Map<Integer, List<Object>> fields = fields(parse(StatementProtobufConverter.PROTOBUF, "columnar")
+				.getResponse().getContentAsByteArray());
+		assertFalse(fields.containsKey(11));
+		Map<Integer, List<Object>> packed = fields((byte[]) fields.get(12).get(0));
+		assertEquals(2, packed.get(3).size());
+		assertEquals("AMAZON INDIA", string(packed.get(3).get(0)));
+		assertEquals(2L, packed.get(6).get(0));
+	}
+
+	@Test
+	void protobufErrorsKeepTheirStatusAndHeaders() throws Exception {
+		when(parserService.parseStatement(any(File.class), any(), any()))
+				.thenThrow(new ParseRejectedException("Too many interactive parses waiting (256)"));
+		MvcResult rejected = parse(StatementProtobufConverter.PROTOBUF, null);
+
+		assertEquals(429, rejected.getResponse().getStatus());
+		assertEquals("1", rejected.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+		Map<Integer, List<Object>> error = fields(rejected.getResponse().getContentAsByteArray());
+		assertTrue(string(error.get(1).get(0)).startsWith("Too many statements waiting"));
+		assertEquals("OVERLOADED", string(error.get(2).get(0)));
+		assertTrue(error.containsKey(3));
+
+		when(parserService.parseStatement(any(File.class), any(), any()))
+				.thenThrow(new ParseTimeoutException("Parse cancelled"));
+		MvcResult timedOut = parse(StatementProtobufConverter.PROTOBUF, null);
+		assertEquals(503, timedOut.getResponse().getStatus());
+		assertEquals("PARSE_TIMEOUT", string(fields(timedOut.getResponse().getContentAsByteArray()).get(2).get(0)));
+	}
+
+	private MvcResult parse(MediaType accept, String layout) throws Exception {
+		byte[] content = "%PDF-1.4 statement".getBytes(StandardCharsets.US_ASCII);
+		MockMultipartFile file = new MockMultipartFile("file", "statement.pdf", MediaType.APPLICATION_PDF_VALUE, content);
+		// Gives the upload a Content-Length, which the rate limit filter requires of multipart bodies
+		var request = multipart("/api/statements/parse").file(file).content(content).accept(accept);
+		if (layout != null) {
+			request.header(StatementParserController.TRANSACTION_LAYOUT_HEADER, layout);
+		}
+		return mvc.perform(request).andReturn();
+	}
+
+	/**
+	 * @return Field number to its values: varints as Long, length-delimited fields as byte[]
+	 */
+	private static Map<Integer, List<Object>> fields(byte[] message) throws IOException {
+		Map<Integer, List<Object>> fields = new LinkedHashMap<>();
+		CodedInputStream in = CodedInputStream.newInstance(message);
+		int tag;
+		while ((tag = in.readTag()) != 0) {
+			Object value = WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_VARINT
+					? in.readRawVarint64()
+					: in.readByteArray();
+			fields.computeIfAbsent(WireFormat.getTagFieldNumber(tag), number -> new ArrayList<>()).add(value);
+		}
+		return fields;
+	}
+
+	private static String string(Object value) {
+		return new String((byte[]) value, StandardCharsets.UTF_8);
+	}
+
+	private static Transaction transaction(String date, String description, String amount, String type) {
+		Transaction transaction = new Transaction(LocalDate.parse(date), description, new BigDecimal(amount));
+		transaction.setType(type);
+		return transaction;
+	}
+}
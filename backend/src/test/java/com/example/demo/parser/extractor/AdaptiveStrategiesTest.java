@@ -0,0 +1,141 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.AdaptiveStrategies.Strategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveStrategiesTest {
+
+	private static final int WARM_UP = 500;
+
+	private final AtomicReference<String> text = new AtomicReference<>();
+
+	@Test
+	void labelsGiveTheSameValueBeforeAndAfterWarmUp() throws IOException {
+		AdaptiveStrategies strategies = AdaptiveStrategies.forField("Test", "totalAmountDue/labels");
+		String statement = "Minimum Amount Due: 2,160.00\nTotal Amount Due: 43,230.00\n";
+
+		String cold = AdvancedPDFExtractor.findValueAfterKeyword(strategies, statement, "Amount Due", "Total Amount Due");
+		// Statements with the short label only, so it wins every run
+		for (int i = 0; i < WARM_UP; i++) {
+			AdvancedPDFExtractor.findValueAfterKeyword(strategies, "Amount Due: " + i + ".00\n",
+					"Amount Due", "Total Amount Due");
+		}
+		String warm = AdvancedPDFExtractor.findValueAfterKeyword(strategies, statement, "Amount Due", "Total Amount Due");
+
+		assertEquals("43,230.00", cold);
+		assertEquals(cold, warm);
+	}
+
+	@Test
+	void shortLabelDoesNotMatchTheEndOfALongerOne() throws IOException {
+		AdaptiveStrategies strategies = AdaptiveStrategies.forField("Test", "creditLimit/labels");
+
+		assertNull(AdvancedPDFExtractor.findValueAfterKeyword(strategies,
+				"Available Credit Limit: 2,56,770.00\n", "Credit Limit"));
+		assertEquals("3,00,000.00", AdvancedPDFExtractor.findValueAfterKeyword(strategies,
+				"Available Credit Limit: 2,56,770.00   Credit Limit: 3,00,000.00\n", "Credit Limit"));
+	}
+
+	@Test
+	void aliasesGoAfterTheLongerAliasesContainingThem() {
+		assertEquals(List.of("Total Amount Due", "Amount Due", "Outstanding Balance"),
+				AdvancedPDFExtractor.bySpecificity("Amount Due", "Total Amount Due", "Outstanding Balance"));
+		assertEquals(List.of("Payment Due Date", "Due Date", "Pay By"),
+				AdvancedPDFExtractor.bySpecificity("Payment Due Date", "Due Date", "Pay By"));
+	}
+
+	@Test
+	void strategiesThatMayDisagreeKeepTheirOrder() throws IOException {
+		AdaptiveStrategies strategies = AdaptiveStrategies.forField("Test", "ordered");
+		Strategy[] attempts = {
+				Strategy.of("labelled", () -> text.get().startsWith("label") ? "labelled" : null),
+				Strategy.of("anywhere", () -> "anywhere")
+		};
+
+		text.set("label");
+		String cold = strategies.run(attempts);
+		text.set("none");
+		for (int i = 0; i < WARM_UP; i++) {
+			strategies.run(attempts);
+		}
+		text.set("label");
+
+		assertEquals("labelled", cold);
+		assertEquals(cold, strategies.run(attempts));
+		assertEquals(List.of("labelled", "anywhere"), List.copyOf(strategies.getWins().keySet()));
+	}
+
+	@Test
+	void equivalentStrategiesAreReorderedByWins() throws IOException {
+		AdaptiveStrategies strategies = AdaptiveStrategies.forField("Test", "equivalent");
+		AtomicInteger firstCalls = new AtomicInteger();
+		Strategy[] attempts = {
+				Strategy.of("tokens", () -> null),
+				Strategy.equivalent("pattern:0", () -> {
+					firstCalls.incrementAndGet();
+					return null;
+				}),
+				Strategy.equivalent("pattern:1", () -> "1234"),
+				Strategy.fallback("guess", () -> "0000")
+		};
+
+		for (int i = 0; i < WARM_UP; i++) {
+			assertEquals("1234", strategies.run(attempts));
+		}
+
+		assertEquals(List.of("tokens", "pattern:1", "pattern:0", "guess"), List.copyOf(strategies.getWins().keySet()));
+		assertTrue(firstCalls.get() < WARM_UP, "pattern:0 still ran first on every call");
+	}
+
+	@Test
+	void lastStrategyBeforeTheFallbackIsNeverSkipped() throws IOException {
+		AdaptiveStrategies strategies = AdaptiveStrategies.forField("Test", "lastExpensive");
+		Strategy[] attempts = {
+				Strategy.of("raw", () -> null),
+				Strategy.expensive("layout", () -> text.get().equals("layout") ? "layout" : null),
+				Strategy.fallback("guess", () -> "guess")
+		};
+
+		text.set("layout");
+		String cold = strategies.run(attempts);
+		// The layout never wins during warm-up, which would otherwise get it skipped
+		text.set("none");
+		for (int i = 0; i < WARM_UP; i++) {
+			assertEquals("guess", strategies.run(attempts));
+		}
+		text.set("layout");
+
+		assertEquals("layout", cold);
+		for (int i = 0; i < AdaptiveStrategies.REORDER_INTERVAL; i++) {
+			assertEquals(cold, strategies.run(attempts));
+		}
+	}
+
+	@Test
+	void expensiveStrategyThatNeverWinsIsSkippedWhenAnotherFollows() throws IOException {
+		AdaptiveStrategies strategies = AdaptiveStrategies.forField("Test", "skippedExpensive");
+		AtomicInteger layoutCalls = new AtomicInteger();
+		Strategy[] attempts = {
+				Strategy.expensive("layout", () -> {
+					layoutCalls.incrementAndGet();
+					return null;
+				}),
+				Strategy.of("raw", () -> "raw")
+		};
+
+		for (int i = 0; i < WARM_UP; i++) {
+			assertEquals("raw", strategies.run(attempts));
+		}
+
+		assertTrue(layoutCalls.get() < WARM_UP / 2, "layout ran " + layoutCalls.get() + " times");
+	}
+}
@@ -0,0 +1,159 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadView;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MappedRandomAccessReadTest {
+
+	private static final int CHUNK = 16;
+
+	/** Two full chunks and a partial one of 5 bytes */
+	private static final byte[] CONTENT = bytes(2 * CHUNK + 5);
+
+	private File file;
+
+	@AfterEach
+	void deleteFile() throws IOException {
+		if (file != null) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	@Test
+	void readsAcrossChunkBoundaries() throws IOException {
+		try (MappedRandomAccessRead read = open(CONTENT)) {
+			assertEquals(CONTENT.length, read.length());
+
+			byte[] all = new byte[CONTENT.length];
+			assertEquals(CONTENT.length, read.read(all, 0, all.length));
+			assertArrayEquals(CONTENT, all);
+			assertTrue(read.isEOF());
+			assertEquals(-1, read.read());
+			assertEquals(-1, read.read(new byte[4], 0, 4));
+
+			// Straddles the first boundary
+			read.seek(CHUNK - 3);
+			byte[] straddle = new byte[6];
+			assertEquals(6, read.read(straddle, 0, straddle.length));
+			assertArrayEquals(Arrays.copyOfRange(CONTENT, CHUNK - 3, CHUNK + 3), straddle);
+			assertEquals(CHUNK + 3, read.getPosition());
+		}
+	}
+
+	@Test
+	void singleBytesAndSeeksFollowTheFile() throws IOException {
+		try (MappedRandomAccessRead read = open(CONTENT)) {
+			for (int position : new int[]{0, CHUNK - 1, CHUNK, 2 * CHUNK - 1, 2 * CHUNK, CONTENT.length - 1}) {
+				read.seek(position);
+				assertEquals(CONTENT[position] & 0xff, read.read(), "byte " + position);
+				assertEquals(position + 1, read.getPosition());
+			}
+
+			read.seek(CHUNK + 1);
+			assertEquals(CONTENT[CHUNK + 1] & 0xff, read.peek());
+			assertEquals(CHUNK + 1, read.getPosition());
+			read.read();
+			read.rewind(2);
+			assertEquals(CONTENT[CHUNK] & 0xff, read.read());
+
+			// Past the end clamps to the end; before the start is refused
+			read.seek(CONTENT.length + 100);
+			assertEquals(CONTENT.length, read.getPosition());
+			assertTrue(read.isEOF());
+			assertThrows(IOException.class, () -> read.seek(-1));
+		}
+	}
+
+	@Test
+	void finalPartialChunkReadsToTheEnd() throws IOException {
+		try (MappedRandomAccessRead read = open(CONTENT)) {
+			read.seek(2 * CHUNK + 1);
+			byte[] tail = new byte[10];
+			assertEquals(4, read.read(tail, 0, tail.length));
+			assertArrayEquals(Arrays.copyOfRange(CONTENT, 2 * CHUNK + 1, CONTENT.length), Arrays.copyOf(tail, 4));
+
+			// A view over the last two chunks reads the same bytes
+			RandomAccessReadView view = read.createView(CHUNK + 2, CHUNK + 3);
+			byte[] viewed = new byte[CHUNK + 3];
+			assertEquals(viewed.length, view.read(viewed, 0, viewed.length));
+			assertArrayEquals(Arrays.copyOfRange(CONTENT, CHUNK + 2, CONTENT.length), viewed);
+		}
+	}
+
+	@Test
+	void emptyFileIsAtItsEnd() throws IOException {
+		try (MappedRandomAccessRead read = open(new byte[0])) {
+			assertEquals(0, read.length());
+			assertTrue(read.isEOF());
+			assertEquals(-1, read.read());
+			assertEquals(-1, read.read(new byte[4], 0, 4));
+			assertEquals(0, read.read(new byte[4], 0, 0));
+			read.seek(10);
+			assertEquals(0, read.getPosition());
+		}
+	}
+
+	@Test
+	void readsAfterCloseFail() throws IOException {
+		MappedRandomAccessRead read = open(CONTENT);
+		read.read(new byte[CONTENT.length], 0, CONTENT.length);
+		read.close();
+		read.close();
+
+		assertTrue(read.isClosed());
+		assertThrows(EOFException.class, read::read);
+		assertThrows(EOFException.class, () -> read.read(new byte[4], 0, 4));
+		assertThrows(EOFException.class, () -> read.seek(0));
+		assertThrows(EOFException.class, read::getPosition);
+		assertThrows(EOFException.class, read::length);
+		assertThrows(EOFException.class, read::isEOF);
+	}
+
+	@Test
+	void pdfReadThroughSmallChunksGivesTheSameText() throws IOException {
+		File sample = new File(System.getProperty("samples.dir", "../Sample pdfs"), "Axis_Credit_Card_Statement.pdf");
+		assumeTrue(sample.isFile(), "Sample statement not found: " + sample);
+
+		String expected;
+		try (PDDocument document = Loader.loadPDF(sample)) {
+			expected = new PDFTextStripper().getText(document);
+		}
+		MappedRandomAccessRead read = new MappedRandomAccessRead(sample, 4096);
+		try (PDDocument document = Loader.loadPDF(read)) {
+			assertEquals(expected, new PDFTextStripper().getText(document));
+		}
+		assertTrue(read.isClosed());
+		assertFalse(expected.isBlank());
+	}
+
+	private MappedRandomAccessRead open(byte[] content) throws IOException {
+		file = File.createTempFile("mapped", ".bin");
+		Files.write(file.toPath(), content);
+		return new MappedRandomAccessRead(file, CHUNK);
+	}
+
+	private static byte[] bytes(int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (i * 7 + 3);
+		}
+		return bytes;
+	}
+}
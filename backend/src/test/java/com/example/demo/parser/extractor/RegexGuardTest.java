@@ -0,0 +1,125 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.CreditCardParser;
+import com.example.demo.parser.ParserFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegexGuardTest {
+
+	private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+
+	/** Triple nesting: the JDK engine short-circuits the textbook (a+)+b but not this */
+	private static final String CATASTROPHIC = "((a+)+)+b";
+
+	private static final String STATEMENT = String.join("\n",
+			"HDFC Bank Credit Card Statement",
+			"Card Number: XXXX XXXX XXXX 4321",
+			"Card Type: Regalia Gold",
+			"Card ending in 1009",
+			"Statement Date: 15/Sep/2024",
+			"Payment Due Date: 05-Oct-2024",
+			"Total Amount Due: Rs. 43,230.00",
+			"Minimum Amount Due: ₹ 2,160.00",
+			"Credit Limit: Rs 3,00,000.00",
+			"Available Credit Limit: 2,56,770.00",
+			"03/Sep/2024   AMAZON INDIA MARKETPLACE      1,499.00",
+			"05-Sep-2024\tPAYMENT RECEIVED - THANK YOU\tRs. 5,000.00",
+			"");
+
+	@AfterEach
+	void restoreDefaults() {
+		RegexGuard.configure(250, RegexGuard.Engine.JDK);
+	}
+
+	@Test
+	void catastrophicPatternIsAbandonedAtTheBudget() {
+		RegexGuard.configure(50, RegexGuard.Engine.JDK);
+		String text = "a".repeat(40) + "!";
+
+		long start = System.nanoTime();
+		assertThrows(RegexTimeoutException.class, () -> RegexGuard.findFirst(CATASTROPHIC, 0, text, 0));
+		assertTrue((System.nanoTime() - start) / 1_000_000 < 2000, "match ran well past its budget");
+
+		// Callers outside the guard get the same cut-off through the matcher
+		assertThrows(RegexTimeoutException.class,
+				() -> RegexGuard.matcher(Pattern.compile(CATASTROPHIC), text).find());
+	}
+
+	@Test
+	void parseDeadlineShortensTheBudget() {
+		RegexGuard.configure(60_000, RegexGuard.Engine.JDK);
+		try (ParseDeadline deadline = ParseDeadline.start(Duration.ofMillis(50))) {
+			assertThrows(RegexTimeoutException.class,
+					() -> RegexGuard.findFirst(CATASTROPHIC, 0, "a".repeat(40) + "!", 0));
+		}
+	}
+
+	@Test
+	void re2jRunsTheCatastrophicPatternInLinearTime() {
+		RegexGuard.configure(50, RegexGuard.Engine.RE2J);
+
+		assertNull(RegexGuard.findFirst(CATASTROPHIC, 0, "a".repeat(10_000) + "!", 0));
+		assertEquals("aaab", RegexGuard.findFirst(CATASTROPHIC, 0, "xaaab", 0));
+	}
+
+	@Test
+	void bothEnginesAgreeOnTheParserPatterns() {
+		Map<String, String> patterns = parserPatterns();
+		assertFalse(patterns.isEmpty());
+
+		RegexGuard.configure(1000, RegexGuard.Engine.JDK);
+		Map<String, List<String>> jdk = matchAll(patterns);
+		RegexGuard.configure(1000, RegexGuard.Engine.RE2J);
+		Map<String, List<String>> re2j = matchAll(patterns);
+
+		assertEquals(jdk, re2j);
+		assertTrue(jdk.values().stream().anyMatch(matches -> !matches.isEmpty()));
+	}
+
+	private static Map<String, List<String>> matchAll(Map<String, String> patterns) {
+		Map<String, List<String>> results = new LinkedHashMap<>();
+		for (Map.Entry<String, String> pattern : patterns.entrySet()) {
+			results.put(pattern.getKey() + "#0", RegexGuard.findAll(pattern.getValue(), FLAGS, STATEMENT, 0));
+			results.put(pattern.getKey() + "#1", RegexGuard.findAll(pattern.getValue(), FLAGS, STATEMENT, 1));
+			results.put(pattern.getKey() + "#first", List.of(String.valueOf(
+					RegexGuard.findFirst(pattern.getValue(), FLAGS, STATEMENT, 1))));
+		}
+		return results;
+	}
+
+	/**
+	 * @return Parser class and constant name to pattern, for every static *PATTERN constant
+	 */
+	private static Map<String, String> parserPatterns() {
+		Map<String, String> patterns = new LinkedHashMap<>();
+		for (CreditCardParser parser : ParserFactory.getAllParsers()) {
+			for (Field field : parser.getClass().getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class
+						&& field.getName().endsWith("PATTERN")) {
+					try {
+						field.setAccessible(true);
+						patterns.put(parser.getClass().getSimpleName() + "." + field.getName(), (String) field.get(null));
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			}
+		}
+		return patterns;
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.CreditCardParser;
+import com.example.demo.parser.ParserFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegexLintTest {
+
+	@Test
+	void nestedQuantifiersAreFlagged() {
+		assertFlagged("(a+)+b", "nested quantifier");
+		assertFlagged("(?:\\w+\\s*)*:", "nested quantifier");
+		assertFlagged("(?:[A-Z]{2,}\\s?)+$", "nested quantifier");
+	}
+
+	@Test
+	void wildcardFollowedByRepetitionIsFlagged() {
+		assertFlagged("Total.*\\s+Due", "unbounded wildcard");
+	}
+
+	@Test
+	void boundedAndPossessivePatternsPass() {
+		assertEquals(List.of(), RegexLint.check("\\d{2}-\\d{2}-\\d{4}"));
+		assertEquals(List.of(), RegexLint.check("(?:a+)*+b"));
+		assertEquals(List.of(), RegexLint.check("[(+*)]+\\d"));
+		assertEquals(List.of(), RegexLint.check("(?i)(?:Card\\s+No)\\s*:?\\s*(\\d{4})"));
+	}
+
+	@Test
+	void parserConstantsAreClean() {
+		for (CreditCardParser parser : ParserFactory.getAllParsers()) {
+			assertEquals(Map.of(), RegexLint.checkConstants(parser.getClass()),
+					parser.getClass().getSimpleName());
+		}
+	}
+
+	private static void assertFlagged(String regex, String finding) {
+		List<String> findings = RegexLint.check(regex);
+		assertTrue(findings.stream().anyMatch(f -> f.startsWith(finding)), regex + " -> " + findings);
+	}
+}
@@ -0,0 +1,169 @@
+package com.example.demo.parser.extractor;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SharedFontCacheTest {
+
+	private static final String FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+	private final SharedFontCache cache = SharedFontCache.getInstance();
+	private final List<File> files = new ArrayList<>();
+
+	@BeforeEach
+	void emptyCache() {
+		SharedFontCache.configure(32L * 1024 * 1024);
+		cache.clear();
+	}
+
+	@AfterEach
+	void deleteFiles() throws IOException {
+		cache.clear();
+		for (File file : files) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	@Test
+	void documentsSharingAnEmbeddedFontReuseOneInstance() throws IOException {
+		File first = statement("Statement Date: 15/09/2024");
+		File second = statement("Total Amount Due: 43,230.00");
+		long hits = cache.getHits();
+
+		PDFont font;
+		try (PDDocument document = PDFDocumentLoader.load(first)) {
+			font = font(document);
+			PDFDocumentLoader.releaseFonts(document);
+		}
+		try (PDDocument document = PDFDocumentLoader.load(second)) {
+			assertSame(font, font(document));
+			PDFDocumentLoader.releaseFonts(document);
+		}
+
+		assertEquals(1, cache.size());
+		assertEquals(hits + 1, cache.getHits());
+	}
+
+	@Test
+	void leasedFontsComeBackOnRelease() throws IOException {
+		File file = statement("Payment Due Date: 05/10/2024");
+
+		try (PDDocument holding = PDFDocumentLoader.load(file);
+			 PDDocument concurrent = PDFDocumentLoader.load(file)) {
+			PDFont held = font(holding);
+			// Not thread-safe, so a second document gets its own instance while the first holds it
+			PDFont other = font(concurrent);
+			assertNotSame(held, other);
+
+			PDFDocumentLoader.releaseFonts(holding);
+			try (PDDocument next = PDFDocumentLoader.load(file)) {
+				assertSame(held, font(next));
+			}
+		}
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void fontWithTheSameLengthsButOtherBytesIsNotShared() throws IOException {
+		File file = statement("Credit Limit: 3,00,000.00");
+
+		try (PDDocument document = PDFDocumentLoader.load(file)) {
+			COSDictionary original = fontDictionary(document);
+			SharedFontCache.Lease lease = cache.lease(new COSObject(original));
+			assertNotNull(lease);
+			cache.release(List.of(lease));
+
+			COSDictionary altered = alteredCopy(original);
+			SharedFontCache.Lease other = cache.lease(new COSObject(altered));
+			assertNotNull(other);
+			assertNotSame(lease.getFont(), other.getFont());
+			assertEquals(2, cache.size());
+			assertSame(lease.getFont(), cache.lease(new COSObject(original)).getFont());
+		}
+	}
+
+	private File statement(String line) throws IOException {
+		File file = File.createTempFile("fonts", ".pdf");
+		files.add(file);
+		try (PDDocument document = new PDDocument();
+			 InputStream ttf = SharedFontCacheTest.class.getResourceAsStream(FONT)) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			// Embedded whole, so every document carries the same font program
+			PDFont font = PDTrueTypeFont.load(document, ttf, WinAnsiEncoding.INSTANCE);
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				content.beginText();
+				content.setFont(font, 12);
+				content.newLineAtOffset(72, 700);
+				content.showText(line);
+				content.endText();
+			}
+			document.save(file);
+		}
+		return file;
+	}
+
+	private static PDFont font(PDDocument document) throws IOException {
+		PDResources resources = document.getPage(0).getResources();
+		COSName name = resources.getFontNames().iterator().next();
+		return resources.getFont(name);
+	}
+
+	private static COSDictionary fontDictionary(PDDocument document) {
+		PDResources resources = document.getPage(0).getResources();
+		COSDictionary fonts = resources.getCOSObject().getCOSDictionary(COSName.FONT);
+		return fonts.getCOSDictionary(fonts.keySet().iterator().next());
+	}
+
+	/**
+	 * Copy of the font whose program differs in its last byte, so every length stays the same
+	 */
+	private static COSDictionary alteredCopy(COSDictionary font) throws IOException {
+		COSDictionary descriptor = font.getCOSDictionary(COSName.FONT_DESC);
+		COSStream program = (COSStream) descriptor.getCOSStream(COSName.FONT_FILE2);
+		byte[] bytes;
+		try (InputStream in = program.createRawInputStream()) {
+			bytes = in.readAllBytes();
+		}
+		bytes[bytes.length - 1] ^= 1;
+		COSStream alteredProgram = new COSStream();
+		for (COSName key : program.keySet()) {
+			alteredProgram.setItem(key, program.getItem(key));
+		}
+		try (OutputStream out = alteredProgram.createRawOutputStream()) {
+			out.write(bytes);
+		}
+
+		COSDictionary alteredDescriptor = new COSDictionary(descriptor);
+		alteredDescriptor.setItem(COSName.FONT_FILE2, alteredProgram);
+		COSDictionary altered = new COSDictionary(font);
+		altered.setItem(COSName.FONT_DESC, alteredDescriptor);
+		assertEquals(program.getLength(), alteredProgram.getLength());
+		return altered;
+	}
+}
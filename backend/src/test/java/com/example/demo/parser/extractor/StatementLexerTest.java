@@ -0,0 +1,75 @@
+package com.example.demo.parser.extractor;
+
+import com.example.demo.parser.extractor.StatementToken.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementLexerTest {
+
+	@Test
+	void currencyGluedToItsAmountIsSplitOff() {
+		assertEquals(List.of("AMOUNT 1,234.00 INR", "AMOUNT 500 INR", "AMOUNT 20 INR", "AMOUNT 75.50 INR"),
+				tokens("Rs1,234.00 INR500 Rs. 20 ₹75.50"));
+		assertEquals(List.of("AMOUNT 1,234.00 INR"), tokens("Rs1,234.00"));
+	}
+
+	@Test
+	void wordsStartingLikeACurrencyStayWords() {
+		assertEquals(List.of("WORD RSVP null", "WORD INRA null", "AMOUNT 5 null"), tokens("RSVP INRA 5"));
+	}
+
+	@Test
+	void indianDigitGroupingIsOneAmount() {
+		assertEquals(List.of("AMOUNT 1,23,456.78 INR", "AMOUNT 12,34,56,789 null"), tokens("Rs. 1,23,456.78 12,34,56,789"));
+	}
+
+	@Test
+	void creditAndDebitSuffixesEndTheAmount() {
+		assertEquals(List.of("AMOUNT 1,234.00 null", "WORD Cr null", "AMOUNT 500.00 null", "WORD DR null",
+				"AMOUNT 75 INR", "WORD Cr null"), tokens("1,234.00Cr 500.00DR Rs 75 Cr"));
+		// Other letters make the whole run a word
+		assertEquals(List.of("WORD 2nd null", "WORD 3456ABC null", "WORD 10Credit null"), tokens("2nd 3456ABC 10Credit"));
+	}
+
+	@Test
+	void maskedCardsKeepTheirLastFourDigits() {
+		assertEquals(List.of("MASKED_CARD XXXX XXXX XXXX 1234 1234"), tokens("XXXX XXXX XXXX 1234"));
+		assertEquals(List.of("MASKED_CARD 4111-XXXX-XXXX-9876 9876"), tokens("4111-XXXX-XXXX-9876"));
+		assertEquals(List.of("MASKED_CARD 4375 XXXXXX X1005 1005"), tokens("4375 XXXXXX X1005"));
+		assertEquals(List.of("MASKED_CARD ************5678 5678"), tokens("************5678"));
+		// Too few masks, or not ending in four digits
+		assertEquals(Type.AMOUNT, StatementLexer.tokenize("4111 1111 1111 1111").get(0).getType());
+		assertEquals(Type.WORD, StatementLexer.tokenize("XXXX XXXX XXXX 123X").get(0).getType());
+	}
+
+	@Test
+	void datesAndKeywords() {
+		assertEquals(List.of("KEYWORD Total Amount Due Total Amount Due", "AMOUNT 43,230.00 INR",
+				"KEYWORD Statement Date Statement Date", "DATE 01-Oct-2024 null", "DATE Oct 20, 2024 null",
+				"DATE 2024-10-01 null"),
+				tokens("Total Amount Due: Rs. 43,230.00\nStatement Date 01-Oct-2024 Oct 20, 2024 2024-10-01"));
+		assertEquals(2, StatementLexer.tokenize("a\nb").get(1).getLine());
+	}
+
+	@Test
+	void allAmountsAreTheRupeeAmounts() {
+		assertEquals(List.of("1,234.00", "500", "20"),
+				AdvancedPDFExtractor.extractAllAmounts("Rs1,234.00 due, INR500 paid, $ 30 and Rs. 20 fee, 99 items"));
+	}
+
+	@Test
+	void allDatesAreGroupedByForm() {
+		assertEquals(List.of("05/10/2024", "01-Oct-2024", "20 Oct 2024"),
+				AdvancedPDFExtractor.extractAllDates("01-Oct-2024 then 20 Oct 2024 then 05/10/2024, 2024-10-01, 1-Oct-24"));
+	}
+
+	private static List<String> tokens(String text) {
+		return StatementLexer.tokenize(text).stream()
+				.map(token -> token.getType() + " " + token.getText() + " " + token.getValue())
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.demo.parser.issuer;
+
+import com.example.demo.parser.CreditCardParser;
+import com.example.demo.parser.extractor.CardCatalog;
+import com.example.demo.parser.extractor.ExtractedText;
+import com.example.demo.parser.extractor.NormalizedText;
+import com.example.demo.parser.model.CardProduct;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Card variants come from the labelled value before the catalog scan of the header, and
+ * everyday words in the catalog only count next to a label
+ */
+class CardVariantTest {
+
+	@Test
+	void labelledProductWinsOverGenericWordInHeader() throws IOException {
+		String text = "AXIS BANK CREDIT CARD STATEMENT\n"
+				+ "As per Reserve Bank of India guidelines, please pay on time.\n"
+				+ "Card Type: Magnus\n";
+		assertEquals("Magnus", variant(new AxisParser(), text));
+	}
+
+	@Test
+	void labelledProductWinsOverEarlierCatalogName() throws IOException {
+		String text = "ICICI BANK CREDIT CARD STATEMENT\n"
+				+ "Earn 5% back on Amazon Pay purchases this month.\n"
+				+ "Card Type: Coral\n";
+		assertEquals("Coral", variant(new ICICIParser(), text));
+	}
+
+	@Test
+	void headerScanSkipsGenericWordsAwayFromLabels() {
+		CardCatalog catalog = CardCatalog.getInstance();
+		assertNull(catalog.findProduct(NormalizedText.of("As per Reserve Bank of India guidelines"), "Axis Bank"));
+		assertEquals("Reserve", name(catalog.findProduct(NormalizedText.of("Card Type: Reserve"), "Axis Bank")));
+		assertEquals("Freedom", name(catalog.findProduct(NormalizedText.of("Your Freedom Credit Card"), "HDFC Bank")));
+		assertEquals("Reserve", name(catalog.findProduct(NormalizedText.of("Axis Bank Reserve statement"), "Axis Bank")));
+	}
+
+	@Test
+	void labelledValueMatchesGenericNames() {
+		CardCatalog catalog = CardCatalog.getInstance();
+		assertEquals("Platinum", name(catalog.findLabelledProduct("ICICI Platinum Card", "ICICI Bank")));
+		assertEquals("Select", name(catalog.findLabelledProduct("Select", "Axis Bank")));
+		assertNull(catalog.findLabelledProduct("Something New", "Axis Bank"));
+	}
+
+	private static String variant(CreditCardParser parser, String text) throws IOException {
+		File file = new File("statement-under-test.pdf");
+		try (ExtractedText extracted = ExtractedText.open(file, NormalizedText.of(text))) {
+			return parser.parse(file).getCardVariant();
+		}
+	}
+
+	private static String name(CardProduct product) {
+		return product != null ? product.getName() : null;
+	}
+}
@@ -0,0 +1,151 @@
+package com.example.demo.parser.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@Test
+	void retryGetsTheRecordedResponse() throws IOException {
+		IdempotencyStore store = store(Duration.ofHours(1), 10, DataSize.ofMegabytes(1));
+
+		IdempotencyStore.StoredResponse first = store.execute("ip:a", "k1", "parse:abc", () -> ok("first"));
+		IdempotencyStore.StoredResponse retry = store.execute("ip:a", "k1", "parse:abc", () -> ok("second"));
+
+		assertFalse(first.isReplayed());
+		assertTrue(retry.isReplayed());
+		assertArrayEquals(body("first"), retry.getBody());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void keyReusedForOtherContentIsRefused() throws IOException {
+		IdempotencyStore store = store(Duration.ofHours(1), 10, DataSize.ofMegabytes(1));
+		store.execute("ip:a", "k1", "parse:abc", () -> ok("first"));
+
+		assertThrows(IdempotencyKeyReusedException.class,
+				() -> store.execute("ip:a", "k1", "parse:def", () -> ok("second")));
+		// Keys belong to the client sending them
+		assertFalse(store.execute("ip:b", "k1", "parse:def", () -> ok("other")).isReplayed());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void streamedRetryIsCheckedAgainstTheBodyItSends() throws IOException {
+		IdempotencyStore store = store(Duration.ofHours(1), 10, DataSize.ofMegabytes(1));
+		store.executeStreamed("ip:a", "k1", () -> "parse-archive:never",
+				() -> new IdempotencyStore.StoredResponse(200, "application/x-ndjson", body("results"), "parse-archive:abc"));
+
+		assertTrue(store.executeStreamed("ip:a", "k1", () -> "parse-archive:abc", () -> ok("again")).isReplayed());
+		assertThrows(IdempotencyKeyReusedException.class,
+				() -> store.executeStreamed("ip:a", "k1", () -> "parse-archive:def", () -> ok("again")));
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	void streamedResponseWithoutFingerprintIsNotRecorded() throws IOException {
+		IdempotencyStore store = store(Duration.ofHours(1), 10, DataSize.ofMegabytes(1));
+		store.executeStreamed("ip:a", "k1", () -> "parse-archive:abc",
+				() -> new IdempotencyStore.StoredResponse(200, "application/x-ndjson", body("partial"), null));
+
+		assertEquals(0, store.size());
+	}
+
+	@Test
+	void retryWhileRunningWaitsAndIsChecked() throws Exception {
+		IdempotencyStore store = store(Duration.ofHours(1), 10, DataSize.ofMegabytes(1));
+		CountDownLatch running = new CountDownLatch(1);
+		CompletableFuture<Void> release = new CompletableFuture<>();
+		CompletableFuture<IdempotencyStore.StoredResponse> first = CompletableFuture.supplyAsync(() -> {
+			try {
+				return store.execute("ip:a", "k1", "parse:abc", () -> {
+					running.countDown();
+					release.join();
+					return ok("first");
+				});
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+
+		assertThrows(IdempotencyKeyReusedException.class,
+				() -> store.execute("ip:a", "k1", "parse:def", () -> ok("second")));
+		CompletableFuture<IdempotencyStore.StoredResponse> retry = CompletableFuture.supplyAsync(() -> {
+			try {
+				return store.execute("ip:a", "k1", "parse:abc", () -> ok("second"));
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		release.complete(null);
+
+		assertArrayEquals(body("first"), retry.get(5, TimeUnit.SECONDS).getBody());
+		assertTrue(retry.get().isReplayed());
+		assertFalse(first.get(5, TimeUnit.SECONDS).isReplayed());
+	}
+
+	@Test
+	void responsesToRetryAreNotRecorded() throws IOException {
+		IdempotencyStore store = store(Duration.ofHours(1), 10, DataSize.ofMegabytes(1));
+		store.execute("ip:a", "k1", "parse:abc",
+				() -> new IdempotencyStore.StoredResponse(503, "application/json", body("busy")));
+
+		assertFalse(store.execute("ip:a", "k1", "parse:abc", () -> ok("second")).isReplayed());
+	}
+
+	@Test
+	void oldestEntriesAreEvictedOverTheLimits() throws IOException {
+		IdempotencyStore byCount = store(Duration.ofHours(1), 2, DataSize.ofMegabytes(1));
+		byCount.execute("ip:a", "k1", "parse:1", () -> ok("one"));
+		byCount.execute("ip:a", "k2", "parse:2", () -> ok("two"));
+		byCount.execute("ip:a", "k3", "parse:3", () -> ok("three"));
+		assertEquals(2, byCount.size());
+		assertFalse(byCount.execute("ip:a", "k1", "parse:1", () -> ok("one")).isReplayed());
+		assertTrue(byCount.execute("ip:a", "k3", "parse:3", () -> ok("three")).isReplayed());
+
+		IdempotencyStore byBytes = store(Duration.ofHours(1), 10, DataSize.ofBytes(10));
+		byBytes.execute("ip:a", "k1", "parse:1", () -> ok("123456"));
+		byBytes.execute("ip:a", "k2", "parse:2", () -> ok("123456"));
+		assertEquals(1, byBytes.size());
+		assertTrue(byBytes.execute("ip:a", "k2", "parse:2", () -> ok("123456")).isReplayed());
+	}
+
+	@Test
+	void entriesExpire() throws Exception {
+		IdempotencyStore store = store(Duration.ofMillis(50), 10, DataSize.ofMegabytes(1));
+		store.execute("ip:a", "k1", "parse:abc", () -> ok("first"));
+		Thread.sleep(100);
+
+		assertFalse(store.execute("ip:a", "k1", "parse:def", () -> ok("second")).isReplayed());
+	}
+
+	private IdempotencyStore.StoredResponse ok(String content) {
+		calls.incrementAndGet();
+		return new IdempotencyStore.StoredResponse(200, "application/json", body(content));
+	}
+
+	private static byte[] body(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static IdempotencyStore store(Duration ttl, int maxEntries, DataSize maxBytes) {
+		return new IdempotencyStore(ttl, maxEntries, maxBytes, DataSize.ofMegabytes(1));
+	}
+}
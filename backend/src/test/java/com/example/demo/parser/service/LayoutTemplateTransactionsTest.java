@@ -0,0 +1,101 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.LayoutTemplates;
+import com.example.demo.parser.model.StatementData;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A layout learned from a month without transactions must not cost later statements of the
+ * same layout their transactions
+ */
+class LayoutTemplateTransactionsTest {
+
+	private static final String[][] TRANSACTIONS = {
+			{"03-Sep-24", "AMAZON INDIA", "1,499.00"},
+			{"05-Sep-24", "ZOMATO ORDER", "725.00"},
+			{"09-Sep-24", "FLIPKART ONLINE", "3,870.00"},
+	};
+
+	@TempDir
+	Path dir;
+
+	@BeforeEach
+	@AfterEach
+	void clearTemplates() {
+		LayoutTemplates.getInstance().clear();
+	}
+
+	@Test
+	void templateFromEmptyMonthKeepsLaterTransactions() throws IOException {
+		ParserService service = new ParserService();
+
+		StatementData empty = service.parseStatement(statement("empty.pdf", new String[0][]));
+		assertTrue(empty.isValid());
+		assertTrue(empty.getTransactions().isEmpty());
+		assertEquals(0, LayoutTemplates.getInstance().size());
+
+		// The statement with transactions goes through the issuer parser, not a page 1 template
+		StageTimer timer = new StageTimer();
+		StatementData busy = service.parseStatement(statement("busy.pdf", TRANSACTIONS), timer);
+		assertTrue(busy.isValid());
+		assertTrue(timer.getDurations().containsKey("parse"));
+		assertFalse(timer.getDurations().containsKey("layout"));
+		assertEquals(0, LayoutTemplates.getInstance().size());
+	}
+
+	private File statement(String name, String[][] transactions) throws IOException {
+		File file = dir.resolve(name).toFile();
+		try (PDDocument document = new PDDocument()) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				float y = 740;
+				for (String line : new String[]{
+						"HDFC BANK CREDIT CARD STATEMENT",
+						"Card Number: XXXX XXXX XXXX 1234",
+						"Statement Date: 01-Oct-2024",
+						"Payment Due Date: 20-Oct-2024",
+						"Total Amount Due: Rs. 43,230.00",
+						"Credit Limit: Rs. 3,00,000"}) {
+					text(content, font, 50, y, line);
+					y -= 20;
+				}
+				y -= 20;
+				for (String[] row : transactions) {
+					text(content, font, 50, y, row[0]);
+					text(content, font, 150, y, row[1]);
+					text(content, font, 450, y, row[2]);
+					y -= 20;
+				}
+			}
+			document.save(file);
+		}
+		return file;
+	}
+
+	private static void text(PDPageContentStream content, PDType1Font font, float x, float y, String text)
+			throws IOException {
+		content.beginText();
+		content.setFont(font, 10);
+		content.newLineAtOffset(x, y);
+		content.showText(text);
+		content.endText();
+	}
+}
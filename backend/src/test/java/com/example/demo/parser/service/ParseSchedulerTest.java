@@ -0,0 +1,137 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseSchedulerTest {
+
+	private static final String NO_CAPS = "interactive=0,batch=0,background=0";
+
+	@Test
+	void batchAndBackgroundShareTheSlotsOutsideTheReserve() throws Exception {
+		ParseScheduler scheduler = scheduler(3, 1, NO_CAPS, "interactive=8,batch=8,background=8");
+		ParseScheduler.Permit batch = scheduler.acquire(ParsePriority.BATCH);
+		ParseScheduler.Permit background = scheduler.acquire(ParsePriority.BACKGROUND);
+
+		Thread queued = start(() -> scheduler.acquire(ParsePriority.BATCH).close());
+		awaitQueued(scheduler, "batch", 1);
+
+		try (ParseDeadline deadline = ParseDeadline.start(Duration.ofMillis(500));
+			 ParseScheduler.Permit interactive = scheduler.acquire(ParsePriority.INTERACTIVE)) {
+			assertNotNull(interactive);
+			assertEquals(1, scheduler.stats().get("batch").getQueued());
+		}
+
+		background.close();
+		queued.join(5000);
+		assertEquals(0, scheduler.stats().get("batch").getQueued());
+		assertEquals(2, scheduler.stats().get("batch").getAdmitted());
+		batch.close();
+	}
+
+	@Test
+	void singleSlotHostKeepsTheReserve() throws Exception {
+		ParseScheduler scheduler = scheduler(1, 1, NO_CAPS, "interactive=8,batch=8,background=8");
+		try (ParseScheduler.Permit batch = scheduler.acquire(ParsePriority.BATCH);
+			 ParseDeadline deadline = ParseDeadline.start(Duration.ofMillis(500));
+			 ParseScheduler.Permit interactive = scheduler.acquire(ParsePriority.INTERACTIVE)) {
+			assertEquals(1, scheduler.stats().get("batch").getRunning());
+			assertEquals(1, scheduler.stats().get("interactive").getRunning());
+		}
+	}
+
+	@Test
+	void freeSlotsGoByWeight() throws Exception {
+		ParseScheduler scheduler = scheduler(1, 0, NO_CAPS, "interactive=32,batch=32,background=32");
+		List<ParsePriority> order = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = new ArrayList<>();
+
+		ParseScheduler.Permit held = scheduler.acquire(ParsePriority.INTERACTIVE);
+		for (int i = 0; i < 16; i++) {
+			for (ParsePriority priority : new ParsePriority[]{ParsePriority.INTERACTIVE, ParsePriority.BATCH}) {
+				threads.add(start(() -> {
+					try (ParseScheduler.Permit permit = scheduler.acquire(priority)) {
+						order.add(priority);
+					}
+				}));
+			}
+		}
+		awaitQueued(scheduler, "interactive", 16);
+		awaitQueued(scheduler, "batch", 16);
+		held.close();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+
+		assertEquals(32, order.size());
+		long interactive = order.subList(0, 10).stream().filter(p -> p == ParsePriority.INTERACTIVE).count();
+		assertTrue(interactive >= 7 && interactive <= 9, "interactive parses among the first ten: " + interactive);
+	}
+
+	@Test
+	void callersOverTheQueueBoundAreRejected() throws Exception {
+		ParseScheduler scheduler = scheduler(1, 0, NO_CAPS, "interactive=8,batch=1,background=8");
+		ParseScheduler.Permit held = scheduler.acquire(ParsePriority.INTERACTIVE);
+		Thread queued = start(() -> scheduler.acquire(ParsePriority.BATCH).close());
+		awaitQueued(scheduler, "batch", 1);
+
+		assertThrows(ParseRejectedException.class, () -> scheduler.acquire(ParsePriority.BATCH));
+		assertEquals(1, scheduler.stats().get("batch").getRejected());
+
+		held.close();
+		queued.join(5000);
+		assertEquals(1, scheduler.stats().get("batch").getAdmitted());
+	}
+
+	@Test
+	void waitEndsAtTheCallersDeadline() throws Exception {
+		ParseScheduler scheduler = scheduler(1, 0, NO_CAPS, "interactive=8,batch=8,background=8");
+		try (ParseScheduler.Permit held = scheduler.acquire(ParsePriority.INTERACTIVE)) {
+			try (ParseDeadline deadline = ParseDeadline.start(Duration.ofMillis(100))) {
+				assertThrows(ParseTimeoutException.class, () -> scheduler.acquire(ParsePriority.BATCH));
+			}
+			assertEquals(0, scheduler.stats().get("batch").getQueued());
+			assertEquals(1, scheduler.stats().get("batch").getTimedOut());
+		}
+	}
+
+	private static ParseScheduler scheduler(int slots, int reserve, String maxConcurrency, String maxQueued) {
+		return new ParseScheduler(true, slots, reserve, "interactive=8,batch=2,background=1",
+				maxConcurrency, maxQueued, "");
+	}
+
+	private static void awaitQueued(ParseScheduler scheduler, String priority, int queued) throws InterruptedException {
+		long until = System.currentTimeMillis() + 5000;
+		while (scheduler.stats().get(priority).getQueued() < queued && System.currentTimeMillis() < until) {
+			Thread.sleep(5);
+		}
+		assertEquals(queued, scheduler.stats().get(priority).getQueued());
+	}
+
+	private static Thread start(Acquire acquire) {
+		Thread thread = new Thread(() -> {
+			try {
+				acquire.run();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private interface Acquire {
+		void run() throws Exception;
+	}
+}
@@ -0,0 +1,192 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.model.StatementData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Identical statements parsed at once: only the caller running the parse holds a scheduler slot,
+ * the callers joining it neither queue nor count as running
+ */
+class ParserServiceCoalescingTest {
+
+	private static final int IDENTICAL = 6;
+
+	private final File samples = new File(System.getProperty("samples.dir", "../Sample pdfs"));
+
+	private Path hdfc;
+	private Path axis;
+
+	@BeforeEach
+	void copySamples() throws Exception {
+		File hdfcSample = new File(samples, "HDFC_Credit_Card_Statement.pdf");
+		File axisSample = new File(samples, "Axis_Credit_Card_Statement.pdf");
+		assumeTrue(hdfcSample.isFile() && axisSample.isFile(), "Sample statements not found in " + samples);
+		hdfc = Files.createTempFile("coalesce", ".pdf");
+		axis = Files.createTempFile("coalesce", ".pdf");
+		Files.copy(hdfcSample.toPath(), hdfc, StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(axisSample.toPath(), axis, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	@AfterEach
+	void deleteCopies() throws Exception {
+		if (hdfc != null) {
+			Files.deleteIfExists(hdfc);
+		}
+		if (axis != null) {
+			Files.deleteIfExists(axis);
+		}
+	}
+
+	@Test
+	void followersDoNotRaiseRunning() throws Exception {
+		ParseScheduler scheduler = scheduler(4, 0);
+		ParserService service = new ParserService(scheduler);
+
+		try (Sampler sampler = new Sampler(scheduler)) {
+			List<CompletableFuture<StatementData>> parses = parseAll(service, hdfc.toFile(), IDENTICAL);
+			StatementData first = parses.get(0).get(30, TimeUnit.SECONDS);
+			for (CompletableFuture<StatementData> parse : parses) {
+				assertEquals(first.getCardLastFourDigits(), parse.get(30, TimeUnit.SECONDS).getCardLastFourDigits());
+			}
+
+			assertEquals(1, sampler.maxRunning.get(), "one slot for one statement, however many callers");
+			assertEquals(0, sampler.maxQueued.get());
+		}
+		assertEquals(0, scheduler.stats().get("interactive").getRunning());
+	}
+
+	@Test
+	void identicalParsesLeaveTheOtherSlotFree() throws Exception {
+		ParseScheduler scheduler = scheduler(2, 0);
+		ParserService service = new ParserService(scheduler);
+
+		try (Sampler sampler = new Sampler(scheduler)) {
+			List<CompletableFuture<StatementData>> parses = parseAll(service, hdfc.toFile(), IDENTICAL);
+			parses.add(parse(service, axis.toFile(), new CountDownLatch(0)));
+			for (CompletableFuture<StatementData> parse : parses) {
+				assertTrue(parse.get(30, TimeUnit.SECONDS).isValid());
+			}
+
+			assertTrue(sampler.maxRunning.get() <= 2, "running: " + sampler.maxRunning.get());
+			assertEquals(0, sampler.maxQueued.get(), "no caller waited for a slot");
+		}
+		assertEquals(0, scheduler.stats().get("interactive").getTimedOut());
+		assertEquals(0, scheduler.stats().get("interactive").getRejected());
+	}
+
+	@Test
+	void callerJoiningAQueuedParseWaitsWithoutQueueing() throws Exception {
+		ParseScheduler scheduler = new ParseScheduler(true, 2, 1, "interactive=8,batch=2,background=1",
+				"interactive=0,batch=0,background=1", "interactive=256,batch=64,background=16", "");
+		ParserService service = new ParserService(scheduler);
+
+		// A backfill holds the only bulk slot, so the batch parse of the statement queues
+		ParseScheduler.Permit backfill = scheduler.acquire(ParsePriority.BATCH);
+		try {
+			CompletableFuture<StatementData> batch = CompletableFuture.supplyAsync(() -> {
+				try (ParsePriority.Scope scope = ParsePriority.BATCH.open()) {
+					return service.parseStatement(hdfc.toFile());
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			});
+			awaitQueued(scheduler, "batch", 1);
+
+			CompletableFuture<StatementData> interactive = parse(service, hdfc.toFile(), new CountDownLatch(0));
+			Thread.sleep(200);
+			assertEquals(0, scheduler.stats().get("interactive").getQueued());
+			assertEquals(0, scheduler.stats().get("interactive").getRunning());
+			assertEquals(1, scheduler.stats().get("batch").getQueued());
+
+			backfill.close();
+			StatementData data = batch.get(30, TimeUnit.SECONDS);
+			assertEquals(data.getCardLastFourDigits(), interactive.get(30, TimeUnit.SECONDS).getCardLastFourDigits());
+			assertEquals(0, scheduler.stats().get("interactive").getAdmitted());
+		} finally {
+			backfill.close();
+		}
+	}
+
+	private static ParseScheduler scheduler(int slots, int reserve) {
+		return new ParseScheduler(true, slots, reserve, "interactive=8,batch=2,background=1",
+				"interactive=0,batch=0,background=0", "interactive=256,batch=64,background=16", "");
+	}
+
+	/**
+	 * Start the parses together, so they overlap
+	 */
+	private static List<CompletableFuture<StatementData>> parseAll(ParserService service, File file, int count) {
+		CountDownLatch gate = new CountDownLatch(1);
+		List<CompletableFuture<StatementData>> parses = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			parses.add(parse(service, file, gate));
+		}
+		gate.countDown();
+		return parses;
+	}
+
+	private static CompletableFuture<StatementData> parse(ParserService service, File file, CountDownLatch gate) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				gate.await();
+				return service.parseStatement(file);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}, runnable -> new Thread(runnable).start());
+	}
+
+	private static void awaitQueued(ParseScheduler scheduler, String priority, int queued) throws InterruptedException {
+		long until = System.currentTimeMillis() + 5000;
+		while (scheduler.stats().get(priority).getQueued() < queued && System.currentTimeMillis() < until) {
+			Thread.sleep(5);
+		}
+		assertEquals(queued, scheduler.stats().get(priority).getQueued());
+	}
+
+	/**
+	 * Highest interactive running and queued counts seen while open
+	 */
+	private static final class Sampler implements AutoCloseable {
+		private final AtomicInteger maxRunning = new AtomicInteger();
+		private final AtomicInteger maxQueued = new AtomicInteger();
+		private final AtomicBoolean open = new AtomicBoolean(true);
+		private final Thread thread;
+
+		Sampler(ParseScheduler scheduler) {
+			thread = new Thread(() -> {
+				while (open.get()) {
+					ParseScheduler.ClassStats stats = scheduler.stats().get("interactive");
+					maxRunning.accumulateAndGet(stats.getRunning(), Math::max);
+					maxQueued.accumulateAndGet(stats.getQueued(), Math::max);
+					Thread.onSpinWait();
+				}
+			});
+			thread.start();
+		}
+
+		@Override
+		public void close() throws InterruptedException {
+			open.set(false);
+			thread.join(5000);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.demo.parser.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+	private static final String CLIENT = "ip:10.0.0.1";
+
+	@Test
+	void burstIsSpentThenRefused() {
+		RateLimiter limiter = limiter(0.01, 3);
+
+		assertEquals(2, limiter.tryAcquire(CLIENT, 1).getRemaining());
+		assertEquals(1, limiter.tryAcquire(CLIENT, 1).getRemaining());
+		assertEquals(0, limiter.tryAcquire(CLIENT, 1).getRemaining());
+
+		RateLimiter.Decision refused = limiter.tryAcquire(CLIENT, 1);
+		assertFalse(refused.isAllowed());
+		assertEquals(3, refused.getLimit());
+		assertEquals(100, refused.getRetryAfterSeconds());
+		assertEquals(300, refused.getResetSeconds());
+		assertTrue(limiter.tryAcquire("ip:10.0.0.2", 1).isAllowed());
+	}
+
+	@Test
+	void requestOverTheBurstEmptiesAFullBucket() {
+		RateLimiter limiter = limiter(0.01, 3);
+
+		RateLimiter.Decision large = limiter.tryAcquire(CLIENT, 10);
+		assertTrue(large.isAllowed());
+		assertEquals(0, large.getRemaining());
+		assertFalse(limiter.tryAcquire(CLIENT, 1).isAllowed());
+	}
+
+	@Test
+	void tokensComeBackOverTime() throws InterruptedException {
+		RateLimiter limiter = limiter(20, 1);
+
+		assertTrue(limiter.tryAcquire(CLIENT, 1).isAllowed());
+		assertFalse(limiter.tryAcquire(CLIENT, 1).isAllowed());
+		Thread.sleep(120);
+		assertTrue(limiter.tryAcquire(CLIENT, 1).isAllowed());
+	}
+
+	@Test
+	void chargesPastTheBalanceArePaidOffFirst() {
+		RateLimiter limiter = limiter(0.01, 5);
+
+		limiter.charge(CLIENT, 10);
+		RateLimiter.Decision refused = limiter.tryAcquire(CLIENT, 1);
+		assertFalse(refused.isAllowed());
+		assertEquals(0, refused.getRemaining());
+		// 10 tokens owed against a full bucket of 5, plus the 1 asked for, at 100 s a token
+		assertEquals(600, refused.getRetryAfterSeconds());
+	}
+
+	@Test
+	void bodyBytesAreChargedPerStartedToken() {
+		RateLimiter limiter = limiter(1, 10);
+
+		assertEquals(1, limiter.costOf(0));
+		assertEquals(2, limiter.costOf(1));
+		assertEquals(2, limiter.costOf(1024));
+		assertEquals(3, limiter.costOf(1025));
+		assertEquals(1, limiter.costOfBytes(2047));
+	}
+
+	private static RateLimiter limiter(double tokensPerSecond, int burst) {
+		return new RateLimiter(true, tokensPerSecond, burst, DataSize.ofBytes(1024), "", 100);
+	}
+}
@@ -0,0 +1,155 @@
+package com.example.demo.parser.service;
+
+import com.example.demo.parser.extractor.ParseDeadline;
+import com.example.demo.parser.extractor.ParseTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+	private final SingleFlight<String, String> flight = new SingleFlight<>();
+	private volatile String waiterResult;
+	private volatile Exception waiterFailure;
+
+	@Test
+	void waiterSharesTheResult() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(() -> {
+			calls.incrementAndGet();
+			release.await();
+			return "parsed";
+		}));
+		awaitInFlight();
+		Thread waiterThread = startWaiter(() -> flight.execute("key", () -> {
+			calls.incrementAndGet();
+			return "again";
+		}));
+		awaitWaiting(waiterThread);
+		release.countDown();
+
+		assertEquals("parsed", leader.get(5, TimeUnit.SECONDS));
+		waiterThread.join(5000);
+		assertEquals("parsed", waiterResult);
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void waiterRunsTheCallWhenTheLeaderTimesOut() throws Exception {
+		assertWaiterRetries(new ParseTimeoutException("Parse cancelled"));
+	}
+
+	@Test
+	void waiterRunsTheCallWhenTheLeaderIsRejected() throws Exception {
+		assertWaiterRetries(new ParseRejectedException("Too many batch parses waiting (64)"));
+	}
+
+	@Test
+	void waiterSharesFailuresOfTheWork() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(() -> {
+			release.await();
+			throw new IOException("Invalid PDF file");
+		}));
+		awaitInFlight();
+		Thread waiterThread = startWaiter(() -> flight.execute("key", () -> "again"));
+		awaitWaiting(waiterThread);
+		release.countDown();
+
+		waiterThread.join(5000);
+		assertEquals("Invalid PDF file", waiterFailure.getMessage());
+		assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void waiterGivesUpAtItsOwnDeadline() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(() -> {
+			release.await();
+			return "parsed";
+		}));
+		awaitInFlight();
+		try (ParseDeadline deadline = ParseDeadline.start(Duration.ofMillis(100))) {
+			assertThrows(ParseTimeoutException.class, () -> flight.execute("key", () -> "again"));
+		} finally {
+			release.countDown();
+		}
+		assertEquals("parsed", leader.get(5, TimeUnit.SECONDS));
+	}
+
+	private void assertWaiterRetries(IOException leaderFailure) throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(() -> {
+			release.await();
+			throw leaderFailure;
+		}));
+		awaitInFlight();
+		Thread waiterThread = startWaiter(() -> flight.execute("key", () -> "parsed by waiter"));
+		awaitWaiting(waiterThread);
+		release.countDown();
+
+		waiterThread.join(5000);
+		assertEquals("parsed by waiter", waiterResult);
+		assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+		assertEquals(0, flight.size());
+	}
+
+	private interface Work {
+		String run() throws Exception;
+	}
+
+	private String call(Work work) {
+		try {
+			return flight.execute("key", () -> {
+				try {
+					return work.run();
+				} catch (IOException | RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+			});
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Thread startWaiter(Work work) {
+		Thread thread = new Thread(() -> {
+			try {
+				waiterResult = work.run();
+			} catch (Exception e) {
+				waiterFailure = e;
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private void awaitInFlight() throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (flight.size() == 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+		assertEquals(1, flight.size());
+	}
+
+	/** Blocked on the leader's result, so it has joined rather than started its own call */
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+		assertEquals(Thread.State.WAITING, thread.getState());
+	}
+}
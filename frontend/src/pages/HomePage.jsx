@@ -18,16 +18,33 @@ const HomePage = () => {
     const [apiStatus, setApiStatus] = useState(API_STATUS.IDLE);
     const [parsedData, setParsedData] = useState(null);
     const [error, setError] = useState(null);
+    const [progress, setProgress] = useState(null);
 
     const handleFileSelect = async (file) => {
         console.log('📁 File selected:', file.name, file.size, file.type);
         setApiStatus(API_STATUS.LOADING);
         setError(null);
+        setProgress(null);
 
         try {
             // Parse the statement
             console.log('🚀 Sending request to API...');
-            const data = await statementAPI.parseStatement(file);
+            const data = await statementAPI.parseStatementWithProgress(file, (event, payload) => {
+                if (event === 'page') {
+                    setProgress(`Reading page ${payload.page} of ${payload.pages}...`);
+                } else if (event === 'issuer') {
+                    setProgress(`Found a ${payload.issuer} statement...`);
+                } else if (event === 'summary') {
+                    // Show the summary while the transactions are still being read
+                    setParsedData({ ...payload, transactions: [] });
+                    setApiStatus(API_STATUS.SUCCESS);
+                } else if (event === 'transaction') {
+                    setParsedData((current) => current && {
+                        ...current,
+                        transactions: [...(current.transactions || []), payload],
+                    });
+                }
+            });
             console.log('✅ Response received:', data);
             setApiStatus(API_STATUS.SUCCESS);
             setParsedData(data);
@@ -48,6 +65,7 @@ const HomePage = () => {
         setApiStatus(API_STATUS.IDLE);
         setParsedData(null);
         setError(null);
+        setProgress(null);
     };
 
     return (
@@ -129,7 +147,7 @@ const HomePage = () => {
                 {/* Loading State */}
                 {apiStatus === API_STATUS.LOADING && (
                     <Card className="max-w-2xl mx-auto text-center py-16">
-                        <Loader size="lg" text="Processing your statement..." />
+                        <Loader size="lg" text={progress || 'Processing your statement...'} />
                         <p className="text-sm text-gray-500 mt-4">
                             This may take a few seconds depending on file size
                         </p>
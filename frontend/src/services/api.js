@@ -71,6 +71,59 @@ export const statementAPI = {
         return response.data;
     },
 
+    /**
+     * Parse a credit card statement PDF, reporting progress while the server works on it
+     * @param {File} file - PDF file to parse
+     * @param {Function} onEvent - Called with (event, data) for each page, issuer, summary and transaction event
+     * @returns {Promise<Object>} The parsed statement, as returned by parseStatement
+     */
+    parseStatementWithProgress: async (file, onEvent) => {
+        const formData = new FormData();
+        formData.append('file', file);
+
+        const token = localStorage.getItem('token');
+        const response = await fetch(`${api.defaults.baseURL}/parse`, {
+            method: 'POST',
+            headers: {
+                Accept: 'text/event-stream',
+                ...(token ? { Authorization: `Bearer ${token}` } : {}),
+            },
+            body: formData,
+        });
+
+        // Refusals before the parse starts (e.g. rate limits) come back as plain JSON
+        if (!(response.headers.get('Content-Type') || '').startsWith('text/event-stream')) {
+            const data = await response.json().catch(() => ({}));
+            throw Object.assign(new Error(data.error || `HTTP ${response.status}`), { response: { status: response.status, data } });
+        }
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = '';
+        for (;;) {
+            const { done, value } = await reader.read();
+            if (done) {
+                break;
+            }
+            buffer += decoder.decode(value, { stream: true });
+            let end;
+            while ((end = buffer.indexOf('\n\n')) >= 0) {
+                const message = buffer.slice(0, end);
+                buffer = buffer.slice(end + 2);
+                const event = message.match(/^event: (.*)$/m)?.[1];
+                const data = JSON.parse(message.match(/^data: (.*)$/m)?.[1] || 'null');
+                if (event === 'result') {
+                    return data;
+                }
+                if (event === 'error') {
+                    throw Object.assign(new Error(data.error), { response: { status: data.status, data } });
+                }
+                onEvent?.(event, data);
+            }
+        }
+        throw new Error('Connection closed before the statement was parsed');
+    },
+
     /**
      * Debug a PDF (extract raw text)
      * @param {File} file - PDF file to debug